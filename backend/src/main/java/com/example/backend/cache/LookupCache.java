@@ -0,0 +1,106 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.CacheStatistics;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.routing.RoutingContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Bounded read-through cache of mapped customer and address lookups by id.
+// Entries expire after a TTL or when the size bound is hit, and are evicted when a committed change touches them:
+// an address change evicts the address and its customer (whose response embeds the addresses),
+// a customer delete also evicts all of that customer's addresses.
+// Loaders run outside the cache's map locks: they need a database connection, and the after-commit evictions run
+// on threads that still hold one, so loading under the lock can exhaust the pool.
+// Misses load from the primary: the eviction that caused one ran on commit, so a lagging replica may still
+// return the row from before the change, which would then be served for the whole TTL.
+@Component
+public class LookupCache {
+
+    private final boolean enabled;
+    private final Cache<Integer, CustomerResponse> customers;
+    private final Cache<Integer, AddressResponse> addresses;
+    // Bumped before every eviction, so a load that raced one can tell its result may predate the change
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public LookupCache(@Value("${app.cache.enabled:true}") boolean enabled,
+                       @Value("${app.cache.ttl:10m}") Duration ttl,
+                       @Value("${app.cache.customers.max-size:10000}") long maxCustomers,
+                       @Value("${app.cache.addresses.max-size:50000}") long maxAddresses) {
+        this.enabled = enabled;
+        this.customers = Caffeine.newBuilder().maximumSize(maxCustomers).expireAfterWrite(ttl).recordStats().build();
+        this.addresses = Caffeine.newBuilder().maximumSize(maxAddresses).expireAfterWrite(ttl).recordStats().build();
+    }
+
+    // Cached customer response, loaded on a miss; loader exceptions (e.g. not found) propagate and nothing is cached
+    public CustomerResponse customer(Integer id, Function<Integer, CustomerResponse> loader) {
+        return enabled ? get(customers, id, loader) : loader.apply(id);
+    }
+
+    public AddressResponse address(Integer id, Function<Integer, AddressResponse> loader) {
+        return enabled ? get(addresses, id, loader) : loader.apply(id);
+    }
+
+    private <V> V get(Cache<Integer, V> cache, Integer id, Function<Integer, V> loader) {
+        V cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        V loaded = RoutingContext.onPrimary(() -> loader.apply(id));
+        cache.put(id, loaded);
+        if (invalidations.get() != generation) {
+            // An eviction ran while loading; the value may be stale, serve it but don't keep it
+            cache.invalidate(id);
+        }
+        return loaded;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, CacheStatistics> statistics() {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        statistics.put("customers", statistics(customers));
+        statistics.put("addresses", statistics(addresses));
+        return statistics;
+    }
+
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        invalidations.incrementAndGet();
+        customers.invalidate(event.customerId());
+        if (event.type() == ChangeType.DELETED) {
+            // The cascade removed the customer's addresses, drop whichever of them are cached
+            addresses.asMap().values().removeIf(address -> event.customerId().equals(address.getCustomerId()));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAddressChanged(AddressChangedEvent event) {
+        invalidations.incrementAndGet();
+        addresses.invalidate(event.addressId());
+        customers.invalidate(event.customerId());
+    }
+
+    private static CacheStatistics statistics(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+}
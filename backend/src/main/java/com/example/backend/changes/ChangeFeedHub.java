@@ -0,0 +1,260 @@
+package com.example.backend.changes;
+
+import com.example.backend.dto.ChangeEntry;
+import com.example.backend.repository.ChangeLogRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fans committed change_log entries out to Server-Sent Events subscribers.
+//
+// New entries are read from change_log once per commit notification (or poll, for commits made by other
+// instances) and offered to every subscriber's bounded buffer. Each subscriber is written by at most one sender
+// thread at a time, so a slow client only delays itself. When a buffer is full the subscriber stops taking live
+// entries and catches up from change_log at its own pace, then rejoins. Sequences are gapless, so a subscriber
+// only ever sends lastSent + 1 and any gap sends it back to the table.
+@Slf4j
+@Component
+public class ChangeFeedHub {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final int batchSize;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long heartbeatNanos;
+    private final ExecutorService senders;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    // Last sequence offered to the subscribers, -1 until the first poll with subscribers
+    private volatile long head = -1;
+
+    public ChangeFeedHub(ChangeLogRepository changeLogRepository,
+                         @Value("${app.changes.batch-size:500}") int batchSize,
+                         @Value("${app.changes.subscriber-buffer:1000}") int bufferSize,
+                         @Value("${app.changes.max-subscribers:1000}") int maxSubscribers,
+                         @Value("${app.changes.heartbeat-interval:15s}") Duration heartbeat,
+                         @Value("${app.changes.sender-threads:4}") int senderThreads) {
+        this.changeLogRepository = changeLogRepository;
+        this.batchSize = batchSize;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatNanos = heartbeat.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Subscribe from after the given sequence; null when the subscriber limit is reached
+    public SseEmitter subscribe(long since) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        try {
+            // Commits the response headers now rather than with the first change or heartbeat
+            emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    // Called after a transaction that wrote change_log entries commits
+    public void committed() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        pollRequested.set(true);
+        if (polling.compareAndSet(false, true)) {
+            senders.execute(this::poll);
+        }
+    }
+
+    // Picks up commits from other instances, retries subscribers that are behind and keeps idle connections alive
+    @Scheduled(fixedDelayString = "${app.changes.poll-interval:1s}")
+    public void tick() {
+        if (subscribers.isEmpty()) {
+            head = -1;
+            return;
+        }
+        committed();
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.live || now - subscriber.lastWrite > heartbeatNanos) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void poll() {
+        try {
+            while (pollRequested.getAndSet(false)) {
+                if (head < 0) {
+                    // Subscribers joining before this point catch up from the table on their own
+                    head = changeLogRepository.lastSeq();
+                }
+                int read;
+                do {
+                    List<ChangeEntry> entries = changeLogRepository.findSince(head, batchSize);
+                    read = entries.size();
+                    if (read > 0) {
+                        head = entries.get(read - 1).getSeq();
+                        subscribers.forEach(subscriber -> offer(subscriber, entries));
+                    }
+                } while (read == batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Change feed poll failed", e);
+        } finally {
+            polling.set(false);
+            // A commit that arrived while the last read was finishing
+            if (pollRequested.get() && polling.compareAndSet(false, true)) {
+                senders.execute(this::poll);
+            }
+        }
+    }
+
+    private void offer(Subscriber subscriber, List<ChangeEntry> entries) {
+        if (subscriber.live) {
+            synchronized (subscriber.buffer) {
+                if (subscriber.buffer.size() + entries.size() <= bufferSize) {
+                    subscriber.buffer.addAll(entries);
+                } else {
+                    subscriber.fallBehind();
+                }
+            }
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        subscriber.pending.set(true);
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            // Bounded work per turn, so one busy subscriber can't hold a sender thread
+            for (int round = 0; round < 4 && subscriber.pending.getAndSet(false); round++) {
+                subscriber.drain();
+            }
+            if (System.nanoTime() - subscriber.lastWrite > heartbeatNanos) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                subscriber.lastWrite = System.nanoTime();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } catch (RuntimeException e) {
+            // Retried from the table on the next tick
+            log.warn("Change feed delivery failed", e);
+            subscriber.fallBehind();
+            subscriber.pending.set(false);
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (subscriber.pending.get()) {
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<ChangeEntry> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Taking entries from the hub; false while catching up from change_log
+        private volatile boolean live;
+        // Only touched by the sending thread
+        private long lastSent;
+        private volatile long lastWrite = System.nanoTime();
+
+        Subscriber(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.lastSent = since;
+        }
+
+        void fallBehind() {
+            live = false;
+            buffer.clear();
+        }
+
+        // Send what is buffered, or the next batch from the table while behind
+        void drain() throws IOException {
+            List<ChangeEntry> entries;
+            if (live) {
+                synchronized (buffer) {
+                    entries = new ArrayList<>(buffer);
+                    buffer.clear();
+                }
+            } else {
+                if (lastSent < changeLogRepository.compactedThrough()) {
+                    emitter.send(SseEmitter.event().name("compacted").data(changeLogRepository.lastSeq()));
+                    emitter.complete();
+                    return;
+                }
+                entries = changeLogRepository.findSince(lastSent, batchSize);
+                if (entries.size() < batchSize) {
+                    // Caught up: whatever commits next reaches the buffer, anything in between is a gap below
+                    live = true;
+                } else {
+                    pending.set(true);
+                }
+            }
+
+            for (ChangeEntry entry : entries) {
+                if (entry.getSeq() <= lastSent) {
+                    continue;
+                }
+                if (entry.getSeq() != lastSent + 1) {
+                    fallBehind();
+                    pending.set(true);
+                    return;
+                }
+                emitter.send(SseEmitter.event().id(String.valueOf(entry.getSeq())).name("change")
+                        .data(entry, MediaType.APPLICATION_JSON));
+                lastSent = entry.getSeq();
+                lastWrite = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.backend.changes;
+
+import com.example.backend.repository.ChangeLogRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deletes change_log entries older than the retention window, in sequence ranges so each delete is short.
+// Consumers asking for compacted sequences get CHANGES_COMPACTED and reload. Sharded, each shard's log is compacted.
+@Slf4j
+@Component
+public class ChangeLogCompactor {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+    private final int chunkSize;
+
+    public ChangeLogCompactor(ChangeLogRepository changeLogRepository,
+                              ShardRouter shardRouter,
+                              @Value("${app.changes.retention:7d}") Duration retention,
+                              @Value("${app.changes.compact-chunk-size:10000}") int chunkSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.shardRouter = shardRouter;
+        this.retention = retention;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.changes.compact-cron:0 30 3 * * *}")
+    public long compact() {
+        AtomicLong deleted = new AtomicLong();
+        shardRouter.forEachShard(shard -> deleted.addAndGet(compactShard()));
+        return deleted.get();
+    }
+
+    private long compactShard() {
+        Long through = changeLogRepository.findLastSeqBefore(Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        long from = changeLogRepository.compactedThrough();
+        if (through == null || through <= from) {
+            return 0;
+        }
+
+        long deleted = 0;
+        for (long after = from; after < through; after += chunkSize) {
+            long upTo = Math.min(after + chunkSize, through);
+            // Marked first, so no reader is served a range that is being deleted
+            changeLogRepository.markCompactedThrough(upTo);
+            deleted += changeLogRepository.deleteRange(after, upTo);
+        }
+        log.info("Compacted {} change log entries through sequence {}", deleted, through);
+        return deleted;
+    }
+}
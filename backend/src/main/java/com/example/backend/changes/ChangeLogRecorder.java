@@ -0,0 +1,119 @@
+package com.example.backend.changes;
+
+import com.example.backend.dto.ChangeEntry;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.ChangeLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Appends every customer and address change event to change_log in the transaction that made the change.
+// Entries are collected during the transaction and written just before commit, with one sequence reservation
+// per transaction, so the sequence row stays locked only for the insert and the commit itself.
+@Component
+public class ChangeLogRecorder {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeFeedHub changeFeedHub;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChangeLogRecorder(ChangeLogRepository changeLogRepository, ChangeFeedHub changeFeedHub) {
+        this.changeLogRepository = changeLogRepository;
+        this.changeFeedHub = changeFeedHub;
+    }
+
+    // Plain listeners, not @TransactionalEventListener: they must run inside the publishing transaction
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        Customer customer = event.customer();
+        record(new PendingChange(new ChangeEntry(0, ChangeEntry.CUSTOMER, event.customerId(), event.customerId(),
+                event.type(), null, null), customer == null ? null : customer::getVersion));
+    }
+
+    @EventListener
+    public void onAddressChanged(AddressChangedEvent event) {
+        Address address = event.address();
+        record(new PendingChange(new ChangeEntry(0, ChangeEntry.ADDRESS, event.addressId(), event.customerId(),
+                event.type(), null, null), address == null ? null : address::getVersion));
+    }
+
+    private void record(PendingChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // No transaction to join: the change is already committed, log it on its own
+            write(List.of(change));
+            changeFeedHub.committed();
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    private void write(List<PendingChange> changes) {
+        long seq = changeLogRepository.reserve(changes.size());
+        LocalDateTime now = LocalDateTime.now();
+        List<ChangeEntry> entries = new ArrayList<>(changes.size());
+        for (PendingChange change : changes) {
+            ChangeEntry entry = change.entry();
+            entry.setSeq(seq++);
+            entry.setChangedAt(now);
+            entry.setVersion(change.version());
+            entries.add(entry);
+        }
+        changeLogRepository.insert(entries);
+    }
+
+    // The version is read when the entry is written, after the flush that increments it
+    private record PendingChange(ChangeEntry entry, Supplier<Long> entityVersion) {
+
+        Long version() {
+            Long version = entityVersion == null ? null : entityVersion.get();
+            // Rows inserted over JDBC carry no entity version, they start at the column default
+            if (version == null && entry.getType() == ChangeType.CREATED) {
+                return 0L;
+            }
+            return version;
+        }
+    }
+
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<PendingChange> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Flush the entity changes first: taking the sequence lock while this transaction still has row locks
+            // to acquire could deadlock against a committer holding those rows and waiting for the sequence
+            if (entityManager.isJoinedToTransaction()) {
+                entityManager.flush();
+            }
+            write(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLogRecorder.this);
+            if (status == STATUS_COMMITTED) {
+                changeFeedHub.committed();
+            }
+        }
+    }
+}
@@ -1,25 +1,50 @@
 package com.example.backend.controller;
 
+import com.example.backend.cache.LookupCache;
+import com.example.backend.dto.AddressBatchRequest;
+import com.example.backend.dto.AddressBatchResponse;
+import com.example.backend.dto.AddressClustersResponse;
 import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.BaseResponse;
+import com.example.backend.dto.DuplicateAddress;
+import com.example.backend.dto.DuplicateAddressesResponse;
+import com.example.backend.dto.SparseResponse;
 import com.example.backend.mapper.AddressMapper;
 import com.example.backend.model.Address;
-import com.example.backend.model.Customer;
+import com.example.backend.projection.FieldProjection;
+import com.example.backend.projection.FieldProjections;
 import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerReadRepository;
 import com.example.backend.repository.CustomerRepository;
+import com.example.backend.repository.FieldProjectionRepository;
+import com.example.backend.search.AddressDuplicateIndex;
+import com.example.backend.search.MinHashLsh;
+import com.example.backend.service.AddressBatchService;
+import com.example.backend.service.AddressClusterService;
+import com.example.backend.service.AddressService;
+import com.example.backend.service.GroupCommitWriter;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniquenessIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 // Allows the app to recive requests from cross origins (in this case react app at port 5173)
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = HttpHeaders.ETAG, allowCredentials = "true")
 
 @RestController
 @RequestMapping("/api/addresses") //Base URI for addresses
@@ -32,46 +57,116 @@ public class AddressController {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private CustomerReadRepository customerReadRepository;
+
+    @Autowired
+    private FieldProjectionRepository fieldProjectionRepository;
+
     private final AddressMapper addressMapper;
 
-    // Helper to extract constraint name from exception from db
-    private String extractConstraintName(DataIntegrityViolationException e) {
-        String message = e.getMostSpecificCause().getMessage();
-        
-        // Try to extract constraint name from error message
-        Pattern pattern = Pattern.compile("(?i)(address_hash)");
-        Matcher matcher = pattern.matcher(message);
-        
-        if (matcher.find()) {
-            return matcher.group(1).toLowerCase();
+    private final AddressService addressService;
+
+    private final AddressBatchService addressBatchService;
+
+    private final GroupCommitWriter groupCommitWriter;
+
+    private final UniquenessIndex uniquenessIndex;
+
+    private final LookupCache lookupCache;
+
+    private final AddressDuplicateIndex addressDuplicateIndex;
+
+    private final AddressClusterService addressClusterService;
+
+    private final FieldProjections fieldProjections;
+
+    // Helper to report a duplicate address, or a generic error for other integrity violations
+    private void setDuplicateError(AddressResponse response, UniqueKey key) {
+        if (key == UniqueKey.ADDRESS_HASH) {
+            response.setError(key.getErrorCode(), key.getErrorMessage());
+        } else {
+            response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
         }
-        
-        return "unknown";
     }
 
-
     // Get all addresses for a customer
     @GetMapping("/{customerId}")
-    public List<AddressResponse> getAddressesByCustomer(@PathVariable Integer customerId) {
-        List<Address> addresses = addressRepository.findByCustomerId(customerId);
-        return addresses.stream()
-                .map(addressMapper::toResponse)
-                .collect(Collectors.toList());
+    // The list ETag is a digest of the addresses' (id, version) pairs, one indexed query decides a 304
+    public ResponseEntity<List<AddressResponse>> getAddressesByCustomer(
+            @PathVariable Integer customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = ETags.ofList(addressRepository.findListVersions(customerId));
+        if (ETags.noneMatchHits(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        // Read after the aggregate, so the tag is never newer than the body
+        return ResponseEntity.ok().eTag(etag).body(customerReadRepository.findAddressRows(customerId).stream()
+                .map(row -> addressMapper.toResponse(row, 0))
+                .collect(Collectors.toList()));
+    }
+
+    // Get a customer's addresses with only the requested properties (fields=id,city,pincode)
+    @GetMapping(value = "/{customerId}", params = "fields", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, "application/x-jackson-smile"})
+    public List<Map<String, Object>> getAddressFieldsByCustomer(@PathVariable Integer customerId,
+                                                                @RequestParam String fields) {
+        FieldProjection projection;
+        try {
+            projection = fieldProjections.address(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return fieldProjectionRepository.findAddresses(projection, customerId);
     }
 
     // Get address by ID 
     @GetMapping("/getAddress/{addressId}")
-    public AddressResponse getAddress(@PathVariable Integer addressId) {
+    public ResponseEntity<AddressResponse> getAddress(
+            @PathVariable Integer addressId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         AddressResponse response = new AddressResponse();
         
         try {
-            Address address = addressRepository.findById(addressId)
-                    .orElseThrow(() -> new RuntimeException("Address not found"));
-            response = addressMapper.toResponse(address);
+            if (ifNoneMatch != null) {
+                Long version = addressRepository.findVersionById(addressId).orElse(null);
+                if (version != null && ETags.noneMatchHits(ifNoneMatch, ETags.of(version))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
+            // Served from the lookup cache, read as a row on a miss
+            response = lookupCache.address(addressId, id -> customerReadRepository.findAddressRow(id).stream()
+                    .findFirst()
+                    .map(row -> addressMapper.toResponse(row, 0))
+                    .orElseThrow(() -> new RuntimeException("Address not found")));
         } catch (Exception e) {
             response.setError("ADDRESS_NOT_FOUND", "Address not found with ID: " + addressId);
+            return ResponseEntity.ok(response);
         }
         
+        return ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response);
+    }
+
+    // Get address by ID with only the requested properties
+    @GetMapping(value = "/getAddress/{addressId}", params = "fields")
+    public SparseResponse getAddressFields(@PathVariable Integer addressId, @RequestParam String fields) {
+        SparseResponse response = new SparseResponse();
+        FieldProjection projection;
+        try {
+            projection = fieldProjections.address(fields);
+        } catch (IllegalArgumentException e) {
+            response.setError("INVALID_FIELDS", e.getMessage());
+            return response;
+        }
+
+        Optional<Map<String, Object>> values = fieldProjectionRepository.findAddress(projection, addressId);
+        if (values.isEmpty()) {
+            response.setError("ADDRESS_NOT_FOUND", "Address not found with ID: " + addressId);
+            return response;
+        }
+        response.setFields(values.get());
+        response.setErrorCode("SUCCESS");
         return response;
     }
 
@@ -82,21 +177,20 @@ public class AddressController {
         AddressResponse response = new AddressResponse();
         
         try {
-            Customer customer = customerRepository.findById(customerId)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            address.setCustomer(customer);
-            Address savedAddress = addressRepository.save(address);
+            // Known duplicates are rejected without opening a transaction
+            UniqueKey conflict = uniquenessIndex.findConflict(address, null);
+            if (conflict != null) {
+                setDuplicateError(response, conflict);
+                return response;
+            }
+            // Ids are assigned by the server
+            address.setId(null);
+            Address savedAddress = groupCommitWriter.isEnabled() ?
+                    groupCommitWriter.createAddress(customerId, address) : addressService.createAddress(customerId, address);
             response = addressMapper.toResponse(savedAddress);
             
         } catch (DataIntegrityViolationException e) {
-            String constraint = extractConstraintName(e);
-            // Check if Address is already taken
-            if ("address_hash".equals(constraint)) {
-                response.setError("DUPLICATE_ADDRESS", "Address is already associated with a customer");
-            } else {
-                response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
-            }
+            setDuplicateError(response, UniqueKey.fromException(e));
         } catch (Exception e) {
             response.setError("INTERNAL_SERVER_ERROR", "Failed to create address: " + e.getMessage());
         }
@@ -104,40 +198,48 @@ public class AddressController {
         return response;
     }
 
-    // Update an address
+    // Apply a list of address creates, updates and deletes for a customer in one transaction,
+    // all-or-nothing unless atomic is false; results come back per operation in request order
+    @PostMapping("/{customerId}/batch")
+    public AddressBatchResponse applyBatch(@PathVariable Integer customerId,
+                                           @RequestBody AddressBatchRequest request) {
+        try {
+            return addressBatchService.apply(customerId, request.getOperations(), request.isAtomic());
+        } catch (Exception e) {
+            AddressBatchResponse response = new AddressBatchResponse();
+            response.setError("INTERNAL_SERVER_ERROR", "Failed to apply address batch: " + e.getMessage());
+            return response;
+        }
+    }
+
+    // Update an address, conditionally on its current ETag when If-Match is sent (412 when stale)
     @PutMapping("/{addressId}")
-    public AddressResponse updateAddress(@PathVariable Integer addressId,
-                                                 @Valid @RequestBody Address updatedAddress) {
+    public ResponseEntity<AddressResponse> updateAddress(@PathVariable Integer addressId,
+                                                 @Valid @RequestBody Address updatedAddress,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         AddressResponse response = new AddressResponse();
         
         try {
-            Address address = addressRepository.findById(addressId)
-                    .orElseThrow(() -> new RuntimeException("Address not found"));
-
-            address.setStreet(updatedAddress.getStreet());
-            address.setStreet2(updatedAddress.getStreet2());
-            address.setCity(updatedAddress.getCity());
-            address.setState(updatedAddress.getState());
-            address.setPincode(updatedAddress.getPincode());
-            address.setCountry(updatedAddress.getCountry());
-            
-            Address savedAddress = addressRepository.save(address);
+            UniqueKey conflict = uniquenessIndex.findConflict(updatedAddress, addressId);
+            if (conflict != null) {
+                setDuplicateError(response, conflict);
+                return ResponseEntity.ok(response);
+            }
+            Address savedAddress = addressService.updateAddress(addressId, updatedAddress, ETags.expectedVersion(ifMatch));
             
             response = addressMapper.toResponse(savedAddress);
+            return ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response);
 
+        } catch (OptimisticLockingFailureException e) {
+            response.setError("VERSION_CONFLICT", "Address was modified by another request, reload and retry");
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
         } catch (DataIntegrityViolationException e) {
-            String constraint = extractConstraintName(e);
-            // Check if Address is already taken
-            if ("address_hash".equals(constraint)) {
-                response.setError("DUPLICATE_ADDRESS", "Address is already associated with a customer");
-            } else {
-                response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
-            }
+            setDuplicateError(response, UniqueKey.fromException(e));
         } catch (Exception e) {
             response.setError("INTERNAL_SERVER_ERROR", "Failed to update address: " + e.getMessage());
         }
         
-        return response;
+        return ResponseEntity.ok(response);
     }
 
     // Delete an address
@@ -146,9 +248,7 @@ public class AddressController {
         AddressResponse response = new AddressResponse();
         
         try {
-            Address existing = addressRepository.findById(addressId)
-                    .orElseThrow(() -> new RuntimeException("Address not found"));
-            addressRepository.delete(existing);
+            addressService.deleteAddress(addressId);
 
         } catch (Exception e) {
             response.setError("DELETE_ERROR", "Failed to delete address: " + e.getMessage());
@@ -156,4 +256,75 @@ public class AddressController {
         
         return response;
     }
-}
\ No newline at end of file
+
+    // Likely duplicates of an address: others whose canonical text is at least minSimilarity alike
+    @GetMapping("/{addressId}/duplicates")
+    public DuplicateAddressesResponse getDuplicates(@PathVariable Integer addressId,
+                                                    @RequestParam(defaultValue = "0.7") double minSimilarity,
+                                                    @RequestParam(defaultValue = "20") int limit) {
+        DuplicateAddressesResponse response = new DuplicateAddressesResponse();
+        response.setAddressId(addressId);
+        if (!validDuplicateRequest(response, minSimilarity, limit)) {
+            return response;
+        }
+        if (addressDuplicateIndex.customerOf(addressId) == null) {
+            response.setError("ADDRESS_NOT_FOUND", "Address not found with ID: " + addressId);
+            return response;
+        }
+        setDuplicates(response, addressDuplicateIndex.similarTo(addressId, minSimilarity, limit));
+        return response;
+    }
+
+    // Likely duplicates of an address that isn't saved, e.g. to warn before creating it
+    @PostMapping("/duplicates")
+    public DuplicateAddressesResponse findDuplicates(@Valid @RequestBody Address address,
+                                                     @RequestParam(defaultValue = "0.7") double minSimilarity,
+                                                     @RequestParam(defaultValue = "20") int limit) {
+        DuplicateAddressesResponse response = new DuplicateAddressesResponse();
+        if (validDuplicateRequest(response, minSimilarity, limit)) {
+            setDuplicates(response, addressDuplicateIndex.similar(address, minSimilarity, limit));
+        }
+        return response;
+    }
+
+    // Group every address into clusters of likely duplicates, returning the largest limit clusters
+    @PostMapping("/duplicates/clusters")
+    public AddressClustersResponse clusterDuplicates(@RequestParam(defaultValue = "0.8") double minSimilarity,
+                                                     @RequestParam(defaultValue = "100") int limit) {
+        AddressClustersResponse response = new AddressClustersResponse();
+        if (!validDuplicateRequest(response, minSimilarity, limit)) {
+            return response;
+        }
+
+        try {
+            response = addressClusterService.cluster(minSimilarity, limit);
+        } catch (IllegalStateException e) {
+            response.setError("DUPLICATES_UNAVAILABLE", e.getMessage());
+        } catch (Exception e) {
+            response.setError("INTERNAL_SERVER_ERROR", "Failed to cluster addresses: " + e.getMessage());
+        }
+
+        return response;
+    }
+
+    // Checks the parameters and that the near-duplicate index is built
+    private boolean validDuplicateRequest(BaseResponse response, double minSimilarity, int limit) {
+        if (minSimilarity <= 0 || minSimilarity > 1 || limit < 1 || limit > 1000) {
+            response.setError("INVALID_DUPLICATE_REQUEST", "minSimilarity must be in (0, 1] and limit in 1..1000");
+            return false;
+        }
+        if (!addressDuplicateIndex.isAvailable()) {
+            response.setError("DUPLICATES_UNAVAILABLE", "The address duplicate index is not available");
+            return false;
+        }
+        return true;
+    }
+
+    private void setDuplicates(DuplicateAddressesResponse response, List<MinHashLsh.Match> matches) {
+        response.setDuplicates(matches.stream()
+                .map(match -> new DuplicateAddress(match.id(), addressDuplicateIndex.customerOf(match.id()),
+                        match.similarity()))
+                .collect(Collectors.toList()));
+        response.setErrorCode("SUCCESS");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.backend.controller;
+
+import com.example.backend.cache.LookupCache;
+import com.example.backend.dto.CacheStatsResponse;
+import org.springframework.web.bind.annotation.*;
+
+import lombok.RequiredArgsConstructor;
+
+// Allows the app to recive requests from cross origins (in this case react app at port 5173)
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+@RestController
+@RequestMapping("/api/cache") //Base URI for cache diagnostics
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final LookupCache lookupCache;
+
+    // Hit, miss and eviction counters of the customer and address lookup caches
+    @GetMapping("/stats")
+    public CacheStatsResponse getCacheStats() {
+        CacheStatsResponse response = new CacheStatsResponse();
+        response.setEnabled(lookupCache.isEnabled());
+        response.setCaches(lookupCache.statistics());
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.backend.controller;
+
+import com.example.backend.changes.ChangeFeedHub;
+import com.example.backend.dto.ChangeEntry;
+import com.example.backend.dto.ChangeFeedResponse;
+import com.example.backend.repository.ChangeLogRepository;
+import com.example.backend.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+// Allows the app to recive requests from cross origins (in this case react app at port 5173)
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+@RestController
+@RequestMapping("/api/changes") //Base URI for the change feed
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    private final ChangeFeedHub changeFeedHub;
+
+    private final ShardRouter shardRouter;
+
+    // Changes committed after sequence since, oldest first; keep passing nextSince until hasMore is false
+    @GetMapping
+    public ChangeFeedResponse getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        ChangeFeedResponse response = new ChangeFeedResponse();
+        // Each shard logs its own sequence, there is no single order to page through
+        if (shardRouter.isEnabled()) {
+            response.setError("CHANGES_UNAVAILABLE", "The change feed is not available with sharding");
+            return response;
+        }
+        if (since < changeLogRepository.compactedThrough()) {
+            response.setError("CHANGES_COMPACTED", "Changes after sequence " + since
+                    + " are no longer retained, reload and continue from resumeFrom");
+            response.setResumeFrom(changeLogRepository.lastSeq());
+            return response;
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<ChangeEntry> changes = changeLogRepository.findSince(since, size + 1);
+        response.setHasMore(changes.size() > size);
+        if (response.isHasMore()) {
+            changes = changes.subList(0, size);
+        }
+        response.setChanges(changes);
+        response.setNextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+
+    // Server-Sent Events stream of "change" events (id = sequence). Resumes after Last-Event-ID or since,
+    // otherwise starts with the next change. A "compacted" event ends the stream when the start is no longer retained.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (shardRouter.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "The change feed is not available with sharding");
+        }
+        long from;
+        try {
+            from = lastEventId != null ? Long.parseLong(lastEventId.trim())
+                    : since != null ? since : changeLogRepository.lastSeq();
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Last-Event-ID: " + lastEventId);
+        }
+        SseEmitter emitter = changeFeedHub.subscribe(from);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers");
+        }
+        return emitter;
+    }
+}
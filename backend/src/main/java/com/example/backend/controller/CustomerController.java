@@ -1,27 +1,72 @@
 package com.example.backend.controller;
 
+import com.example.backend.cache.LookupCache;
 import com.example.backend.model.Customer;
+import com.example.backend.dto.BaseResponse;
+import com.example.backend.dto.BulkDeleteRequest;
+import com.example.backend.dto.BulkDeleteResponse;
+import com.example.backend.dto.BulkImportResponse;
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.CustomerDetailsResponse;
 import com.example.backend.dto.CustomerResponse;
+import com.example.backend.dto.FacetCount;
+import com.example.backend.dto.FacetCountsResponse;
+import com.example.backend.dto.SparseResponse;
 import com.example.backend.mapper.CustomerMapper;
+import com.example.backend.pagination.CustomerKeysetPager;
+import com.example.backend.pagination.CustomerSortField;
+import com.example.backend.projection.FieldProjection;
+import com.example.backend.projection.FieldProjections;
+import com.example.backend.repository.CustomerReadRepository;
 import com.example.backend.repository.CustomerRepository;
 import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerSpecifications;
+import com.example.backend.repository.FieldProjectionRepository;
+import com.example.backend.search.AddressFacet;
+import com.example.backend.search.AddressFacetIndex;
+import com.example.backend.search.FacetMatch;
+import com.example.backend.service.CustomerBulkDeleteService;
+import com.example.backend.service.CustomerExportService;
+import com.example.backend.service.CustomerImportService;
+import com.example.backend.service.CustomerSearchService;
+import com.example.backend.service.CustomerService;
+import com.example.backend.service.GroupCommitWriter;
+import com.example.backend.sharding.ShardRouter;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniquenessIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 // Allows the app to recive requests from cross origins (in this case react app at port 5173)
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = HttpHeaders.ETAG, allowCredentials = "true")
 @RestController
 @RequestMapping("/api/customers") //Base URI for customers
 @RequiredArgsConstructor
@@ -33,27 +78,77 @@ public class CustomerController {
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private CustomerReadRepository customerReadRepository;
+
+    @Autowired
+    private FieldProjectionRepository fieldProjectionRepository;
+
     private final CustomerMapper customerMapper;
 
-    // Helper method to update numAddresses
-    // private void updateCustomerAddressCount(Customer customer) {
-    //     int count = addressRepository.findByCustomerId(customer.getId()).size();
-    //     customer.setNumAddresses(count);
-    //     customerRepository.save(customer);
-    // }
+    private final CustomerService customerService;
 
-    // Helper method to extract constraint name from database exception
-    private String extractConstraintName(DataIntegrityViolationException e) {
-        String message = e.getMostSpecificCause().getMessage();
-        
-        Pattern pattern = Pattern.compile("(?i)(email|phone|address_hash)");
-        Matcher matcher = pattern.matcher(message);
-        
-        if (matcher.find()) {
-            return matcher.group(1).toLowerCase();
+    private final GroupCommitWriter groupCommitWriter;
+
+    private final CustomerKeysetPager customerKeysetPager;
+
+    private final CustomerSearchService customerSearchService;
+
+    private final AddressFacetIndex addressFacetIndex;
+
+    private final CustomerImportService customerImportService;
+
+    private final CustomerExportService customerExportService;
+
+    private final CustomerBulkDeleteService customerBulkDeleteService;
+
+    private final ObjectMapper objectMapper;
+
+    private final UniquenessIndex uniquenessIndex;
+
+    private final LookupCache lookupCache;
+
+    private final FieldProjections fieldProjections;
+
+    private final ShardRouter shardRouter;
+
+    // Helper to report a duplicate unique key, null for other integrity violations
+    private void setDuplicateError(BaseResponse response, UniqueKey key) {
+        if (key != null) {
+            response.setError(key.getErrorCode(), key.getErrorMessage());
+        } else {
+            response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
+        }
+    }
+
+    // Helper to resolve the sort of an offset listing, only index-backed sorts are accepted
+    private static Sort indexedSort(String sortBy, String sortDir) {
+        try {
+            return CustomerSortRegistry.sort(sortBy, sortDir);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static FacetMatch facetMatch(String match) {
+        try {
+            return FacetMatch.fromParameter(match);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Helper to run a listing in cursor mode, bad sort or cursor parameters are reported in the response
+    private CursorPage<CustomerDetailsResponse> fetchCursorPage(Specification<Customer> filter, String cursor,
+                                                                int size, String sortBy, String sortDir) {
+        try {
+            CustomerSortRegistry.require(sortBy);
+            return customerKeysetPager.fetch(filter, cursor, size, sortBy, sortDir);
+        } catch (IllegalArgumentException e) {
+            CursorPage<CustomerDetailsResponse> response = new CursorPage<>();
+            response.setError("INVALID_PAGE_REQUEST", e.getMessage());
+            return response;
         }
-        
-        return "unknown";
     }
 
     // Get all customers with pagination and sorting
@@ -64,28 +159,107 @@ public class CustomerController {
             @RequestParam(defaultValue = "firstName") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         
-        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = PageRequest.of(page, size, indexedSort(sortBy, sortDir));
         
-        Page<Customer> customerPage = customerRepository.findAll(pageable);
+        // Sharded, the page is merged from the first rows of every shard
+        Page<Customer> customerPage = shardRouter.findPage(pageable,
+                CustomerSortField.comparator(pageable.getSort()), customerRepository::findAll);
         
         // Map the page content to CustomerDetailsResponse (without addresses)
         return customerPage.map(customerMapper::toDetailsResponse);
     }
+
+    // Get all customers with only the requested properties (fields=id,firstName,phone), read as just those columns.
+    // Protobuf has a fixed message, so its clients are served by the full listing.
+    @GetMapping(params = "fields", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            "application/x-jackson-smile"})
+    public Page<Map<String, Object>> getAllCustomerFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "firstName") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        Pageable pageable = PageRequest.of(page, size, indexedSort(sortBy, sortDir));
+        FieldProjection projection;
+        try {
+            projection = fieldProjections.customer(fields, false);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (shardRouter.isEnabled()) {
+            // The merge needs the sort keys of every row, so the fields are picked from the merged full rows
+            return shardRouter.findPage(pageable, CustomerSortField.comparator(pageable.getSort()),
+                    customerRepository::findAll).map(customer -> {
+                BeanWrapperImpl properties = new BeanWrapperImpl(customer);
+                Map<String, Object> values = new LinkedHashMap<>();
+                projection.getProperties().forEach(name -> values.put(name, properties.getPropertyValue(name)));
+                return values;
+            });
+        }
+        return fieldProjectionRepository.findCustomers(projection, pageable);
+    }
+
+    // Get all customers in cursor mode (pass an empty cursor for the first page)
+    @GetMapping(params = "cursor")
+    public CursorPage<CustomerDetailsResponse> getAllCustomersByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "firstName") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        return fetchCursorPage(null, cursor, size, sortBy, sortDir);
+    }
     // Get customer by ID
     @GetMapping("/{id}")
-    public CustomerResponse getCustomerById(@PathVariable Integer id) {
+    public ResponseEntity<CustomerResponse> getCustomerById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         CustomerResponse response = new CustomerResponse();
         
         try {
-            Customer customer = customerRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-            response = customerMapper.toResponse(customer);
+            // Unchanged since the client's copy: answer from the version alone, nothing is loaded or mapped
+            if (ifNoneMatch != null) {
+                Long version = customerRepository.findVersionById(id).orElse(null);
+                if (version != null && ETags.noneMatchHits(ifNoneMatch, ETags.of(version))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
+            // Served from the lookup cache, on a miss read with its addresses in one read-only join query
+            response = lookupCache.customer(id, customerId -> Optional.ofNullable(
+                    customerMapper.toResponse(customerReadRepository.findCustomerRows(customerId)))
+                            .orElseThrow(() -> new RuntimeException("Customer not found")));
         } catch (Exception e) {
             response.setError("CUSTOMER_NOT_FOUND", "Customer not found with ID: " + id);
+            return ResponseEntity.ok(response);
         }
         
+        return ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response);
+    }
+
+    // Get customer by ID with only the requested properties; addresses are read only when fields includes addresses
+    @GetMapping(value = "/{id}", params = "fields")
+    public SparseResponse getCustomerFields(@PathVariable Integer id, @RequestParam String fields) {
+        SparseResponse response = new SparseResponse();
+        FieldProjection projection;
+        try {
+            projection = fieldProjections.customer(fields, true);
+        } catch (IllegalArgumentException e) {
+            response.setError("INVALID_FIELDS", e.getMessage());
+            return response;
+        }
+
+        Optional<Map<String, Object>> values = fieldProjectionRepository.findCustomer(projection, id);
+        if (values.isEmpty()) {
+            response.setError("CUSTOMER_NOT_FOUND", "Customer not found with ID: " + id);
+            return response;
+        }
+        response.setFields(values.get());
+        if (projection.includesAddresses()) {
+            response.getFields().put(FieldProjections.ADDRESSES,
+                    fieldProjectionRepository.findAddresses(fieldProjections.address(), id));
+        }
+        response.setErrorCode("SUCCESS");
         return response;
     }
 
@@ -95,27 +269,21 @@ public class CustomerController {
         CustomerResponse response = new CustomerResponse();
         
         try {
-            customer.getAddresses().get(0).setCustomer(customer);
-            Customer savedCustomer = customerRepository.save(customer);
+            // Known duplicates are rejected without opening a transaction
+            UniqueKey conflict = uniquenessIndex.findConflict(customer);
+            if (conflict != null) {
+                setDuplicateError(response, conflict);
+                return response;
+            }
+            // Ids are assigned by the server, sharded the customer id is taken before the insert to pick the shard
+            customer.setId(null);
+            customer.getAddresses().forEach(address -> address.setId(null));
+            Customer savedCustomer = groupCommitWriter.isEnabled() ? groupCommitWriter.createCustomer(customer) :
+                    shardRouter.onNewCustomer(customer, () -> customerService.createCustomer(customer));
             response = customerMapper.toResponse(savedCustomer);
-            // updateCustomerAddressCount(savedCustomer);
             response.setErrorMessage("New Customer Created Successfully");;
         } catch (DataIntegrityViolationException e) {
-            String constraint = extractConstraintName(e);
-            
-            switch (constraint) {
-                case "email":
-                    response.setError("DUPLICATE_EMAIL", "Email address is already in use");
-                    break;
-                case "phone":
-                    response.setError("DUPLICATE_PHONE", "Phone number is already in use");
-                    break;
-                case "address_hash":
-                    response.setError("DUPLICATE_ADDRESS", "Address is already associated with a customer");
-                    break;
-                default:
-                    response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
-            }
+            setDuplicateError(response, UniqueKey.fromException(e));
         } catch (Exception e) {
             response.setError("INTERNAL_SERVER_ERROR", "Failed to create customer: " + e.getMessage());
         }
@@ -123,41 +291,81 @@ public class CustomerController {
         return response;
     }
 
+    // Bulk import customers streamed as NDJSON (one customer JSON per line) or CSV (one customer and address per row)
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public BulkImportResponse importCustomers(@RequestHeader("Content-Type") String contentType,
+                                              @RequestParam(defaultValue = "false") boolean failuresOnly,
+                                              InputStream body) {
+        BulkImportResponse response = new BulkImportResponse();
+
+        try {
+            CustomerImportService.Format format = contentType.startsWith("text/csv") ?
+                    CustomerImportService.Format.CSV : CustomerImportService.Format.NDJSON;
+            response = customerImportService.importCustomers(body, format, failuresOnly);
+        } catch (Exception e) {
+            response.setError("INTERNAL_SERVER_ERROR", "Failed to import customers: " + e.getMessage());
+        }
+
+        return response;
+    }
+
+    // Export all customers with their addresses, streamed as NDJSON or CSV.
+    // createdFrom (inclusive) and createdTo (exclusive) restrict the export to customers created in that range
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo) {
+        CustomerExportService.Format exportFormat;
+        try {
+            exportFormat = CustomerExportService.Format.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            BaseResponse response = new BaseResponse();
+            response.setError("INVALID_EXPORT_REQUEST", e.getMessage());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(output -> objectMapper.writeValue(output, response));
+        }
+
+        StreamingResponseBody body = output ->
+                customerExportService.export(output, exportFormat, createdFrom, createdTo);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=customers." + exportFormat.name().toLowerCase())
+                .body(body);
+    }
+
     // Update Customer Details
+    // If-Match makes the update conditional on the customer's current ETag, a stale one gets 412
     @PutMapping
-    public CustomerResponse updateCustomer(@Valid @RequestBody Customer updatedCustomer) {
+    public ResponseEntity<CustomerResponse> updateCustomer(
+            @Valid @RequestBody Customer updatedCustomer,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         CustomerResponse response = new CustomerResponse();
         
         try {
-            Customer existing = customerRepository.findById(updatedCustomer.getId())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            existing.setFirstName(updatedCustomer.getFirstName());
-            existing.setLastName(updatedCustomer.getLastName());
-            existing.setEmail(updatedCustomer.getEmail());
-            existing.setPhone(updatedCustomer.getPhone());
-
-            Customer savedCustomer = customerRepository.save(existing);
+            UniqueKey conflict = uniquenessIndex.findConflict(updatedCustomer);
+            if (conflict != null) {
+                setDuplicateError(response, conflict);
+                return ResponseEntity.ok(response);
+            }
+            // The id is in the body, so the shard is bound here rather than by the routing interceptor
+            Customer savedCustomer = shardRouter.onShardOf(updatedCustomer.getId(),
+                    () -> customerService.updateCustomer(updatedCustomer, ETags.expectedVersion(ifMatch)));
             response = customerMapper.toResponse(savedCustomer);
             response.setErrorMessage("Customer Updated Successfully");
+            return ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response);
+        } catch (OptimisticLockingFailureException e) {
+            response.setError("VERSION_CONFLICT", "Customer was modified by another request, reload and retry");
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
         } catch (DataIntegrityViolationException e) {
-            String constraint = extractConstraintName(e);
-            
-            switch (constraint) {
-                case "email":
-                    response.setError("DUPLICATE_EMAIL", "Email address is already in use");
-                    break;
-                case "phone":
-                    response.setError("DUPLICATE_PHONE", "Phone number is already in use");
-                    break;
-                default:
-                    response.setError("DATA_INTEGRITY_ERROR", "Data integrity violation");
-            }
+            setDuplicateError(response, UniqueKey.fromException(e));
         } catch (Exception e) {
             response.setError("INTERNAL_SERVER_ERROR", "Failed to update customer: " + e.getMessage());
         }
         
-        return response;
+        return ResponseEntity.ok(response);
     }
 
     // Delete customer
@@ -166,9 +374,7 @@ public class CustomerController {
         CustomerResponse response = new CustomerResponse();
         
         try {
-            Customer customer = customerRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-            customerRepository.delete(customer);
+            customerService.deleteCustomer(id);
             response.setErrorMessage("Customer Deleted Successfully!");
         } catch (Exception e) {
             response.setError("DELETE_ERROR", "Failed to delete customer: " + e.getMessage());
@@ -177,6 +383,29 @@ public class CustomerController {
         return response;
     }
 
+    // Delete many customers with their addresses, by ids or every customer created before createdBefore
+    // (e.g. {"createdBefore": "2020-01-01T00:00:00"}); runs in chunks, each committed on its own
+    @PostMapping("/bulk-delete")
+    public BulkDeleteResponse bulkDeleteCustomers(@RequestBody BulkDeleteRequest request) {
+        BulkDeleteResponse response = new BulkDeleteResponse();
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getCreatedBefore() != null)) {
+            response.setError("INVALID_DELETE_REQUEST", "Either ids or createdBefore is required, not both");
+            return response;
+        }
+
+        try {
+            response = byIds ? customerBulkDeleteService.deleteByIds(request.getIds()) :
+                    customerBulkDeleteService.deleteCreatedBefore(request.getCreatedBefore());
+        } catch (IllegalArgumentException e) {
+            response.setError("INVALID_DELETE_REQUEST", e.getMessage());
+        } catch (Exception e) {
+            response.setError("DELETE_ERROR", "Failed to delete customers: " + e.getMessage());
+        }
+
+        return response;
+    }
+
     // Search customers by name, email, or phone with pagination
     @GetMapping("/search")
     public Page<CustomerDetailsResponse> searchCustomers(
@@ -186,34 +415,102 @@ public class CustomerController {
             @RequestParam(defaultValue = "firstName") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         
-        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = PageRequest.of(page, size, indexedSort(sortBy, sortDir));
         
-        Page<Customer> customerPage = customerRepository.searchCustomers(query, pageable);
+        Page<Customer> customerPage = customerSearchService.searchCustomers(query, pageable);
         
         // Map the page content to CustomerResponse
         return customerPage.map(customerMapper::toDetailsResponse);
     }
 
+    // Search customers by name, email, or phone in cursor mode
+    @GetMapping(value = "/search", params = "cursor")
+    public CursorPage<CustomerDetailsResponse> searchCustomersByCursor(
+            @RequestParam String query,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "firstName") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        return fetchCursorPage(CustomerSpecifications.matchesQuery(query), cursor, size, sortBy, sortDir);
+    }
+
     // Advanced search by address fields with pagination
     @GetMapping("/search/advanced")
     public Page<CustomerDetailsResponse> advancedSearchCustomers(
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String state,
             @RequestParam(required = false) String pincode,
+            @RequestParam(defaultValue = "contains") String match,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "firstName") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         
-        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? 
-                Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        Pageable pageable = PageRequest.of(page, size, indexedSort(sortBy, sortDir));
         
-        Page<Customer> customerPage = customerRepository.findByAddressAttributes(city, state, pincode, pageable);
+        // Served from the address facet index (match=exact|prefix|contains), database query as fallback
+        Page<Customer> customerPage = customerSearchService.searchByAddressFacets(
+                AddressFacetIndex.criteria(city, state, pincode), facetMatch(match), pageable);
         
         // Map the page content to CustomerResponse
         return customerPage.map(customerMapper::toDetailsResponse);
     }
-}
\ No newline at end of file
+
+    // Advanced search by address fields in cursor mode
+    @GetMapping(value = "/search/advanced", params = "cursor")
+    public CursorPage<CustomerDetailsResponse> advancedSearchCustomersByCursor(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String pincode,
+            @RequestParam(defaultValue = "contains") String match,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "firstName") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        FacetMatch facetMatch;
+        try {
+            facetMatch = FacetMatch.fromParameter(match);
+        } catch (IllegalArgumentException e) {
+            CursorPage<CustomerDetailsResponse> response = new CursorPage<>();
+            response.setError("INVALID_FACET_REQUEST", e.getMessage());
+            return response;
+        }
+        // Same criteria and match rules as the offset pages, which the facet index answers
+        return fetchCursorPage(CustomerSpecifications.hasAddressFacets(
+                AddressFacetIndex.criteria(city, state, pincode), facetMatch), cursor, size, sortBy, sortDir);
+    }
+
+    // Per-facet customer counts for the customers matching the address criteria, e.g. Barcelona (1204)
+    @GetMapping("/search/facets")
+    public FacetCountsResponse getAddressFacets(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String pincode,
+            @RequestParam(defaultValue = "contains") String match,
+            @RequestParam(defaultValue = "10") int limit) {
+        FacetCountsResponse response = new FacetCountsResponse();
+
+        try {
+            if (!addressFacetIndex.isAvailable()) {
+                response.setError("FACETS_UNAVAILABLE", "Address facet index is not available");
+                return response;
+            }
+            RoaringBitmap customers = addressFacetIndex.filter(
+                    AddressFacetIndex.criteria(city, state, pincode), FacetMatch.fromParameter(match));
+
+            Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+            for (AddressFacet facet : AddressFacet.values()) {
+                facets.put(facet.getParameter(), addressFacetIndex.counts(facet, customers, limit));
+            }
+            response.setTotalCustomers(customers.getLongCardinality());
+            response.setFacets(facets);
+            response.setErrorCode("SUCCESS");
+        } catch (IllegalArgumentException e) {
+            response.setError("INVALID_FACET_REQUEST", e.getMessage());
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.controller;
+
+import com.example.backend.pagination.CustomerSortField;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// The customer sorts the API accepts, each backed by an index (see db/migration) so a page never needs a filesort.
+// Non-unique columns are indexed together with id, which is also appended to the sort as tie-breaker.
+enum CustomerSortRegistry {
+    ID(CustomerSortField.ID, "id", "PRIMARY", true),
+    FIRST_NAME(CustomerSortField.FIRST_NAME, "first_name", "idx_customers_first_name_id", false),
+    LAST_NAME(CustomerSortField.LAST_NAME, "last_name", "idx_customers_last_name_id", false),
+    EMAIL(CustomerSortField.EMAIL, "email", "email", true),
+    PHONE(CustomerSortField.PHONE, "phone", "phone", true),
+    CREATED_AT(CustomerSortField.CREATED_AT, "created_at", "idx_customers_created_at_id", false);
+
+    private final CustomerSortField field;
+    private final String column;
+    private final String index;
+    private final boolean unique;
+
+    CustomerSortRegistry(CustomerSortField field, String column, String index, boolean unique) {
+        this.field = field;
+        this.column = column;
+        this.index = index;
+        this.unique = unique;
+    }
+
+    String property() {
+        return field.getProperty();
+    }
+
+    String column() {
+        return column;
+    }
+
+    String index() {
+        return index;
+    }
+
+    boolean unique() {
+        return unique;
+    }
+
+    // Resolve the sortBy request parameter, rejecting properties without a backing index
+    static CustomerSortRegistry require(String sortBy) {
+        return Arrays.stream(values())
+                .filter(entry -> entry.property().equals(sortBy))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sortBy: " + sortBy + ", supported: "
+                        + Arrays.stream(values()).map(CustomerSortRegistry::property).collect(Collectors.joining(", "))));
+    }
+
+    // Sort for the offset endpoints, in the column order of the backing index
+    static Sort sort(String sortBy, String sortDir) {
+        CustomerSortRegistry entry = require(sortBy);
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, entry.property());
+        return entry.unique ? sort : sort.and(Sort.by(direction, CustomerSortField.ID.getProperty()));
+    }
+}
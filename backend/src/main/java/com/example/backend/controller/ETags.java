@@ -0,0 +1,67 @@
+package com.example.backend.controller;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+// Strong ETags built from entity versions, and the matching rules for If-None-Match / If-Match
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    // ETag of a list: the first 128 bits of a SHA-256 over its members' (id, version) pairs in id order. Any add,
+    // update or delete changes a pair or the sequence, which a count or sum of versions would not always show
+    static String ofList(List<Object[]> idVersions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer pair = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        for (Object[] idVersion : idVersions) {
+            pair.clear();
+            pair.putInt(((Number) idVersion[0]).intValue()).putLong(((Number) idVersion[1]).longValue());
+            digest.update(pair.array());
+        }
+        return of(HexFormat.of().formatHex(digest.digest(), 0, 16));
+    }
+
+    // If-None-Match uses weak comparison: W/"3" matches "3"; * matches any current representation
+    static boolean noneMatchHits(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Version required by an If-Match header: null when absent or *, -1 (never current) for weak or malformed tags,
+    // which fail strong comparison
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
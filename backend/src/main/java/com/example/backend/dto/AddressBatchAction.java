@@ -0,0 +1,8 @@
+package com.example.backend.dto;
+
+// Kind of change in an address batch
+public enum AddressBatchAction {
+    CREATE,
+    UPDATE,
+    DELETE
+}
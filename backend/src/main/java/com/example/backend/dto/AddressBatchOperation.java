@@ -0,0 +1,14 @@
+package com.example.backend.dto;
+
+import com.example.backend.model.Address;
+import lombok.Data;
+
+// One change of an address batch: CREATE takes address, UPDATE takes addressId and address, DELETE takes addressId.
+// expectedVersion makes an update or delete conditional, like If-Match on the single-address endpoints
+@Data
+public class AddressBatchOperation {
+    private AddressBatchAction action;
+    private Integer addressId;
+    private Long expectedVersion;
+    private Address address;
+}
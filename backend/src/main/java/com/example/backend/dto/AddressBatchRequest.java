@@ -0,0 +1,12 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Request Entity for an address batch, atomic = all-or-nothing, otherwise valid operations apply on their own
+@Data
+public class AddressBatchRequest {
+    private boolean atomic = true;
+    private List<AddressBatchOperation> operations;
+}
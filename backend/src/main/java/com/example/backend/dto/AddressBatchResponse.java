@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for an address batch
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class AddressBatchResponse extends BaseResponse {
+    private Integer customerId;
+    private boolean atomic;
+    private int total;
+    private int applied;
+    private int rejected;
+    private List<AddressBatchResult> results;
+}
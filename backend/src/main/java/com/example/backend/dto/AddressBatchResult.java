@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one operation of an address batch, operation numbers are 1-based in request order.
+// Status is CREATED, UPDATED, DELETED, REJECTED, or NOT_APPLIED when an atomic batch was rolled back for another operation
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddressBatchResult {
+    private int operation;
+    private AddressBatchAction action;
+    private String status;
+    private String errorCode;
+    private String errorMessage;
+    private Integer addressId;
+}
@@ -0,0 +1,16 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Addresses found to be near-duplicates of one another, and the distinct customers owning them
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddressCluster {
+    private List<Integer> addressIds;
+    private List<Integer> customerIds;
+}
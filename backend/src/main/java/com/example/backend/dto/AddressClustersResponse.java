@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for a near-duplicate clustering run: totals, and the largest clusters
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class AddressClustersResponse extends BaseResponse {
+    private int addresses;
+    private int clusters;
+    private int clusteredAddresses;
+    private int workers;
+    private long elapsedMillis;
+    private List<AddressCluster> largest;
+}
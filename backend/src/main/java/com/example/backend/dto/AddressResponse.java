@@ -1,5 +1,6 @@
 package com.example.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -14,5 +15,9 @@ public class AddressResponse extends BaseResponse{
     private String state;
     private String pincode;
     private String country;
-    private Integer customerId; 
+    private Integer customerId;
+
+    // Entity version the response was mapped from, sent as the ETag header instead of in the body
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
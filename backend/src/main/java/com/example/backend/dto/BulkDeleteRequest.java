@@ -0,0 +1,13 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Request Entity for a bulk customer delete: either the ids, or every customer created before createdBefore
+@Data
+public class BulkDeleteRequest {
+    private List<Integer> ids;
+    private LocalDateTime createdBefore;
+}
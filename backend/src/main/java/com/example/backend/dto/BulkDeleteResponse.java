@@ -0,0 +1,14 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+// Response Entity for a bulk customer delete; ids that didn't exist are not counted
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BulkDeleteResponse extends BaseResponse {
+    private long deletedCustomers;
+    private long deletedAddresses;
+    private int chunks;
+    private long elapsedMillis;
+}
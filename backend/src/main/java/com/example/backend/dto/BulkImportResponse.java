@@ -0,0 +1,17 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for a bulk customer import
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BulkImportResponse extends BaseResponse {
+    private long total;
+    private long created;
+    private long rejected;
+    private long elapsedMillis;
+    private List<ImportRecordResult> results;
+}
@@ -0,0 +1,17 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Counters of one lookup cache since startup
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+}
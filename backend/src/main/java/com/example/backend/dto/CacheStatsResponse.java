@@ -0,0 +1,14 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Map;
+
+// Response Entity for lookup cache statistics, keyed by cache name (customers, addresses)
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class CacheStatsResponse extends BaseResponse {
+    private boolean enabled;
+    private Map<String, CacheStatistics> caches;
+}
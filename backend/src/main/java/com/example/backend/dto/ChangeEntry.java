@@ -0,0 +1,28 @@
+package com.example.backend.dto;
+
+import com.example.backend.event.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One committed mutation in the change feed. Consumers re-read the entity (with If-None-Match: "version")
+// rather than receiving its state here.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEntry {
+    public static final String CUSTOMER = "CUSTOMER";
+    public static final String ADDRESS = "ADDRESS";
+
+    // Gapless, in commit order
+    private long seq;
+    private String entity;
+    private Integer entityId;
+    private Integer customerId;
+    private ChangeType type;
+    // Entity version after the change, null for deletes
+    private Long version;
+    private LocalDateTime changedAt;
+}
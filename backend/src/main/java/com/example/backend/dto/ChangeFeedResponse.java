@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for one batch of the change feed
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ChangeFeedResponse extends BaseResponse {
+    private List<ChangeEntry> changes;
+    // Pass back as since for the next batch
+    private long nextSince;
+    private boolean hasMore;
+    // With CHANGES_COMPACTED: the sequence to resume from after reloading the listings
+    private Long resumeFrom;
+}
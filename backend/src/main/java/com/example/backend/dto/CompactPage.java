@@ -0,0 +1,56 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+// Listing envelope without the per-item boilerplate: the status is reported once for the page, items carry only
+// their own fields, and paging fields that don't apply to the listing are left out
+@Data
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactPage<T> extends BaseResponse {
+    @JsonIgnoreProperties({"errorCode", "errorMessage"})
+    private List<T> items;
+
+    // Offset pages
+    private Integer page;
+    private Integer size;
+    private Long totalElements;
+    private Integer totalPages;
+
+    // Cursor pages
+    private Boolean hasNext;
+    private String nextCursor;
+
+    public static <T> CompactPage<T> of(Page<T> page) {
+        CompactPage<T> compact = of(page.getContent());
+        compact.setPage(page.getNumber());
+        compact.setSize(page.getSize());
+        compact.setTotalElements(page.getTotalElements());
+        compact.setTotalPages(page.getTotalPages());
+        return compact;
+    }
+
+    public static <T> CompactPage<T> of(CursorPage<T> cursorPage) {
+        CompactPage<T> compact = of(cursorPage.getContent());
+        compact.setError(cursorPage.getErrorCode(), cursorPage.getErrorMessage());
+        if (cursorPage.getContent() != null) {
+            compact.setSize(cursorPage.getSize());
+            compact.setHasNext(cursorPage.isHasNext());
+            compact.setNextCursor(cursorPage.getNextCursor());
+        }
+        return compact;
+    }
+
+    public static <T> CompactPage<T> of(List<T> items) {
+        CompactPage<T> compact = new CompactPage<>();
+        compact.setItems(items);
+        compact.setErrorCode("SUCCESS");
+        return compact;
+    }
+}
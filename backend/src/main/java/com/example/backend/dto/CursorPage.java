@@ -0,0 +1,17 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for one page of a cursor (keyset) listing
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class CursorPage<T> extends BaseResponse {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Opaque token to pass back as the cursor parameter, null on the last page
+    private String nextCursor;
+}
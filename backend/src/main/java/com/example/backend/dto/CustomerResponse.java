@@ -1,5 +1,6 @@
 package com.example.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import java.time.LocalDateTime;
@@ -16,5 +17,9 @@ public class CustomerResponse extends BaseResponse{
     private String phone;
     private LocalDateTime createdAt;
     private List<AddressResponse> addresses;
-    private Integer numAddresses; 
+    private Integer numAddresses;
+
+    // Entity version the response was mapped from, sent as the ETag header instead of in the body
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
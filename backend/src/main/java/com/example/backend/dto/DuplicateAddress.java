@@ -0,0 +1,15 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A likely duplicate address with its estimated similarity (0..1, shingle Jaccard similarity)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateAddress {
+    private Integer addressId;
+    private Integer customerId;
+    private double similarity;
+}
@@ -0,0 +1,14 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+// Response Entity for a near-duplicate lookup, most similar first; addressId is null for an unsaved address
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DuplicateAddressesResponse extends BaseResponse {
+    private Integer addressId;
+    private List<DuplicateAddress> duplicates;
+}
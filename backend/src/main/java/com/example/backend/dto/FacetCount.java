@@ -0,0 +1,14 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One facet value with the number of matching customers, e.g. Barcelona (1204)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCount {
+    private String value;
+    private int count;
+}
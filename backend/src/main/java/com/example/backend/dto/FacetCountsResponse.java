@@ -0,0 +1,15 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+import java.util.Map;
+
+// Response Entity for address facet counts, keyed by facet name (city, state, pincode)
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FacetCountsResponse extends BaseResponse {
+    private long totalCustomers;
+    private Map<String, List<FacetCount>> facets;
+}
@@ -0,0 +1,17 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one record of a bulk import, record numbers are 1-based in input order
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRecordResult {
+    private long record;
+    private String status;
+    private String errorCode;
+    private String errorMessage;
+    private Integer customerId;
+}
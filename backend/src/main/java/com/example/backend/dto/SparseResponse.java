@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Response Entity for a fields= selection: the status, then only the requested properties
+@Data
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SparseResponse extends BaseResponse {
+    private Map<String, Object> fields = new LinkedHashMap<>();
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.backend.event;
+
+import com.example.backend.model.Address;
+
+// Published inside the write transaction whenever an address row changes.
+// address is the saved state, null for deletes. Addresses removed by a customer delete
+// are covered by that customer's CustomerChangedEvent instead.
+public record AddressChangedEvent(ChangeType type, Integer addressId, Integer customerId, Address address) {
+}
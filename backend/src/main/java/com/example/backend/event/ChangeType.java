@@ -0,0 +1,8 @@
+package com.example.backend.event;
+
+// Kind of mutation carried by a change event
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
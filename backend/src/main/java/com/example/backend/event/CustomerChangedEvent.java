@@ -0,0 +1,8 @@
+package com.example.backend.event;
+
+import com.example.backend.model.Customer;
+
+// Published inside the write transaction whenever a customer row changes.
+// customer is the saved state, null for deletes (which also remove the customer's addresses).
+public record CustomerChangedEvent(ChangeType type, Integer customerId, Customer customer) {
+}
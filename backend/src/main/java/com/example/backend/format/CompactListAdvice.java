@@ -0,0 +1,58 @@
+package com.example.backend.format;
+
+import com.example.backend.controller.AddressController;
+import com.example.backend.controller.CustomerController;
+import com.example.backend.dto.CompactPage;
+import com.example.backend.dto.CursorPage;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+
+// Wraps the customer and address listings in a CompactPage for the binary formats, which have no existing clients
+// to keep compatible, and for JSON when the request asks for envelope=compact
+@ControllerAdvice(assignableTypes = {CustomerController.class, AddressController.class})
+public class CompactListAdvice implements ResponseBodyAdvice<Object> {
+
+    static final List<MediaType> BINARY_TYPES = List.of(MediaType.APPLICATION_CBOR,
+            new MediaType("application", "x-jackson-smile"), ProtobufListConverter.PROTOBUF);
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || !compact(selectedContentType, request)) {
+            return body;
+        }
+        if (body instanceof Page<?> page) {
+            return CompactPage.of(page);
+        }
+        if (body instanceof CursorPage<?> cursorPage) {
+            return CompactPage.of(cursorPage);
+        }
+        if (body instanceof List<?> list) {
+            return CompactPage.of(list);
+        }
+        return body;
+    }
+
+    private static boolean compact(MediaType contentType, ServerHttpRequest request) {
+        if (BINARY_TYPES.stream().anyMatch(type -> type.isCompatibleWith(contentType))) {
+            return true;
+        }
+        return request instanceof ServletServerHttpRequest servletRequest
+                && "compact".equals(servletRequest.getServletRequest().getParameter("envelope"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.backend.format;
+
+import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.CompactPage;
+import com.example.backend.dto.CursorPage;
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.google.protobuf.CodedOutputStream;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+// Writes the listings as the ListPage message of src/main/proto/customers.proto. Encoded field by field with
+// CodedOutputStream rather than through generated classes, so the build needs no protoc step; the field numbers
+// below must follow the schema. Listings reach this converter already wrapped in a CompactPage (CompactListAdvice).
+public class ProtobufListConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public ProtobufListConverter() {
+        super(PROTOBUF);
+    }
+
+    // The listing types as returned by the controllers, selected before the advice replaces them
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CompactPage.class.isAssignableFrom(clazz) || Page.class.isAssignableFrom(clazz)
+                || CursorPage.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (!(body instanceof CompactPage<?> page)) {
+            throw new HttpMessageNotWritableException("Not a listing: " + body.getClass().getName());
+        }
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+        writeString(output, 1, page.getErrorCode());
+        writeString(output, 2, page.getErrorMessage());
+        if (page.getItems() != null) {
+            for (Object item : page.getItems()) {
+                if (item instanceof CustomerDetailsResponse customer) {
+                    output.writeByteArray(3, customer(customer));
+                } else if (item instanceof AddressResponse address) {
+                    output.writeByteArray(4, address(address));
+                } else {
+                    throw new HttpMessageNotWritableException("No protobuf message for " + item.getClass().getName());
+                }
+            }
+        }
+        writeInt(output, 5, page.getPage());
+        writeInt(output, 6, page.getSize());
+        if (page.getTotalElements() != null) {
+            output.writeInt64(7, page.getTotalElements());
+        }
+        writeInt(output, 8, page.getTotalPages());
+        if (Boolean.TRUE.equals(page.getHasNext())) {
+            output.writeBool(9, true);
+        }
+        writeString(output, 10, page.getNextCursor());
+        output.flush();
+    }
+
+    private static byte[] customer(CustomerDetailsResponse customer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        writeInt(output, 1, customer.getId());
+        writeString(output, 2, customer.getFirstName());
+        writeString(output, 3, customer.getLastName());
+        writeString(output, 4, customer.getEmail());
+        writeString(output, 5, customer.getPhone());
+        writeString(output, 6, customer.getCreatedAt() == null ? null : customer.getCreatedAt().toString());
+        writeInt(output, 7, customer.getNumAddresses());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] address(AddressResponse address) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        writeInt(output, 1, address.getId());
+        writeString(output, 2, address.getStreet());
+        writeString(output, 3, address.getStreet2());
+        writeString(output, 4, address.getCity());
+        writeString(output, 5, address.getState());
+        writeString(output, 6, address.getPincode());
+        writeString(output, 7, address.getCountry());
+        writeInt(output, 8, address.getCustomerId());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    // proto3 leaves default values off the wire, so nulls and zeros are simply not written
+    private static void writeString(CodedOutputStream output, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            output.writeString(field, value);
+        }
+    }
+
+    private static void writeInt(CodedOutputStream output, int field, Integer value) throws IOException {
+        if (value != null && value != 0) {
+            output.writeInt32(field, value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.backend.format;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Binary response formats, chosen by the Accept header: application/cbor, application/x-jackson-smile and
+// application/x-protobuf. JSON stays the default for */* and browsers.
+@Configuration
+public class ResponseFormatConfiguration implements WebMvcConfigurer {
+
+    // Replace Spring MVC's default CBOR and Smile converters with ones built from Boot's customized Jackson builder,
+    // so dates and other settings match the JSON responses
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    // Appended after the Jackson converters, so it is only picked when protobuf is explicitly accepted
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufListConverter());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.backend.id;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out customer and address ids from blocks reserved in the id_allocation table (V5 migration).
+//
+// A block is reserved with a row lock in a short transaction of its own, so every instance gets disjoint blocks
+// and the lock is never held across a caller's transaction. Reservations use a separate two-connection pool:
+// a thread needing a block while holding a pooled connection can't starve waiting on the main pool.
+// Ids are unique and increasing per instance, not gapless; an unused block remainder is lost on restart.
+@Component
+public class IdBlockAllocator {
+
+    public static final String CUSTOMERS = "customers";
+    public static final String ADDRESSES = "addresses";
+    private static final Set<String> TABLES = Set.of(CUSTOMERS, ADDRESSES);
+
+    // The current block of one table: next is handed out next, end is exclusive
+    private static final class Block {
+        private long next;
+        private long end;
+    }
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public IdBlockAllocator(DataSourceProperties dataSourceProperties,
+                            @Value("${app.id-allocation.block-size:100}") int blockSize) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("id-allocation");
+        this.dataSource.setMaximumPoolSize(2);
+        this.dataSource.setMinimumIdle(0);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.blockSize = blockSize;
+    }
+
+    // Next id for a single insert
+    public long next(String table) {
+        return allocate(table, 1);
+    }
+
+    // First of count consecutive ids, for JDBC batch inserts. Larger requests than a block get a range of their own
+    public long allocate(String table, int count) {
+        Block block = blocks.computeIfAbsent(table, key -> new Block());
+        synchronized (block) {
+            if (block.next + count > block.end) {
+                if (count >= blockSize) {
+                    return reserve(table, count);
+                }
+                block.next = reserve(table, blockSize);
+                block.end = block.next + blockSize;
+            }
+            long first = block.next;
+            block.next += count;
+            return first;
+        }
+    }
+
+    // Take count ids off id_allocation; never below the table's current MAX(id) + 1, so rows inserted without
+    // going through the allocator (manual SQL, seed scripts) are stepped over
+    private long reserve(String table, int count) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("No id allocation for table " + table);
+        }
+        return transactionTemplate.execute(status -> {
+            Long next = jdbcTemplate.queryForObject(
+                    "SELECT next_id FROM id_allocation WHERE name = ? FOR UPDATE", Long.class, table);
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            long first = Math.max(next, max + 1);
+            jdbcTemplate.update("UPDATE id_allocation SET next_id = ? WHERE name = ?", first + count, table);
+            return first;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+}
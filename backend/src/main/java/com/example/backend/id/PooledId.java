@@ -0,0 +1,19 @@
+package com.example.backend.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Id assigned from IdBlockAllocator blocks of the given table before the insert, instead of an IDENTITY column,
+// so Hibernate can batch the inserts
+@IdGeneratorType(PooledIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledId {
+
+    // id_allocation name, the table the ids are for
+    String value();
+}
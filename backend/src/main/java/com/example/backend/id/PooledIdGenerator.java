@@ -0,0 +1,55 @@
+package com.example.backend.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+// Hibernate side of @PooledId. Hibernate creates it through Spring's bean container, which supplies the allocator,
+// then initializes it with the annotated id. An id set before the insert is kept: sharded creates take the customer
+// id up front since it decides the shard
+public class PooledIdGenerator implements BeforeExecutionGenerator, AnnotationBasedGenerator<PooledId> {
+
+    private final IdBlockAllocator allocator;
+    private String table;
+    private boolean longId;
+
+    public PooledIdGenerator(IdBlockAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    @Override
+    public void initialize(PooledId config, Member member, GeneratorCreationContext context) {
+        this.table = config.value();
+        Class<?> type = context.getProperty().getType().getReturnedClass();
+        this.longId = type == Long.class || type == long.class;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        if (currentValue != null) {
+            return currentValue;
+        }
+        long id = allocator.next(table);
+        if (longId) {
+            return id;
+        }
+        return Math.toIntExact(id);
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -19,6 +19,24 @@ public class AddressMapper {
         response.setPincode(address.getPincode());
         response.setCountry(address.getCountry());
         response.setCustomerId(address.getCustomer().getId());
+        response.setVersion(address.getVersion());
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+
+    // Same response from a CustomerReadRepository row, the address columns starting at offset
+    public AddressResponse toResponse(Object[] row, int offset) {
+        AddressResponse response = new AddressResponse();
+
+        response.setId((Integer) row[offset]);
+        response.setStreet((String) row[offset + 1]);
+        response.setStreet2((String) row[offset + 2]);
+        response.setCity((String) row[offset + 3]);
+        response.setState((String) row[offset + 4]);
+        response.setPincode((String) row[offset + 5]);
+        response.setCountry((String) row[offset + 6]);
+        response.setCustomerId((Integer) row[offset + 7]);
+        response.setVersion((Long) row[offset + 8]);
         response.setErrorCode("SUCCESS");
         return response;
     }
@@ -1,10 +1,14 @@
 package com.example.backend.mapper;
 
+import com.example.backend.dto.AddressResponse;
 import com.example.backend.dto.CustomerDetailsResponse;
 import com.example.backend.dto.CustomerResponse;
 import com.example.backend.model.Customer;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
@@ -27,6 +31,7 @@ public class CustomerMapper {
         response.setPhone(customer.getPhone());
         response.setCreatedAt(customer.getCreatedAt());
         response.setNumAddresses(customer.getAddresses().size());
+        response.setVersion(customer.getVersion());
         
         // Map addresses using AddressMapper
         if (customer.getAddresses() != null) {
@@ -40,6 +45,35 @@ public class CustomerMapper {
         return response;
     }
 
+    // Same response from the CustomerReadRepository rows of one customer, null when there are none
+    public CustomerResponse toResponse(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] first = rows.get(0);
+        CustomerResponse response = new CustomerResponse();
+
+        response.setId((Integer) first[0]);
+        response.setFirstName((String) first[1]);
+        response.setLastName((String) first[2]);
+        response.setEmail((String) first[3]);
+        response.setPhone((String) first[4]);
+        response.setCreatedAt((LocalDateTime) first[5]);
+        response.setVersion((Long) first[6]);
+
+        // Left join: a customer without addresses comes back as one row with null address columns
+        List<AddressResponse> addresses = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row[7] != null) {
+                addresses.add(addressMapper.toResponse(row, 7));
+            }
+        }
+        response.setAddresses(addresses);
+        response.setNumAddresses(addresses.size());
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+
     // Mapper function to convert Customer object to CustomerDetails Response
     public CustomerDetailsResponse toDetailsResponse(Customer customer) {
         CustomerDetailsResponse response = new CustomerDetailsResponse();
@@ -50,7 +84,8 @@ public class CustomerMapper {
         response.setEmail(customer.getEmail());
         response.setPhone(customer.getPhone());
         response.setCreatedAt(customer.getCreatedAt());
-        response.setNumAddresses(customer.getAddresses().size());
+        // Read the denormalized count so list pages never touch the addresses collection
+        response.setNumAddresses(customer.getNumAddresses());
         // Set success to true by default
         response.setErrorCode("SUCCESS");
         
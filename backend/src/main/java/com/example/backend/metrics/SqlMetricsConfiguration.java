@@ -0,0 +1,73 @@
+package com.example.backend.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.List;
+
+// Wraps the DataSource in a datasource-proxy that feeds SqlStatistics: one statement per execution
+// (a JDBC batch counts once, it is one round trip), its time, and every row read through a ResultSet
+@Configuration
+@ConditionalOnProperty(name = "app.sql-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMetricsConfiguration {
+
+    private static final String STARTED_AT = "sqlStatistics.startedAt";
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new StatementListener())
+                        .proxyResultSet()
+                        .methodListener(new RowListener())
+                        .build();
+            }
+        };
+    }
+
+    private static class StatementListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            execInfo.addCustomValue(STARTED_AT, System.nanoTime());
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            Long startedAt = execInfo.getCustomValue(STARTED_AT, Long.class);
+            SqlStatistics.recordStatement(startedAt == null ? 0 : System.nanoTime() - startedAt);
+        }
+    }
+
+    private static class RowListener implements MethodExecutionListener {
+
+        @Override
+        public void beforeMethod(MethodExecutionContext executionContext) {
+        }
+
+        @Override
+        public void afterMethod(MethodExecutionContext executionContext) {
+            if (executionContext.getTarget() instanceof ResultSet && "next".equals(executionContext.getMethod().getName())
+                    && Boolean.TRUE.equals(executionContext.getResult())) {
+                SqlStatistics.recordRow();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backend.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Publishes the SQL statements, rows and database time of each request, tagged like http.server.requests
+// with the matched URI pattern and method. Work done off the request thread (e.g. streamed exports) isn't counted.
+@Component
+@ConditionalOnProperty(name = "app.sql-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    public SqlMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statistics.close();
+            record(request, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // Unmatched paths share one tag so probing random URLs can't grow the registry
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements executed per request")
+                .tags("uri", uri, "method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.statements());
+        DistributionSummary.builder("http.server.requests.sql.rows")
+                .description("Rows read from SQL result sets per request")
+                .tags("uri", uri, "method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.rows());
+        Timer.builder("http.server.requests.sql.time")
+                .description("Time spent executing SQL statements per request")
+                .tags("uri", uri, "method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.nanos(), TimeUnit.NANOSECONDS);
+    }
+}
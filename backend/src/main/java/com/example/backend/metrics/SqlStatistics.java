@@ -0,0 +1,59 @@
+package com.example.backend.metrics;
+
+// SQL statements, rows fetched and database time of the work running on the current thread.
+// Scopes nest: everything recorded inside a scope also counts towards the scopes around it,
+// so a test can measure a whole MockMvc call while the request filter measures the request.
+public final class SqlStatistics implements AutoCloseable {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatistics parent;
+    private long statements;
+    private long rows;
+    private long nanos;
+
+    private SqlStatistics(SqlStatistics parent) {
+        this.parent = parent;
+    }
+
+    // Starts a scope on the current thread; close it in the same thread, try-with-resources style
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics(CURRENT.get());
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void recordStatement(long elapsedNanos) {
+        for (SqlStatistics scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statements++;
+            scope.nanos += elapsedNanos;
+        }
+    }
+
+    static void recordRow() {
+        for (SqlStatistics scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.rows++;
+        }
+    }
+
+    public long statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public void close() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+}
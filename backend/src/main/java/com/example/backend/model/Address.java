@@ -1,14 +1,24 @@
 package com.example.backend.model;
 
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.id.PooledId;
+import com.example.backend.uniqueness.AddressHasher;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(
     name = "addresses",
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_address_hash", columnNames = {"address_hash"})
+    },
+    indexes = {
+        @Index(name = "idx_addresses_city_key", columnList = "city_key, customer_id"),
+        @Index(name = "idx_addresses_state_key", columnList = "state_key, customer_id"),
+        @Index(name = "idx_addresses_pincode_key", columnList = "pincode_key, customer_id")
     }
 )
 @Getter @Setter
@@ -17,7 +27,7 @@ import lombok.*;
 public class Address {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(IdBlockAllocator.ADDRESSES)
     private Integer id;
 
     @NotBlank(message = "Street is required")
@@ -38,20 +48,39 @@ public class Address {
     @NotBlank(message = "Country is required")
     private String country;
 
-    @ManyToOne
+    // Trimmed, lower-cased facet values generated by the database (V3 migration), read-only here
+    @JsonIgnore
+    @Column(name = "city_key", insertable = false, updatable = false)
+    private String cityKey;
+
+    @JsonIgnore
+    @Column(name = "state_key", insertable = false, updatable = false)
+    private String stateKey;
+
+    @JsonIgnore
+    @Column(name = "pincode_key", insertable = false, updatable = false)
+    private String pincodeKey;
+
+    // Lazy: only the customer id is ever read, which the proxy holds without a query per address
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
-    // Hash to ensure the uniqueness of addresses
-    @Column(name = "address_hash", nullable = false, length = 64, unique = true)
-    private String addressHash;
+    // Hash to ensure the uniqueness of addresses: SHA-256 of the canonical fields, the BINARY(32) column as is
+    @Column(name = "address_hash", nullable = false, length = AddressHasher.HASH_BYTES)
+    private byte[] addressHash;
+
+    // Optimistic-lock version, the source of the address ETag
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 
     // Compute hash when object is created and updated
     @PrePersist
     @PreUpdate
     public void computeHash() {
-        String streetValue2 = (street2 != null) ? street2:"";
-        String raw = street + "|" + streetValue2 + city + "|" + state + "|" + country + "|" + pincode;
-        this.addressHash = org.apache.commons.codec.digest.DigestUtils.sha256Hex(raw);
+        this.addressHash = AddressHasher.hash(street, street2, city, state, pincode, country);
     }
 }
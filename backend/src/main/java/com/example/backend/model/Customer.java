@@ -1,24 +1,40 @@
 package com.example.backend.model;
 
 
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.id.PooledId;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "customers")
+@Table(
+    name = "customers",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "email", columnNames = {"email"}),
+        @UniqueConstraint(name = "phone", columnNames = {"phone"})
+    },
+    // Mirrors the Flyway migrations, one index per supported sort with id as tie-breaker
+    indexes = {
+        @Index(name = "idx_customers_first_name_id", columnList = "first_name, id"),
+        @Index(name = "idx_customers_last_name_id", columnList = "last_name, id"),
+        @Index(name = "idx_customers_created_at_id", columnList = "created_at, id")
+    }
+)
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(IdBlockAllocator.CUSTOMERS)
     private Integer id;
 
     @NotBlank(message = "First name is required")
@@ -31,17 +47,29 @@ public class Customer {
 
     @NotBlank(message = "Phone number is required")
     @Pattern(regexp = "^[0-9]{10}$", message = "Phone must be 10 digits")
-    @Column(unique = true)
     private String phone;
 
     @Email(message = "Invalid email format")
     @NotBlank(message = "Email is required")
-    @Column(unique = true)
     private String email;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Denormalized count of the customer's addresses, kept in step by the address write paths
+    @JsonIgnore
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "num_addresses", nullable = false)
+    private Integer numAddresses = 0;
+
+    // Optimistic-lock version, also bumped by address changes since the customer representation embeds them
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Address> addresses;
 }
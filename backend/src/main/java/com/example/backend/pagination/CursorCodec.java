@@ -0,0 +1,38 @@
+package com.example.backend.pagination;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Encodes cursor positions as opaque URL-safe tokens
+@Component
+public class CursorCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public CursorCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String encode(CursorToken token) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(token);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    public CursorToken decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            return objectMapper.readValue(json, CursorToken.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.pagination;
+
+import org.springframework.data.domain.Sort;
+
+// Position after the last row of a page: the sort key value and the id used to break ties
+public record CursorToken(String sortBy, Sort.Direction direction, String value, Integer id) {
+}
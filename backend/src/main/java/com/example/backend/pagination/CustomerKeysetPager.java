@@ -0,0 +1,73 @@
+package com.example.backend.pagination;
+
+import com.example.backend.dto.CursorPage;
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.example.backend.mapper.CustomerMapper;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.repository.CustomerSpecifications;
+import com.example.backend.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Runs customer listings in cursor mode: seek past the last (sortBy, id) tuple instead of OFFSET, and skip the COUNT query
+@Component
+@RequiredArgsConstructor
+public class CustomerKeysetPager {
+
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+    private final CursorCodec cursorCodec;
+    private final ShardRouter shardRouter;
+
+    public CursorPage<CustomerDetailsResponse> fetch(Specification<Customer> filter, String cursor,
+                                                     int size, String sortBy, String sortDir) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        CustomerSortField field = CustomerSortField.fromProperty(sortBy);
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ?
+                Sort.Direction.DESC : Sort.Direction.ASC;
+
+        Specification<Customer> spec = filter != null ? filter : Specification.unrestricted();
+        if (cursor != null && !cursor.isBlank()) {
+            CursorToken token = cursorCodec.decode(cursor);
+            if (!field.getProperty().equals(token.sortBy()) || direction != token.direction() || token.id() == null) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            spec = spec.and(CustomerSpecifications.after(field.getProperty(), field.isNullable(),
+                    direction, field.parse(token.value()), token.id()));
+        }
+
+        // id breaks ties so the order is total and every row is visited exactly once
+        Sort sort = field == CustomerSortField.ID ?
+                Sort.by(direction, "id") : Sort.by(direction, field.getProperty(), "id");
+        // Fetch one extra row to learn whether another page exists; sharded, each shard seeks past the cursor and
+        // the first rows are merged
+        Specification<Customer> seek = spec;
+        List<Customer> rows = shardRouter.findFirst(size + 1, CustomerSortField.comparator(sort),
+                () -> customerRepository.findBy(seek, query -> query.sortBy(sort).limit(size + 1).all()));
+
+        boolean hasNext = rows.size() > size;
+        List<Customer> pageRows = hasNext ? rows.subList(0, size) : rows;
+
+        CursorPage<CustomerDetailsResponse> response = new CursorPage<>();
+        response.setContent(pageRows.stream()
+                .map(customerMapper::toDetailsResponse)
+                .collect(Collectors.toList()));
+        response.setSize(size);
+        response.setHasNext(hasNext);
+        if (hasNext) {
+            Customer last = pageRows.get(pageRows.size() - 1);
+            response.setNextCursor(cursorCodec.encode(
+                    new CursorToken(field.getProperty(), direction, field.format(last), last.getId())));
+        }
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+}
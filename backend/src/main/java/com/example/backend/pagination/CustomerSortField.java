@@ -0,0 +1,75 @@
+package com.example.backend.pagination;
+
+import com.example.backend.model.Customer;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Function;
+
+// Customer properties that listing and search endpoints can sort on
+public enum CustomerSortField {
+    ID("id", false, Customer::getId, Integer::valueOf),
+    FIRST_NAME("firstName", false, Customer::getFirstName, Function.identity()),
+    LAST_NAME("lastName", false, Customer::getLastName, Function.identity()),
+    EMAIL("email", false, Customer::getEmail, Function.identity()),
+    PHONE("phone", false, Customer::getPhone, Function.identity()),
+    CREATED_AT("createdAt", true, Customer::getCreatedAt, LocalDateTime::parse),
+    NUM_ADDRESSES("numAddresses", false, Customer::getNumAddresses, Integer::valueOf);
+
+    private final String property;
+    private final boolean nullable;
+    private final Function<Customer, Object> accessor;
+    private final Function<String, ? extends Comparable<?>> parser;
+
+    CustomerSortField(String property, boolean nullable, Function<Customer, Object> accessor,
+                      Function<String, ? extends Comparable<?>> parser) {
+        this.property = property;
+        this.nullable = nullable;
+        this.accessor = accessor;
+        this.parser = parser;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    // Read the sort key of a row as the string stored in cursor tokens
+    public String format(Customer customer) {
+        Object value = accessor.apply(customer);
+        return value == null ? null : value.toString();
+    }
+
+    // Convert a value read back from a cursor token into the property's Java type
+    public Comparable<?> parse(String value) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    // The sort as the database applies it, to merge rows sorted by different shards: strings ignore case as under
+    // MySQL's default collation, nulls come first ascending and last descending
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Comparator<Customer> comparator(Sort sort) {
+        Comparator<Customer> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            CustomerSortField field = fromProperty(order.getProperty());
+            Comparator<Object> values = (a, b) -> a instanceof String first && b instanceof String second ?
+                    String.CASE_INSENSITIVE_ORDER.compare(first, second) : ((Comparable) a).compareTo(b);
+            Comparator<Customer> byField = Comparator.comparing(field.accessor, Comparator.nullsFirst(values));
+            comparator = comparator.thenComparing(order.isAscending() ? byField : byField.reversed());
+        }
+        return comparator;
+    }
+
+    // Resolve the sortBy request parameter
+    public static CustomerSortField fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sortBy: " + property));
+    }
+}
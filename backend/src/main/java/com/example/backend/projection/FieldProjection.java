@@ -0,0 +1,43 @@
+package com.example.backend.projection;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One distinct fields= selection, parsed once and cached by FieldProjections: the selected properties in
+// canonical order, the JPQL select clause reading exactly their columns, and whether addresses are loaded
+public final class FieldProjection {
+
+    private final List<String> properties;
+    private final String select;
+    private final boolean addresses;
+
+    FieldProjection(List<String> properties, List<String> paths, String idPath, boolean addresses) {
+        this.properties = properties;
+        // Nothing but the addresses selected: still read the id, to tell a missing row from an empty selection
+        this.select = "SELECT " + (paths.isEmpty() ? idPath : String.join(", ", paths));
+        this.addresses = addresses;
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    // SELECT clause, the alias is c for customers and a for addresses
+    public String getSelect() {
+        return select;
+    }
+
+    public boolean includesAddresses() {
+        return addresses;
+    }
+
+    // Map a row of the select clause to the selected properties; requested nulls are kept
+    public Map<String, Object> toMap(Object[] row) {
+        Map<String, Object> values = new LinkedHashMap<>(properties.size() * 2);
+        for (int i = 0; i < properties.size(); i++) {
+            values.put(properties.get(i), row[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.backend.projection;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Parses fields= request parameters into FieldProjections. Projections are cached by the set of selected
+// properties, so field order, repeats or spacing don't create new entries and the cache stays bounded
+// (at most one entry per subset of the properties below).
+@Component
+public class FieldProjections {
+
+    public static final String ADDRESSES = "addresses";
+
+    // Selectable properties in response order, with the JPQL path each is read from
+    private static final Map<String, String> CUSTOMER_PATHS = paths(
+            "id", "c.id",
+            "firstName", "c.firstName",
+            "lastName", "c.lastName",
+            "email", "c.email",
+            "phone", "c.phone",
+            "createdAt", "c.createdAt",
+            // Denormalized column, no address is loaded to report it
+            "numAddresses", "c.numAddresses");
+
+    private static final Map<String, String> ADDRESS_PATHS = paths(
+            "id", "a.id",
+            "street", "a.street",
+            "street2", "a.street2",
+            "city", "a.city",
+            "state", "a.state",
+            "pincode", "a.pincode",
+            "country", "a.country",
+            // Foreign key column, the customer isn't joined
+            "customerId", "a.customer.id");
+
+    private static final List<String> CUSTOMER_FIELDS = List.copyOf(CUSTOMER_PATHS.keySet());
+    private static final List<String> CUSTOMER_FIELDS_WITH_ADDRESSES = concat(CUSTOMER_FIELDS, ADDRESSES);
+    private static final List<String> ADDRESS_FIELDS = List.copyOf(ADDRESS_PATHS.keySet());
+
+    private final Map<Long, FieldProjection> customerProjections = new ConcurrentHashMap<>();
+    private final Map<Long, FieldProjection> addressProjections = new ConcurrentHashMap<>();
+
+    // Customer selection; addresses is accepted only where the response can carry them (the single customer)
+    public FieldProjection customer(String fields, boolean addressesAllowed) {
+        // addresses is the last bit, so a selection without it has the same key either way
+        long selected = parse(fields, addressesAllowed ? CUSTOMER_FIELDS_WITH_ADDRESSES : CUSTOMER_FIELDS);
+        return customerProjections.computeIfAbsent(selected,
+                key -> build(key, CUSTOMER_FIELDS_WITH_ADDRESSES, CUSTOMER_PATHS, "c.id"));
+    }
+
+    public FieldProjection address(String fields) {
+        long selected = parse(fields, ADDRESS_FIELDS);
+        return addressProjections.computeIfAbsent(selected, key -> build(key, ADDRESS_FIELDS, ADDRESS_PATHS, "a.id"));
+    }
+
+    // Every address property, for the addresses of a customer selection
+    public FieldProjection address() {
+        return addressProjections.computeIfAbsent((1L << ADDRESS_FIELDS.size()) - 1,
+                key -> build(key, ADDRESS_FIELDS, ADDRESS_PATHS, "a.id"));
+    }
+
+    // Bit i set when names[i] is selected
+    private static long parse(String fields, List<String> names) {
+        long selected = 0;
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            int index = names.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown field: " + name + ", supported: " + String.join(", ", names));
+            }
+            selected |= 1L << index;
+        }
+        if (selected == 0) {
+            throw new IllegalArgumentException("No fields selected, supported: " + String.join(", ", names));
+        }
+        return selected;
+    }
+
+    private static FieldProjection build(long selected, List<String> names, Map<String, String> paths, String idPath) {
+        List<String> properties = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if ((selected & (1L << i)) != 0 && paths.containsKey(name)) {
+                properties.add(name);
+                columns.add(paths.get(name));
+            }
+        }
+        boolean addresses = names.contains(ADDRESSES) && (selected & (1L << names.indexOf(ADDRESSES))) != 0;
+        return new FieldProjection(List.copyOf(properties), columns, idPath, addresses);
+    }
+
+    private static List<String> concat(List<String> names, String name) {
+        List<String> all = new ArrayList<>(names);
+        all.add(name);
+        return List.copyOf(all);
+    }
+
+    private static Map<String, String> paths(String... pairs) {
+        Map<String, String> paths = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            paths.put(pairs[i], pairs[i + 1]);
+        }
+        return paths;
+    }
+}
@@ -1,10 +1,18 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.Address;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Integer> {
@@ -12,8 +20,42 @@ public interface AddressRepository extends JpaRepository<Address, Integer> {
     // Get all addresses for a specific customer id
     List<Address> findByCustomerId(Integer customerId);
 
+    // Current version only, answers conditional GETs without loading the address
+    @Query("SELECT a.version FROM Address a WHERE a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
+
+    // (id, version) of each of a customer's addresses in id order, digested into the list ETag
+    @Query("SELECT a.id, a.version FROM Address a WHERE a.customer.id = :customerId ORDER BY a.id")
+    List<Object[]> findListVersions(@Param("customerId") Integer customerId);
+
     // Optional: find by city/state/pincode
     List<Address> findByCityContainingIgnoreCase(String city);
     List<Address> findByStateContainingIgnoreCase(String state);
     List<Address> findByPincode(String pincode);
-}
\ No newline at end of file
+
+    // Stream the facet columns to build the in-memory address facet index (forward-only, no managed entities)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.customer.id, a.city, a.state, a.pincode FROM Address a")
+    Stream<Object[]> streamFacetFields();
+
+    // Stream the address fields with their owners to build the near-duplicate index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.customer.id, a.street, a.street2, a.city, a.state, a.pincode, a.country FROM Address a")
+    Stream<Object[]> streamTextFields();
+
+    // Stream address hashes with their owners to build the uniqueness index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.customer.id, a.addressHash FROM Address a")
+    Stream<Object[]> streamHashFields();
+
+    @Query("SELECT COUNT(a) FROM Address a WHERE a.customer.id IN :customerIds")
+    long countByCustomerIds(@Param("customerIds") Collection<Integer> customerIds);
+
+    // Owner and hash of the given customers' addresses
+    @Query("SELECT a.customer.id, a.addressHash FROM Address a WHERE a.customer.id IN :customerIds")
+    List<Object[]> findHashesByCustomerIds(@Param("customerIds") Collection<Integer> customerIds);
+
+    // Which of the given address hashes are already taken, used to pre-check bulk imports
+    @Query("SELECT a.addressHash FROM Address a WHERE a.addressHash IN :hashes")
+    List<byte[]> findExistingHashes(@Param("hashes") Collection<byte[]> hashes);
+}
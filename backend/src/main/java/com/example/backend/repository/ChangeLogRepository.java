@@ -0,0 +1,84 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.ChangeEntry;
+import com.example.backend.event.ChangeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+// change_log and its sequence row (V4 migration), plain JDBC like the other bulk paths
+@Repository
+public class ChangeLogRepository {
+
+    private static final RowMapper<ChangeEntry> ROW_MAPPER = (rs, rowNum) -> new ChangeEntry(
+            rs.getLong("seq"),
+            rs.getString("entity"),
+            rs.getInt("entity_id"),
+            rs.getInt("customer_id"),
+            ChangeType.valueOf(rs.getString("change_type")),
+            rs.getObject("version", Long.class),
+            rs.getTimestamp("changed_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ChangeLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Reserve count sequence numbers and return the first. Must run in the writing transaction: the row lock
+    // taken here is what orders concurrent commits.
+    public long reserve(int count) {
+        jdbcTemplate.update("UPDATE change_log_sequence SET last_seq = last_seq + ? WHERE id = 1", count);
+        Long last = jdbcTemplate.queryForObject("SELECT last_seq FROM change_log_sequence WHERE id = 1", Long.class);
+        return last - count + 1;
+    }
+
+    public void insert(List<ChangeEntry> entries) {
+        jdbcTemplate.batchUpdate("INSERT INTO change_log (seq, entity, entity_id, customer_id, change_type, version, " +
+                "changed_at) VALUES (?, ?, ?, ?, ?, ?, ?)", entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getSeq());
+            ps.setString(2, entry.getEntity());
+            ps.setInt(3, entry.getEntityId());
+            ps.setInt(4, entry.getCustomerId());
+            ps.setString(5, entry.getType().name());
+            if (entry.getVersion() != null) {
+                ps.setLong(6, entry.getVersion());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setTimestamp(7, Timestamp.valueOf(entry.getChangedAt()));
+        });
+    }
+
+    // Entries after since in sequence order, a primary key range scan
+    public List<ChangeEntry> findSince(long since, int limit) {
+        return jdbcTemplate.query("SELECT seq, entity, entity_id, customer_id, change_type, version, changed_at " +
+                "FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?", ROW_MAPPER, since, limit);
+    }
+
+    public long lastSeq() {
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM change_log_sequence WHERE id = 1", Long.class);
+    }
+
+    public long compactedThrough() {
+        return jdbcTemplate.queryForObject("SELECT compacted_through FROM change_log_sequence WHERE id = 1", Long.class);
+    }
+
+    // Highest sequence written before the cutoff, null when there is none
+    public Long findLastSeqBefore(Timestamp cutoff) {
+        return jdbcTemplate.queryForObject("SELECT MAX(seq) FROM change_log WHERE changed_at < ?", Long.class, cutoff);
+    }
+
+    public int deleteRange(long afterSeq, long throughSeq) {
+        return jdbcTemplate.update("DELETE FROM change_log WHERE seq > ? AND seq <= ?", afterSeq, throughSeq);
+    }
+
+    public void markCompactedThrough(long seq) {
+        jdbcTemplate.update("UPDATE change_log_sequence SET compacted_through = ? WHERE id = 1 AND compacted_through < ?",
+                seq, seq);
+    }
+}
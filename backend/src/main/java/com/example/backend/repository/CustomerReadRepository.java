@@ -0,0 +1,32 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.Customer;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Read-only query layer for the customer and address responses: scalar rows with exactly the response columns,
+// one query each, so no managed entities, dirty-checking snapshots or lazy loads. Writes keep using the entity repositories.
+// Address columns are always: id, street, street2, city, state, pincode, country, customer id, version.
+@Repository
+@Transactional(readOnly = true)
+public interface CustomerReadRepository extends org.springframework.data.repository.Repository<Customer, Integer> {
+
+    // Customer columns (id, firstName, lastName, email, phone, createdAt, version) followed by the address columns,
+    // one row per address, or a single row with null address columns when the customer has none
+    @Query("SELECT c.id, c.firstName, c.lastName, c.email, c.phone, c.createdAt, c.version, " +
+           "a.id, a.street, a.street2, a.city, a.state, a.pincode, a.country, c.id, a.version " +
+           "FROM Customer c LEFT JOIN c.addresses a WHERE c.id = :id ORDER BY a.id")
+    List<Object[]> findCustomerRows(@Param("id") Integer id);
+
+    @Query("SELECT a.id, a.street, a.street2, a.city, a.state, a.pincode, a.country, a.customer.id, a.version " +
+           "FROM Address a WHERE a.customer.id = :customerId ORDER BY a.id")
+    List<Object[]> findAddressRows(@Param("customerId") Integer customerId);
+
+    @Query("SELECT a.id, a.street, a.street2, a.city, a.state, a.pincode, a.country, a.customer.id, a.version " +
+           "FROM Address a WHERE a.id = :id")
+    List<Object[]> findAddressRow(@Param("id") Integer id);
+}
@@ -1,15 +1,29 @@
 package com.example.backend.repository;
 import com.example.backend.model.Customer;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+public interface CustomerRepository extends JpaRepository<Customer, Integer>, JpaSpecificationExecutor<Customer> {
 
     // Search by name, email, or phone with pagination
     @Query("SELECT DISTINCT c FROM Customer c WHERE " +
@@ -28,4 +42,85 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
                                           @Param("state") String state, 
                                           @Param("pincode") String pincode, 
                                           Pageable pageable);
+
+    // Adjust the denormalized address count in the caller's transaction, the customer representation changes too
+    @Modifying
+    @Query("UPDATE Customer c SET c.numAddresses = c.numAddresses + :delta, c.version = c.version + 1 WHERE c.id = :id")
+    int adjustAddressCount(@Param("id") Integer id, @Param("delta") int delta);
+
+    // Bump the version when an embedded address changed without changing the count
+    @Modifying
+    @Query("UPDATE Customer c SET c.version = c.version + 1 WHERE c.id = :id")
+    int bumpVersion(@Param("id") Integer id);
+
+    // Current version only, answers conditional GETs without loading the customer
+    @Query("SELECT c.version FROM Customer c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
+
+    // Which of the given customers exist, locked until the caller's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN :ids")
+    List<Integer> lockExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // Set-based delete; addresses go with their customer through the ON DELETE CASCADE of fk_customer,
+    // without being loaded
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Integer> ids);
+
+    // Customers created before the instant, oldest first, for purges in chunks
+    @Query("SELECT c.id FROM Customer c WHERE c.createdAt < :before ORDER BY c.createdAt, c.id")
+    List<Integer> findIdsCreatedBefore(@Param("before") LocalDateTime before, Limit limit);
+
+    @Query("SELECT MIN(c.id) FROM Customer c")
+    Integer findMinId();
+
+    @Query("SELECT MAX(c.id) FROM Customer c")
+    Integer findMaxId();
+
+    // Rewrite drifted address counts for one id range, returns the number of repaired customers
+    @Modifying
+    @Query("UPDATE Customer c SET c.numAddresses = " +
+           "(SELECT COUNT(a) FROM Address a WHERE a.customer.id = c.id), c.version = c.version + 1 " +
+           "WHERE c.id BETWEEN :fromId AND :toId AND c.numAddresses <> " +
+           "(SELECT COUNT(a) FROM Address a WHERE a.customer.id = c.id)")
+    int reconcileAddressCounts(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    // Stream the searchable columns to build the in-process search index (forward-only, no managed entities)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.id, c.firstName, c.lastName, c.email, c.phone FROM Customer c")
+    Stream<Object[]> streamSearchFields();
+
+    // Columns of the export rows: the customer, then one of its addresses (null when it has none)
+    String EXPORT_ROWS = "SELECT c.id, c.firstName, c.lastName, c.email, c.phone, c.createdAt, " +
+            "a.id, a.street, a.street2, a.city, a.state, a.pincode, a.country FROM Customer c LEFT JOIN c.addresses a ";
+
+    // Stream customers joined with their addresses for export, one row per address. All rows of a customer are
+    // adjacent: the order is by customer columns only, an address column in it would sort the whole join.
+    // The bounded variants (from inclusive, to exclusive) are separate queries so that each is a plain range on
+    // idx_customers_created_at_id, in whose order the rows are streamed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(EXPORT_ROWS + "ORDER BY c.id")
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(EXPORT_ROWS + "WHERE c.createdAt >= :createdFrom ORDER BY c.createdAt, c.id")
+    Stream<Object[]> streamExportRowsCreatedFrom(@Param("createdFrom") LocalDateTime createdFrom);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(EXPORT_ROWS + "WHERE c.createdAt < :createdTo ORDER BY c.createdAt, c.id")
+    Stream<Object[]> streamExportRowsCreatedBefore(@Param("createdTo") LocalDateTime createdTo);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(EXPORT_ROWS + "WHERE c.createdAt >= :createdFrom AND c.createdAt < :createdTo ORDER BY c.createdAt, c.id")
+    Stream<Object[]> streamExportRowsCreatedBetween(@Param("createdFrom") LocalDateTime createdFrom,
+                                                    @Param("createdTo") LocalDateTime createdTo);
+
+    // Which of the given emails / phones are already taken, used to pre-check bulk imports. Emails are given
+    // lower-cased, the case-insensitive collation of the email key matches them whatever case was stored
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT c.phone FROM Customer c WHERE c.phone IN :phones")
+    List<String> findExistingPhones(@Param("phones") Collection<String> phones);
 }
@@ -0,0 +1,97 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.search.AddressFacet;
+import com.example.backend.search.FacetMatch;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Criteria equivalents of the CustomerRepository search queries, used where predicates are composed at runtime
+public final class CustomerSpecifications {
+
+    private CustomerSpecifications() {
+    }
+
+    // Same match rules as CustomerRepository.searchCustomers
+    public static Specification<Customer> matchesQuery(String query) {
+        return (root, cq, cb) -> {
+            String pattern = "%" + query.toLowerCase() + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("firstName")), pattern),
+                    cb.like(cb.lower(root.get("lastName")), pattern),
+                    cb.like(cb.lower(root.get("email")), pattern),
+                    cb.like(root.get("phone"), "%" + query + "%"));
+        };
+    }
+
+    // Database equivalent of AddressFacetIndex.filter: each criterion is satisfied by some address of the customer
+    public static Specification<Customer> hasAddressFacets(Map<AddressFacet, String> criteria, FacetMatch match) {
+        return (root, cq, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (Map.Entry<AddressFacet, String> criterion : criteria.entrySet()) {
+                if (criterion.getValue() == null) {
+                    continue;
+                }
+                Subquery<Integer> sub = cq.subquery(Integer.class);
+                Root<Address> address = sub.from(Address.class);
+                // Normalized key column, indexed, so exact and prefix matches are index range scans
+                Expression<String> column = address.get(criterion.getKey().getKeyProperty());
+                String value = criterion.getValue().trim().toLowerCase(Locale.ROOT);
+                Predicate matches = switch (match) {
+                    case EXACT -> cb.equal(column, value);
+                    case PREFIX -> cb.like(column, value + "%");
+                    case CONTAINS -> cb.like(column, "%" + value + "%");
+                };
+                sub.select(address.get("id"))
+                        .where(cb.equal(address.get("customer").get("id"), root.get("id")), matches);
+                predicates.add(cb.exists(sub));
+            }
+            if (predicates.isEmpty()) {
+                Subquery<Integer> sub = cq.subquery(Integer.class);
+                Root<Address> address = sub.from(Address.class);
+                sub.select(address.get("id")).where(cb.equal(address.get("customer").get("id"), root.get("id")));
+                predicates.add(cb.exists(sub));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Seek predicate for keyset pagination: rows strictly after (value, id) in (property dir, id dir) order.
+    // NULLs sort lowest, as in MySQL, so they come first ascending and last descending.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Customer> after(String property, boolean nullable, Sort.Direction direction,
+                                                Comparable value, Integer id) {
+        return (root, cq, cb) -> {
+            Path<Integer> idPath = root.get("id");
+            boolean asc = direction.isAscending();
+            Predicate idAfter = asc ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+            if ("id".equals(property)) {
+                return idAfter;
+            }
+
+            Expression<Comparable> key = root.get(property);
+            if (value == null) {
+                Predicate tie = cb.and(cb.isNull(key), idAfter);
+                return asc ? cb.or(tie, cb.isNotNull(key)) : tie;
+            }
+
+            Predicate beyond = asc ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            Predicate tie = cb.and(cb.equal(key, value), idAfter);
+            if (nullable && !asc) {
+                return cb.or(beyond, tie, cb.isNull(key));
+            }
+            return cb.or(beyond, tie);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.repository;
+
+import com.example.backend.projection.FieldProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Reads fields= selections: the select clause of the cached FieldProjection with fixed FROM / WHERE parts, so
+// each field set is one query string and Hibernate reuses its compiled plan
+@Repository
+@Transactional(readOnly = true)
+public class FieldProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The sort must come from CustomerSortRegistry, its properties are written into the query as they are
+    public Page<Map<String, Object>> findCustomers(FieldProjection projection, Pageable pageable) {
+        List<Map<String, Object>> content = entityManager
+                .createQuery(projection.getSelect() + " FROM Customer c" + orderBy(pageable.getSort()), Object[].class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultStream()
+                .map(projection::toMap)
+                .collect(Collectors.toList());
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> entityManager.createQuery("SELECT COUNT(c) FROM Customer c", Long.class).getSingleResult());
+    }
+
+    public Optional<Map<String, Object>> findCustomer(FieldProjection projection, Integer id) {
+        return entityManager.createQuery(projection.getSelect() + " FROM Customer c WHERE c.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(projection::toMap);
+    }
+
+    public List<Map<String, Object>> findAddresses(FieldProjection projection, Integer customerId) {
+        return entityManager.createQuery(projection.getSelect()
+                        + " FROM Address a WHERE a.customer.id = :customerId ORDER BY a.id", Object[].class)
+                .setParameter("customerId", customerId)
+                .getResultStream()
+                .map(projection::toMap)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Map<String, Object>> findAddress(FieldProjection projection, Integer id) {
+        return entityManager.createQuery(projection.getSelect() + " FROM Address a WHERE a.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(projection::toMap);
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        return sort.stream()
+                .map(order -> "c." + order.getProperty() + (order.isAscending() ? " ASC" : " DESC"))
+                .collect(Collectors.joining(", ", " ORDER BY ", ""));
+    }
+}
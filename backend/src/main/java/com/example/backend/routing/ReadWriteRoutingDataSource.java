@@ -0,0 +1,29 @@
+package com.example.backend.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Read-only transactions go to the replicas, everything else (writes, reads outside a transaction, pinned
+// requests) to the primary. The decision is taken when the connection is first used, so this sits behind a
+// LazyConnectionDataSourceProxy: the transaction manager opens its connection before the read-only flag is set.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICAS = "replicas";
+
+    public ReadWriteRoutingDataSource(DataSource primary, ReplicaPool replicas) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICAS, replicas));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && !RoutingContext.isPinnedToPrimary() ? REPLICAS : PRIMARY;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.backend.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Read-your-writes for clients of the replicas: a request that may write (any method but GET, HEAD, OPTIONS)
+// is answered with a cookie holding the end of the read-your-writes window, and requests carrying an unexpired
+// cookie read from the primary, so a client doesn't read a replica that hasn't caught up with its own write yet.
+// The frontend is on another origin, so the controllers allow credentialed CORS requests for it to send the cookie.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "read-primary-until";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            // Set before the handler runs, the response may be committed by the time it returns
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+            RoutingContext.pinToPrimary();
+        } else if (primaryUntil(request) > now) {
+            RoutingContext.pinToPrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RoutingContext.clear();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
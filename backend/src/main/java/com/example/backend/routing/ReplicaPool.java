@@ -0,0 +1,137 @@
+package com.example.backend.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The read replicas behind read-only transactions. Each connection request picks one of the replicas currently in
+// rotation by the configured policy; with none in rotation (all lagging or down) reads fall back to the primary.
+// Replicas start out of rotation until ReplicationLagMonitor has seen them within the allowed lag.
+@Slf4j
+public class ReplicaPool extends AbstractDataSource {
+
+    public enum Policy {
+        ROUND_ROBIN,
+        // Fewest connections in use, ties broken by position
+        LEAST_ACTIVE;
+
+        public static Policy fromProperty(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    // One replica's pool and whether it is in rotation
+    public static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean inRotation;
+        private volatile Duration lag;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public HikariDataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isInRotation() {
+            return inRotation;
+        }
+
+        // Last measured lag, null when it could not be measured
+        public Duration getLag() {
+            return lag;
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Policy policy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPool(DataSource primary, List<Replica> replicas, Policy policy) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.policy = policy;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        for (Replica replica : candidates()) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                // Out until the lag monitor reaches it again
+                log.warn("Replica {} unavailable", replica.name, e);
+                update(replica, null, Duration.ZERO);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Each replica pool has its own configured credentials
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    // Replicas in rotation, in the order the policy would try them
+    List<Replica> candidates() {
+        List<Replica> inRotation = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.inRotation) {
+                inRotation.add(replica);
+            }
+        }
+        if (inRotation.size() > 1) {
+            if (policy == Policy.ROUND_ROBIN) {
+                int start = Math.floorMod(next.getAndIncrement(), inRotation.size());
+                List<Replica> rotated = new ArrayList<>(inRotation.subList(start, inRotation.size()));
+                rotated.addAll(inRotation.subList(0, start));
+                return rotated;
+            }
+            inRotation.sort(Comparator.comparingInt(Replica::activeConnections));
+        }
+        return inRotation;
+    }
+
+    // Record a lag measurement (null = unreachable) and put the replica in or out of rotation accordingly
+    void update(Replica replica, Duration lag, Duration maxLag) {
+        boolean inRotation = lag != null && lag.compareTo(maxLag) <= 0;
+        if (inRotation != replica.inRotation) {
+            log.info("Replica {} {} rotation, lag {}", replica.name, inRotation ? "back in" : "out of", lag);
+        }
+        replica.lag = lag;
+        replica.inRotation = inRotation;
+    }
+
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.backend.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read/write splitting, on when app.datasource.replicas.urls lists at least one replica.
+// The DataSource becomes spring.datasource as the primary plus one pool per replica; read-only transactions
+// (the read repositories, Spring Data finders) go to a replica in rotation, everything else to the primary.
+// The pools are not beans of their own, so the SQL metrics proxy wraps only the routing DataSource.
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replicas.urls:}'.isBlank()")
+public class ReplicaRoutingConfiguration {
+
+    // The primary pool and the replicas, closed with the context
+    public static final class ReplicaRouting implements AutoCloseable {
+        private final HikariDataSource primary;
+        private final ReplicaPool replicaPool;
+
+        ReplicaRouting(HikariDataSource primary, ReplicaPool replicaPool) {
+            this.primary = primary;
+            this.replicaPool = replicaPool;
+        }
+
+        public HikariDataSource getPrimary() {
+            return primary;
+        }
+
+        public ReplicaPool getReplicaPool() {
+            return replicaPool;
+        }
+
+        @Override
+        public void close() {
+            replicaPool.close();
+            primary.close();
+        }
+    }
+
+    @Bean
+    public ReplicaRouting replicaRouting(DataSourceProperties properties,
+                                         Environment environment,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                         @Value("${app.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                         @Value("${app.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                         @Value("${app.datasource.replicas.pool-size:10}") int poolSize,
+                                         @Value("${app.datasource.routing.policy:round-robin}") String policy) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // spring.datasource.hikari.* as Boot would apply it to its own pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        List<ReplicaPool.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaPool.Replica(replica.getPoolName(), replica));
+        }
+        return new ReplicaRouting(primary, new ReplicaPool(primary, replicas, ReplicaPool.Policy.fromProperty(policy)));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRouting replicaRouting) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(replicaRouting.getPrimary(), replicaRouting.getReplicaPool()));
+    }
+
+    @Bean
+    public ReplicationLagMonitor replicationLagMonitor(ReplicaRouting replicaRouting,
+                                                       @Value("${app.datasource.routing.max-lag:5s}") Duration maxLag) {
+        return new ReplicationLagMonitor(replicaRouting.getPrimary(), replicaRouting.getReplicaPool(), maxLag);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${app.datasource.routing.read-your-writes:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.backend.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Writes a heartbeat to the primary and reads it back from every replica; a replica whose copy is older than
+// max-lag, or that can't be read, leaves the rotation until a later check finds it caught up.
+// The measured lag includes up to one check interval, so max-lag should be a few intervals.
+@Slf4j
+public class ReplicationLagMonitor {
+
+    private final JdbcTemplate primary;
+    private final ReplicaPool replicaPool;
+    private final Duration maxLag;
+
+    public ReplicationLagMonitor(DataSource primary, ReplicaPool replicaPool, Duration maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicaPool = replicaPool;
+        this.maxLag = maxLag;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval:1s}")
+    public void check() {
+        try {
+            primary.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", Timestamp.valueOf(LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.warn("Replication heartbeat write failed", e);
+        }
+        for (ReplicaPool.Replica replica : replicaPool.getReplicas()) {
+            replicaPool.update(replica, measure(replica), maxLag);
+        }
+    }
+
+    // Age of the replica's heartbeat, null when it can't be read
+    private Duration measure(ReplicaPool.Replica replica) {
+        try {
+            Timestamp beat = new JdbcTemplate(replica.getDataSource())
+                    .queryForObject("SELECT beat FROM replication_heartbeat WHERE id = 1", Timestamp.class);
+            if (beat == null) {
+                return null;
+            }
+            Duration lag = Duration.between(beat.toLocalDateTime(), LocalDateTime.now());
+            return lag.isNegative() ? Duration.ZERO : lag;
+        } catch (RuntimeException e) {
+            log.debug("Replica {} heartbeat read failed", replica.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.backend.routing;
+
+import java.util.function.Supplier;
+
+// Per-thread routing override: while pinned, read-only transactions use the primary too.
+// Set by ReadYourWritesFilter for requests that write or follow a recent write from the same client.
+public final class RoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+
+    // Run work pinned to the primary, then restore the thread's previous pinning
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean pinned = isPinnedToPrimary();
+        pinToPrimary();
+        try {
+            return work.get();
+        } finally {
+            if (!pinned) {
+                clear();
+            }
+        }
+    }
+}
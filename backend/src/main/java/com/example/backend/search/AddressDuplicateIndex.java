@@ -0,0 +1,234 @@
+package com.example.backend.search;
+
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Address;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory MinHash / LSH index over the shingles of every address (AddressShingles), to find near-duplicates
+// such as "99 Greeky Row" and "99 Greeky row fr" that the exact address_hash key lets through.
+// Built at startup, then kept current from committed address and customer changes like the other indexes.
+@Slf4j
+@Component
+public class AddressDuplicateIndex {
+
+    private final AddressRepository addressRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final Executor executor;
+    private final boolean enabled;
+
+    private final MinHashLsh lsh;
+    private final Map<Integer, Integer> customerOfAddress = new HashMap<>();
+    private final Map<Integer, IntPostingList> addressesByCustomer = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Address and customer ids changed by events while the initial build is streaming
+    private Set<Integer> addressesChangedDuringBuild = new HashSet<>();
+    private Set<Integer> customersDeletedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public AddressDuplicateIndex(AddressRepository addressRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ShardRouter shardRouter,
+                                 @Qualifier("applicationTaskExecutor") Executor executor,
+                                 @Value("${app.duplicates.enabled:true}") boolean enabled,
+                                 @Value("${app.duplicates.bands:20}") int bands,
+                                 @Value("${app.duplicates.rows:5}") int rows) {
+        this.addressRepository = addressRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.lsh = new MinHashLsh(bands, rows);
+    }
+
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return lsh.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of all indexed addresses, ascending
+    public int[] addressIds() {
+        lock.readLock().lock();
+        try {
+            return lsh.ids();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Integer customerOf(int addressId) {
+        lock.readLock().lock();
+        try {
+            return customerOfAddress.get(addressId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Addresses similar to an indexed one, most similar first; empty when the address isn't indexed
+    public List<MinHashLsh.Match> similarTo(int addressId, double minSimilarity, int limit) {
+        lock.readLock().lock();
+        try {
+            return lsh.similarTo(addressId, minSimilarity, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Addresses similar to one that may not be saved, most similar first
+    public List<MinHashLsh.Match> similar(Address address, double minSimilarity, int limit) {
+        int[] signature = signature(address);
+        lock.readLock().lock();
+        try {
+            return lsh.similar(signature, minSimilarity, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            executor.execute(this::build);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAddressChanged(AddressChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int[] signature = event.type() == ChangeType.DELETED ? null : signature(event.address());
+        lock.writeLock().lock();
+        try {
+            if (signature == null) {
+                remove(event.addressId());
+            } else {
+                put(event.addressId(), event.customerId(), signature);
+            }
+            if (addressesChangedDuringBuild != null) {
+                addressesChangedDuringBuild.add(event.addressId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A customer delete cascades to all of its addresses
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled || event.type() != ChangeType.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            IntPostingList owned = addressesByCustomer.get(event.customerId());
+            if (owned != null) {
+                for (int addressId : owned.toArray()) {
+                    remove(addressId);
+                }
+            }
+            if (customersDeletedDuringBuild != null) {
+                customersDeletedDuringBuild.add(event.customerId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = addressRepository.streamTextFields()) {
+                    rows.forEach(this::addStreamedRow);
+                }
+            }));
+            lock.writeLock().lock();
+            try {
+                addressesChangedDuringBuild = null;
+                customersDeletedDuringBuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Address duplicate index built with {} addresses in {} ms",
+                    lsh.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Address duplicate index build failed, near-duplicate lookups stay unavailable", e);
+        }
+    }
+
+    private void addStreamedRow(Object[] row) {
+        Integer addressId = (Integer) row[0];
+        Integer customerId = (Integer) row[1];
+        // Signatures are computed outside the lock
+        int[] signature = lsh.signature(AddressShingles.of((String) row[2], (String) row[3], (String) row[4],
+                (String) row[5], (String) row[6], (String) row[7]));
+        lock.writeLock().lock();
+        try {
+            if (!addressesChangedDuringBuild.contains(addressId) && !customersDeletedDuringBuild.contains(customerId)) {
+                put(addressId, customerId, signature);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(int addressId, int customerId, int[] signature) {
+        remove(addressId);
+        lsh.put(addressId, signature);
+        customerOfAddress.put(addressId, customerId);
+        addressesByCustomer.computeIfAbsent(customerId, key -> new IntPostingList()).add(addressId);
+    }
+
+    private void remove(int addressId) {
+        Integer customerId = customerOfAddress.remove(addressId);
+        if (customerId == null) {
+            return;
+        }
+        lsh.remove(addressId);
+        IntPostingList owned = addressesByCustomer.get(customerId);
+        owned.remove(addressId);
+        if (owned.isEmpty()) {
+            addressesByCustomer.remove(customerId);
+        }
+    }
+
+    private int[] signature(Address address) {
+        return lsh.signature(AddressShingles.of(address.getStreet(), address.getStreet2(), address.getCity(),
+                address.getState(), address.getPincode(), address.getCountry()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.backend.search;
+
+import com.example.backend.model.Address;
+
+import java.util.function.Function;
+
+// Address attributes exposed as facets for advanced customer search
+public enum AddressFacet {
+    CITY("city", "cityKey", Address::getCity),
+    STATE("state", "stateKey", Address::getState),
+    PINCODE("pincode", "pincodeKey", Address::getPincode);
+
+    private final String parameter;
+    private final String keyProperty;
+    private final Function<Address, String> accessor;
+
+    AddressFacet(String parameter, String keyProperty, Function<Address, String> accessor) {
+        this.parameter = parameter;
+        this.keyProperty = keyProperty;
+        this.accessor = accessor;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    // Address property holding the indexed, trimmed and lower-cased value
+    public String getKeyProperty() {
+        return keyProperty;
+    }
+
+    public String valueOf(Address address) {
+        return accessor.apply(address);
+    }
+}
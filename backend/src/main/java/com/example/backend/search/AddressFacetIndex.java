@@ -0,0 +1,307 @@
+package com.example.backend.search;
+
+import com.example.backend.dto.FacetCount;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory facet index over normalized address city, state and pincode.
+// Every facet value maps to a compressed bitmap of the ids of customers having an address with that value,
+// so multi-criteria filters are bitmap intersections and facet counts are intersection cardinalities.
+@Slf4j
+@Component
+public class AddressFacetIndex {
+
+    // One distinct facet value: its display label and the customers having it
+    private static final class FacetValue {
+        private final String label;
+        private final RoaringBitmap customers = new RoaringBitmap();
+
+        private FacetValue(String label) {
+            this.label = label;
+        }
+    }
+
+    // Indexed state of one address, values are normalized and ordered as AddressFacet.values()
+    private record IndexedAddress(int customerId, String[] values) {
+    }
+
+    private final AddressRepository addressRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final Executor executor;
+    private final boolean enabled;
+
+    private final Map<AddressFacet, TreeMap<String, FacetValue>> facets = new EnumMap<>(AddressFacet.class);
+    private final Map<Integer, IndexedAddress> addresses = new HashMap<>();
+    private final Map<Integer, IntPostingList> addressesByCustomer = new HashMap<>();
+    private final RoaringBitmap customersWithAddresses = new RoaringBitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Address and customer ids changed by events while the initial build is streaming
+    private Set<Integer> addressesChangedDuringBuild = new HashSet<>();
+    private Set<Integer> customersDeletedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public AddressFacetIndex(AddressRepository addressRepository,
+                             PlatformTransactionManager transactionManager,
+                             ShardRouter shardRouter,
+                             @Qualifier("applicationTaskExecutor") Executor executor,
+                             @Value("${app.search.facets.enabled:true}") boolean enabled) {
+        this.addressRepository = addressRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.executor = executor;
+        this.enabled = enabled;
+        for (AddressFacet facet : AddressFacet.values()) {
+            facets.put(facet, new TreeMap<>());
+        }
+    }
+
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    // Customers whose addresses satisfy every given criterion, possibly each with a different address, like
+    // CustomerSpecifications.hasAddressFacets; null criteria are ignored
+    public RoaringBitmap filter(Map<AddressFacet, String> criteria, FacetMatch match) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = customersWithAddresses.clone();
+            for (Map.Entry<AddressFacet, String> criterion : criteria.entrySet()) {
+                if (criterion.getValue() == null) {
+                    continue;
+                }
+                result.and(matching(criterion.getKey(), normalize(criterion.getValue()), match));
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The most frequent values of a facet among the given customers, with their customer counts
+    public List<FacetCount> counts(AddressFacet facet, RoaringBitmap customers, int limit) {
+        lock.readLock().lock();
+        try {
+            List<FacetCount> counts = new ArrayList<>();
+            for (FacetValue value : facets.get(facet).values()) {
+                int count = RoaringBitmap.andCardinality(value.customers, customers);
+                if (count > 0) {
+                    counts.add(new FacetCount(value.label, count));
+                }
+            }
+            counts.sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+            return counts.size() > limit ? counts.subList(0, limit) : counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            executor.execute(this::build);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAddressChanged(AddressChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ChangeType.DELETED) {
+                remove(event.addressId());
+            } else {
+                String[] values = new String[AddressFacet.values().length];
+                for (AddressFacet facet : AddressFacet.values()) {
+                    values[facet.ordinal()] = facet.valueOf(event.address());
+                }
+                put(event.addressId(), event.customerId(), values);
+            }
+            if (addressesChangedDuringBuild != null) {
+                addressesChangedDuringBuild.add(event.addressId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A customer delete cascades to all of its addresses
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled || event.type() != ChangeType.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            IntPostingList owned = addressesByCustomer.get(event.customerId());
+            if (owned != null) {
+                for (int addressId : owned.toArray()) {
+                    remove(addressId);
+                }
+            }
+            if (customersDeletedDuringBuild != null) {
+                customersDeletedDuringBuild.add(event.customerId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = addressRepository.streamFacetFields()) {
+                    rows.forEach(this::addStreamedRow);
+                }
+            }));
+            lock.writeLock().lock();
+            try {
+                addressesChangedDuringBuild = null;
+                customersDeletedDuringBuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Address facet index built with {} addresses in {} ms",
+                    addresses.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Address facet index build failed, advanced search stays on the database query", e);
+        }
+    }
+
+    private void addStreamedRow(Object[] row) {
+        Integer addressId = (Integer) row[0];
+        Integer customerId = (Integer) row[1];
+        lock.writeLock().lock();
+        try {
+            if (!addressesChangedDuringBuild.contains(addressId) && !customersDeletedDuringBuild.contains(customerId)) {
+                put(addressId, customerId, new String[]{(String) row[2], (String) row[3], (String) row[4]});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(int addressId, int customerId, String[] rawValues) {
+        remove(addressId);
+        String[] values = new String[rawValues.length];
+        for (AddressFacet facet : AddressFacet.values()) {
+            String raw = rawValues[facet.ordinal()];
+            if (raw == null) {
+                continue;
+            }
+            values[facet.ordinal()] = normalize(raw);
+            facets.get(facet).computeIfAbsent(values[facet.ordinal()], key -> new FacetValue(raw.trim()))
+                    .customers.add(customerId);
+        }
+        addresses.put(addressId, new IndexedAddress(customerId, values));
+        addressesByCustomer.computeIfAbsent(customerId, key -> new IntPostingList()).add(addressId);
+        customersWithAddresses.add(customerId);
+    }
+
+    private void remove(int addressId) {
+        IndexedAddress removed = addresses.remove(addressId);
+        if (removed == null) {
+            return;
+        }
+        IntPostingList owned = addressesByCustomer.get(removed.customerId());
+        owned.remove(addressId);
+        if (owned.isEmpty()) {
+            addressesByCustomer.remove(removed.customerId());
+            customersWithAddresses.remove(removed.customerId());
+        }
+
+        for (AddressFacet facet : AddressFacet.values()) {
+            String value = removed.values()[facet.ordinal()];
+            // Keep the customer's bit while another of its addresses still carries the value
+            if (value == null || stillHasValue(owned, facet, value)) {
+                continue;
+            }
+            TreeMap<String, FacetValue> values = facets.get(facet);
+            FacetValue facetValue = values.get(value);
+            facetValue.customers.remove(removed.customerId());
+            if (facetValue.customers.isEmpty()) {
+                values.remove(value);
+            }
+        }
+    }
+
+    private boolean stillHasValue(IntPostingList owned, AddressFacet facet, String value) {
+        for (int i = 0; i < owned.size(); i++) {
+            if (value.equals(addresses.get(owned.get(i)).values()[facet.ordinal()])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RoaringBitmap matching(AddressFacet facet, String value, FacetMatch match) {
+        TreeMap<String, FacetValue> values = facets.get(facet);
+        if (match == FacetMatch.EXACT) {
+            FacetValue exact = values.get(value);
+            return exact != null ? exact.customers : new RoaringBitmap();
+        }
+        // Prefix matches are a contiguous key range; substring matches scan the (small) value dictionary
+        NavigableMap<String, FacetValue> candidates = match == FacetMatch.PREFIX ?
+                values.subMap(value, true, value + Character.MAX_VALUE, false) : values;
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (Map.Entry<String, FacetValue> entry : candidates.entrySet()) {
+            if (match.matches(entry.getKey(), value)) {
+                bitmaps.add(entry.getValue().customers);
+            }
+        }
+        return FastAggregation.or(bitmaps.iterator());
+    }
+
+    // Criteria keyed by facet in declaration order, convenient for callers holding request parameters
+    public static Map<AddressFacet, String> criteria(String city, String state, String pincode) {
+        Map<AddressFacet, String> criteria = new LinkedHashMap<>();
+        criteria.put(AddressFacet.CITY, city);
+        criteria.put(AddressFacet.STATE, state);
+        criteria.put(AddressFacet.PINCODE, pincode);
+        return criteria;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.backend.search;
+
+import com.example.backend.uniqueness.AddressCanonicalizer;
+import com.example.backend.uniqueness.AddressCanonicalizer.Field;
+
+// The shingle set an address is compared by in the near-duplicate index. The canonical street lines give their
+// character trigrams, and each token with a digit (house, flat or floor number) is added NUMBER_WEIGHT times as a
+// whole, so neighbours differing only in the number score well below the same address spelled differently. City, state, pincode and country give one shingle each: as
+// trigrams, the part shared by every address of a town would outweigh the street and raise all scores alike.
+public final class AddressShingles {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final int NUMBER_WEIGHT = 4;
+
+    // Salts keeping the kinds of shingle apart; numbers add their copy, place fields their position
+    private static final long TRIGRAM = 0;
+    private static final long PLACE = 1;
+    private static final long NUMBER = 5;
+
+    private AddressShingles() {
+    }
+
+    public static long[] of(String street, String street2, String city, String state, String pincode, String country) {
+        StringBuilder lines = new StringBuilder(64);
+        AddressCanonicalizer.appendCanonical(street, Field.STREET_LINE, lines);
+        int mark = lines.length();
+        lines.append(' ');
+        AddressCanonicalizer.appendCanonical(street2, Field.STREET_LINE, lines);
+        if (lines.length() == mark + 1 || mark == 0) {
+            // One of the lines is empty, drop its separator
+            lines.deleteCharAt(mark);
+        }
+
+        // At most one trigram per char, NUMBER_WEIGHT shingles per number (a char and a space), one per place field
+        long[] hashes = new long[(1 + NUMBER_WEIGHT) * (lines.length() + 1) + 4];
+        int count = 0;
+        for (int start = 0, last = Math.max(0, lines.length() - SHINGLE_SIZE); start <= last; start++) {
+            hashes[count++] = hash(lines, start, Math.min(lines.length(), start + SHINGLE_SIZE), TRIGRAM);
+        }
+        for (int start = 0; start < lines.length(); ) {
+            int end = lines.indexOf(" ", start);
+            end = end < 0 ? lines.length() : end;
+            if (hasDigit(lines, start, end)) {
+                for (int copy = 0; copy < NUMBER_WEIGHT; copy++) {
+                    hashes[count++] = hash(lines, start, end, NUMBER + copy);
+                }
+            }
+            start = end + 1;
+        }
+
+        StringBuilder place = new StringBuilder(32);
+        hashes[count++] = placeHash(city, Field.PLACE, 0, place);
+        hashes[count++] = placeHash(state, Field.PLACE, 1, place);
+        hashes[count++] = placeHash(pincode, Field.POSTAL_CODE, 2, place);
+        hashes[count++] = placeHash(country, Field.PLACE, 3, place);
+        return MinHashLsh.toSet(hashes, count);
+    }
+
+    private static long placeHash(String value, Field field, int position, StringBuilder place) {
+        place.setLength(0);
+        AddressCanonicalizer.appendCanonical(value, field, place);
+        return hash(place, 0, place.length(), PLACE + position);
+    }
+
+    private static boolean hasDigit(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.isDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // FNV-1a of text[from, to), started from the salt
+    private static long hash(CharSequence text, int from, int to, long salt) {
+        long hash = 0xcbf29ce484222325L ^ salt;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
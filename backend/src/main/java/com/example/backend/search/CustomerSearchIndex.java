@@ -0,0 +1,277 @@
+package com.example.backend.search;
+
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Customer;
+import com.example.backend.pagination.CustomerSortField;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Stream;
+
+// In-process trigram index over customer first name, last name, email and phone.
+// Built at startup by streaming the customers table (of every shard), then kept current from committed customer changes.
+@Slf4j
+@Component
+public class CustomerSearchIndex {
+
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int PHONE = 3;
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final Executor executor;
+    private final boolean enabled;
+
+    private final TrigramIndex index = new TrigramIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ids changed by events while the initial build is streaming, the event state wins over the streamed row
+    private Set<Integer> changedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public CustomerSearchIndex(CustomerRepository customerRepository,
+                               PlatformTransactionManager transactionManager,
+                               ShardRouter shardRouter,
+                               @Qualifier("applicationTaskExecutor") Executor executor,
+                               @Value("${app.search.index.enabled:true}") boolean enabled) {
+        this.customerRepository = customerRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.executor = executor;
+        this.enabled = enabled;
+    }
+
+    // True once the index has been built and can answer queries
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    // Whether results can be ordered by this property from indexed fields alone
+    public boolean supportsSort(CustomerSortField field) {
+        return switch (field) {
+            case ID, FIRST_NAME, LAST_NAME, EMAIL, PHONE -> true;
+            default -> false;
+        };
+    }
+
+    // The first limit ids of an ordering, out of total ids in all
+    public record Ranked(int[] ids, int total) {
+    }
+
+    // Customers matching the query: the first limit ids in the requested order, and how many matched
+    public Ranked search(String query, CustomerSortField sortField, Sort.Direction direction, int limit) {
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            int[] ids = index.search(normalized);
+            return new Ranked(order(ids, sortField, direction, limit), ids.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first limit of ascending customer ids (for example from another index) ordered by an indexed field
+    public Ranked sort(int[] ids, CustomerSortField sortField, Sort.Direction direction, int limit) {
+        lock.readLock().lock();
+        try {
+            return new Ranked(order(ids, sortField, direction, limit), ids.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only the first limit ids are put in order, a page needs no more; ids stay primitive throughout
+    private int[] order(int[] ids, CustomerSortField sortField, Sort.Direction direction, int limit) {
+        int k = Math.max(0, Math.min(limit, ids.length));
+        if (sortField == CustomerSortField.ID) {
+            // Ids arrive ascending
+            return direction.isAscending() ? Arrays.copyOf(ids, k) : reverse(ids, k);
+        }
+        int column = column(sortField);
+        // Keys looked up once per id; ids unknown to this index (not yet applied) sort as if the field were null
+        String[] keys = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            String[] document = index.document(ids[i]);
+            keys[i] = document != null ? document[column] : null;
+        }
+        int sign = direction.isAscending() ? 1 : -1;
+        // Positions into ids, by key then id; descending reverses both
+        IntBinaryOperator order = (a, b) -> {
+            int byKey = KEY_ORDER.compare(keys[a], keys[b]);
+            return sign * (byKey != 0 ? byKey : Integer.compare(ids[a], ids[b]));
+        };
+        return first(ids, k, order);
+    }
+
+    // The k first ids under order: a max-heap of the k best positions seen so far, n log k instead of sorting all n
+    private static int[] first(int[] ids, int k, IntBinaryOperator order) {
+        int[] heap = new int[k];
+        int size = 0;
+        for (int position = 0; position < ids.length; position++) {
+            if (size < k) {
+                heap[size] = position;
+                siftUp(heap, size++, order);
+            } else if (k > 0 && order.applyAsInt(position, heap[0]) < 0) {
+                heap[0] = position;
+                siftDown(heap, k, order);
+            }
+        }
+        // Draining the heap yields the kept positions last first
+        int[] first = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            first[i] = ids[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, order);
+        }
+        return first;
+    }
+
+    private static void siftUp(int[] heap, int i, IntBinaryOperator order) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (order.applyAsInt(heap[i], heap[parent]) <= 0) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, IntBinaryOperator order) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && order.applyAsInt(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.applyAsInt(heap[child], heap[i]) <= 0) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int swapped = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swapped;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            executor.execute(this::build);
+        }
+    }
+
+    // Apply committed customer changes
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ChangeType.DELETED) {
+                index.remove(event.customerId());
+            } else {
+                index.put(event.customerId(), fields(event.customer()));
+            }
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(event.customerId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = customerRepository.streamSearchFields()) {
+                    rows.forEach(this::addStreamedRow);
+                }
+            }));
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Customer search index built with {} customers in {} ms",
+                    index.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Customer search index build failed, search stays on the database query", e);
+        }
+    }
+
+    private void addStreamedRow(Object[] row) {
+        Integer id = (Integer) row[0];
+        String[] fields = {normalize((String) row[1]), normalize((String) row[2]),
+                normalize((String) row[3]), normalize((String) row[4])};
+        lock.writeLock().lock();
+        try {
+            if (!changedDuringBuild.contains(id)) {
+                index.put(id, fields);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String[] fields(Customer customer) {
+        return new String[]{normalize(customer.getFirstName()), normalize(customer.getLastName()),
+                normalize(customer.getEmail()), normalize(customer.getPhone())};
+    }
+
+    private static int column(CustomerSortField field) {
+        return switch (field) {
+            case FIRST_NAME -> FIRST_NAME;
+            case LAST_NAME -> LAST_NAME;
+            case EMAIL -> EMAIL;
+            case PHONE -> PHONE;
+            default -> throw new IllegalArgumentException("Unsupported sortBy: " + field.getProperty());
+        };
+    }
+
+    // The last k ids, highest first
+    private static int[] reverse(int[] ids, int k) {
+        int[] reversed = new int[k];
+        for (int i = 0; i < k; i++) {
+            reversed[i] = ids[ids.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
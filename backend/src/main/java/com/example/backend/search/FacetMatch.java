@@ -0,0 +1,27 @@
+package com.example.backend.search;
+
+import java.util.Locale;
+
+// How a facet filter value is compared with indexed values
+public enum FacetMatch {
+    EXACT,
+    PREFIX,
+    // Substring match, same as the LIKE '%x%' database query
+    CONTAINS;
+
+    public static FacetMatch fromParameter(String match) {
+        try {
+            return valueOf(match.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported match: " + match);
+        }
+    }
+
+    boolean matches(String indexedValue, String filter) {
+        return switch (this) {
+            case EXACT -> indexedValue.equals(filter);
+            case PREFIX -> indexedValue.startsWith(filter);
+            case CONTAINS -> indexedValue.contains(filter);
+        };
+    }
+}
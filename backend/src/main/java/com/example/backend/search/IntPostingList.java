@@ -0,0 +1,82 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+// Sorted, duplicate-free list of document ids backed by a growable int[]
+final class IntPostingList {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int index) {
+        return ids[index];
+    }
+
+    // Ids are mostly allocated in increasing order, so the common case is an append
+    void add(int id) {
+        if (size == 0 || id > ids[size - 1]) {
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+            return;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        if (size > 16 && size < ids.length / 4) {
+            ids = Arrays.copyOf(ids, ids.length / 2);
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    // Intersect a (shorter) sorted id array with this list by binary searching forward through it
+    int[] retainAll(int[] sorted) {
+        int[] out = new int[Math.min(sorted.length, size)];
+        int n = 0;
+        int from = 0;
+        for (int id : sorted) {
+            int pos = Arrays.binarySearch(ids, from, size, id);
+            if (pos >= 0) {
+                out[n++] = id;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from >= size) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(capacity, ids.length + (ids.length >> 1)));
+        }
+    }
+}
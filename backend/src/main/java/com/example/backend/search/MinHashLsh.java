@@ -0,0 +1,182 @@
+package com.example.backend.search;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// MinHash signatures of shingle sets (64-bit shingle hashes), banded for locality-sensitive lookups.
+// A signature is bands x rows minimum hash values; the fraction of equal values estimates the Jaccard similarity s
+// of two shingle sets. Each band of rows values is a bucket key, so two texts share a bucket with probability
+// 1 - (1 - s^rows)^bands, steepest around s = (1 / bands)^(1 / rows). Lookups score the ids in the query's
+// buckets instead of every document. Not thread-safe, callers guard it with a read/write lock.
+public final class MinHashLsh {
+
+    // Fixed, so signatures are comparable across instances and restarts
+    private static final long SEED = 0x5DEECE66DL;
+
+    public record Match(int id, double similarity) {
+    }
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final List<Map<Long, IntPostingList>> buckets = new ArrayList<>();
+
+    public MinHashLsh(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new SplittableRandom(SEED).longs(bands * rows).toArray();
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public int size() {
+        return signatures.size();
+    }
+
+    // Ids of all documents, ascending
+    public int[] ids() {
+        return signatures.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    // Index (or re-index) a document by its signature(), which callers may compute outside their lock
+    public void put(int id, int[] signature) {
+        remove(id);
+        signatures.put(id, signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.get(band).computeIfAbsent(bandKey(signature, band), key -> new IntPostingList()).add(id);
+        }
+    }
+
+    public void remove(int id) {
+        int[] signature = signatures.remove(id);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            Map<Long, IntPostingList> bucketsOfBand = buckets.get(band);
+            long key = bandKey(signature, band);
+            IntPostingList bucket = bucketsOfBand.get(key);
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                bucketsOfBand.remove(key);
+            }
+        }
+    }
+
+    // Documents similar to the one with this signature, most similar first
+    public List<Match> similar(int[] signature, double minSimilarity, int limit) {
+        return query(signature, null, minSimilarity, limit);
+    }
+
+    // Other documents similar to an indexed one, most similar first; empty when the id isn't indexed
+    public List<Match> similarTo(int id, double minSimilarity, int limit) {
+        int[] signature = signatures.get(id);
+        return signature == null ? List.of() : query(signature, id, minSimilarity, limit);
+    }
+
+    private List<Match> query(int[] signature, Integer excluded, double minSimilarity, int limit) {
+        RoaringBitmap candidates = new RoaringBitmap();
+        for (int band = 0; band < bands; band++) {
+            IntPostingList bucket = buckets.get(band).get(bandKey(signature, band));
+            if (bucket != null) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    candidates.add(bucket.get(i));
+                }
+            }
+        }
+        if (excluded != null) {
+            candidates.remove(excluded);
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int candidate : candidates) {
+            double similarity = similarity(signature, signatures.get(candidate));
+            if (similarity >= minSimilarity) {
+                matches.add(new Match(candidate, similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed().thenComparingInt(Match::id));
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    // Signature of a shingle set; only reads the fixed seeds, safe to call without the lock
+    public int[] signature(long[] shingles) {
+        int[] signature = new int[bands * rows];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], (int) (mix(shingle ^ seeds[i]) >>> 33));
+            }
+        }
+        return signature;
+    }
+
+    // Fraction of equal signature values, the estimate of the shingle sets' Jaccard similarity
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    // The first count hashes, sorted and without duplicates: a shingle set as signature() and jaccard() take it
+    public static long[] toSet(long[] hashes, int count) {
+        long[] set = Arrays.copyOf(hashes, count);
+        Arrays.sort(set);
+        int distinct = 0;
+        for (int i = 0; i < set.length; i++) {
+            if (i == 0 || set[i] != set[distinct - 1]) {
+                set[distinct++] = set[i];
+            }
+        }
+        return distinct == set.length ? set : Arrays.copyOf(set, distinct);
+    }
+
+    // Exact Jaccard similarity of two shingle sets, as toSet() returns them
+    public static double jaccard(long[] a, long[] b) {
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - common;
+        return union == 0 ? 1.0 : (double) common / union;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            key = mix(key * 31 + signature[i]);
+        }
+        return key;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
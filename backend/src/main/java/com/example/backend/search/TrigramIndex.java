@@ -0,0 +1,111 @@
+package com.example.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Trigram inverted index over a few lower-cased text fields per document.
+// Not thread-safe, callers guard it with a read/write lock.
+final class TrigramIndex {
+
+    private final Map<Long, IntPostingList> postings = new HashMap<>();
+    private final Map<Integer, String[]> documents = new HashMap<>();
+
+    int size() {
+        return documents.size();
+    }
+
+    String[] document(int id) {
+        return documents.get(id);
+    }
+
+    // Index (or re-index) a document, fields must already be normalized
+    void put(int id, String[] fields) {
+        remove(id);
+        documents.put(id, fields);
+        for (long trigram : trigrams(fields)) {
+            postings.computeIfAbsent(trigram, key -> new IntPostingList()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        String[] fields = documents.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (long trigram : trigrams(fields)) {
+            IntPostingList list = postings.get(trigram);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    // Ids (ascending) of documents where some field contains the normalized query
+    int[] search(String query) {
+        if (query.length() < 3) {
+            // Too short to produce a trigram, verify every document instead
+            return documents.entrySet().stream()
+                    .filter(entry -> contains(entry.getValue(), query))
+                    .mapToInt(Map.Entry::getKey)
+                    .sorted()
+                    .toArray();
+        }
+
+        List<IntPostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams(new String[]{query})) {
+            IntPostingList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        // Start from the rarest trigram so intermediate candidate sets stay small
+        lists.sort(Comparator.comparingInt(IntPostingList::size));
+
+        int[] candidates = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = lists.get(i).retainAll(candidates);
+        }
+
+        // Trigrams may come from different fields or positions, so confirm the substring match
+        int n = 0;
+        for (int id : candidates) {
+            if (contains(documents.get(id), query)) {
+                candidates[n++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    private static boolean contains(String[] fields, String query) {
+        for (String field : fields) {
+            if (field != null && field.contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Distinct trigrams of all fields, each packed as three UTF-16 units into one long
+    private static Set<Long> trigrams(String[] fields) {
+        Set<Long> result = new HashSet<>();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                result.add(((long) field.charAt(i) << 32) | ((long) field.charAt(i + 1) << 16) | field.charAt(i + 2));
+            }
+        }
+        return result;
+    }
+}
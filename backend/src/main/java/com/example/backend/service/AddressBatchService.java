@@ -0,0 +1,457 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.AddressBatchAction;
+import com.example.backend.dto.AddressBatchOperation;
+import com.example.backend.dto.AddressBatchResponse;
+import com.example.backend.dto.AddressBatchResult;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.UniqueKeyRegistry;
+import com.example.backend.uniqueness.AddressHasher;
+import com.example.backend.uniqueness.UniqueKey;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Applies a list of address creates, updates and deletes for one customer in one transaction.
+// The customer row is locked and its addresses loaded once, the operations are replayed in memory in request order
+// to validate them and catch duplicates within the batch, then written as JDBC batches, one per run of the same
+// statement so the database sees the changes in request order.
+@Slf4j
+@Service
+public class AddressBatchService {
+
+    // An operation and, once decided, the row it writes or why it was rejected
+    private static final class Change {
+        private final int number;
+        private final AddressBatchOperation operation;
+        // Row as written: the new address for a create, the updated copy for an update, the removed row for a delete
+        private Address address;
+        // Version the update or delete is conditional on
+        private Long version;
+        // Hash the update replaces
+        private byte[] previousHash;
+        private String errorCode;
+        private String errorMessage;
+
+        private Change(int number, AddressBatchOperation operation) {
+            this.number = number;
+            this.operation = operation;
+        }
+
+        private Change reject(String errorCode, String errorMessage) {
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+            return this;
+        }
+
+        private AddressBatchAction action() {
+            return operation.getAction();
+        }
+    }
+
+    private static final String INSERT_ADDRESS =
+            "INSERT INTO addresses (id, customer_id, street, street2, city, state, pincode, country, address_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ADDRESS =
+            "UPDATE addresses SET street = ?, street2 = ?, city = ?, state = ?, pincode = ?, country = ?, " +
+            "address_hash = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String DELETE_ADDRESS = "DELETE FROM addresses WHERE id = ? AND version = ?";
+
+    private final Validator validator;
+    private final CustomerRepository customerRepository;
+    private final AddressRepository addressRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdBlockAllocator idBlockAllocator;
+    private final UniqueKeyRegistry uniqueKeyRegistry;
+    private final int maxOperations;
+
+    public AddressBatchService(Validator validator,
+                               CustomerRepository customerRepository,
+                               AddressRepository addressRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher,
+                               IdBlockAllocator idBlockAllocator,
+                               UniqueKeyRegistry uniqueKeyRegistry,
+                               @Value("${app.address-batch.max-operations:1000}") int maxOperations) {
+        this.validator = validator;
+        this.customerRepository = customerRepository;
+        this.addressRepository = addressRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.idBlockAllocator = idBlockAllocator;
+        this.uniqueKeyRegistry = uniqueKeyRegistry;
+        this.maxOperations = maxOperations;
+    }
+
+    public AddressBatchResponse apply(Integer customerId, List<AddressBatchOperation> operations, boolean atomic) {
+        AddressBatchResponse response = new AddressBatchResponse();
+        response.setCustomerId(customerId);
+        response.setAtomic(atomic);
+        if (operations == null || operations.isEmpty()) {
+            response.setError("INVALID_BATCH", "At least one operation is required");
+            return response;
+        }
+        if (operations.size() > maxOperations) {
+            response.setError("BATCH_TOO_LARGE", "At most " + maxOperations + " operations are allowed per batch");
+            return response;
+        }
+
+        List<Change> changes = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            changes.add(validate(new Change(i + 1, operations.get(i))));
+        }
+        if (atomic && changes.stream().anyMatch(change -> change.errorCode != null)) {
+            return report(response, changes, atomic);
+        }
+
+        try {
+            Boolean found = transactionTemplate.execute(status -> {
+                // Locks the customer row, concurrent batches for the same customer queue up behind this one
+                if (customerRepository.bumpVersion(customerId) == 0) {
+                    return false;
+                }
+                replay(customerId, changes);
+                boolean anyRejected = changes.stream().anyMatch(change -> change.errorCode != null);
+                boolean anyAccepted = changes.stream().anyMatch(change -> change.errorCode == null);
+                if ((atomic && anyRejected) || !anyAccepted) {
+                    status.setRollbackOnly();
+                    return true;
+                }
+                write(customerId, changes);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(found)) {
+                response.setError("CUSTOMER_NOT_FOUND", "Customer not found with ID: " + customerId);
+                return response;
+            }
+        } catch (DataAccessException e) {
+            if (atomic || operations.size() == 1) {
+                return failed(response, changes, e);
+            }
+            // A concurrent writer got in between; retry the operations one by one so only the offending ones fail
+            log.warn("Address batch of {} operations for customer {} failed, retrying individually",
+                    operations.size(), customerId);
+            retryIndividually(customerId, changes);
+        }
+        return report(response, changes, atomic);
+    }
+
+    // Shape and bean validation, needs no database
+    private Change validate(Change change) {
+        AddressBatchOperation operation = change.operation;
+        if (operation == null || operation.getAction() == null) {
+            return change.reject("INVALID_OPERATION", "Action is required, one of CREATE, UPDATE, DELETE");
+        }
+        if (operation.getAction() != AddressBatchAction.CREATE && operation.getAddressId() == null) {
+            return change.reject("INVALID_OPERATION", "addressId is required for " + operation.getAction());
+        }
+        if (operation.getAction() == AddressBatchAction.DELETE) {
+            return change;
+        }
+        if (operation.getAddress() == null) {
+            return change.reject("INVALID_OPERATION", "address is required for " + operation.getAction());
+        }
+        Set<ConstraintViolation<Address>> violations = validator.validate(operation.getAddress());
+        if (!violations.isEmpty()) {
+            return change.reject("VALIDATION_ERROR", violations.iterator().next().getMessage());
+        }
+        operation.getAddress().computeHash();
+        return change;
+    }
+
+    // Walks the operations against the customer's current addresses, tracking which address owns each hash
+    private void replay(Integer customerId, List<Change> changes) {
+        Customer customer = customerRepository.getReferenceById(customerId);
+        Map<Integer, Address> current = new HashMap<>();
+        Map<ByteBuffer, Integer> owners = new HashMap<>();
+        for (Address address : addressRepository.findByCustomerId(customerId)) {
+            current.put(address.getId(), address);
+            owners.put(AddressHasher.key(address.getAddressHash()), address.getId());
+        }
+
+        // Hashes taken by other customers' addresses, one query for the whole batch
+        List<byte[]> requested = changes.stream()
+                .filter(change -> change.errorCode == null && change.action() != AddressBatchAction.DELETE)
+                .map(change -> change.operation.getAddress().getAddressHash())
+                .collect(Collectors.toList());
+        Set<ByteBuffer> foreign = new HashSet<>();
+        if (!requested.isEmpty()) {
+            addressRepository.findExistingHashes(requested).forEach(hash -> foreign.add(AddressHasher.key(hash)));
+            foreign.removeAll(owners.keySet());
+        }
+
+        for (Change change : changes) {
+            if (change.errorCode != null) {
+                continue;
+            }
+            AddressBatchOperation operation = change.operation;
+            Address existing = operation.getAddressId() == null ? null : current.get(operation.getAddressId());
+            if (change.action() != AddressBatchAction.CREATE) {
+                if (existing == null) {
+                    change.reject("ADDRESS_NOT_FOUND", "Address not found for this customer: " + operation.getAddressId());
+                    continue;
+                }
+                if (operation.getExpectedVersion() != null && !operation.getExpectedVersion().equals(existing.getVersion())) {
+                    change.reject("VERSION_CONFLICT", "Address was modified since version " + operation.getExpectedVersion());
+                    continue;
+                }
+            }
+
+            if (change.action() == AddressBatchAction.DELETE) {
+                owners.remove(AddressHasher.key(existing.getAddressHash()));
+                current.remove(existing.getId());
+                change.address = existing;
+                change.version = existing.getVersion();
+                continue;
+            }
+
+            ByteBuffer hash = AddressHasher.key(operation.getAddress().getAddressHash());
+            Integer owner = owners.get(hash);
+            // Placeholder owner for addresses created earlier in the batch, which have no id yet
+            Integer self = existing == null ? -change.number : existing.getId();
+            if (foreign.contains(hash) || (owner != null && !owner.equals(self))) {
+                change.reject(UniqueKey.ADDRESS_HASH.getErrorCode(), UniqueKey.ADDRESS_HASH.getErrorMessage());
+                continue;
+            }
+
+            Address address = copyFields(operation.getAddress());
+            address.setCustomer(customer);
+            if (existing == null) {
+                address.setVersion(0L);
+            } else {
+                owners.remove(AddressHasher.key(existing.getAddressHash()));
+                address.setId(existing.getId());
+                address.setVersion(existing.getVersion() + 1);
+                change.version = existing.getVersion();
+                change.previousHash = existing.getAddressHash();
+                current.put(existing.getId(), address);
+            }
+            owners.put(hash, self);
+            change.address = address;
+        }
+    }
+
+    // New object rather than changes to the loaded entities, which would be flushed again at commit
+    private static Address copyFields(Address source) {
+        return Address.builder()
+                .street(source.getStreet())
+                .street2(source.getStreet2())
+                .city(source.getCity())
+                .state(source.getState())
+                .pincode(source.getPincode())
+                .country(source.getCountry())
+                .addressHash(source.getAddressHash())
+                .build();
+    }
+
+    private void write(Integer customerId, List<Change> changes) {
+        List<Change> accepted = changes.stream().filter(change -> change.errorCode == null).collect(Collectors.toList());
+        // Sharded, the hashes are also claimed across shards; a taken one fails the batch like the unique index would
+        for (Change change : accepted) {
+            byte[] hash = change.address.getAddressHash();
+            switch (change.action()) {
+                case CREATE -> uniqueKeyRegistry.claim(UniqueKey.ADDRESS_HASH, hash, customerId);
+                case UPDATE -> uniqueKeyRegistry.replace(UniqueKey.ADDRESS_HASH, change.previousHash, hash, customerId);
+                case DELETE -> uniqueKeyRegistry.releaseAfterCommit(UniqueKey.ADDRESS_HASH, hash, customerId);
+            }
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            int from = 0;
+            while (from < accepted.size()) {
+                AddressBatchAction action = accepted.get(from).action();
+                int to = from;
+                while (to < accepted.size() && accepted.get(to).action() == action) {
+                    to++;
+                }
+                executeRun(connection, customerId, action, accepted.subList(from, to));
+                from = to;
+            }
+            return null;
+        });
+
+        long created = accepted.stream().filter(change -> change.action() == AddressBatchAction.CREATE).count();
+        long deleted = accepted.stream().filter(change -> change.action() == AddressBatchAction.DELETE).count();
+        if (created != deleted) {
+            customerRepository.adjustAddressCount(customerId, (int) (created - deleted));
+        }
+
+        // Same events as the single-address write paths so caches and in-memory indexes follow after commit
+        for (Change change : accepted) {
+            Address address = change.address;
+            switch (change.action()) {
+                case CREATE -> eventPublisher.publishEvent(
+                        new AddressChangedEvent(ChangeType.CREATED, address.getId(), customerId, address));
+                case UPDATE -> eventPublisher.publishEvent(
+                        new AddressChangedEvent(ChangeType.UPDATED, address.getId(), customerId, address));
+                case DELETE -> eventPublisher.publishEvent(
+                        new AddressChangedEvent(ChangeType.DELETED, address.getId(), customerId, null));
+            }
+        }
+    }
+
+    // One JDBC batch for consecutive operations of the same kind
+    private void executeRun(Connection connection, Integer customerId, AddressBatchAction action, List<Change> run)
+            throws SQLException {
+        if (action == AddressBatchAction.CREATE) {
+            // Ids come from the allocator, so the batch needs no generated keys back
+            long id = idBlockAllocator.allocate(IdBlockAllocator.ADDRESSES, run.size());
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ADDRESS)) {
+                for (Change change : run) {
+                    change.address.setId(Math.toIntExact(id++));
+                    insert.setInt(1, change.address.getId());
+                    insert.setInt(2, customerId);
+                    setFields(insert, 3, change.address);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                action == AddressBatchAction.UPDATE ? UPDATE_ADDRESS : DELETE_ADDRESS)) {
+            for (Change change : run) {
+                int index = action == AddressBatchAction.UPDATE ? setFields(statement, 1, change.address) : 1;
+                statement.setInt(index, change.address.getId());
+                statement.setLong(index + 1, change.version);
+                statement.addBatch();
+            }
+            int[] counts = statement.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                // Someone else changed the row since it was loaded; the whole transaction rolls back
+                if (counts[i] == 0) {
+                    throw new OptimisticLockingFailureException(
+                            "Address " + run.get(i).address.getId() + " was modified concurrently");
+                }
+            }
+        }
+    }
+
+    // Binds street .. address_hash from index on, returns the next free index
+    private static int setFields(PreparedStatement statement, int index, Address address) throws SQLException {
+        statement.setString(index, address.getStreet());
+        if (address.getStreet2() != null) {
+            statement.setString(index + 1, address.getStreet2());
+        } else {
+            statement.setNull(index + 1, Types.VARCHAR);
+        }
+        statement.setString(index + 2, address.getCity());
+        statement.setString(index + 3, address.getState());
+        statement.setString(index + 4, address.getPincode());
+        statement.setString(index + 5, address.getCountry());
+        statement.setBytes(index + 6, address.getAddressHash());
+        return index + 7;
+    }
+
+    private void retryIndividually(Integer customerId, List<Change> changes) {
+        for (Change change : changes) {
+            if (change.errorCode != null) {
+                continue;
+            }
+            AddressBatchResponse single = apply(customerId, List.of(change.operation), true);
+            if (single.getResults() == null) {
+                change.reject(single.getErrorCode(), single.getErrorMessage());
+                continue;
+            }
+            AddressBatchResult result = single.getResults().get(0);
+            if (result.getErrorCode() != null) {
+                change.reject(result.getErrorCode(), result.getErrorMessage());
+            } else {
+                change.address = Address.builder().id(result.getAddressId()).build();
+            }
+        }
+    }
+
+    // An atomic batch the database refused: nothing was applied
+    private AddressBatchResponse failed(AddressBatchResponse response, List<Change> changes, DataAccessException e) {
+        String errorCode;
+        String errorMessage;
+        if (e instanceof OptimisticLockingFailureException) {
+            errorCode = "VERSION_CONFLICT";
+            errorMessage = "An address was modified by another request, reload and retry";
+        } else if (e instanceof DataIntegrityViolationException integrityViolation
+                && UniqueKey.fromException(integrityViolation) == UniqueKey.ADDRESS_HASH) {
+            errorCode = UniqueKey.ADDRESS_HASH.getErrorCode();
+            errorMessage = UniqueKey.ADDRESS_HASH.getErrorMessage();
+        } else {
+            errorCode = "DATA_INTEGRITY_ERROR";
+            errorMessage = "Data integrity violation";
+        }
+        if (changes.size() == 1) {
+            changes.get(0).reject(errorCode, errorMessage);
+            return report(response, changes, true);
+        }
+        report(response, changes, true);
+        response.getResults().forEach(result -> result.setStatus("NOT_APPLIED"));
+        response.setApplied(0);
+        response.setError(errorCode, errorMessage);
+        return response;
+    }
+
+    private AddressBatchResponse report(AddressBatchResponse response, List<Change> changes, boolean atomic) {
+        int rejected = (int) changes.stream().filter(change -> change.errorCode != null).count();
+        boolean rolledBack = atomic && rejected > 0;
+
+        response.setTotal(changes.size());
+        response.setRejected(rejected);
+        response.setApplied(rolledBack ? 0 : changes.size() - rejected);
+        response.setResults(changes.stream().map(change -> {
+            AddressBatchAction action = change.operation == null ? null : change.action();
+            if (change.errorCode != null) {
+                return new AddressBatchResult(change.number, action, "REJECTED", change.errorCode, change.errorMessage,
+                        change.operation == null ? null : change.operation.getAddressId());
+            }
+            if (rolledBack) {
+                return new AddressBatchResult(change.number, action, "NOT_APPLIED", null, null,
+                        change.operation.getAddressId());
+            }
+            String status = switch (action) {
+                case CREATE -> "CREATED";
+                case UPDATE -> "UPDATED";
+                case DELETE -> "DELETED";
+            };
+            return new AddressBatchResult(change.number, action, status, null, null, change.address.getId());
+        }).collect(Collectors.toList()));
+
+        if (rolledBack) {
+            response.setError("BATCH_REJECTED", rejected + " of " + changes.size() +
+                    " operations were rejected, nothing was applied");
+        } else {
+            response.setErrorCode("SUCCESS");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.AddressCluster;
+import com.example.backend.dto.AddressClustersResponse;
+import com.example.backend.search.AddressDuplicateIndex;
+import com.example.backend.search.MinHashLsh;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Clusters every address into groups of likely duplicates, from the near-duplicate index.
+// Workers (app.duplicates.cluster-workers) take slices of the indexed ids and look up each address's LSH candidates
+// at or above the similarity, keeping each pair once; the pairs are merged with a union-find, so a cluster is
+// connected: a ~ b and b ~ c group a with c even when the two are less similar.
+@Slf4j
+@Service
+public class AddressClusterService {
+
+    // Ids per worker task, small enough to balance skewed buckets across workers
+    private static final int SLICE_SIZE = 1024;
+
+    private final AddressDuplicateIndex addressDuplicateIndex;
+    private final int workers;
+    private final ExecutorService pool;
+
+    public AddressClusterService(AddressDuplicateIndex addressDuplicateIndex,
+                                 @Value("${app.duplicates.cluster-workers:4}") int workers) {
+        this.addressDuplicateIndex = addressDuplicateIndex;
+        this.workers = workers;
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "address-cluster-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Clusters of addresses at least minSimilarity alike, the largest limit of them returned
+    public AddressClustersResponse cluster(double minSimilarity, int limit) throws InterruptedException {
+        if (!addressDuplicateIndex.isAvailable()) {
+            throw new IllegalStateException("The address duplicate index is not available");
+        }
+        long start = System.currentTimeMillis();
+        int[] ids = addressDuplicateIndex.addressIds();
+
+        List<Callable<List<int[]>>> slices = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += SLICE_SIZE) {
+            int sliceFrom = from;
+            int sliceTo = Math.min(from + SLICE_SIZE, ids.length);
+            slices.add(() -> similarPairs(ids, sliceFrom, sliceTo, minSimilarity));
+        }
+        int[] parent = new int[ids.length];
+        Arrays.setAll(parent, i -> i);
+        try {
+            for (Future<List<int[]>> slice : pool.invokeAll(slices)) {
+                for (int[] pair : slice.get()) {
+                    union(parent, pair[0], pair[1]);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Address clustering failed", e.getCause());
+        }
+
+        // A root is the lowest position of its cluster, so members are appended in ascending id order
+        Map<Integer, List<Integer>> components = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            int root = find(parent, i);
+            if (root != i) {
+                components.computeIfAbsent(root, key -> new ArrayList<>(List.of(ids[key]))).add(ids[i]);
+            }
+        }
+        List<List<Integer>> clusters = new ArrayList<>(components.values());
+        int clusteredAddresses = clusters.stream().mapToInt(List::size).sum();
+        clusters.sort(Comparator.<List<Integer>>comparingInt(List::size).reversed()
+                .thenComparing(cluster -> cluster.get(0)));
+
+        AddressClustersResponse response = new AddressClustersResponse();
+        response.setAddresses(ids.length);
+        response.setClusters(clusters.size());
+        response.setClusteredAddresses(clusteredAddresses);
+        response.setWorkers(workers);
+        response.setLargest(clusters.stream().limit(limit).map(this::toCluster).toList());
+        response.setElapsedMillis(System.currentTimeMillis() - start);
+        response.setErrorCode("SUCCESS");
+        log.info("Clustered {} addresses into {} near-duplicate clusters in {} ms", ids.length, clusters.size(),
+                response.getElapsedMillis());
+        return response;
+    }
+
+    // Positions of the pairs of similar addresses starting in the slice, each pair found from its lower id only
+    private List<int[]> similarPairs(int[] ids, int from, int to, double minSimilarity) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            for (MinHashLsh.Match match : addressDuplicateIndex.similarTo(ids[i], minSimilarity, Integer.MAX_VALUE)) {
+                if (match.id() > ids[i]) {
+                    int j = Arrays.binarySearch(ids, match.id());
+                    // Not found: added after the id snapshot
+                    if (j >= 0) {
+                        pairs.add(new int[]{i, j});
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private AddressCluster toCluster(List<Integer> addressIds) {
+        Set<Integer> customerIds = new LinkedHashSet<>();
+        for (Integer addressId : addressIds) {
+            Integer customerId = addressDuplicateIndex.customerOf(addressId);
+            if (customerId != null) {
+                customerIds.add(customerId);
+            }
+        }
+        return new AddressCluster(addressIds, List.copyOf(customerIds));
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            // Path halving
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
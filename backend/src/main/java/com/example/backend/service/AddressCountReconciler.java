@@ -0,0 +1,62 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Periodically finds customers whose num_addresses drifted from the addresses table and repairs them, shard by shard
+@Slf4j
+@Component
+public class AddressCountReconciler {
+
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+
+    public AddressCountReconciler(CustomerRepository customerRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ShardRouter shardRouter,
+                                  @Value("${app.address-count.reconcile-chunk-size:10000}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.address-count.reconcile-cron:0 0 3 * * *}")
+    public int reconcile() {
+        AtomicInteger repaired = new AtomicInteger();
+        shardRouter.forEachShard(shard -> repaired.addAndGet(reconcileShard()));
+        if (repaired.get() > 0) {
+            log.warn("Repaired drifted address counts for {} customers", repaired.get());
+        }
+        return repaired.get();
+    }
+
+    // Walk the id space in chunks so each repair transaction only locks a bounded range
+    private int reconcileShard() {
+        Integer minId = customerRepository.findMinId();
+        Integer maxId = customerRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        int repaired = 0;
+        for (long from = minId; from <= maxId; from += chunkSize) {
+            int fromId = (int) from;
+            int toId = (int) Math.min(from + chunkSize - 1, maxId);
+            Integer fixed = transactionTemplate.execute(
+                    status -> customerRepository.reconcileAddressCounts(fromId, toId));
+            repaired += fixed != null ? fixed : 0;
+        }
+        return repaired;
+    }
+}
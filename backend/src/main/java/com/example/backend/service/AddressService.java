@@ -0,0 +1,87 @@
+package com.example.backend.service;
+
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.example.backend.sharding.UniqueKeyRegistry;
+import com.example.backend.uniqueness.UniqueKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Transactional write paths for addresses, keeps customers.num_addresses in step
+@Service
+@RequiredArgsConstructor
+public class AddressService {
+
+    private final AddressRepository addressRepository;
+    private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final UniqueKeyRegistry uniqueKeyRegistry;
+
+    // Add a new address for a customer and bump the customer's address count
+    @Transactional
+    public Address createAddress(Integer customerId, Address address) {
+        shardRouter.requireShardOf(customerId);
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+
+        address.setCustomer(customer);
+        address.computeHash();
+        uniqueKeyRegistry.claim(UniqueKey.ADDRESS_HASH, address.getAddressHash(), customerId);
+        // Flushed here so a duplicate key surfaces as DataIntegrityViolationException from this call
+        Address savedAddress = addressRepository.saveAndFlush(address);
+        customerRepository.adjustAddressCount(customerId, 1);
+        eventPublisher.publishEvent(
+                new AddressChangedEvent(ChangeType.CREATED, savedAddress.getId(), customerId, savedAddress));
+        return savedAddress;
+    }
+
+    // Update the address fields, only at expectedVersion when given. The count is unchanged but the owner's version
+    // is bumped since the customer representation embeds its addresses
+    @Transactional
+    public Address updateAddress(Integer addressId, Address updatedAddress, Long expectedVersion) {
+        Address address = addressRepository.findById(addressId)
+                .orElseThrow(() -> new RuntimeException("Address not found"));
+        if (expectedVersion != null && !expectedVersion.equals(address.getVersion())) {
+            throw new OptimisticLockingFailureException("Address has been modified since version " + expectedVersion);
+        }
+
+        address.setStreet(updatedAddress.getStreet());
+        address.setStreet2(updatedAddress.getStreet2());
+        address.setCity(updatedAddress.getCity());
+        address.setState(updatedAddress.getState());
+        address.setPincode(updatedAddress.getPincode());
+        address.setCountry(updatedAddress.getCountry());
+        byte[] previousHash = address.getAddressHash();
+        address.computeHash();
+        uniqueKeyRegistry.replace(UniqueKey.ADDRESS_HASH, previousHash, address.getAddressHash(),
+                address.getCustomer().getId());
+
+        Address savedAddress = addressRepository.saveAndFlush(address);
+        customerRepository.bumpVersion(savedAddress.getCustomer().getId());
+        eventPublisher.publishEvent(new AddressChangedEvent(
+                ChangeType.UPDATED, savedAddress.getId(), savedAddress.getCustomer().getId(), savedAddress));
+        return savedAddress;
+    }
+
+    // Delete an address and decrement the owner's address count
+    @Transactional
+    public void deleteAddress(Integer addressId) {
+        Address existing = addressRepository.findById(addressId)
+                .orElseThrow(() -> new RuntimeException("Address not found"));
+        Integer customerId = existing.getCustomer().getId();
+        uniqueKeyRegistry.releaseAfterCommit(UniqueKey.ADDRESS_HASH, existing.getAddressHash(), customerId);
+
+        addressRepository.delete(existing);
+        customerRepository.adjustAddressCount(customerId, -1);
+        eventPublisher.publishEvent(new AddressChangedEvent(ChangeType.DELETED, addressId, customerId, null));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.BulkDeleteResponse;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Bulk deletes for purge jobs: customers are removed chunk-size at a time, each chunk one transaction of set-based
+// statements (CustomerService.deleteCustomers), so locks stay short and a failure loses at most one chunk.
+// Sharded, every shard is purged in turn.
+@Slf4j
+@Service
+public class CustomerBulkDeleteService {
+
+    private final CustomerService customerService;
+    private final CustomerRepository customerRepository;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final int maxIds;
+
+    public CustomerBulkDeleteService(CustomerService customerService,
+                                     CustomerRepository customerRepository,
+                                     ShardRouter shardRouter,
+                                     @Value("${app.bulk-delete.chunk-size:1000}") int chunkSize,
+                                     @Value("${app.bulk-delete.max-ids:100000}") int maxIds) {
+        this.customerService = customerService;
+        this.customerRepository = customerRepository;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+        this.maxIds = maxIds;
+    }
+
+    public BulkDeleteResponse deleteByIds(Collection<Integer> ids) {
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " ids are allowed per request");
+        }
+        long start = System.currentTimeMillis();
+        BulkDeleteResponse response = new BulkDeleteResponse();
+        List<Integer> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        shardRouter.forEachShardOf(distinct, shardIds -> {
+            for (int from = 0; from < shardIds.size(); from += chunkSize) {
+                delete(shardIds.subList(from, Math.min(from + chunkSize, shardIds.size())), response);
+            }
+        });
+        return finish(response, start);
+    }
+
+    // Customers created before the instant, oldest first
+    public BulkDeleteResponse deleteCreatedBefore(LocalDateTime before) {
+        long start = System.currentTimeMillis();
+        BulkDeleteResponse response = new BulkDeleteResponse();
+        shardRouter.forEachShard(shard -> {
+            List<Integer> chunk;
+            do {
+                chunk = customerRepository.findIdsCreatedBefore(before, Limit.of(chunkSize));
+                if (!chunk.isEmpty()) {
+                    delete(chunk, response);
+                }
+            } while (chunk.size() == chunkSize);
+        });
+        return finish(response, start);
+    }
+
+    private void delete(List<Integer> chunk, BulkDeleteResponse response) {
+        CustomerService.Deletion deletion = customerService.deleteCustomers(chunk);
+        response.setDeletedCustomers(response.getDeletedCustomers() + deletion.customerIds().size());
+        response.setDeletedAddresses(response.getDeletedAddresses() + deletion.addresses());
+        response.setChunks(response.getChunks() + 1);
+    }
+
+    private static BulkDeleteResponse finish(BulkDeleteResponse response, long start) {
+        response.setElapsedMillis(System.currentTimeMillis() - start);
+        response.setErrorCode("SUCCESS");
+        log.info("Bulk deleted {} customers and {} addresses in {} chunks, {} ms", response.getDeletedCustomers(),
+                response.getDeletedAddresses(), response.getChunks(), response.getElapsedMillis());
+        return response;
+    }
+}
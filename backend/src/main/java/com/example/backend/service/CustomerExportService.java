@@ -0,0 +1,206 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Streaming export of customers with their addresses.
+// Rows come from a forward-only scalar query (no managed entities, so the persistence context stays empty)
+// and are written straight to the output, which is flushed every chunk of customers. Sharded, the shards are
+// exported one after the other, each in a read-only transaction of its own.
+@Slf4j
+@Service
+public class CustomerExportService {
+
+    public enum Format {
+        // One customer JSON object per line, with its addresses nested
+        NDJSON("application/x-ndjson"),
+        // Header row then one row per address, customer columns repeated; readable by the CSV import
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format fromParameter(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    // Positions in the rows of CustomerRepository.EXPORT_ROWS
+    private static final int CUSTOMER_ID = 0;
+    private static final int CREATED_AT = 5;
+    private static final int ADDRESS_ID = 6;
+
+    private static final String[] CUSTOMER_FIELDS = {"id", "firstName", "lastName", "email", "phone", "createdAt"};
+    private static final String[] ADDRESS_FIELDS = {"id", "street", "street2", "city", "state", "pincode", "country"};
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("customerId").addColumn("firstName").addColumn("lastName").addColumn("email")
+            .addColumn("phone").addColumn("createdAt").addColumn("addressId").addColumn("street")
+            .addColumn("street2").addColumn("city").addColumn("state").addColumn("pincode").addColumn("country")
+            .build()
+            .withHeader();
+
+    private final CustomerRepository customerRepository;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+
+    public CustomerExportService(CustomerRepository customerRepository,
+                                 ObjectMapper objectMapper,
+                                 ShardRouter shardRouter,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.export.chunk-size:1000}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+    }
+
+    // Write customers created in [createdFrom, createdTo) (either bound optional), returns the number exported
+    public long export(OutputStream output, Format format, LocalDateTime createdFrom, LocalDateTime createdTo) {
+        long start = System.currentTimeMillis();
+        AtomicLong exported = new AtomicLong();
+        shardRouter.forEachShard(shard -> exported.addAndGet(readOnlyTransaction.execute(status -> {
+            try (Stream<Object[]> rows = exportRows(createdFrom, createdTo)) {
+                // The CSV header only ahead of the first shard's rows
+                return format == Format.CSV ? writeCsv(rows.iterator(), output, shard == 0) :
+                        writeNdjson(rows.iterator(), output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        })));
+        log.info("Exported {} customers as {} in {} ms", exported, format, System.currentTimeMillis() - start);
+        return exported.get();
+    }
+
+    // Customers without a created_at are only in the unbounded export
+    private Stream<Object[]> exportRows(LocalDateTime createdFrom, LocalDateTime createdTo) {
+        if (createdFrom == null && createdTo == null) {
+            return customerRepository.streamExportRows();
+        }
+        if (createdTo == null) {
+            return customerRepository.streamExportRowsCreatedFrom(createdFrom);
+        }
+        if (createdFrom == null) {
+            return customerRepository.streamExportRowsCreatedBefore(createdTo);
+        }
+        return customerRepository.streamExportRowsCreatedBetween(createdFrom, createdTo);
+    }
+
+    private long writeNdjson(Iterator<Object[]> rows, OutputStream output) throws IOException {
+        long customers = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(output)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are terminated explicitly below instead of space-separated
+            json.setRootValueSeparator(null);
+            Object[] row = rows.hasNext() ? rows.next() : null;
+            while (row != null) {
+                Object customerId = row[CUSTOMER_ID];
+                json.writeStartObject();
+                writeFields(json, CUSTOMER_FIELDS, row, 0);
+                json.writeArrayFieldStart("addresses");
+                // Rows of one customer are adjacent; a customer without addresses has a single row with null address id
+                while (row != null && customerId.equals(row[CUSTOMER_ID])) {
+                    if (row[ADDRESS_ID] != null) {
+                        json.writeStartObject();
+                        writeFields(json, ADDRESS_FIELDS, row, ADDRESS_ID);
+                        json.writeEndObject();
+                    }
+                    row = rows.hasNext() ? rows.next() : null;
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeRaw('\n');
+
+                if (++customers % chunkSize == 0) {
+                    json.flush();
+                }
+            }
+        }
+        return customers;
+    }
+
+    private long writeCsv(Iterator<Object[]> rows, OutputStream output, boolean header) throws IOException {
+        long customers = 0;
+        Object lastCustomerId = null;
+        try (SequenceWriter csv = csvMapper.writer(header ? CSV_SCHEMA : CSV_SCHEMA.withoutHeader())
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(output)) {
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                if (row[CREATED_AT] != null) {
+                    row[CREATED_AT] = formatTimestamp(row[CREATED_AT]);
+                }
+                // Nulls (street2, or the address columns of a customer without addresses) become empty cells
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        row[i] = "";
+                    }
+                }
+                csv.write(row);
+
+                if (!row[CUSTOMER_ID].equals(lastCustomerId)) {
+                    lastCustomerId = row[CUSTOMER_ID];
+                    if (++customers % chunkSize == 0) {
+                        csv.flush();
+                    }
+                }
+            }
+        }
+        return customers;
+    }
+
+    private static void writeFields(JsonGenerator json, String[] names, Object[] row, int offset) throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            Object value = row[offset + i];
+            if (value == null) {
+                json.writeNullField(names[i]);
+            } else if (value instanceof Integer number) {
+                json.writeNumberField(names[i], number);
+            } else if (value instanceof LocalDateTime) {
+                json.writeStringField(names[i], formatTimestamp(value));
+            } else {
+                json.writeStringField(names[i], value.toString());
+            }
+        }
+    }
+
+    private static String formatTimestamp(Object value) {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((LocalDateTime) value);
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.BulkImportResponse;
+import com.example.backend.dto.ImportRecordResult;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.example.backend.sharding.UniqueKeyRegistry;
+import com.example.backend.uniqueness.AddressHasher;
+import com.example.backend.uniqueness.UniqueKey;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Streaming bulk import of customers with their addresses.
+// Records are validated and deduplicated in memory, pre-checked against the database once per chunk,
+// and written with JDBC batches, several chunks per transaction. Sharded, the pre-check asks every shard, and a
+// commit group is written in one transaction per shard with its values claimed in the cross-shard registry.
+@Slf4j
+@Service
+public class CustomerImportService {
+
+    public enum Format {
+        // One customer JSON object per line, same shape as the POST /api/customers body
+        NDJSON,
+        // Header row then one customer with a single address per row
+        CSV
+    }
+
+    // A parsed input record and, once decided, its outcome
+    private static final class ImportRecord {
+        private final long number;
+        private final Customer customer;
+        private String errorCode;
+        private String errorMessage;
+
+        private ImportRecord(long number, Customer customer) {
+            this.number = number;
+            this.customer = customer;
+        }
+
+        private ImportRecord reject(String errorCode, String errorMessage) {
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+            return this;
+        }
+    }
+
+    // Compact outcomes of the decided records, without their customer and address objects: created records are
+    // only counted with failuresOnly, so memory grows with the rejections rather than the file
+    private static final class Results {
+        private final boolean failuresOnly;
+        private final List<ImportRecordResult> results = new ArrayList<>();
+        private long rejected;
+
+        private Results(boolean failuresOnly) {
+            this.failuresOnly = failuresOnly;
+        }
+
+        private void add(ImportRecord record) {
+            if (record.errorCode != null) {
+                rejected++;
+                results.add(new ImportRecordResult(record.number, "REJECTED", record.errorCode, record.errorMessage, null));
+            } else if (!failuresOnly) {
+                results.add(new ImportRecordResult(record.number, "CREATED", null, null, record.customer.getId()));
+            }
+        }
+    }
+
+    // Keys of the records read but not written yet, to catch duplicates within the import: emails trimmed and
+    // lower-cased as the unique key compares them, phones, address hashes. Written records are caught by the
+    // per-chunk pre-check instead, and records it rejects are dropped, so the sets are cleared after each commit
+    // group and hold at most a group and a chunk of records, whatever the size of the file
+    private static final class PendingKeys {
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> phones = new HashSet<>();
+        private final Set<ByteBuffer> hashes = new HashSet<>();
+
+        // A rejected record's keys were only added if no other record held them
+        private void forget(ImportRecord record) {
+            emails.remove(emailKey(record.customer.getEmail()));
+            phones.remove(record.customer.getPhone());
+            record.customer.getAddresses().forEach(address -> hashes.remove(AddressHasher.key(address.getAddressHash())));
+        }
+
+        private void clear() {
+            emails.clear();
+            phones.clear();
+            hashes.clear();
+        }
+    }
+
+    private interface RecordReader extends AutoCloseable {
+        // Next record, or null at end of input
+        ImportRecord next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final String INSERT_CUSTOMER =
+            "INSERT INTO customers (id, first_name, last_name, phone, email, created_at, num_addresses) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ADDRESS =
+            "INSERT INTO addresses (id, customer_id, street, street2, city, state, pincode, country, address_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final CustomerRepository customerRepository;
+    private final AddressRepository addressRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdBlockAllocator idBlockAllocator;
+    private final ShardRouter shardRouter;
+    private final UniqueKeyRegistry uniqueKeyRegistry;
+    private final int chunkSize;
+    private final int commitInterval;
+
+    public CustomerImportService(Validator validator,
+                                 ObjectMapper objectMapper,
+                                 CustomerRepository customerRepository,
+                                 AddressRepository addressRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 IdBlockAllocator idBlockAllocator,
+                                 ShardRouter shardRouter,
+                                 UniqueKeyRegistry uniqueKeyRegistry,
+                                 @Value("${app.import.chunk-size:1000}") int chunkSize,
+                                 @Value("${app.import.commit-interval:10}") int commitInterval) {
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.customerRepository = customerRepository;
+        this.addressRepository = addressRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.idBlockAllocator = idBlockAllocator;
+        this.shardRouter = shardRouter;
+        this.uniqueKeyRegistry = uniqueKeyRegistry;
+        this.chunkSize = chunkSize;
+        this.commitInterval = commitInterval;
+    }
+
+    public BulkImportResponse importCustomers(InputStream input, Format format, boolean failuresOnly) throws IOException {
+        long start = System.currentTimeMillis();
+        Results results = new Results(failuresOnly);
+        PendingKeys pending = new PendingKeys();
+
+        List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+        List<ImportRecord> commitGroup = new ArrayList<>();
+        long total = 0;
+
+        try (RecordReader reader = format == Format.CSV ? csvReader(input) : ndjsonReader(input)) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                total++;
+                if (record.errorCode == null) {
+                    validateAndDedupe(record, pending);
+                }
+                if (record.errorCode != null) {
+                    results.add(record);
+                    continue;
+                }
+
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    commitGroup.addAll(precheck(chunk, results, pending));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (commitGroup.size() >= chunkSize * commitInterval) {
+                        write(commitGroup, results);
+                        // Written records are only referenced from their results from here on
+                        commitGroup = new ArrayList<>();
+                        pending.clear();
+                    }
+                }
+            }
+        }
+        commitGroup.addAll(precheck(chunk, results, pending));
+        write(commitGroup, results);
+
+        return report(results, total, System.currentTimeMillis() - start);
+    }
+
+    // Bean validation plus duplicate detection against earlier records of the same import
+    private void validateAndDedupe(ImportRecord record, PendingKeys pending) {
+        Customer customer = record.customer;
+        if (customer.getEmail() != null) {
+            customer.setEmail(customer.getEmail().trim());
+        }
+        if (customer.getAddresses() == null || customer.getAddresses().isEmpty()) {
+            record.reject("VALIDATION_ERROR", "At least one address is required");
+            return;
+        }
+        Set<ConstraintViolation<?>> violations = new HashSet<>(validator.validate(customer));
+        customer.getAddresses().forEach(address -> violations.addAll(validator.validate(address)));
+        if (!violations.isEmpty()) {
+            record.reject("VALIDATION_ERROR", violations.iterator().next().getMessage());
+            return;
+        }
+        // An explicit "createdAt": null overrides the entity's default
+        if (customer.getCreatedAt() == null) {
+            customer.setCreatedAt(LocalDateTime.now());
+        }
+
+        customer.getAddresses().forEach(Address::computeHash);
+        List<ByteBuffer> hashes = customer.getAddresses().stream()
+                .map(address -> AddressHasher.key(address.getAddressHash()))
+                .collect(Collectors.toList());
+        String email = emailKey(customer.getEmail());
+        if (pending.emails.contains(email)) {
+            record.reject("DUPLICATE_EMAIL", "Email address is already in use");
+        } else if (pending.phones.contains(customer.getPhone())) {
+            record.reject("DUPLICATE_PHONE", "Phone number is already in use");
+        } else if (hashes.stream().anyMatch(pending.hashes::contains) || new HashSet<>(hashes).size() < hashes.size()) {
+            record.reject("DUPLICATE_ADDRESS", "Address is already associated with a customer");
+        } else {
+            pending.emails.add(email);
+            pending.phones.add(customer.getPhone());
+            pending.hashes.addAll(hashes);
+        }
+    }
+
+    // One round of IN queries per chunk to drop records that collide with existing rows
+    private List<ImportRecord> precheck(List<ImportRecord> chunk, Results results, PendingKeys pending) {
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+        Set<String> emails = existing(customerRepository::findExistingEmails,
+                chunk.stream().map(r -> emailKey(r.customer.getEmail())).collect(Collectors.toList()),
+                CustomerImportService::emailKey);
+        Set<String> phones = existing(customerRepository::findExistingPhones,
+                chunk.stream().map(r -> r.customer.getPhone()).collect(Collectors.toList()), Function.identity());
+        Set<ByteBuffer> hashes = existing(addressRepository::findExistingHashes,
+                chunk.stream().flatMap(r -> r.customer.getAddresses().stream())
+                        .map(Address::getAddressHash).collect(Collectors.toList()), AddressHasher::key);
+
+        List<ImportRecord> accepted = new ArrayList<>(chunk.size());
+        for (ImportRecord record : chunk) {
+            Customer customer = record.customer;
+            if (emails.contains(emailKey(customer.getEmail()))) {
+                record.reject("DUPLICATE_EMAIL", "Email address is already in use");
+            } else if (phones.contains(customer.getPhone())) {
+                record.reject("DUPLICATE_PHONE", "Phone number is already in use");
+            } else if (customer.getAddresses().stream()
+                    .anyMatch(address -> hashes.contains(AddressHasher.key(address.getAddressHash())))) {
+                record.reject("DUPLICATE_ADDRESS", "Address is already associated with a customer");
+            }
+            if (record.errorCode == null) {
+                accepted.add(record);
+            } else {
+                results.add(record);
+                pending.forget(record);
+            }
+        }
+        return accepted;
+    }
+
+    // The email unique key ignores case, as under MySQL's default collation
+    private static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    // Values of the query's result found on any shard, as the keys they are looked up by
+    private <T, K> Set<K> existing(Function<Collection<T>, List<T>> query, List<T> values, Function<T, K> key) {
+        Set<K> found = new HashSet<>();
+        shardRouter.scatter(shard -> query.apply(values)).forEach(rows -> rows.forEach(row -> found.add(key.apply(row))));
+        return found;
+    }
+
+    // Write a commit group, sharded in one transaction per shard its customers are placed on
+    private void write(List<ImportRecord> group, Results results) {
+        if (group.isEmpty()) {
+            return;
+        }
+        assignIds(group);
+        if (!shardRouter.isEnabled()) {
+            writeOnShard(group, results);
+            return;
+        }
+        Map<Integer, List<ImportRecord>> byShard = new LinkedHashMap<>();
+        for (ImportRecord record : group) {
+            byShard.computeIfAbsent(shardRouter.shardOf(record.customer.getId()), shard -> new ArrayList<>())
+                    .add(record);
+        }
+        byShard.forEach((shard, records) -> shardRouter.onShard(shard, () -> {
+            writeOnShard(records, results);
+            return null;
+        }));
+    }
+
+    // Write records in one transaction; if a concurrent writer took a key meanwhile,
+    // retry them record by record so only the offending records fail
+    private void writeOnShard(List<ImportRecord> group, Results results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < group.size(); from += chunkSize) {
+                    insertBatch(group.subList(from, Math.min(from + chunkSize, group.size())));
+                }
+            });
+            group.forEach(results::add);
+        } catch (DataAccessException e) {
+            if (group.size() == 1) {
+                UniqueKey key = e instanceof DataIntegrityViolationException integrityViolation ?
+                        UniqueKey.fromException(integrityViolation) : null;
+                results.add(key != null ? group.get(0).reject(key.getErrorCode(), key.getErrorMessage()) :
+                        group.get(0).reject("DATA_INTEGRITY_ERROR", "Data integrity violation"));
+                return;
+            }
+            log.warn("Bulk import batch of {} records failed, retrying individually", group.size());
+            group.forEach(record -> {
+                record.customer.setId(null);
+                record.customer.getAddresses().forEach(address -> address.setId(null));
+                write(List.of(record), results);
+            });
+        }
+    }
+
+    // Ids come from the allocator, so the batches need no generated keys back; sharded they also place the customers
+    private void assignIds(List<ImportRecord> group) {
+        long customerId = idBlockAllocator.allocate(IdBlockAllocator.CUSTOMERS, group.size());
+        long addressId = idBlockAllocator.allocate(IdBlockAllocator.ADDRESSES,
+                group.stream().mapToInt(record -> record.customer.getAddresses().size()).sum());
+        for (ImportRecord record : group) {
+            record.customer.setId(Math.toIntExact(customerId++));
+            for (Address address : record.customer.getAddresses()) {
+                address.setId(Math.toIntExact(addressId++));
+                address.setCustomer(record.customer);
+            }
+        }
+    }
+
+    private void insertBatch(List<ImportRecord> batch) {
+        for (ImportRecord record : batch) {
+            Customer customer = record.customer;
+            uniqueKeyRegistry.claim(UniqueKey.EMAIL, customer.getEmail(), customer.getId());
+            uniqueKeyRegistry.claim(UniqueKey.PHONE, customer.getPhone(), customer.getId());
+            customer.getAddresses().forEach(address ->
+                    uniqueKeyRegistry.claim(UniqueKey.ADDRESS_HASH, address.getAddressHash(), customer.getId()));
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_CUSTOMER)) {
+                for (ImportRecord record : batch) {
+                    Customer customer = record.customer;
+                    insert.setInt(1, customer.getId());
+                    insert.setString(2, customer.getFirstName());
+                    insert.setString(3, customer.getLastName());
+                    insert.setString(4, customer.getPhone());
+                    insert.setString(5, customer.getEmail());
+                    insert.setTimestamp(6, Timestamp.valueOf(customer.getCreatedAt()));
+                    insert.setInt(7, customer.getAddresses().size());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ADDRESS)) {
+                for (ImportRecord record : batch) {
+                    for (Address address : record.customer.getAddresses()) {
+                        insert.setInt(1, address.getId());
+                        insert.setInt(2, record.customer.getId());
+                        insert.setString(3, address.getStreet());
+                        if (address.getStreet2() != null) {
+                            insert.setString(4, address.getStreet2());
+                        } else {
+                            insert.setNull(4, Types.VARCHAR);
+                        }
+                        insert.setString(5, address.getCity());
+                        insert.setString(6, address.getState());
+                        insert.setString(7, address.getPincode());
+                        insert.setString(8, address.getCountry());
+                        insert.setBytes(9, address.getAddressHash());
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            return null;
+        });
+
+        // Same events as the single-record write paths so in-memory indexes see imported rows after commit
+        for (ImportRecord record : batch) {
+            Customer customer = record.customer;
+            eventPublisher.publishEvent(new CustomerChangedEvent(ChangeType.CREATED, customer.getId(), customer));
+            customer.getAddresses().forEach(address -> eventPublisher.publishEvent(
+                    new AddressChangedEvent(ChangeType.CREATED, address.getId(), customer.getId(), address)));
+        }
+    }
+
+    private BulkImportResponse report(Results results, long total, long elapsed) {
+        results.results.sort(Comparator.comparingLong(ImportRecordResult::getRecord));
+
+        BulkImportResponse response = new BulkImportResponse();
+        response.setTotal(total);
+        response.setCreated(total - results.rejected);
+        response.setRejected(results.rejected);
+        response.setElapsedMillis(elapsed);
+        response.setResults(results.results);
+        response.setErrorCode("SUCCESS");
+        return response;
+    }
+
+    private RecordReader ndjsonReader(InputStream input) {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return new RecordReader() {
+            private long number;
+
+            @Override
+            public ImportRecord next() throws IOException {
+                String line;
+                do {
+                    line = lines.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.isBlank());
+
+                number++;
+                try {
+                    return new ImportRecord(number, objectMapper.readValue(line, Customer.class));
+                } catch (IOException e) {
+                    return new ImportRecord(number, null).reject("MALFORMED_RECORD", "Record is not valid JSON");
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                lines.close();
+            }
+        };
+    }
+
+    private RecordReader csvReader(InputStream input) throws IOException {
+        MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(input);
+        return new RecordReader() {
+            private long number;
+
+            @Override
+            public ImportRecord next() throws IOException {
+                if (!rows.hasNextValue()) {
+                    return null;
+                }
+                number++;
+                try {
+                    return new ImportRecord(number, fromCsvRow(rows.nextValue()));
+                } catch (RuntimeException e) {
+                    return new ImportRecord(number, null).reject("MALFORMED_RECORD", "Row could not be parsed");
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    private static Customer fromCsvRow(Map<String, String> row) {
+        Address address = new Address();
+        address.setStreet(row.get("street"));
+        address.setStreet2(blankToNull(row.get("street2")));
+        address.setCity(row.get("city"));
+        address.setState(row.get("state"));
+        address.setPincode(row.get("pincode"));
+        address.setCountry(row.get("country"));
+
+        Customer customer = new Customer();
+        customer.setFirstName(row.get("firstName"));
+        customer.setLastName(row.get("lastName"));
+        customer.setEmail(row.get("email"));
+        customer.setPhone(row.get("phone"));
+        customer.setAddresses(new ArrayList<>(List.of(address)));
+        return customer;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Customer;
+import com.example.backend.pagination.CustomerSortField;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.repository.CustomerSpecifications;
+import com.example.backend.search.AddressFacet;
+import com.example.backend.search.AddressFacetIndex;
+import com.example.backend.search.CustomerSearchIndex;
+import com.example.backend.search.FacetMatch;
+import com.example.backend.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Customer text and address facet search, answered from the in-process indexes with database queries as fallback.
+// Sharded, the indexes cover every shard and the fallback queries are merged from all of them
+@Service
+@RequiredArgsConstructor
+public class CustomerSearchService {
+
+    private final CustomerRepository customerRepository;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final AddressFacetIndex addressFacetIndex;
+    private final ShardRouter shardRouter;
+
+    public Page<Customer> searchCustomers(String query, Pageable pageable) {
+        Sort.Order order = primaryOrder(pageable);
+        // Index not built yet, disabled, or unable to produce this order
+        if (!canOrderFromIndex(order)) {
+            return shardRouter.findPage(pageable, CustomerSortField.comparator(pageable.getSort()),
+                    firstRows -> customerRepository.searchCustomers(query, firstRows));
+        }
+
+        return page(customerSearchIndex.search(query, sortField(order), order.getDirection(), pageEnd(pageable)),
+                pageable);
+    }
+
+    // Customers with addresses matching the criteria; criteria may be met by different addresses of a customer
+    public Page<Customer> searchByAddressFacets(Map<AddressFacet, String> criteria, FacetMatch match, Pageable pageable) {
+        Sort.Order order = primaryOrder(pageable);
+        if (!addressFacetIndex.isAvailable() || !canOrderFromIndex(order)) {
+            return shardRouter.findPage(pageable, CustomerSortField.comparator(pageable.getSort()), firstRows ->
+                    customerRepository.findAll(CustomerSpecifications.hasAddressFacets(criteria, match), firstRows));
+        }
+
+        // Bitmap ids come out ascending, the name index puts them in the requested order
+        int[] ids = addressFacetIndex.filter(criteria, match).toArray();
+        return page(customerSearchIndex.sort(ids, sortField(order), order.getDirection(), pageEnd(pageable)),
+                pageable);
+    }
+
+    private boolean canOrderFromIndex(Sort.Order order) {
+        CustomerSortField sortField = sortField(order);
+        return customerSearchIndex.isAvailable() && sortField != null && customerSearchIndex.supportsSort(sortField);
+    }
+
+    private static Sort.Order primaryOrder(Pageable pageable) {
+        return pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+    }
+
+    private static CustomerSortField sortField(Sort.Order order) {
+        return Arrays.stream(CustomerSortField.values())
+                .filter(field -> field.getProperty().equals(order.getProperty()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    // The index orders only the ids up to the end of the requested page
+    private static int pageEnd(Pageable pageable) {
+        return (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+    }
+
+    // Slice one page out of the ordered ids and load just those customers
+    private Page<Customer> page(CustomerSearchIndex.Ranked ranked, Pageable pageable) {
+        int[] ids = ranked.ids();
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+        List<Integer> pageIds = Arrays.stream(ids, from, to).boxed().collect(Collectors.toList());
+
+        // Load only the rows of this page, then restore the index order
+        Map<Integer, Customer> customers = shardRouter.findByCustomerIds(pageIds, customerRepository::findAllById)
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        List<Customer> content = pageIds.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(content, pageable, ranked.total());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend.service;
+
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.example.backend.sharding.UniqueKeyRegistry;
+import com.example.backend.uniqueness.UniqueKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+// Transactional write paths for customers. Sharded, they run on the shard the caller bound for the customer and
+// claim the unique values in the cross-shard registry
+@Service
+@RequiredArgsConstructor
+public class CustomerService {
+
+    private final CustomerRepository customerRepository;
+    private final AddressRepository addressRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final UniqueKeyRegistry uniqueKeyRegistry;
+
+    // Create a customer together with its initial addresses
+    @Transactional
+    public Customer createCustomer(Customer customer) {
+        customer.getAddresses().forEach(address -> address.setCustomer(customer));
+        customer.setNumAddresses(customer.getAddresses().size());
+        shardRouter.requireShardOf(customer.getId());
+        uniqueKeyRegistry.claim(UniqueKey.EMAIL, customer.getEmail(), customer.getId());
+        uniqueKeyRegistry.claim(UniqueKey.PHONE, customer.getPhone(), customer.getId());
+        customer.getAddresses().forEach(address -> {
+            address.computeHash();
+            uniqueKeyRegistry.claim(UniqueKey.ADDRESS_HASH, address.getAddressHash(), customer.getId());
+        });
+        // Flushed here so a duplicate key surfaces as DataIntegrityViolationException from this call; the customer
+        // and its addresses go out as batched inserts since the ids are assigned up front
+        Customer savedCustomer = customerRepository.saveAndFlush(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(ChangeType.CREATED, savedCustomer.getId(), savedCustomer));
+        savedCustomer.getAddresses().forEach(address -> eventPublisher.publishEvent(
+                new AddressChangedEvent(ChangeType.CREATED, address.getId(), savedCustomer.getId(), address)));
+        return savedCustomer;
+    }
+
+    // Update the editable customer fields; when expectedVersion is given the update only applies to that version.
+    // The @Version check on flush also rejects a concurrent update committed after the read
+    @Transactional
+    public Customer updateCustomer(Customer updatedCustomer, Long expectedVersion) {
+        Customer existing = customerRepository.findById(updatedCustomer.getId())
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new OptimisticLockingFailureException("Customer has been modified since version " + expectedVersion);
+        }
+        uniqueKeyRegistry.replace(UniqueKey.EMAIL, existing.getEmail(), updatedCustomer.getEmail(), existing.getId());
+        uniqueKeyRegistry.replace(UniqueKey.PHONE, existing.getPhone(), updatedCustomer.getPhone(), existing.getId());
+
+        existing.setFirstName(updatedCustomer.getFirstName());
+        existing.setLastName(updatedCustomer.getLastName());
+        existing.setEmail(updatedCustomer.getEmail());
+        existing.setPhone(updatedCustomer.getPhone());
+
+        Customer savedCustomer = customerRepository.saveAndFlush(existing);
+        eventPublisher.publishEvent(new CustomerChangedEvent(ChangeType.UPDATED, savedCustomer.getId(), savedCustomer));
+        return savedCustomer;
+    }
+
+    // Customers removed by a set-based delete and the addresses the cascade took with them
+    public record Deletion(List<Integer> customerIds, long addresses) {
+    }
+
+    // Delete a customer, addresses go with it
+    @Transactional
+    public void deleteCustomer(Integer id) {
+        if (deleteCustomers(List.of(id)).customerIds().isEmpty()) {
+            throw new RuntimeException("Customer not found");
+        }
+    }
+
+    // Delete the given customers with set-based statements: nothing is loaded, the database cascade removes the
+    // addresses. Ids that don't exist are skipped; one event per deleted customer keeps caches and indexes in step
+    @Transactional
+    public Deletion deleteCustomers(Collection<Integer> ids) {
+        List<Integer> existing = customerRepository.lockExistingIds(ids);
+        if (existing.isEmpty()) {
+            return new Deletion(existing, 0);
+        }
+        long addresses = addressRepository.countByCustomerIds(existing);
+        if (uniqueKeyRegistry.isEnabled()) {
+            releaseUniqueValues(existing);
+        }
+        customerRepository.deleteByIds(existing);
+        existing.forEach(id -> eventPublisher.publishEvent(new CustomerChangedEvent(ChangeType.DELETED, id, null)));
+        return new Deletion(existing, addresses);
+    }
+
+    // Sharded, the deleted customers' values are given up in the claims registry after commit
+    private void releaseUniqueValues(List<Integer> ids) {
+        for (Customer customer : customerRepository.findAllById(ids)) {
+            uniqueKeyRegistry.releaseAfterCommit(UniqueKey.EMAIL, customer.getEmail(), customer.getId());
+            uniqueKeyRegistry.releaseAfterCommit(UniqueKey.PHONE, customer.getPhone(), customer.getId());
+        }
+        for (Object[] row : addressRepository.findHashesByCustomerIds(ids)) {
+            uniqueKeyRegistry.releaseAfterCommit(UniqueKey.ADDRESS_HASH, (byte[]) row[1], (Integer) row[0]);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.sharding.ShardRouter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Optional group commit for customer and address creates (app.group-commit.enabled).
+//
+// Callers queue their write and wait; writer threads take up to max-batch-size queued writes, waiting at most
+// max-wait for the batch to fill, and run them in one transaction so concurrent creates share a commit.
+// The writes are the usual CustomerService / AddressService calls joining that transaction, with the same events.
+// When a batch fails (a duplicate key, a missing customer, a deadlock) each write is retried in a transaction of
+// its own, so only the offending record fails. A full queue runs the write on the caller's thread instead.
+// Sharded, a batch commits once per shard it touches, since a transaction can't span databases.
+@Slf4j
+@Service
+public class GroupCommitWriter {
+
+    // A queued write and the future its caller waits on
+    private static final class Write<T> {
+        private final Integer customerId;
+        private final Supplier<T> action;
+        private final Runnable reset;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Write(Integer customerId, Supplier<T> action, Runnable reset) {
+            this.customerId = customerId;
+            this.action = action;
+            this.reset = reset;
+        }
+    }
+
+    private final CustomerService customerService;
+    private final AddressService addressService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Write<?>> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private final DistributionSummary batchSizes;
+    private volatile boolean running = true;
+
+    public GroupCommitWriter(CustomerService customerService,
+                             AddressService addressService,
+                             ShardRouter shardRouter,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.group-commit.enabled:false}") boolean enabled,
+                             @Value("${app.group-commit.writers:2}") int writerCount,
+                             @Value("${app.group-commit.queue-capacity:1000}") int queueCapacity,
+                             @Value("${app.group-commit.max-batch-size:50}") int maxBatchSize,
+                             @Value("${app.group-commit.max-wait:5ms}") Duration maxWait) {
+        this.customerService = customerService;
+        this.addressService = addressService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("app.group-commit.batch.size")
+                .description("Writes committed per group commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        if (enabled) {
+            for (int i = 1; i <= writerCount; i++) {
+                Thread writer = new Thread(this::run, "group-commit-" + i);
+                writer.setDaemon(true);
+                writer.start();
+                writers.add(writer);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Same contract as CustomerService.createCustomer, committed together with other queued creates
+    public Customer createCustomer(Customer customer) {
+        shardRouter.assignId(customer);
+        return submit(customer.getId(), () -> customerService.createCustomer(customer), () -> {
+            // Address ids, versions and the Hibernate collection wrapper taken in a rolled back batch. The customer
+            // id is kept, sharded it decides the shard, and a pooled id is never handed out twice anyway
+            customer.setVersion(null);
+            customer.setAddresses(new ArrayList<>(customer.getAddresses()));
+            customer.getAddresses().forEach(GroupCommitWriter::resetAddress);
+        });
+    }
+
+    // Same contract as AddressService.createAddress, committed together with other queued creates
+    public Address createAddress(Integer customerId, Address address) {
+        return submit(customerId, () -> addressService.createAddress(customerId, address), () -> resetAddress(address));
+    }
+
+    private static void resetAddress(Address address) {
+        address.setId(null);
+        address.setVersion(null);
+    }
+
+    private <T> T submit(Integer customerId, Supplier<T> action, Runnable reset) {
+        Write<T> write = new Write<>(customerId, action, reset);
+        if (!running || !queue.offer(write)) {
+            // Writers are saturated (or stopping): the caller pays for its own commit
+            return shardRouter.onShardOf(customerId, () -> transactionTemplate.execute(status -> action.get()));
+        }
+        try {
+            return write.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the group commit", e);
+        } catch (ExecutionException e) {
+            // The caller sees the same exception as from a direct write
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private void run() {
+        List<Write<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Write<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Let the batch fill until it is full or the oldest write has waited max-wait
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    Write<?> next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitByShard(batch);
+            } catch (InterruptedException e) {
+                batch.forEach(write -> write.result.completeExceptionally(e));
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.error("Group commit writer failed", e);
+                batch.forEach(write -> write.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitByShard(List<Write<?>> batch) {
+        if (!shardRouter.isEnabled()) {
+            commit(batch);
+            return;
+        }
+        Map<Integer, List<Write<?>>> byShard = new LinkedHashMap<>();
+        for (Write<?> write : batch) {
+            byShard.computeIfAbsent(shardRouter.shardOf(write.customerId), shard -> new ArrayList<>()).add(write);
+        }
+        byShard.forEach((shard, writes) -> shardRouter.onShard(shard, () -> {
+            commit(writes);
+            return null;
+        }));
+    }
+
+    private void commit(List<Write<?>> batch) {
+        batchSizes.record(batch.size());
+        List<Object> results = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(write -> results.add(write.action.get())));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.warn("Group commit of {} writes failed, retrying individually", batch.size());
+            batch.forEach(write -> {
+                write.reset.run();
+                commit(List.of(write));
+            });
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), results.get(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void complete(Write<T> write, Object result) {
+        write.result.complete((T) result);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Writers stop once the queue is empty; not interrupted, that could break a commit in flight
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Queued just as the writers stopped
+        for (Write<?> write; (write = queue.poll()) != null; ) {
+            write.result.completeExceptionally(new IllegalStateException("Group commit writer has stopped"));
+        }
+    }
+}
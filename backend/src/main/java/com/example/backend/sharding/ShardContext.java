@@ -0,0 +1,29 @@
+package com.example.backend.sharding;
+
+// The shard the current thread's queries go to, bound through ShardRouter; unbound means shard 0
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return SHARD.get();
+    }
+
+    // Bind a shard, returns the previous binding to restore
+    static Integer bind(Integer shard) {
+        Integer previous = SHARD.get();
+        if (shard == null) {
+            SHARD.remove();
+        } else {
+            SHARD.set(shard);
+        }
+        return previous;
+    }
+
+    public static void clear() {
+        SHARD.remove();
+    }
+}
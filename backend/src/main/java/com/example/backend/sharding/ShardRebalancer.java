@@ -0,0 +1,145 @@
+package com.example.backend.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Puts every customer on the shard its id hashes to before the application serves requests, then has the claims
+// backfilled. Customers are misplaced when sharding is turned on for an existing database (they are all on shard 0)
+// or when shards are added. The application refuses to start with misplaced customers unless app.sharding.rebalance
+// is set, in which case they are moved: a chunk is copied to its shard in one transaction, then deleted from the
+// old one in another. A crash in between leaves copies on both; the next start only deletes the old ones.
+@Slf4j
+@Component
+public class ShardRebalancer implements SmartInitializingSingleton {
+
+    private static final String CUSTOMER_COLUMNS = "id, first_name, last_name, phone, email, created_at, num_addresses, version";
+    private static final String ADDRESS_COLUMNS =
+            "id, customer_id, street, street2, city, state, pincode, country, address_hash, version";
+
+    private final ShardRouter shardRouter;
+    private final UniqueKeyRegistry uniqueKeyRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean rebalance;
+    private final int chunkSize;
+
+    public ShardRebalancer(ShardRouter shardRouter,
+                           UniqueKeyRegistry uniqueKeyRegistry,
+                           DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.sharding.rebalance:false}") boolean rebalance,
+                           @Value("${app.sharding.rebalance-chunk-size:500}") int chunkSize) {
+        this.shardRouter = shardRouter;
+        this.uniqueKeyRegistry = uniqueKeyRegistry;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebalance = rebalance;
+        this.chunkSize = chunkSize;
+    }
+
+    // All singletons exist, so every shard is migrated; the web server is not started yet
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (shardRouter.isEnabled()) {
+            rebalance();
+        }
+        uniqueKeyRegistry.backfill();
+    }
+
+    private void rebalance() {
+        Map<Integer, List<Integer>> misplaced = new TreeMap<>();
+        shardRouter.forEachShard(shard -> {
+            List<Integer> ids = new ArrayList<>();
+            jdbcTemplate.query("SELECT id FROM customers", row -> {
+                int id = row.getInt(1);
+                if (shardRouter.shardOf(id) != shard) {
+                    ids.add(id);
+                }
+            });
+            if (!ids.isEmpty()) {
+                misplaced.put(shard, ids);
+            }
+        });
+        if (misplaced.isEmpty()) {
+            return;
+        }
+        int total = misplaced.values().stream().mapToInt(List::size).sum();
+        if (!rebalance) {
+            throw new IllegalStateException(total + " customers are not on the shard their id hashes to " +
+                    "(per shard: " + counts(misplaced) + "); start once with app.sharding.rebalance=true to move them");
+        }
+
+        long start = System.currentTimeMillis();
+        misplaced.forEach((source, ids) -> {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                move(source, ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            }
+        });
+        log.info("Moved {} customers to their shards in {} ms", total, System.currentTimeMillis() - start);
+    }
+
+    private void move(int source, List<Integer> ids) {
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        List<Object[]> customers = shardRouter.onShard(source, () -> rows(
+                "SELECT " + CUSTOMER_COLUMNS + " FROM customers WHERE id IN (" + in + ")", args));
+        List<Object[]> addresses = shardRouter.onShard(source, () -> rows(
+                "SELECT " + ADDRESS_COLUMNS + " FROM addresses WHERE customer_id IN (" + in + ")", args));
+
+        Map<Integer, List<Object[]>> customersByShard = new TreeMap<>();
+        Map<Integer, List<Object[]>> addressesByShard = new TreeMap<>();
+        customers.forEach(row -> customersByShard.computeIfAbsent(
+                shardRouter.shardOf(((Number) row[0]).intValue()), shard -> new ArrayList<>()).add(row));
+        addresses.forEach(row -> addressesByShard.computeIfAbsent(
+                shardRouter.shardOf(((Number) row[1]).intValue()), shard -> new ArrayList<>()).add(row));
+
+        customersByShard.forEach((target, rows) -> shardRouter.onShard(target, () ->
+                transactionTemplate.execute(status -> {
+                    // Copied by a run that crashed before deleting the originals
+                    List<Object> targetIds = rows.stream().map(row -> row[0]).toList();
+                    List<Integer> present = jdbcTemplate.queryForList("SELECT id FROM customers WHERE id IN (" +
+                            String.join(",", Collections.nCopies(targetIds.size(), "?")) + ")", Integer.class,
+                            targetIds.toArray());
+                    jdbcTemplate.batchUpdate("INSERT INTO customers (" + CUSTOMER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                            rows.stream().filter(row -> !present.contains(((Number) row[0]).intValue())).toList());
+                    jdbcTemplate.batchUpdate("INSERT INTO addresses (" + ADDRESS_COLUMNS +
+                                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                            addressesByShard.getOrDefault(target, List.of()).stream()
+                                    .filter(row -> !present.contains(((Number) row[1]).intValue())).toList());
+                    return null;
+                })));
+
+        shardRouter.onShard(source, () -> transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM addresses WHERE customer_id IN (" + in + ")", args);
+            return jdbcTemplate.update("DELETE FROM customers WHERE id IN (" + in + ")", args);
+        }));
+    }
+
+    private List<Object[]> rows(String sql, Object[] args) {
+        return jdbcTemplate.query(sql, (row, rowNum) -> {
+            Object[] values = new Object[row.getMetaData().getColumnCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.getObject(i + 1);
+            }
+            return values;
+        }, args);
+    }
+
+    private static String counts(Map<Integer, List<Integer>> misplaced) {
+        List<String> counts = new ArrayList<>();
+        misplaced.forEach((shard, ids) -> counts.add("shard " + shard + ": " + ids.size()));
+        return String.join(", ", counts);
+    }
+}
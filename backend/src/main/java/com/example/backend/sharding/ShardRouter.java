@@ -0,0 +1,256 @@
+package com.example.backend.sharding;
+
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.model.Customer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Places customers, with their addresses, on shards by customer id and runs work against one shard or all of them.
+//
+// Shard 0 is spring.datasource, shards 1..n the databases in app.sharding.urls; without any, everything here runs
+// the work as it is against the single database. A customer's shard is a jump consistent hash of its id, so adding
+// a shard moves only about 1/n of the customers (ShardRebalancer moves them at startup).
+// Binding happens on the calling thread and must precede the first statement of a transaction; scatter runs one
+// task per shard on a pool of its own, each in its own transaction.
+@Component
+public class ShardRouter {
+
+    private final int shardCount;
+    private final IdBlockAllocator idBlockAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(IdBlockAllocator idBlockAllocator,
+                       DataSource dataSource,
+                       @Value("${app.sharding.urls:}") String urls,
+                       @Value("${app.sharding.scatter-threads:16}") int scatterThreads) {
+        this.shardCount = 1 + (int) Arrays.stream(urls.split(",")).filter(url -> !url.isBlank()).count();
+        this.idBlockAllocator = idBlockAllocator;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        if (shardCount > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.scatterPool = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.scatterPool = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return shardCount > 1;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(int customerId) {
+        return jumpHash(customerId, shardCount);
+    }
+
+    // Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm"
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.bind(previous);
+        }
+    }
+
+    public <T> T onShardOf(Integer customerId, Supplier<T> work) {
+        if (!isEnabled() || customerId == null) {
+            return work.get();
+        }
+        return onShard(shardOf(customerId), work);
+    }
+
+    // Guards a write that must run on the customer's shard, which the caller has to have bound
+    public void requireShardOf(Integer customerId) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (customerId == null) {
+            throw new IllegalStateException("Customer id must be assigned before writing to a shard");
+        }
+        Integer bound = ShardContext.current();
+        if (bound == null || bound != shardOf(customerId)) {
+            throw new IllegalStateException("Customer " + customerId + " belongs to shard " + shardOf(customerId)
+                    + ", bound is " + bound);
+        }
+    }
+
+    // A customer create: the id is taken up front, it decides the shard the insert goes to
+    public <T> T onNewCustomer(Customer customer, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        assignId(customer);
+        return onShard(shardOf(customer.getId()), work);
+    }
+
+    // Id for a customer about to be created, a no-op without sharding where Hibernate assigns it on insert
+    public void assignId(Customer customer) {
+        if (isEnabled() && customer.getId() == null) {
+            customer.setId(Math.toIntExact(idBlockAllocator.next(IdBlockAllocator.CUSTOMERS)));
+        }
+    }
+
+    // Work on one shard from a pool thread, outside the caller's transaction (which may be on another shard)
+    public <T> T onShardDetached(int shard, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        return join(CompletableFuture.supplyAsync(() -> onShard(shard, work), scatterPool));
+    }
+
+    // One shard after the other on the calling thread, e.g. to stream every shard's rows
+    public void forEachShard(IntConsumer work) {
+        if (!isEnabled()) {
+            work.accept(0);
+            return;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            onShard(shard, () -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    // The given customers grouped by shard, the work run for each group on the calling thread with its shard bound
+    public void forEachShardOf(Collection<Integer> customerIds, Consumer<List<Integer>> work) {
+        if (!isEnabled()) {
+            work.accept(new ArrayList<>(customerIds));
+            return;
+        }
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (Integer id : customerIds) {
+            byShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        byShard.forEach((shard, ids) -> onShard(shard, () -> {
+            work.accept(ids);
+            return null;
+        }));
+    }
+
+    // The work run on every shard in parallel, results in shard order
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (!isEnabled()) {
+            return List.of(work.apply(0));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(current, () -> work.apply(current)), scatterPool));
+        }
+        return futures.stream().map(ShardRouter::join).toList();
+    }
+
+    // The task's own exception rather than the CompletionException wrapping it
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // One page of a query over all shards: each shard returns its first offset + size rows in the requested order,
+    // which is all the merged page can draw from. Deep pages cost offset + size rows per shard.
+    public <T> Page<T> findPage(Pageable pageable, Comparator<? super T> order, Function<Pageable, Page<T>> query) {
+        if (!isEnabled()) {
+            return query.apply(pageable);
+        }
+        int top = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        Pageable firstRows = PageRequest.of(0, top, pageable.getSort());
+        List<Page<T>> pages = scatter(shard -> query.apply(firstRows));
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        List<T> content = SortedMerge.merge(pages.stream().map(Page::getContent).toList(), order,
+                pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    // The first limit rows over all shards of a query returning rows in the given order
+    public <T> List<T> findFirst(int limit, Comparator<? super T> order, Supplier<List<T>> query) {
+        if (!isEnabled()) {
+            return query.get();
+        }
+        return SortedMerge.merge(scatter(shard -> query.get()), order, 0, limit);
+    }
+
+    // Rows of the given customers, queried once per shard that holds any of them; in shard order
+    public <T> List<T> findByCustomerIds(Collection<Integer> customerIds, Function<List<Integer>, List<T>> query) {
+        if (!isEnabled()) {
+            return query.apply(new ArrayList<>(customerIds));
+        }
+        Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+        for (Integer id : customerIds) {
+            byShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        List<List<T>> rows = scatter(shard -> byShard.containsKey(shard) ? query.apply(byShard.get(shard)) : List.of());
+        return rows.stream().flatMap(List::stream).toList();
+    }
+
+    // Shard holding the address, found by asking every shard; null when none has it
+    public Integer locateAddress(int addressId) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        List<Boolean> found = scatter(shard -> !jdbcTemplate.queryForList(
+                "SELECT 1 FROM addresses WHERE id = ?", Integer.class, addressId).isEmpty());
+        int shard = found.indexOf(Boolean.TRUE);
+        return shard < 0 ? null : shard;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterPool != null) {
+            scatterPool.shutdown();
+        }
+    }
+}
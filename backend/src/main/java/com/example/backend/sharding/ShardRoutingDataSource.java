@@ -0,0 +1,31 @@
+package com.example.backend.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sends each connection to the shard bound in ShardContext, shard 0 when none is. Like the replica routing this
+// sits behind a LazyConnectionDataSourceProxy, so the shard may be bound after the transaction has begun as long
+// as nothing has been read or written in it yet.
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(List<? extends DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        return shard == null ? 0 : shard;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend.sharding;
+
+import com.example.backend.controller.CustomerController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+// Binds the shard of single-customer endpoints for the whole request, from the customer or address id in the
+// path: /api/customers/{id}, /api/addresses/{customerId}[/batch], /api/addresses/[getAddress/]{addressId}.
+// An address id is looked up on all shards first. Other requests stay unbound and route themselves.
+// An {id} is a customer id on CustomerController's handlers, told by the handler, not the URI, which carries
+// the servlet context path.
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null) {
+            return true;
+        }
+        String customerId = variables.get("customerId");
+        if (customerId == null && handler instanceof HandlerMethod method
+                && CustomerController.class.isAssignableFrom(method.getBeanType())) {
+            customerId = variables.get("id");
+        }
+        try {
+            if (customerId != null) {
+                ShardContext.bind(shardRouter.shardOf(Integer.parseInt(customerId)));
+            } else if (variables.get("addressId") != null) {
+                ShardContext.bind(shardRouter.locateAddress(Integer.parseInt(variables.get("addressId"))));
+            }
+        } catch (NumberFormatException e) {
+            // Left to the handler's own conversion error
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ShardContext.clear();
+    }
+
+    // The request thread is released while an async response is produced elsewhere
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ShardContext.clear();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Customer sharding, on when app.sharding.urls lists at least one more database. spring.datasource becomes shard 0,
+// which also keeps the global tables (id_allocation, unique_key_claims); every shard gets the same Flyway
+// migrations. As with the replicas the pools are not beans, the SQL metrics proxy wraps the routing DataSource only.
+@Configuration
+@ConditionalOnExpression("!'${app.sharding.urls:}'.isBlank()")
+public class ShardingConfiguration {
+
+    // The shard pools, closed with the context
+    public static final class ShardPools implements AutoCloseable {
+        private final List<HikariDataSource> shards;
+
+        ShardPools(List<HikariDataSource> shards) {
+            this.shards = List.copyOf(shards);
+        }
+
+        public List<HikariDataSource> getShards() {
+            return shards;
+        }
+
+        @Override
+        public void close() {
+            shards.forEach(HikariDataSource::close);
+        }
+    }
+
+    @Bean
+    public ShardPools shardPools(DataSourceProperties properties,
+                                 FlywayProperties flywayProperties,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.sharding.urls}") List<String> urls,
+                                 @Value("${app.sharding.username:${spring.datasource.username:}}") String username,
+                                 @Value("${app.sharding.password:${spring.datasource.password:}}") String password,
+                                 @Value("${app.sharding.pool-size:10}") int poolSize,
+                                 @Value("${app.datasource.replicas.urls:}") String replicaUrls) {
+        if (!replicaUrls.isBlank()) {
+            throw new IllegalStateException("app.sharding.urls and app.datasource.replicas.urls can't be combined yet");
+        }
+        List<HikariDataSource> shards = new ArrayList<>();
+        HikariDataSource first = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // spring.datasource.hikari.* as Boot would apply it to its own pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(first));
+        first.setPoolName("shard-0");
+        first.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        shards.add(first);
+
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setJdbcUrl(url.trim());
+            shard.setUsername(username);
+            shard.setPassword(password);
+            shard.setDriverClassName(properties.determineDriverClassName());
+            shard.setMaximumPoolSize(poolSize);
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            // Shard 0 is migrated by Boot's Flyway through the routing DataSource
+            Flyway.configure()
+                    .dataSource(shard)
+                    .locations(flywayProperties.getLocations().toArray(String[]::new))
+                    .baselineOnMigrate(flywayProperties.isBaselineOnMigrate())
+                    .baselineVersion(flywayProperties.getBaselineVersion())
+                    .load()
+                    .migrate();
+            shards.add(shard);
+        }
+        return new ShardPools(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardPools shardPools) {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardPools.getShards()));
+    }
+
+    // Binds single-customer requests to their shard
+    @Configuration
+    public static class ShardRoutingWebConfiguration implements WebMvcConfigurer {
+
+        private final ShardRouter shardRouter;
+
+        public ShardRoutingWebConfiguration(ShardRouter shardRouter) {
+            this.shardRouter = shardRouter;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new ShardRoutingInterceptor(shardRouter)).addPathPatterns("/api/**");
+        }
+    }
+}
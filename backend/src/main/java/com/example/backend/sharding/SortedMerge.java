@@ -0,0 +1,45 @@
+package com.example.backend.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// K-way merge of lists that are each sorted by the same order, e.g. one page per shard
+public final class SortedMerge {
+
+    // Head of one input list and the rest of it
+    private record Head<T>(T value, Iterator<? extends T> rest) {
+    }
+
+    private SortedMerge() {
+    }
+
+    // Skip the first skip merged elements and return the next limit, taking O((skip + limit) log k)
+    public static <T> List<T> merge(List<? extends List<? extends T>> sorted, Comparator<? super T> order,
+                                    long skip, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.value(), b.value()));
+        for (List<? extends T> list : sorted) {
+            advance(heads, list.iterator());
+        }
+
+        List<T> merged = new ArrayList<>(Math.min(limit, 1024));
+        long position = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head<T> head = heads.poll();
+            if (position++ >= skip) {
+                merged.add(head.value());
+            }
+            advance(heads, head.rest());
+        }
+        return merged;
+    }
+
+    private static <T> void advance(PriorityQueue<Head<T>> heads, Iterator<? extends T> rest) {
+        if (rest.hasNext()) {
+            heads.add(new Head<>(rest.next(), rest));
+        }
+    }
+}
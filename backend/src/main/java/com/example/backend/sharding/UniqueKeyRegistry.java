@@ -0,0 +1,320 @@
+package com.example.backend.sharding;
+
+import com.example.backend.uniqueness.AddressHasher;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniqueKeyTakenException;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Keeps email, phone and address hash unique across shards (unique_key_claims, V7 migration, on shard 0).
+//
+// A write claims its values before it touches its shard, in the caller's transaction: claims are inserted at once,
+// on a two-connection pool of their own like the id allocator, and released again if the transaction rolls back.
+// Values given up by an update or delete are released after commit. A claim is owned by a customer id (an address
+// hash by its customer), and claiming a value the same customer already holds succeeds.
+// A crash between claim and commit leaves a claim behind; once older than claim-timeout, a claim whose owner
+// doesn't hold the value on its shard is taken over. Without sharding every method is a no-op.
+// Values written before sharding was turned on are claimed by backfill() at startup, before requests are served.
+@Slf4j
+@Component
+public class UniqueKeyRegistry {
+
+    private record Claim(UniqueKey key, String value, int owner) {
+    }
+
+    // One transaction's claims: the last claim or release of each value, and which claims it inserted
+    private final class PendingClaims implements TransactionSynchronization {
+        private final Map<Claim, Boolean> held = new LinkedHashMap<>();
+        private final Set<Claim> inserted = new HashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UniqueKeyRegistry.this);
+            if (status == STATUS_COMMITTED) {
+                held.forEach((claim, keep) -> {
+                    if (!keep) {
+                        release(claim);
+                    }
+                });
+            } else {
+                inserted.forEach(UniqueKeyRegistry.this::release);
+            }
+        }
+    }
+
+    // Owner check per key: does the customer still hold the value on its shard
+    private static final Map<UniqueKey, String> HOLDS = Map.of(
+            UniqueKey.EMAIL, "SELECT COUNT(*) FROM customers WHERE id = ? AND LOWER(email) = ?",
+            UniqueKey.PHONE, "SELECT COUNT(*) FROM customers WHERE id = ? AND phone = ?",
+            UniqueKey.ADDRESS_HASH, "SELECT COUNT(*) FROM addresses WHERE customer_id = ? AND address_hash = ?");
+
+    // Owner and value of every stored value per key, read from each shard by backfill()
+    private static final Map<UniqueKey, String> BACKFILL = Map.of(
+            UniqueKey.EMAIL, "SELECT id, email FROM customers",
+            UniqueKey.PHONE, "SELECT id, phone FROM customers",
+            UniqueKey.ADDRESS_HASH, "SELECT customer_id, address_hash FROM addresses");
+
+    private final ShardRouter shardRouter;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate claims;
+    private final JdbcTemplate shards;
+    private final Duration claimTimeout;
+    private final int backfillBatchSize;
+
+    public UniqueKeyRegistry(ShardRouter shardRouter,
+                             DataSourceProperties dataSourceProperties,
+                             DataSource routingDataSource,
+                             @Value("${app.sharding.claim-timeout:1m}") Duration claimTimeout,
+                             @Value("${app.sharding.backfill-batch-size:1000}") int backfillBatchSize) {
+        this.shardRouter = shardRouter;
+        this.claimTimeout = claimTimeout;
+        this.backfillBatchSize = backfillBatchSize;
+        this.shards = new JdbcTemplate(routingDataSource);
+        if (shardRouter.isEnabled()) {
+            this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            this.dataSource.setPoolName("unique-key-claims");
+            this.dataSource.setMaximumPoolSize(2);
+            this.dataSource.setMinimumIdle(0);
+            this.claims = new JdbcTemplate(dataSource);
+        } else {
+            this.dataSource = null;
+            this.claims = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return shardRouter.isEnabled();
+    }
+
+    // Claim a value for the customer in the current transaction; UniqueKeyTakenException when another owns it
+    public void claim(UniqueKey key, String value, Integer customerId) {
+        if (!shardRouter.isEnabled() || value == null) {
+            return;
+        }
+        Claim claim = new Claim(key, normalize(key, value), customerId);
+        PendingClaims pending = pending();
+        if (pending == null) {
+            insert(claim);
+            return;
+        }
+        // A value this transaction already claimed, or gave up and is taking back, is still in the table
+        if (pending.held.put(claim, Boolean.TRUE) == null && insert(claim)) {
+            pending.inserted.add(claim);
+        }
+    }
+
+    // Give up a value once the current transaction commits (at once outside a transaction)
+    public void releaseAfterCommit(UniqueKey key, String value, Integer customerId) {
+        if (!shardRouter.isEnabled() || value == null) {
+            return;
+        }
+        Claim claim = new Claim(key, normalize(key, value), customerId);
+        PendingClaims pending = pending();
+        if (pending == null) {
+            release(claim);
+        } else {
+            pending.held.put(claim, Boolean.FALSE);
+        }
+    }
+
+    // An update from one value to another: claim the new one, release the old one after commit
+    public void replace(UniqueKey key, String oldValue, String newValue, Integer customerId) {
+        if (!shardRouter.isEnabled() || Objects.equals(normalize(key, oldValue), normalize(key, newValue))) {
+            return;
+        }
+        claim(key, newValue, customerId);
+        releaseAfterCommit(key, oldValue, customerId);
+    }
+
+    // Address hashes are claimed by their hex form, key_value being a string column
+    public void claim(UniqueKey key, byte[] hash, Integer customerId) {
+        if (shardRouter.isEnabled()) {
+            claim(key, AddressHasher.toHex(hash), customerId);
+        }
+    }
+
+    public void releaseAfterCommit(UniqueKey key, byte[] hash, Integer customerId) {
+        if (shardRouter.isEnabled()) {
+            releaseAfterCommit(key, AddressHasher.toHex(hash), customerId);
+        }
+    }
+
+    public void replace(UniqueKey key, byte[] oldHash, byte[] newHash, Integer customerId) {
+        if (shardRouter.isEnabled() && !Arrays.equals(oldHash, newHash)) {
+            replace(key, AddressHasher.toHex(oldHash), AddressHasher.toHex(newHash), customerId);
+        }
+    }
+
+    private PendingClaims pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingClaims pending = (PendingClaims) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingClaims();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    // True when the claim is new, false when the customer already held it
+    private boolean insert(Claim claim) {
+        try {
+            claims.update("INSERT INTO unique_key_claims (key_name, key_value, owner_id, claimed_at) VALUES (?, ?, ?, ?)",
+                    claim.key().getConstraintName(), claim.value(), claim.owner(), Timestamp.valueOf(LocalDateTime.now()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            List<Map<String, Object>> rows = claims.queryForList(
+                    "SELECT owner_id, claimed_at FROM unique_key_claims WHERE key_name = ? AND key_value = ?",
+                    claim.key().getConstraintName(), claim.value());
+            if (rows.isEmpty()) {
+                // Released in between
+                return insert(claim);
+            }
+            int owner = ((Number) rows.get(0).get("owner_id")).intValue();
+            if (owner == claim.owner()) {
+                return false;
+            }
+            LocalDateTime claimedAt = ((Timestamp) rows.get(0).get("claimed_at")).toLocalDateTime();
+            if (claimedAt.isBefore(LocalDateTime.now().minus(claimTimeout)) && !holds(claim.key(), claim.value(), owner)
+                    && takeOver(claim, owner)) {
+                log.warn("Took over abandoned {} claim of customer {}", claim.key(), owner);
+                return true;
+            }
+            throw new UniqueKeyTakenException(claim.key());
+        }
+    }
+
+    private boolean holds(UniqueKey key, String value, int owner) {
+        // Address hashes are claimed as hex but stored as bytes
+        Object bound = key == UniqueKey.ADDRESS_HASH ? AddressHasher.toBytes(value) : value;
+        Integer count = shardRouter.onShardDetached(shardRouter.shardOf(owner),
+                () -> shards.queryForObject(HOLDS.get(key), Integer.class, owner, bound));
+        return count != null && count > 0;
+    }
+
+    private boolean takeOver(Claim claim, int previousOwner) {
+        return claims.update("UPDATE unique_key_claims SET owner_id = ?, claimed_at = ? " +
+                        "WHERE key_name = ? AND key_value = ? AND owner_id = ?",
+                claim.owner(), Timestamp.valueOf(LocalDateTime.now()), claim.key().getConstraintName(), claim.value(),
+                previousOwner) == 1;
+    }
+
+    private void release(Claim claim) {
+        try {
+            claims.update("DELETE FROM unique_key_claims WHERE key_name = ? AND key_value = ? AND owner_id = ?",
+                    claim.key().getConstraintName(), claim.value(), claim.owner());
+        } catch (RuntimeException e) {
+            // Left for the takeover of abandoned claims
+            log.warn("Releasing the {} claim of customer {} failed", claim.key(), claim.owner(), e);
+        }
+    }
+
+    // Claims every email, phone and address hash already stored on the shards, for each key not backfilled yet.
+    // Customers must be on their shards (ShardRebalancer). A value held by two customers keeps the first claim and
+    // is logged; those customers have to be fixed by hand. Without sharding, marks every key for a later backfill.
+    public void backfill() {
+        if (!shardRouter.isEnabled()) {
+            shards.update("DELETE FROM unique_key_backfills");
+            return;
+        }
+        Set<String> done = new HashSet<>(claims.queryForList("SELECT key_name FROM unique_key_backfills", String.class));
+        for (UniqueKey key : UniqueKey.values()) {
+            if (done.contains(key.getConstraintName())) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            int[] counts = new int[2];
+            JdbcTemplate streaming = new JdbcTemplate(shards.getDataSource());
+            streaming.setFetchSize(backfillBatchSize);
+            shardRouter.forEachShard(shard -> {
+                List<Claim> batch = new ArrayList<>(backfillBatchSize);
+                streaming.query(BACKFILL.get(key), row -> {
+                    Object value = row.getObject(2);
+                    batch.add(new Claim(key, normalize(key, value instanceof byte[] bytes ? AddressHasher.toHex(bytes)
+                            : (String) value), row.getInt(1)));
+                    if (batch.size() == backfillBatchSize) {
+                        backfillBatch(batch, counts);
+                        batch.clear();
+                    }
+                });
+                backfillBatch(batch, counts);
+            });
+            claims.update("INSERT INTO unique_key_backfills (key_name, completed_at) VALUES (?, ?)",
+                    key.getConstraintName(), Timestamp.valueOf(LocalDateTime.now()));
+            log.info("Backfilled {} {} claims in {} ms", counts[0], key, System.currentTimeMillis() - start);
+            if (counts[1] > 0) {
+                log.warn("{} {} values are held by more than one customer, only the first holder is claimed",
+                        counts[1], key);
+            }
+        }
+    }
+
+    // Inserts the claims not in the table yet; counts[0] inserted, counts[1] held by another customer
+    private void backfillBatch(List<Claim> batch, int[] counts) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> owners = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(batch.get(0).key().getConstraintName());
+        batch.forEach(claim -> args.add(claim.value()));
+        claims.query("SELECT key_value, owner_id FROM unique_key_claims WHERE key_name = ? AND key_value IN ("
+                + placeholders + ")", row -> {
+            owners.put(row.getString(1), row.getInt(2));
+        }, args.toArray());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        for (Claim claim : batch) {
+            Integer owner = owners.putIfAbsent(claim.value(), claim.owner());
+            if (owner == null) {
+                inserts.add(new Object[]{claim.key().getConstraintName(), claim.value(), claim.owner(), now});
+            } else if (owner != claim.owner()) {
+                log.warn("{} claim of customer {} is held by customer {}", claim.key(), claim.owner(), owner);
+                counts[1]++;
+            }
+        }
+        claims.batchUpdate("INSERT INTO unique_key_claims (key_name, key_value, owner_id, claimed_at) VALUES (?, ?, ?, ?)",
+                inserts);
+        counts[0] += inserts.size();
+    }
+
+    // Emails are unique regardless of case, as under MySQL's default collation
+    private static String normalize(UniqueKey key, String value) {
+        return key == UniqueKey.EMAIL && value != null ? value.toLowerCase(Locale.ROOT) : value;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.backend.uniqueness;
+
+import java.text.Normalizer;
+
+// Canonical form of an address field, so spellings of the same address hash alike: Unicode NFKC, case folded,
+// whitespace (and the . , separators) collapsed to single spaces, street type and unit abbreviations expanded
+// on the street lines ("St." and "ST" become "street"), whitespace dropped from postal codes.
+public final class AddressCanonicalizer {
+
+    public enum Field {
+        // street and street2, where abbreviations are expanded
+        STREET_LINE,
+        // city, state, country; "St" of "St Louis" is Saint, so nothing is expanded here
+        PLACE,
+        // pincode, compared without any whitespace
+        POSTAL_CODE
+    }
+
+    // Abbreviation and its expansion, matched as whole tokens of a street line
+    private static final String[][] ABBREVIATIONS = {
+            {"st", "street"}, {"str", "street"}, {"rd", "road"}, {"ave", "avenue"}, {"av", "avenue"},
+            {"blvd", "boulevard"}, {"dr", "drive"}, {"ln", "lane"}, {"ct", "court"}, {"pl", "place"},
+            {"sq", "square"}, {"hwy", "highway"}, {"pkwy", "parkway"}, {"cir", "circle"}, {"ter", "terrace"},
+            {"apt", "apartment"}, {"ste", "suite"}, {"fl", "floor"}, {"bldg", "building"}
+    };
+    private static final int LONGEST_ABBREVIATION = 4;
+
+    private AddressCanonicalizer() {
+    }
+
+    public static String canonicalize(String value, Field field) {
+        StringBuilder out = new StringBuilder();
+        appendCanonical(value, field, out);
+        return out.toString();
+    }
+
+    // Appends the canonical form of value (null as empty) to out without building intermediate strings,
+    // other than the NFKC copy of a value that isn't plain ASCII
+    public static void appendCanonical(String value, Field field, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        if (!isAscii(value) && !Normalizer.isNormalized(value, Normalizer.Form.NFKC)) {
+            value = Normalizer.normalize(value, Normalizer.Form.NFKC);
+        }
+        int fieldStart = out.length();
+        int tokenStart = -1;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isSeparator(codePoint)) {
+                if (tokenStart >= 0) {
+                    endToken(out, tokenStart, field);
+                    tokenStart = -1;
+                }
+                continue;
+            }
+            if (tokenStart < 0) {
+                if (out.length() > fieldStart && field != Field.POSTAL_CODE) {
+                    out.append(' ');
+                }
+                tokenStart = out.length();
+            }
+            out.appendCodePoint(Character.toLowerCase(Character.toUpperCase(codePoint)));
+        }
+        if (tokenStart >= 0) {
+            endToken(out, tokenStart, field);
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(int codePoint) {
+        return Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint) || Character.isISOControl(codePoint)
+                || codePoint == '.' || codePoint == ',';
+    }
+
+    // Replaces the token just appended from tokenStart with its expansion, if it is an abbreviation
+    private static void endToken(StringBuilder out, int tokenStart, Field field) {
+        int length = out.length() - tokenStart;
+        if (field != Field.STREET_LINE || length > LONGEST_ABBREVIATION) {
+            return;
+        }
+        for (String[] abbreviation : ABBREVIATIONS) {
+            if (regionEquals(out, tokenStart, abbreviation[0])) {
+                out.setLength(tokenStart);
+                out.append(abbreviation[1]);
+                return;
+            }
+        }
+    }
+
+    private static boolean regionEquals(StringBuilder out, int start, String token) {
+        if (out.length() - start != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (out.charAt(start + i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
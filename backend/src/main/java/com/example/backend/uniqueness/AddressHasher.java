@@ -0,0 +1,108 @@
+package com.example.backend.uniqueness;
+
+import com.example.backend.uniqueness.AddressCanonicalizer.Field;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// SHA-256 of the canonical address fields (AddressCanonicalizer), stored in the BINARY(32) addresses.address_hash.
+// Each thread reuses its digest and buffers: a field is canonicalized into a StringBuilder, UTF-8 encoded into a
+// byte array and fed to the digest, followed by a unit separator, so no concatenated or hex string is built on the
+// way. The entity and the in-memory sets carry the raw bytes; only the claims of UniqueKeyRegistry, held in a string
+// column, use the 64-char hex form.
+public final class AddressHasher {
+
+    public static final int HASH_BYTES = 32;
+
+    private static final byte FIELD_SEPARATOR = 0x1F;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<AddressHasher> HASHERS = ThreadLocal.withInitial(AddressHasher::new);
+
+    private final MessageDigest digest;
+    private final StringBuilder canonical = new StringBuilder(64);
+    private byte[] encoded = new byte[256];
+    private final byte[] hash = new byte[HASH_BYTES];
+
+    private AddressHasher() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Hash of the address fields; missing fields hash as empty
+    public static byte[] hash(String street, String street2, String city, String state, String pincode,
+                              String country) {
+        return HASHERS.get().digest(street, street2, city, state, pincode, country).clone();
+    }
+
+    // Map and set key for a hash: equal by content, wraps the array without copying it
+    public static ByteBuffer key(byte[] hash) {
+        return hash == null ? null : ByteBuffer.wrap(hash);
+    }
+
+    // The hex form of a claim to the bytes bound to address_hash
+    public static byte[] toBytes(String hex) {
+        return hex == null ? null : HEX.parseHex(hex);
+    }
+
+    public static String toHex(byte[] hash) {
+        return hash == null ? null : HEX.formatHex(hash);
+    }
+
+    // Digest into the thread's hash buffer, valid until the thread's next call
+    private byte[] digest(String street, String street2, String city, String state, String pincode, String country) {
+        update(street, Field.STREET_LINE);
+        update(street2, Field.STREET_LINE);
+        update(city, Field.PLACE);
+        update(state, Field.PLACE);
+        update(pincode, Field.POSTAL_CODE);
+        update(country, Field.PLACE);
+        try {
+            digest.digest(hash, 0, HASH_BYTES);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        return hash;
+    }
+
+    private void update(String value, Field field) {
+        canonical.setLength(0);
+        AddressCanonicalizer.appendCanonical(value, field, canonical);
+        int length = encodeUtf8();
+        digest.update(encoded, 0, length);
+        digest.update(FIELD_SEPARATOR);
+    }
+
+    // UTF-8 of the canonical buffer into encoded, returns the byte count
+    private int encodeUtf8() {
+        if (encoded.length < canonical.length() * 4) {
+            encoded = new byte[canonical.length() * 4];
+        }
+        int length = 0;
+        for (int i = 0; i < canonical.length(); ) {
+            int codePoint = Character.codePointAt(canonical, i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                encoded[length++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                encoded[length++] = (byte) (0xC0 | codePoint >> 6);
+                encoded[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (codePoint < 0x10000) {
+                encoded[length++] = (byte) (0xE0 | codePoint >> 12);
+                encoded[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                encoded[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                encoded[length++] = (byte) (0xF0 | codePoint >> 18);
+                encoded[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                encoded[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                encoded[length++] = (byte) (0x80 | codePoint & 0x3F);
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.backend.uniqueness;
+
+// Fixed-size Bloom filter over 64-bit value hashes (hash(String) for strings): no false negatives, about the
+// configured false positive rate while at most expectedInsertions distinct values have been added. Values can't be
+// removed.
+// Not thread-safe, callers guard it with a read/write lock.
+final class BloomFilter {
+
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+    private final int expectedInsertions;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        this.expectedInsertions = Math.max(expectedInsertions, 1024);
+        // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        long m = (long) Math.ceil(-this.expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / this.expectedInsertions * Math.log(2)));
+        this.bits = new long[(numBits + 63) / 64];
+    }
+
+    int expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    void add(String value) {
+        add(hash(value));
+    }
+
+    void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // False means the value was never added
+    boolean mightContain(String value) {
+        return mightContain(hash(value));
+    }
+
+    boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 units, finished with a murmur3 mix; split into two 32-bit hashes for
+    // double hashing (Kirsch-Mitzenmacher)
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
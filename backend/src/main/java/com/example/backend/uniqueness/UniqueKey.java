@@ -0,0 +1,69 @@
+package com.example.backend.uniqueness;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+// The unique keys of the customers and addresses tables, with the error reported when one is violated
+public enum UniqueKey {
+    EMAIL("email", "DUPLICATE_EMAIL", "Email address is already in use"),
+    PHONE("phone", "DUPLICATE_PHONE", "Phone number is already in use"),
+    ADDRESS_HASH("uk_address_hash", "DUPLICATE_ADDRESS", "Address is already associated with a customer");
+
+    // Constraint name as declared on the entities and in db/create_schema.sql
+    private final String constraintName;
+    private final String errorCode;
+    private final String errorMessage;
+
+    UniqueKey(String constraintName, String errorCode, String errorMessage) {
+        this.constraintName = constraintName;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getConstraintName() {
+        return constraintName;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    // The unique key behind a failed write, from the constraint name the dialect extracted; null when the
+    // violation is not a unique key (e.g. a foreign key) or the name is unknown
+    public static UniqueKey fromException(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UniqueKeyTakenException taken) {
+                return taken.getKey();
+            }
+            if (cause instanceof ConstraintViolationException violation) {
+                return fromConstraintName(violation.getConstraintName());
+            }
+        }
+        return null;
+    }
+
+    public static UniqueKey fromConstraintName(String name) {
+        if (name == null) {
+            return null;
+        }
+        // MySQL reports "customers.email", H2 reports the backing index, e.g. "public.email_index_4"
+        String normalized = name.toLowerCase(Locale.ROOT);
+        normalized = normalized.substring(normalized.lastIndexOf('.') + 1);
+        int indexSuffix = normalized.indexOf("_index_");
+        if (indexSuffix > 0) {
+            normalized = normalized.substring(0, indexSuffix);
+        }
+        for (UniqueKey key : values()) {
+            if (key.constraintName.equals(normalized)) {
+                return key;
+            }
+        }
+        return null;
+    }
+}
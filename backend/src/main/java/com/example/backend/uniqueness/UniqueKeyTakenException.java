@@ -0,0 +1,19 @@
+package com.example.backend.uniqueness;
+
+import org.springframework.dao.DuplicateKeyException;
+
+// A unique value already claimed by another customer in the global registry of a sharded deployment,
+// reported like the database's own duplicate key
+public class UniqueKeyTakenException extends DuplicateKeyException {
+
+    private final UniqueKey key;
+
+    public UniqueKeyTakenException(UniqueKey key) {
+        super(key.getErrorMessage());
+        this.key = key;
+    }
+
+    public UniqueKey getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.uniqueness;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// Values of one unique column with the id of the row owning each, fronted by a Bloom filter so the
+// common case (value not taken) is answered from a few bit probes.
+// Not thread-safe, callers guard it with a read/write lock.
+final class UniqueValueSet<V> {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Map<V, Integer> owners;
+    private final ToLongFunction<V> bloomHash;
+    private BloomFilter bloom;
+    private int addedSinceRebuild;
+
+    private UniqueValueSet(int expectedSize, ToLongFunction<V> bloomHash) {
+        this.owners = new HashMap<>(Math.max(16, expectedSize * 4 / 3));
+        this.bloomHash = bloomHash;
+        this.bloom = new BloomFilter(expectedSize * 2, FALSE_POSITIVE_RATE);
+    }
+
+    static UniqueValueSet<String> ofStrings(int expectedSize) {
+        return new UniqueValueSet<>(expectedSize, BloomFilter::hash);
+    }
+
+    // Address hashes (AddressHasher.key): SHA-256 output is uniform already, its first 8 bytes are the filter hash
+    static UniqueValueSet<ByteBuffer> ofHashes(int expectedSize) {
+        return new UniqueValueSet<>(expectedSize, hash -> hash.getLong(0));
+    }
+
+    // Id of the row holding the value, null when the value is free
+    Integer owner(V value) {
+        if (!bloom.mightContain(bloomHash.applyAsLong(value))) {
+            return null;
+        }
+        return owners.get(value);
+    }
+
+    void put(V value, int owner) {
+        owners.put(value, owner);
+        bloom.add(bloomHash.applyAsLong(value));
+        // Removed values keep their bits, so rebuild once more values were added than the filter was sized for
+        if (++addedSinceRebuild > bloom.expectedInsertions()) {
+            rebuildBloom();
+        }
+    }
+
+    // Remove the value only if it still belongs to this owner
+    void remove(V value, int owner) {
+        owners.remove(value, owner);
+    }
+
+    int size() {
+        return owners.size();
+    }
+
+    // An empty set of the same kind sized for expectedSize values
+    UniqueValueSet<V> resized(int expectedSize) {
+        return new UniqueValueSet<>(expectedSize, bloomHash);
+    }
+
+    private void rebuildBloom() {
+        bloom = new BloomFilter(owners.size() * 2, FALSE_POSITIVE_RATE);
+        owners.keySet().forEach(value -> bloom.add(bloomHash.applyAsLong(value)));
+        addedSinceRebuild = owners.size();
+    }
+}
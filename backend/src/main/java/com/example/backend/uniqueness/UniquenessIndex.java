@@ -0,0 +1,333 @@
+package com.example.backend.uniqueness;
+
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// In-memory membership of customers.email, customers.phone and addresses.address_hash, used to reject
+// obvious duplicates before a write transaction is opened. Built at startup, then kept current from
+// committed changes. The database unique constraints stay the final arbiter for concurrent writers (sharded, the
+// claims of UniqueKeyRegistry).
+@Slf4j
+@Component
+public class UniquenessIndex {
+
+    // Indexed unique values of one customer, needed to release them on update and delete
+    private record IndexedCustomer(String email, String phone) {
+    }
+
+    private record IndexedAddress(int customerId, ByteBuffer hash) {
+    }
+
+    private final CustomerRepository customerRepository;
+    private final AddressRepository addressRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final Executor executor;
+    private final boolean enabled;
+
+    private UniqueValueSet<String> emails = UniqueValueSet.ofStrings(0);
+    private UniqueValueSet<String> phones = UniqueValueSet.ofStrings(0);
+    private UniqueValueSet<ByteBuffer> hashes = UniqueValueSet.ofHashes(0);
+    private final Map<Integer, IndexedCustomer> customers = new HashMap<>();
+    private final Map<Integer, IndexedAddress> addresses = new HashMap<>();
+    private final Map<Integer, List<Integer>> addressesByCustomer = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ids changed by events while the initial build is streaming, the event state wins over the streamed row
+    private Set<Integer> customersChangedDuringBuild = new HashSet<>();
+    private Set<Integer> addressesChangedDuringBuild = new HashSet<>();
+    private Set<Integer> customersDeletedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public UniquenessIndex(CustomerRepository customerRepository,
+                           AddressRepository addressRepository,
+                           PlatformTransactionManager transactionManager,
+                           ShardRouter shardRouter,
+                           @Qualifier("applicationTaskExecutor") Executor executor,
+                           @Value("${app.uniqueness.index.enabled:true}") boolean enabled) {
+        this.customerRepository = customerRepository;
+        this.addressRepository = addressRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.executor = executor;
+        this.enabled = enabled;
+    }
+
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    // First unique key a customer create (id null, addresses included) or update (id set) would violate,
+    // null when none is known to be taken
+    public UniqueKey findConflict(Customer customer) {
+        if (!isAvailable()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (takenByOther(emails, normalizeEmail(customer.getEmail()), customer.getId())) {
+                return UniqueKey.EMAIL;
+            }
+            if (takenByOther(phones, customer.getPhone(), customer.getId())) {
+                return UniqueKey.PHONE;
+            }
+            if (customer.getId() == null && customer.getAddresses() != null) {
+                Set<ByteBuffer> requested = new HashSet<>();
+                for (Address address : customer.getAddresses()) {
+                    address.computeHash();
+                    ByteBuffer hash = AddressHasher.key(address.getAddressHash());
+                    // Two equal addresses in one request collide with each other as well
+                    if (!requested.add(hash) || hashes.owner(hash) != null) {
+                        return UniqueKey.ADDRESS_HASH;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Unique key an address create (addressId null) or update would violate, null when none is known to be taken
+    public UniqueKey findConflict(Address address, Integer addressId) {
+        if (!isAvailable()) {
+            return null;
+        }
+        address.computeHash();
+        lock.readLock().lock();
+        try {
+            return takenByOther(hashes, AddressHasher.key(address.getAddressHash()), addressId) ? UniqueKey.ADDRESS_HASH
+                    : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <V> boolean takenByOther(UniqueValueSet<V> set, V value, Integer id) {
+        if (value == null) {
+            return false;
+        }
+        Integer owner = set.owner(value);
+        return owner != null && !owner.equals(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            executor.execute(this::build);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ChangeType.DELETED) {
+                removeCustomer(event.customerId());
+                // A customer delete cascades to all of its addresses
+                List<Integer> owned = addressesByCustomer.get(event.customerId());
+                if (owned != null) {
+                    for (Integer addressId : new ArrayList<>(owned)) {
+                        removeAddress(addressId);
+                    }
+                }
+                if (customersDeletedDuringBuild != null) {
+                    customersDeletedDuringBuild.add(event.customerId());
+                }
+            } else {
+                putCustomer(event.customerId(), event.customer().getEmail(), event.customer().getPhone());
+            }
+            if (customersChangedDuringBuild != null) {
+                customersChangedDuringBuild.add(event.customerId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAddressChanged(AddressChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ChangeType.DELETED) {
+                removeAddress(event.addressId());
+            } else {
+                putAddress(event.addressId(), event.customerId(), event.address().getAddressHash());
+            }
+            if (addressesChangedDuringBuild != null) {
+                addressesChangedDuringBuild.add(event.addressId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            lock.writeLock().lock();
+            try {
+                // Size the filters for the current tables, events applied so far are carried over
+                long customerCount = sum(shardRouter.scatter(shard -> customerRepository.count()));
+                emails = resized(emails, customerCount, customers, IndexedCustomer::email);
+                phones = resized(phones, customerCount, customers, IndexedCustomer::phone);
+                hashes = resized(hashes, sum(shardRouter.scatter(shard -> addressRepository.count())), addresses,
+                        IndexedAddress::hash);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = customerRepository.streamSearchFields()) {
+                    rows.forEach(this::addStreamedCustomer);
+                }
+                try (Stream<Object[]> rows = addressRepository.streamHashFields()) {
+                    rows.forEach(this::addStreamedAddress);
+                }
+            }));
+            lock.writeLock().lock();
+            try {
+                customersChangedDuringBuild = null;
+                addressesChangedDuringBuild = null;
+                customersDeletedDuringBuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Uniqueness index built with {} emails, {} phones and {} address hashes in {} ms",
+                    emails.size(), phones.size(), hashes.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Uniqueness index build failed, duplicates are only detected by the database", e);
+        }
+    }
+
+    private static long sum(List<Long> counts) {
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static <T, V> UniqueValueSet<V> resized(UniqueValueSet<V> current, long expectedSize,
+                                                    Map<Integer, T> entries, Function<T, V> value) {
+        UniqueValueSet<V> set = current.resized((int) Math.min(expectedSize, Integer.MAX_VALUE / 4));
+        entries.forEach((id, entry) -> {
+            V v = value.apply(entry);
+            if (v != null && Objects.equals(current.owner(v), id)) {
+                set.put(v, id);
+            }
+        });
+        return set;
+    }
+
+    // Streamed row: id, firstName, lastName, email, phone
+    private void addStreamedCustomer(Object[] row) {
+        Integer id = (Integer) row[0];
+        lock.writeLock().lock();
+        try {
+            if (!customersChangedDuringBuild.contains(id)) {
+                putCustomer(id, (String) row[3], (String) row[4]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Streamed row: id, customer id, address hash
+    private void addStreamedAddress(Object[] row) {
+        Integer addressId = (Integer) row[0];
+        Integer customerId = (Integer) row[1];
+        lock.writeLock().lock();
+        try {
+            if (!addressesChangedDuringBuild.contains(addressId) && !customersDeletedDuringBuild.contains(customerId)) {
+                putAddress(addressId, customerId, (byte[]) row[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putCustomer(int id, String email, String phone) {
+        removeCustomer(id);
+        IndexedCustomer entry = new IndexedCustomer(normalizeEmail(email), phone);
+        customers.put(id, entry);
+        if (entry.email() != null) {
+            emails.put(entry.email(), id);
+        }
+        if (entry.phone() != null) {
+            phones.put(entry.phone(), id);
+        }
+    }
+
+    private void removeCustomer(int id) {
+        IndexedCustomer removed = customers.remove(id);
+        if (removed == null) {
+            return;
+        }
+        if (removed.email() != null) {
+            emails.remove(removed.email(), id);
+        }
+        if (removed.phone() != null) {
+            phones.remove(removed.phone(), id);
+        }
+    }
+
+    private void putAddress(int addressId, int customerId, byte[] hash) {
+        removeAddress(addressId);
+        ByteBuffer key = AddressHasher.key(hash);
+        addresses.put(addressId, new IndexedAddress(customerId, key));
+        addressesByCustomer.computeIfAbsent(customerId, id -> new ArrayList<>()).add(addressId);
+        hashes.put(key, addressId);
+    }
+
+    private void removeAddress(int addressId) {
+        IndexedAddress removed = addresses.remove(addressId);
+        if (removed == null) {
+            return;
+        }
+        List<Integer> owned = addressesByCustomer.get(removed.customerId());
+        owned.remove(Integer.valueOf(addressId));
+        if (owned.isEmpty()) {
+            addressesByCustomer.remove(removed.customerId());
+        }
+        hashes.remove(removed.hash(), addressId);
+    }
+
+    // The email unique key uses a case-insensitive collation
+    private static String normalizeEmail(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,174 @@
+package db.migration;
+
+import com.example.backend.uniqueness.AddressHasher;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Replaces the varchar(64) hex SHA-256 of the raw address fields with the BINARY(32) hash of the canonical fields
+// (uniqueness.AddressHasher). Rows are rehashed in batches, each committed on its own rather than rewriting the
+// table in one transaction; a rerun after a failure skips the rows already rehashed.
+// Addresses that only become equal once canonicalized ("Main St" and "main street") would break uk_address_hash:
+// the lowest id keeps the hash, the others get one made unique by their id and are listed in
+// address_hash_collisions for review. Address claims in unique_key_claims are rebuilt from every shard at startup.
+@Slf4j
+public class V8__Canonical_address_hash extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "addresses", "address_key")) {
+                statement.execute("ALTER TABLE addresses ADD COLUMN address_key binary(32) NULL");
+            }
+            statement.execute("CREATE TABLE IF NOT EXISTS address_hash_collisions (" +
+                    "address_id bigint NOT NULL, " +
+                    "customer_id int NOT NULL, " +
+                    "duplicate_of bigint NOT NULL, " +
+                    "detected_at timestamp NOT NULL, " +
+                    "PRIMARY KEY (address_id))");
+        }
+
+        long rehashed = rehash(connection);
+        int collisions = resolveCollisions(connection);
+        int claims = dropAddressClaims(connection);
+
+        try (Statement statement = connection.createStatement()) {
+            // Dropping the column drops uk_address_hash with it
+            statement.execute("ALTER TABLE addresses DROP COLUMN address_hash");
+            statement.execute("ALTER TABLE addresses RENAME COLUMN address_key TO address_hash");
+            statement.execute("ALTER TABLE addresses MODIFY COLUMN address_hash binary(32) NOT NULL");
+            statement.execute("ALTER TABLE addresses ADD CONSTRAINT uk_address_hash UNIQUE (address_hash)");
+        }
+
+        if (collisions > 0) {
+            log.warn("{} addresses are duplicates of another once canonicalized, see address_hash_collisions",
+                    collisions);
+        }
+        log.info("Rehashed {} addresses and dropped {} address claims for a backfill in {} ms", rehashed, claims,
+                System.currentTimeMillis() - start);
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(),
+                table, column)) {
+            return columns.next();
+        }
+    }
+
+    // Fills address_key batch by batch in id order
+    private static long rehash(Connection connection) throws SQLException {
+        long rehashed = 0;
+        long lastId = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, street, street2, city, state, " +
+                "pincode, country FROM addresses WHERE id > ? AND address_key IS NULL ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE addresses SET address_key = ? WHERE id = ?")) {
+            int rows;
+            do {
+                select.setLong(1, lastId);
+                select.setInt(2, BATCH_SIZE);
+                rows = 0;
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        lastId = result.getLong(1);
+                        update.setBytes(1, AddressHasher.hash(result.getString(2), result.getString(3),
+                                result.getString(4), result.getString(5), result.getString(6), result.getString(7)));
+                        update.setLong(2, lastId);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows > 0) {
+                    update.executeBatch();
+                }
+                rehashed += rows;
+            } while (rows == BATCH_SIZE);
+        }
+        return rehashed;
+    }
+
+    private record Collision(long addressId, int customerId, long duplicateOf, byte[] key) {
+    }
+
+    // Gives every address but the first of each group sharing a hash a hash of its own, and records it
+    private static int resolveCollisions(Connection connection) throws Exception {
+        List<Collision> collisions = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT a.id, a.customer_id, a.address_key FROM addresses a " +
+                     "JOIN (SELECT address_key FROM addresses GROUP BY address_key HAVING COUNT(*) > 1) d " +
+                     "ON d.address_key = a.address_key ORDER BY a.address_key, a.id")) {
+            byte[] groupKey = null;
+            long kept = 0;
+            while (result.next()) {
+                byte[] key = result.getBytes(3);
+                if (Arrays.equals(key, groupKey)) {
+                    collisions.add(new Collision(result.getLong(1), result.getInt(2), kept, key));
+                    log.info("Address {} of customer {} is a duplicate of address {}", result.getLong(1),
+                            result.getInt(2), kept);
+                } else {
+                    groupKey = key;
+                    kept = result.getLong(1);
+                }
+            }
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE addresses SET address_key = ? WHERE id = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO address_hash_collisions " +
+                     "(address_id, customer_id, duplicate_of, detected_at) VALUES (?, ?, ?, ?)")) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < collisions.size(); i++) {
+                Collision collision = collisions.get(i);
+                digest.update(collision.key());
+                digest.update(ByteBuffer.allocate(Long.BYTES).putLong(collision.addressId()).array());
+                update.setBytes(1, digest.digest());
+                update.setLong(2, collision.addressId());
+                update.addBatch();
+                insert.setLong(1, collision.addressId());
+                insert.setInt(2, collision.customerId());
+                insert.setLong(3, collision.duplicateOf());
+                insert.setTimestamp(4, now);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == collisions.size() - 1) {
+                    update.executeBatch();
+                    insert.executeBatch();
+                }
+            }
+        }
+        return collisions.size();
+    }
+
+    // Sharded, unique_key_claims on shard 0 holds the address hashes as hex, of the addresses of every shard. Shard 0
+    // migrates last but sees only its own addresses, so the claims are dropped instead of rewritten, along with the
+    // key's backfill marker: the first sharded start after the migration claims the new hashes from every shard
+    // (UniqueKeyRegistry.backfill) before serving requests. On the other shards both tables are unused and empty.
+    private static int dropAddressClaims(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM unique_key_backfills WHERE key_name = 'uk_address_hash'");
+            return statement.executeUpdate("DELETE FROM unique_key_claims WHERE key_name = 'uk_address_hash'");
+        }
+    }
+}
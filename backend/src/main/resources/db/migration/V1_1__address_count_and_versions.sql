@@ -0,0 +1,8 @@
+-- Denormalized address count read by the customer listings, and the optimistic-locking versions behind ETags
+-- and If-Match. Version 1.1 so it runs right after the baseline on existing databases.
+ALTER TABLE customers ADD COLUMN num_addresses int NOT NULL DEFAULT 0;
+ALTER TABLE customers ADD COLUMN version bigint NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN version bigint NOT NULL DEFAULT 0;
+
+-- Existing customers start with their current address count; the application keeps it in step from here on
+UPDATE customers c SET num_addresses = (SELECT COUNT(*) FROM addresses a WHERE a.customer_id = c.id);
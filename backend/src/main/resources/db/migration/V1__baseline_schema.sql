@@ -0,0 +1,31 @@
+-- Schema as of db/create_schema.sql, which is left as it was before the migrations. Databases created from that
+-- script, or earlier by Hibernate's ddl-auto, are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and only run the later migrations, so every later schema change belongs in a migration, not in this file.
+
+CREATE TABLE customers (
+  id int NOT NULL AUTO_INCREMENT,
+  first_name varchar(255) NOT NULL,
+  last_name varchar(255) NOT NULL,
+  phone varchar(255) NOT NULL,
+  email varchar(255) NOT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY phone (phone),
+  UNIQUE KEY email (email)
+);
+
+CREATE TABLE addresses (
+  id bigint NOT NULL AUTO_INCREMENT,
+  customer_id int NOT NULL,
+  street varchar(255) NOT NULL,
+  street2 varchar(255) DEFAULT NULL,
+  city varchar(255) NOT NULL,
+  state varchar(255) NOT NULL,
+  pincode varchar(255) NOT NULL,
+  country varchar(255) NOT NULL,
+  address_hash varchar(64) NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_address_hash (address_hash),
+  KEY fk_customer (customer_id),
+  CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers (id) ON DELETE CASCADE
+);
@@ -0,0 +1,7 @@
+-- One index per sort the API accepts (controller.CustomerSortRegistry), with id as the tie-breaker the
+-- listings order by, so a page is an index range scan instead of a filesort over the whole table.
+-- email and phone sort on their unique keys, id on the primary key.
+CREATE INDEX idx_customers_first_name_id ON customers (first_name, id);
+CREATE INDEX idx_customers_last_name_id ON customers (last_name, id);
+CREATE INDEX idx_customers_created_at_id ON customers (created_at, id);
+
@@ -0,0 +1,9 @@
+-- Trimmed, lower-cased copies of the address facets, maintained by the database. Exact and prefix facet
+-- matches compare against these so they can use an index instead of evaluating LOWER(TRIM(...)) on every row.
+ALTER TABLE addresses ADD COLUMN city_key varchar(255) GENERATED ALWAYS AS (LOWER(TRIM(city)));
+ALTER TABLE addresses ADD COLUMN state_key varchar(255) GENERATED ALWAYS AS (LOWER(TRIM(state)));
+ALTER TABLE addresses ADD COLUMN pincode_key varchar(255) GENERATED ALWAYS AS (LOWER(TRIM(pincode)));
+
+CREATE INDEX idx_addresses_city_key ON addresses (city_key, customer_id);
+CREATE INDEX idx_addresses_state_key ON addresses (state_key, customer_id);
+CREATE INDEX idx_addresses_pincode_key ON addresses (pincode_key, customer_id);
@@ -0,0 +1,25 @@
+-- Change feed (/api/changes): one row per committed customer or address mutation, written in the mutation's
+-- transaction by changes.ChangeLogRecorder. Rows older than app.changes.retention are compacted.
+CREATE TABLE change_log (
+  seq bigint NOT NULL,
+  entity varchar(16) NOT NULL,
+  entity_id int NOT NULL,
+  customer_id int NOT NULL,
+  change_type varchar(16) NOT NULL,
+  version bigint DEFAULT NULL,
+  changed_at timestamp(3) NOT NULL,
+  PRIMARY KEY (seq),
+  KEY idx_change_log_changed_at (changed_at)
+);
+
+-- Single-row sequence. Writers increment last_seq right before commit and hold the row lock until the commit,
+-- so sequences are gapless and in commit order: a reader that sees seq N has already seen every seq below it.
+-- compacted_through is the highest seq removed by compaction.
+CREATE TABLE change_log_sequence (
+  id int NOT NULL,
+  last_seq bigint NOT NULL,
+  compacted_through bigint NOT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO change_log_sequence (id, last_seq, compacted_through) VALUES (1, 0, 0);
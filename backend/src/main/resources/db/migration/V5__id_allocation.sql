@@ -0,0 +1,11 @@
+-- Next unallocated id per table. Application instances reserve blocks of ids from here (IdBlockAllocator), so
+-- inserts no longer need the generated key back and Hibernate can batch them. The AUTO_INCREMENT columns stay
+-- for manual inserts; a block reservation never starts below MAX(id) + 1.
+CREATE TABLE id_allocation (
+  name varchar(64) NOT NULL,
+  next_id bigint NOT NULL,
+  PRIMARY KEY (name)
+);
+
+INSERT INTO id_allocation (name, next_id) SELECT 'customers', COALESCE(MAX(id), 0) + 1 FROM customers;
+INSERT INTO id_allocation (name, next_id) SELECT 'addresses', COALESCE(MAX(id), 0) + 1 FROM addresses;
@@ -0,0 +1,9 @@
+-- Written on the primary by ReplicationLagMonitor when read replicas are configured; the age of the row as seen
+-- on a replica is that replica's replication lag
+CREATE TABLE replication_heartbeat (
+  id int NOT NULL,
+  beat timestamp(3) NOT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO replication_heartbeat (id, beat) VALUES (1, CURRENT_TIMESTAMP(3));
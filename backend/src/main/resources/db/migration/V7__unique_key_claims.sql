@@ -0,0 +1,18 @@
+-- Global registry of the unique customer and address values when customers are sharded (app.sharding.urls).
+-- Each shard's own unique keys only cover that shard, so a write first claims its email, phone and address hashes
+-- here, on shard 0, and the claim is released when the value is changed or deleted. Unused without sharding.
+CREATE TABLE unique_key_claims (
+  key_name varchar(32) NOT NULL,
+  key_value varchar(255) NOT NULL,
+  owner_id int NOT NULL,
+  claimed_at timestamp(3) NOT NULL,
+  PRIMARY KEY (key_name, key_value)
+);
+
+-- Keys whose claims were filled in from every shard's rows (UniqueKeyRegistry.backfill). A key without a row
+-- here is backfilled when the application starts sharded; starting unsharded, when claims aren't kept, clears it.
+CREATE TABLE unique_key_backfills (
+  key_name varchar(32) NOT NULL,
+  completed_at timestamp(3) NOT NULL,
+  PRIMARY KEY (key_name)
+);
@@ -0,0 +1,202 @@
+package com.example.backend;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.metrics.SqlBudget;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Statement budgets for the hot read and write paths; a lazy load or N+1 sneaking in fails these
+@SpringBootTest(properties = "app.cache.enabled=false")
+@AutoConfigureMockMvc
+class SqlStatementBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    private Integer customerId;
+
+    @BeforeEach
+    void seed() {
+        // Other test classes share the database, so the seeded customers are looked up rather than assumed to be
+        // the only rows
+        Customer seeded = customerRepository.findOne((root, query, cb) -> cb.equal(root.get("email"),
+                "budget0@example.com")).orElse(null);
+        if (seeded != null) {
+            customerId = seeded.getId();
+            return;
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Customer customer = Customer.builder()
+                    .firstName("Budget" + i)
+                    .lastName("Customer")
+                    .email("budget" + i + "@example.com")
+                    .phone(String.valueOf(7_000_000_000L + i))
+                    .addresses(new ArrayList<>())
+                    .build();
+            for (int j = 0; j < 3; j++) {
+                Address address = Address.builder()
+                        .street(j + " Budget St " + i)
+                        .city("Girona")
+                        .state("Catalonia")
+                        .pincode("17001")
+                        .country("Spain")
+                        .customer(customer)
+                        .build();
+                address.computeHash();
+                customer.getAddresses().add(address);
+            }
+            customer.setNumAddresses(customer.getAddresses().size());
+            customers.add(customer);
+        }
+        customerId = customerRepository.saveAll(customers).get(0).getId();
+    }
+
+    @Test
+    void customerPageRunsPageAndCountQueries() throws Throwable {
+        SqlBudget.atMost(2, () -> mockMvc.perform(get("/api/customers?size=50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(50)));
+    }
+
+    @Test
+    void customerWithAddressesLoadsInOneQuery() throws Throwable {
+        SqlBudget.atMost(1, () -> mockMvc.perform(get("/api/customers/" + customerId))
+                .andExpect(jsonPath("$.addresses.length()").value(3)));
+    }
+
+    @Test
+    void customerAddressesLoadInTwoQueries() throws Throwable {
+        // The list version aggregate behind the ETag, then the addresses
+        SqlBudget.atMost(2, () -> mockMvc.perform(get("/api/addresses/" + customerId))
+                .andExpect(jsonPath("$.length()").value(3)));
+    }
+
+    @Test
+    void addressLoadsInOneQuery() throws Throwable {
+        Integer addressId = addressRepository.findByCustomerId(customerId).get(0).getId();
+        SqlBudget.atMost(1, () -> mockMvc.perform(get("/api/addresses/getAddress/" + addressId))
+                .andExpect(jsonPath("$.customerId").value(customerId)));
+    }
+
+    @Test
+    void sparseCustomerPageReadsOnlyTheRequestedFields() throws Throwable {
+        SqlBudget.atMost(2, () -> mockMvc.perform(get("/api/customers?size=50&fields=phone,id,firstName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(50))
+                .andExpect(jsonPath("$.content[0].length()").value(3))
+                .andExpect(jsonPath("$.content[0].phone").exists())
+                .andExpect(jsonPath("$.content[0].errorCode").doesNotExist()));
+    }
+
+    @Test
+    void sparseCustomerLoadsAddressesOnlyWhenSelected() throws Throwable {
+        SqlBudget.atMost(1, () -> mockMvc.perform(get("/api/customers/" + customerId + "?fields=id,numAddresses"))
+                .andExpect(jsonPath("$.numAddresses").value(3))
+                .andExpect(jsonPath("$.email").doesNotExist())
+                .andExpect(jsonPath("$.addresses").doesNotExist()));
+        SqlBudget.atMost(2, () -> mockMvc.perform(get("/api/customers/" + customerId + "?fields=addresses"))
+                .andExpect(jsonPath("$.errorCode").value("SUCCESS"))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$.addresses.length()").value(3)));
+    }
+
+    @Test
+    void sparseAddressesReadOnlyTheRequestedFields() throws Throwable {
+        SqlBudget.atMost(1, () -> mockMvc.perform(get("/api/addresses/" + customerId + "?fields=city,street2"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].city").value("Girona"))
+                .andExpect(jsonPath("$[0].street").doesNotExist()));
+        mockMvc.perform(get("/api/addresses/" + customerId + "?fields=city,version"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String customerJson(long n, int addresses) {
+        StringBuilder json = new StringBuilder(String.format("{\"firstName\":\"Batch\",\"lastName\":\"Insert\"," +
+                "\"email\":\"insert%d@example.com\",\"phone\":\"%d\",\"addresses\":[", n, 8_000_000_000L + n));
+        for (int i = 0; i < addresses; i++) {
+            json.append(i == 0 ? "" : ",").append(String.format("{\"street\":\"%d Insert St %d\",\"city\":\"Girona\"," +
+                    "\"state\":\"Catalonia\",\"pincode\":\"17001\",\"country\":\"Spain\"}", i, n));
+        }
+        return json.append("]}").toString();
+    }
+
+    @Test
+    void customerCreateIsAFixedNumberOfStatementsWhateverItsAddresses() throws Throwable {
+        long n = System.nanoTime() % 1_000_000_000L;
+        // Customer insert, one address insert batch, then the change log sequence update and read and its insert batch
+        for (int addresses : new int[]{1, 10, 40}) {
+            String body = customerJson(n + addresses, addresses);
+            SqlBudget.atMost(5, () -> mockMvc.perform(post("/api/customers")
+                            .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(jsonPath("$.errorCode").value("SUCCESS"))
+                    .andExpect(jsonPath("$.addresses.length()").value(addresses)));
+        }
+    }
+
+    private int createCustomer(long n, int addresses) throws Exception {
+        String response = mockMvc.perform(post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON).content(customerJson(n, addresses)))
+                .andExpect(jsonPath("$.errorCode").value("SUCCESS"))
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
+
+    @Test
+    void customerDeleteIsAFixedNumberOfStatementsWhateverItsAddresses() throws Throwable {
+        long n = System.nanoTime() % 1_000_000_000L;
+        // Lock and address count, one set-based delete (the cascade takes the addresses), then the change log
+        for (int addresses : new int[]{1, 10, 40}) {
+            int id = createCustomer(n + 100 + addresses, addresses);
+            SqlBudget.atMost(6, () -> mockMvc.perform(delete("/api/customers/" + id))
+                    .andExpect(jsonPath("$.errorMessage").value("Customer Deleted Successfully!")));
+            assertThat(customerRepository.existsById(id)).isFalse();
+            assertThat(addressRepository.findByCustomerId(id)).isEmpty();
+        }
+    }
+
+    @Test
+    void bulkDeleteIsOneChunkOfStatementsForManyCustomers() throws Throwable {
+        long n = System.nanoTime() % 1_000_000_000L;
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(createCustomer(n + 200 + i, 2));
+        }
+        String body = "{\"ids\":[" + ids.stream().map(String::valueOf).collect(Collectors.joining(",")) + ",-1]}";
+        SqlBudget.atMost(6, () -> mockMvc.perform(post("/api/customers/bulk-delete")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(jsonPath("$.errorCode").value("SUCCESS"))
+                .andExpect(jsonPath("$.deletedCustomers").value(20))
+                .andExpect(jsonPath("$.deletedAddresses").value(40))
+                .andExpect(jsonPath("$.chunks").value(1)));
+        assertThat(customerRepository.findAllById(ids)).isEmpty();
+        assertThat(addressRepository.countByCustomerIds(ids)).isZero();
+    }
+}
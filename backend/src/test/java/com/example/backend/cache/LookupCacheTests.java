@@ -0,0 +1,180 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LookupCacheTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    // Loads so far per id, each loaded value is named after its load count
+    private final Map<Integer, Integer> loads = new HashMap<>();
+
+    private JsonNode call(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static String address(String street) {
+        return String.format("{\"street\":\"%s\",\"city\":\"Manresa\",\"state\":\"Catalonia\",\"pincode\":\"08240\"," +
+                "\"country\":\"Spain\"}", street);
+    }
+
+    private static LookupCache cache() {
+        return new LookupCache(true, Duration.ofMinutes(10), 100, 100);
+    }
+
+    private Function<Integer, CustomerResponse> customerLoader() {
+        return id -> {
+            CustomerResponse customer = new CustomerResponse();
+            customer.setId(id);
+            customer.setFirstName("Load" + loads.merge(id, 1, Integer::sum));
+            return customer;
+        };
+    }
+
+    private Function<Integer, AddressResponse> addressLoader(int customerId) {
+        return id -> {
+            AddressResponse address = new AddressResponse();
+            address.setId(id);
+            address.setCustomerId(customerId);
+            address.setStreet("Load" + loads.merge(id, 1, Integer::sum));
+            return address;
+        };
+    }
+
+    @Test
+    void changesEvictWhatTheyTouch() {
+        LookupCache cache = cache();
+        cache.customer(1, customerLoader());
+        cache.customer(2, customerLoader());
+        cache.address(10, addressLoader(1));
+        cache.address(11, addressLoader(1));
+        cache.address(20, addressLoader(2));
+
+        // An address change evicts the address and its customer, whose response embeds it
+        cache.onAddressChanged(new AddressChangedEvent(ChangeType.UPDATED, 10, 1, null));
+        assertThat(cache.address(10, addressLoader(1)).getStreet()).isEqualTo("Load2");
+        assertThat(cache.customer(1, customerLoader()).getFirstName()).isEqualTo("Load2");
+        assertThat(cache.address(11, addressLoader(1)).getStreet()).isEqualTo("Load1");
+        assertThat(cache.customer(2, customerLoader()).getFirstName()).isEqualTo("Load1");
+
+        // A customer update leaves its addresses cached
+        cache.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, 2, null));
+        assertThat(cache.customer(2, customerLoader()).getFirstName()).isEqualTo("Load2");
+        assertThat(cache.address(20, addressLoader(2)).getStreet()).isEqualTo("Load1");
+
+        // A customer delete also drops every address the cascade removed, and only those
+        cache.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, 1, null));
+        assertThat(cache.customer(1, customerLoader()).getFirstName()).isEqualTo("Load3");
+        assertThat(cache.address(10, addressLoader(1)).getStreet()).isEqualTo("Load3");
+        assertThat(cache.address(11, addressLoader(1)).getStreet()).isEqualTo("Load2");
+        assertThat(cache.address(20, addressLoader(2)).getStreet()).isEqualTo("Load1");
+    }
+
+    @Test
+    void loadThatRacedAnEvictionIsServedButNotKept() {
+        LookupCache cache = cache();
+        // The change commits while the row is being read, so the loaded value may predate it
+        Function<Integer, CustomerResponse> racing = id -> {
+            CustomerResponse stale = customerLoader().apply(id);
+            cache.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, id, null));
+            return stale;
+        };
+        assertThat(cache.customer(1, racing).getFirstName()).isEqualTo("Load1");
+        assertThat(cache.customer(1, customerLoader()).getFirstName()).isEqualTo("Load2");
+        assertThat(cache.customer(1, customerLoader()).getFirstName()).isEqualTo("Load2");
+
+        // Any eviction counts, not only one of the same id
+        Function<Integer, AddressResponse> racingAddress = id -> {
+            AddressResponse stale = addressLoader(3).apply(id);
+            cache.onAddressChanged(new AddressChangedEvent(ChangeType.DELETED, 99, 4, null));
+            return stale;
+        };
+        assertThat(cache.address(30, racingAddress).getStreet()).isEqualTo("Load1");
+        assertThat(cache.address(30, addressLoader(3)).getStreet()).isEqualTo("Load2");
+    }
+
+    @Test
+    void failedLoadsAndDisabledCachesKeepNothing() {
+        LookupCache cache = cache();
+        assertThatThrownBy(() -> cache.customer(5, id -> {
+            throw new RuntimeException("Customer not found");
+        })).hasMessage("Customer not found");
+        assertThat(cache.customer(5, customerLoader()).getFirstName()).isEqualTo("Load1");
+
+        LookupCache disabled = new LookupCache(false, Duration.ofMinutes(10), 100, 100);
+        disabled.customer(6, customerLoader());
+        assertThat(disabled.customer(6, customerLoader()).getFirstName()).isEqualTo("Load2");
+    }
+
+    @Test
+    void readsThroughTheApiSeeCommittedChanges() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        JsonNode created = call("POST", "/api/customers", String.format("{\"firstName\":\"Cached\",\"lastName\":\"Customer\"," +
+                        "\"email\":\"cached%d@example.com\",\"phone\":\"%d\",\"addresses\":[%s,%s]}", n, 1_000_000_000L + n,
+                address(n + " First St"), address(n + " Second St")));
+        assertThat(created.path("errorCode").asText()).isEqualTo("SUCCESS");
+        int customerId = created.path("id").asInt();
+        int addressId = created.path("addresses").get(0).path("id").asInt();
+        int otherAddressId = created.path("addresses").get(1).path("id").asInt();
+
+        // Cache both, then change the address
+        assertThat(call("GET", "/api/customers/" + customerId, null).path("addresses").get(0).path("street").asText())
+                .isEqualTo(n + " First St");
+        assertThat(call("GET", "/api/addresses/getAddress/" + addressId, null).path("street").asText())
+                .isEqualTo(n + " First St");
+        call("GET", "/api/addresses/getAddress/" + otherAddressId, null);
+        assertThat(call("PUT", "/api/addresses/" + addressId, address(n + " Moved St")).path("errorCode").asText())
+                .isEqualTo("SUCCESS");
+
+        assertThat(call("GET", "/api/addresses/getAddress/" + addressId, null).path("street").asText())
+                .isEqualTo(n + " Moved St");
+        JsonNode customer = call("GET", "/api/customers/" + customerId, null);
+        assertThat(customer.path("addresses").findValuesAsText("street")).contains(n + " Moved St");
+
+        // Deleting the customer takes its cached addresses along
+        assertThat(call("DELETE", "/api/customers/" + customerId, null).path("errorMessage").asText())
+                .isEqualTo("Customer Deleted Successfully!");
+        assertThat(call("GET", "/api/customers/" + customerId, null).path("errorCode").asText())
+                .isEqualTo("CUSTOMER_NOT_FOUND");
+        assertThat(call("GET", "/api/addresses/getAddress/" + addressId, null).path("errorCode").asText())
+                .isEqualTo("ADDRESS_NOT_FOUND");
+        assertThat(call("GET", "/api/addresses/getAddress/" + otherAddressId, null).path("errorCode").asText())
+                .isEqualTo("ADDRESS_NOT_FOUND");
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.backend.changes;
+
+import com.example.backend.dto.ChangeEntry;
+import com.example.backend.event.ChangeType;
+import com.example.backend.repository.ChangeLogRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChangeFeedTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private JsonNode call(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private int createCustomer() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        JsonNode created = call("POST", "/api/customers", String.format("{\"firstName\":\"Feed\",\"lastName\":\"Customer\"," +
+                "\"email\":\"feed%d@example.com\",\"phone\":\"%d\",\"addresses\":[{\"street\":\"%d Feed St\",\"city\":\"Girona\"," +
+                "\"state\":\"Catalonia\",\"pincode\":\"17001\",\"country\":\"Spain\"}]}", n, 5_000_000_000L + n, n));
+        assertThat(created.path("errorCode").asText()).isEqualTo("SUCCESS");
+        return created.path("id").asInt();
+    }
+
+    @Test
+    void mutationsAppendGaplessEntriesInCommitOrder() throws Exception {
+        long since = changeLogRepository.lastSeq();
+        int customerId = createCustomer();
+        call("PUT", "/api/customers", String.format("{\"id\":%d,\"firstName\":\"Fed\",\"lastName\":\"Customer\"," +
+                "\"email\":\"fed%d@example.com\",\"phone\":\"%d\"}", customerId, customerId, 4_000_000_000L + customerId));
+
+        JsonNode feed = call("GET", "/api/changes?since=" + since + "&limit=2", null);
+        assertThat(feed.path("hasMore").asBoolean()).isTrue();
+        JsonNode rest = call("GET", "/api/changes?since=" + feed.path("nextSince").asLong(), null);
+        assertThat(rest.path("hasMore").asBoolean()).isFalse();
+
+        List<JsonNode> changes = new ArrayList<>();
+        feed.path("changes").forEach(changes::add);
+        rest.path("changes").forEach(changes::add);
+        assertThat(changes).extracting(change -> change.path("entity").asText() + " " + change.path("type").asText())
+                .containsExactly("CUSTOMER CREATED", "ADDRESS CREATED", "CUSTOMER UPDATED");
+        for (int i = 0; i < changes.size(); i++) {
+            assertThat(changes.get(i).path("seq").asLong()).isEqualTo(since + 1 + i);
+            assertThat(changes.get(i).path("customerId").asInt()).isEqualTo(customerId);
+        }
+        // Version after the update's flush, the one the customer's ETag now carries
+        assertThat(changes.get(2).path("version").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    void rolledBackMutationsLeaveNoEntries() throws Exception {
+        int customerId = createCustomer();
+        long since = changeLogRepository.lastSeq();
+        // Atomic batch with one invalid operation: rejected as a whole
+        JsonNode batch = call("POST", "/api/addresses/" + customerId + "/batch", "{\"operations\":[" +
+                "{\"action\":\"CREATE\",\"address\":{\"street\":\"1 Batch St\",\"city\":\"Girona\",\"state\":\"Catalonia\"," +
+                "\"pincode\":\"17001\",\"country\":\"Spain\"}},{\"action\":\"DELETE\",\"addressId\":-1}]}");
+        assertThat(batch.path("applied").asInt()).isZero();
+        assertThat(changeLogRepository.lastSeq()).isEqualTo(since);
+        assertThat(changeLogRepository.findSince(since, 10)).isEmpty();
+    }
+
+    @Test
+    void streamDeliversCommittedChanges() throws Exception {
+        long since = changeLogRepository.lastSeq();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/changes/stream?since=" + since))
+                .header("Accept", "text/event-stream").build();
+        HttpResponse<InputStream> stream = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream.body(), StandardCharsets.UTF_8))) {
+            CompletableFuture<List<ChangeEntry>> received = CompletableFuture.supplyAsync(() -> {
+                List<ChangeEntry> entries = new ArrayList<>();
+                try {
+                    while (entries.size() < 3) {
+                        String line = reader.readLine();
+                        if (line == null) {
+                            break;
+                        }
+                        if (line.startsWith("data:")) {
+                            entries.add(objectMapper.readValue(line.substring(5), ChangeEntry.class));
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return entries;
+            });
+
+            int first = createCustomer();
+            int second = createCustomer();
+            List<ChangeEntry> entries = received.get(10, TimeUnit.SECONDS);
+            assertThat(entries).extracting(ChangeEntry::getSeq).containsExactly(since + 1, since + 2, since + 3);
+            assertThat(entries).extracting(ChangeEntry::getCustomerId).containsExactly(first, first, second);
+            assertThat(entries.get(0).getType()).isEqualTo(ChangeType.CREATED);
+        }
+    }
+
+    @Test
+    void compactedSequencesAskForAReload() throws Exception {
+        createCustomer();
+        Thread.sleep(5);
+        long retained = changeLogRepository.lastSeq();
+        new ChangeLogCompactor(changeLogRepository, shardRouter, Duration.ZERO, 2).compact();
+        assertThat(changeLogRepository.compactedThrough()).isEqualTo(retained);
+
+        JsonNode feed = call("GET", "/api/changes?since=0", null);
+        assertThat(feed.path("errorCode").asText()).isEqualTo("CHANGES_COMPACTED");
+        assertThat(feed.path("resumeFrom").asLong()).isGreaterThanOrEqualTo(retained);
+        assertThat(call("GET", "/api/changes?since=" + retained, null).path("errorCode").asText()).isEqualTo("SUCCESS");
+    }
+}
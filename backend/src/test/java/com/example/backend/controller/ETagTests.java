@@ -0,0 +1,183 @@
+package com.example.backend.controller;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.service.AddressService;
+import com.example.backend.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Conditional GETs (If-None-Match, 304) and updates (If-Match, 412) against the entity and address list ETags
+@SpringBootTest
+@AutoConfigureMockMvc
+class ETagTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static Address address() {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Etag St")
+                .city("Girona")
+                .state("Catalonia")
+                .pincode("17001")
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer(int addresses) {
+        long n = UNIQUE.incrementAndGet();
+        List<Address> list = new ArrayList<>();
+        for (int i = 0; i < addresses; i++) {
+            list.add(address());
+        }
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Etag")
+                .lastName("Customer")
+                .email("etag" + n + "@example.com")
+                .phone(String.valueOf(1_600_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(list)
+                .build());
+    }
+
+    private String addressEtag(Integer addressId) throws Exception {
+        return mockMvc.perform(get("/api/addresses/getAddress/{id}", addressId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String listEtag(Integer customerId) throws Exception {
+        return mockMvc.perform(get("/api/addresses/{customerId}", customerId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private int updateAddress(Integer addressId, String ifMatch) throws Exception {
+        String body = "{\"street\":\"" + UNIQUE.incrementAndGet() + " Etag St\",\"city\":\"Girona\"," +
+                "\"state\":\"Catalonia\",\"pincode\":\"17001\",\"country\":\"Spain\"}";
+        return mockMvc.perform(put("/api/addresses/{id}", addressId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .header(HttpHeaders.IF_MATCH, ifMatch))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    void headersAreComparedWeaklyForGetsAndStronglyForUpdates() {
+        assertThat(ETags.noneMatchHits(null, "\"3\"")).isFalse();
+        assertThat(ETags.noneMatchHits("\"3\"", "\"3\"")).isTrue();
+        assertThat(ETags.noneMatchHits("W/\"3\"", "\"3\"")).isTrue();
+        assertThat(ETags.noneMatchHits("\"1\", W/\"3\"", "\"3\"")).isTrue();
+        assertThat(ETags.noneMatchHits("*", "\"3\"")).isTrue();
+        assertThat(ETags.noneMatchHits("\"2\"", "\"3\"")).isFalse();
+
+        assertThat(ETags.expectedVersion(null)).isNull();
+        assertThat(ETags.expectedVersion(" * ")).isNull();
+        assertThat(ETags.expectedVersion("\"3\"")).isEqualTo(3L);
+        assertThat(ETags.expectedVersion("W/\"3\"")).isEqualTo(-1L);
+        assertThat(ETags.expectedVersion("3")).isEqualTo(-1L);
+        assertThat(ETags.expectedVersion("\"three\"")).isEqualTo(-1L);
+    }
+
+    @Test
+    void conditionalGetOfAnAddressAnswers304() throws Exception {
+        Integer addressId = customer(1).getAddresses().get(0).getId();
+        String etag = addressEtag(addressId);
+
+        for (String ifNoneMatch : List.of(etag, "W/" + etag, "*", "\"-5\", " + etag)) {
+            mockMvc.perform(get("/api/addresses/getAddress/{id}", addressId).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag));
+        }
+        mockMvc.perform(get("/api/addresses/getAddress/{id}", addressId).header(HttpHeaders.IF_NONE_MATCH, "\"-5\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(addressId));
+    }
+
+    @Test
+    void updateWithAStaleOrWeakIfMatchIsRejectedWith412() throws Exception {
+        Integer addressId = customer(1).getAddresses().get(0).getId();
+        String etag = addressEtag(addressId);
+
+        assertThat(updateAddress(addressId, "W/" + etag)).isEqualTo(412);
+        assertThat(updateAddress(addressId, etag)).isEqualTo(200);
+        String updated = addressEtag(addressId);
+        assertThat(updated).isNotEqualTo(etag);
+        assertThat(updateAddress(addressId, etag)).isEqualTo(412);
+        // * matches whatever the current version is
+        assertThat(updateAddress(addressId, "*")).isEqualTo(200);
+        assertThat(addressEtag(addressId)).isNotEqualTo(updated);
+    }
+
+    @Test
+    void listEtagChangesWithEveryAddressChange() throws Exception {
+        Customer customer = customer(2);
+        Integer customerId = customer.getId();
+        String etag = listEtag(customerId);
+        mockMvc.perform(get("/api/addresses/{customerId}", customerId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertThat(listEtag(customerId)).isEqualTo(etag);
+
+        List<String> seen = new ArrayList<>(List.of(etag));
+        Address added = addressService.createAddress(customerId, address());
+        seen.add(listEtag(customerId));
+        addressService.updateAddress(added.getId(), address(), null);
+        seen.add(listEtag(customerId));
+        assertThat(seen).doesNotHaveDuplicates();
+        // Back to the same addresses at the same versions: the original tag is current again
+        addressService.deleteAddress(added.getId());
+        assertThat(listEtag(customerId)).isEqualTo(etag);
+        addressService.updateAddress(customer.getAddresses().get(0).getId(), address(), null);
+        mockMvc.perform(get("/api/addresses/{customerId}", customerId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    // Same count, version sum and highest id as before, but not the same list: a client's copy is stale
+    @Test
+    void listEtagTellsApartListsWithTheSameVersionSum() throws Exception {
+        Customer customer = customer(2);
+        Integer first = customer.getAddresses().get(0).getId();
+        Integer second = customer.getAddresses().get(1).getId();
+        jdbcTemplate.update("UPDATE addresses SET version = 1 WHERE id = ?", first);
+        jdbcTemplate.update("UPDATE addresses SET version = 0 WHERE id = ?", second);
+        String etag = listEtag(customer.getId());
+
+        jdbcTemplate.update("UPDATE addresses SET version = 0 WHERE id = ?", first);
+        jdbcTemplate.update("UPDATE addresses SET version = 1 WHERE id = ?", second);
+        mockMvc.perform(get("/api/addresses/{customerId}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertThat(listEtag(customer.getId())).isNotEqualTo(etag);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.backend.controller;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.service.CustomerService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// fields= selections through the controllers: only the selected properties, in response order, unknown fields
+// rejected, and the listing's sort applied to the projected rows as to the full ones
+@SpringBootTest
+@AutoConfigureMockMvc
+class FieldSelectionTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static Address address() {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Fields St")
+                .city("Manresa")
+                .state("Catalonia")
+                .pincode("08240")
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer() {
+        long n = UNIQUE.incrementAndGet();
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Fields")
+                .lastName("Customer" + n)
+                .email("fields" + n + "@example.com")
+                .phone(String.valueOf(1_900_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(address(), address())))
+                .build());
+    }
+
+    private JsonNode json(MockHttpServletRequestBuilder request) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(request).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private List<String> keys(JsonNode node) {
+        return new ArrayList<>(objectMapper.convertValue(node, new TypeReference<LinkedHashMap<String, Object>>() {
+        }).keySet());
+    }
+
+    @Test
+    void customerFieldsAreTheSelectedPropertiesInResponseOrder() throws Exception {
+        Customer customer = customer();
+
+        JsonNode sparse = json(get("/api/customers/{id}", customer.getId()).param("fields", " email,id,, email "));
+        assertThat(keys(sparse)).containsExactly("errorCode", "id", "email");
+        assertThat(sparse.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(sparse.path("email").asText()).isEqualTo(customer.getEmail());
+
+        JsonNode withAddresses = json(get("/api/customers/{id}", customer.getId())
+                .param("fields", "numAddresses,addresses"));
+        assertThat(withAddresses.path("numAddresses").asInt()).isEqualTo(2);
+        assertThat(withAddresses.path("addresses")).hasSize(2);
+        assertThat(keys(withAddresses.path("addresses").get(0))).containsExactly("id", "street", "street2", "city",
+                "state", "pincode", "country", "customerId");
+
+        List<Map<String, Object>> addresses = objectMapper.convertValue(
+                json(get("/api/addresses/{customerId}", customer.getId()).param("fields", "city,id")),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+        assertThat(addresses).extracting(row -> List.copyOf(row.keySet()))
+                .containsOnly(List.of("id", "city"));
+        assertThat(addresses).extracting(row -> row.get("id")).containsExactlyInAnyOrderElementsOf(
+                customer.getAddresses().stream().map(Address::getId).toList());
+
+        JsonNode address = json(get("/api/addresses/getAddress/{id}", customer.getAddresses().get(0).getId())
+                .param("fields", "customerId"));
+        assertThat(address.path("customerId").asInt()).isEqualTo(customer.getId());
+        assertThat(address.has("street")).isFalse();
+    }
+
+    @Test
+    void unknownFieldsAreRejected() throws Exception {
+        Customer customer = customer();
+        Integer addressId = customer.getAddresses().get(0).getId();
+
+        // Envelope responses report it, list responses answer 400
+        mockMvc.perform(get("/api/customers/{id}", customer.getId()).param("fields", "id,password"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_FIELDS"))
+                .andExpect(jsonPath("$.id").doesNotExist());
+        mockMvc.perform(get("/api/customers/{id}", customer.getId()).param("fields", " , "))
+                .andExpect(jsonPath("$.errorCode").value("INVALID_FIELDS"));
+        mockMvc.perform(get("/api/addresses/getAddress/{id}", addressId).param("fields", "city,customer"))
+                .andExpect(jsonPath("$.errorCode").value("INVALID_FIELDS"));
+        mockMvc.perform(get("/api/customers").param("fields", "id,password"))
+                .andExpect(status().isBadRequest());
+        // A page of customers carries no addresses
+        mockMvc.perform(get("/api/customers").param("fields", "id,addresses"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/addresses/{customerId}", customer.getId()).param("fields", "city,numAddresses"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listingSortAppliesToTheSelectedFields() throws Exception {
+        customer();
+        customer();
+
+        for (String sortBy : List.of("phone", "createdAt", "lastName")) {
+            JsonNode full = json(get("/api/customers").param("sortBy", sortBy).param("sortDir", "desc")
+                    .param("size", "15"));
+            JsonNode sparse = json(get("/api/customers").param("fields", "id,phone").param("sortBy", sortBy)
+                    .param("sortDir", "desc").param("size", "15"));
+
+            assertThat(sparse.path("totalElements").asLong()).isEqualTo(full.path("totalElements").asLong());
+            assertThat(sparse.path("content").findValuesAsText("id"))
+                    .isNotEmpty()
+                    .isEqualTo(full.path("content").findValuesAsText("id"));
+            assertThat(keys(sparse.path("content").get(0))).containsExactly("id", "phone");
+        }
+        // Only index-backed sorts, as on the full listing
+        mockMvc.perform(get("/api/customers").param("fields", "id").param("sortBy", "numAddresses"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.backend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every sort in CustomerSortRegistry must be read in index order from the embedded database, in both directions
+@SpringBootTest
+@AutoConfigureMockMvc
+class SortIndexExplainTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class)).toLowerCase();
+    }
+
+    // H2 names the primary and unique keys PRIMARY_KEY_n and EMAIL_INDEX_n rather than as declared
+    private static String expectedIndex(CustomerSortRegistry entry) {
+        return entry.index().equals("PRIMARY") ? "primary_key" : entry.index().toLowerCase();
+    }
+
+    @Test
+    void everyRegisteredSortIsServedInIndexOrder() {
+        for (CustomerSortRegistry entry : CustomerSortRegistry.values()) {
+            for (String direction : new String[]{"ASC", "DESC"}) {
+                String orderBy = entry.column() + " " + direction
+                        + (entry.unique() ? "" : ", id " + direction);
+                for (String page : new String[]{"FETCH FIRST 10 ROWS ONLY", "OFFSET 20 ROWS FETCH FIRST 10 ROWS ONLY"}) {
+                    String plan = explain("SELECT * FROM customers ORDER BY " + orderBy + " " + page);
+                    assertThat(plan).as("%s %s", entry.property(), direction)
+                            .contains(expectedIndex(entry))
+                            .contains("index sorted");
+                }
+            }
+        }
+    }
+
+    @Test
+    void exactAddressFacetMatchUsesNormalizedKeyIndex() {
+        for (String facet : new String[]{"city", "state", "pincode"}) {
+            String plan = explain("SELECT DISTINCT customer_id FROM addresses WHERE " + facet + "_key = 'girona'");
+            assertThat(plan).contains("idx_addresses_" + facet + "_key");
+        }
+    }
+
+    @Test
+    void unindexedSortIsRejected() throws Exception {
+        mockMvc.perform(get("/api/customers").param("sortBy", "numAddresses"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/customers").param("sortBy", "lastName").param("sortDir", "desc"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.backend.format;
+
+import com.example.backend.dto.CompactPage;
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Payload size and serialization time of a 100-row customer page in each response format, over a real server so
+// content negotiation and gzip compression are what a client sees
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ResponseFormatTests {
+
+    private static final int ROWS = 100;
+    private static final String PAGE = "/api/customers?size=" + ROWS + "&sortBy=id";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() {
+        if (!customerRepository.findExistingEmails(List.of("format0@example.com")).isEmpty()) {
+            return;
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Customer customer = Customer.builder()
+                    .firstName("Format" + i)
+                    .lastName("Customer")
+                    .email("format" + i + "@example.com")
+                    .phone(String.valueOf(6_000_000_000L + i))
+                    .createdAt(LocalDateTime.now())
+                    .addresses(new ArrayList<>())
+                    .build();
+            Address address = Address.builder()
+                    .street(i + " Format St")
+                    .city("Girona")
+                    .state("Catalonia")
+                    .pincode("17001")
+                    .country("Spain")
+                    .customer(customer)
+                    .build();
+            address.computeHash();
+            customer.getAddresses().add(address);
+            customer.setNumAddresses(1);
+            customers.add(customer);
+        }
+        customerRepository.saveAll(customers);
+    }
+
+    private HttpResponse<byte[]> fetch(String path, String accept, boolean gzip) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", accept);
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response;
+    }
+
+    @Test
+    void payloadSizeByFormat() throws Exception {
+        Map<String, String[]> formats = new LinkedHashMap<>();
+        formats.put("json (Page)", new String[]{PAGE, "application/json"});
+        formats.put("json compact", new String[]{PAGE + "&envelope=compact", "application/json"});
+        formats.put("cbor", new String[]{PAGE, "application/cbor"});
+        formats.put("smile", new String[]{PAGE, "application/x-jackson-smile"});
+        formats.put("protobuf", new String[]{PAGE, "application/x-protobuf"});
+
+        Map<String, Integer> plain = new LinkedHashMap<>();
+        Map<String, Integer> gzipped = new LinkedHashMap<>();
+        for (Map.Entry<String, String[]> format : formats.entrySet()) {
+            HttpResponse<byte[]> response = fetch(format.getValue()[0], format.getValue()[1], false);
+            HttpResponse<byte[]> compressed = fetch(format.getValue()[0], format.getValue()[1], true);
+            assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                    type -> assertThat(type).startsWith(format.getValue()[1]));
+            assertThat(compressed.headers().firstValue("Content-Encoding")).hasValue("gzip");
+            plain.put(format.getKey(), response.body().length);
+            gzipped.put(format.getKey(), compressed.body().length);
+        }
+        System.out.printf("%d-row customer page, bytes:%n", ROWS);
+        plain.forEach((name, size) -> System.out.printf("  %-14s %7d  gzip %6d%n", name, size, gzipped.get(name)));
+
+        assertThat(plain.get("json compact")).isLessThan(plain.get("json (Page)"));
+        assertThat(plain.get("cbor")).isLessThan(plain.get("json compact"));
+        assertThat(plain.get("smile")).isLessThan(plain.get("json compact"));
+        assertThat(plain.get("protobuf")).isLessThan(plain.get("cbor")).isLessThan(plain.get("smile"));
+        gzipped.forEach((name, size) -> assertThat(size).as(name).isLessThan(plain.get(name) / 2));
+    }
+
+    @Test
+    void binaryFormatsUseTheCompactEnvelope() throws Exception {
+        JsonNode json = objectMapper.readTree(fetch(PAGE, "application/json", false).body());
+        assertThat(json.path("content").get(0).path("errorCode").asText()).isEqualTo("SUCCESS");
+
+        JsonNode cbor = cborConverter.getObjectMapper().readTree(fetch(PAGE, "application/cbor", false).body());
+        assertThat(cbor.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(cbor.path("items")).hasSize(ROWS);
+        assertThat(cbor.path("items").get(0).has("errorCode")).isFalse();
+        // Dates as ISO strings like the JSON responses, not Jackson's default timestamp arrays
+        assertThat(cbor.path("items").findValues("createdAt")).anyMatch(JsonNode::isTextual).noneMatch(JsonNode::isArray);
+        assertThat(cbor.path("totalElements").asLong()).isEqualTo(json.path("totalElements").asLong());
+
+        JsonNode smile = smileConverter.getObjectMapper().readTree(fetch(PAGE, "application/x-jackson-smile", false).body());
+        assertThat(smile.path("items").get(5).path("email").asText())
+                .isEqualTo(json.path("content").get(5).path("email").asText());
+
+        // ListPage: field 3 is a repeated Customer, 7 the total element count
+        CodedInputStream protobuf = CodedInputStream.newInstance(fetch(PAGE, "application/x-protobuf", false).body());
+        int customers = 0;
+        long totalElements = 0;
+        for (int tag = protobuf.readTag(); tag != 0; tag = protobuf.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 3 -> {
+                    protobuf.readBytes();
+                    customers++;
+                }
+                case 7 -> totalElements = protobuf.readInt64();
+                default -> protobuf.skipField(tag);
+            }
+        }
+        assertThat(customers).isEqualTo(ROWS);
+        assertThat(totalElements).isEqualTo(json.path("totalElements").asLong());
+
+        // JSON stays the default for clients that accept anything
+        assertThat(fetch(PAGE, "*/*", false).headers().firstValue("Content-Type"))
+                .hasValueSatisfying(type -> assertThat(type).startsWith("application/json"));
+    }
+
+    @Test
+    void serializationTimeByFormat() throws Exception {
+        List<CustomerDetailsResponse> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            CustomerDetailsResponse row = new CustomerDetailsResponse();
+            row.setId(i + 1);
+            row.setFirstName("Format" + i);
+            row.setLastName("Customer");
+            row.setEmail("format" + i + "@example.com");
+            row.setPhone(String.valueOf(6_000_000_000L + i));
+            row.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0).plusMinutes(i));
+            row.setNumAddresses(1);
+            row.setErrorCode("SUCCESS");
+            rows.add(row);
+        }
+        PageImpl<CustomerDetailsResponse> page = new PageImpl<>(rows, PageRequest.of(0, ROWS), 10_000);
+        CompactPage<CustomerDetailsResponse> compact = CompactPage.of(page);
+        ProtobufListConverter protobuf = new ProtobufListConverter();
+
+        Map<String, Encoder> encoders = new LinkedHashMap<>();
+        encoders.put("json (Page)", () -> objectMapper.writeValueAsBytes(page));
+        encoders.put("json compact", () -> objectMapper.writeValueAsBytes(compact));
+        encoders.put("cbor", () -> cborConverter.getObjectMapper().writeValueAsBytes(compact));
+        encoders.put("smile", () -> smileConverter.getObjectMapper().writeValueAsBytes(compact));
+        encoders.put("protobuf", () -> {
+            MockHttpOutputMessage message = new MockHttpOutputMessage();
+            protobuf.write(compact, ProtobufListConverter.PROTOBUF, message);
+            return message.getBodyAsBytes();
+        });
+
+        // Timings are printed for comparison, not asserted: they depend on the machine running the build
+        System.out.printf("%d-row customer page, serialization (plain / with gzip):%n", ROWS);
+        for (Map.Entry<String, Encoder> encoder : encoders.entrySet()) {
+            for (int i = 0; i < 2_000; i++) {
+                gzip(encoder.getValue().encode());
+            }
+            int iterations = 5_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                encoder.getValue().encode();
+            }
+            long plain = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                gzip(encoder.getValue().encode());
+            }
+            long gzipped = (System.nanoTime() - start) / iterations;
+            System.out.printf("  %-14s %6.1f us  %6.1f us%n", encoder.getKey(), plain / 1000.0, gzipped / 1000.0);
+            assertThat(encoder.getValue().encode()).isNotEmpty();
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        byte[] encode() throws Exception;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.backend.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Several allocators on one database, as several application instances would be: every id is handed out once
+@SpringBootTest
+class IdBlockAllocatorTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+    private static final int BLOCK_SIZE = 5;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<IdBlockAllocator> allocators = new ArrayList<>();
+
+    private IdBlockAllocator allocator() {
+        IdBlockAllocator allocator = new IdBlockAllocator(dataSourceProperties, BLOCK_SIZE);
+        allocators.add(allocator);
+        return allocator;
+    }
+
+    @AfterEach
+    void closeAllocators() {
+        allocators.forEach(IdBlockAllocator::close);
+    }
+
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT next_id FROM id_allocation WHERE name = ?", Long.class, table);
+    }
+
+    @Test
+    void concurrentAllocatorsHandOutDisjointIds() throws Exception {
+        List<IdBlockAllocator> instances = List.of(allocator(), allocator());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int rounds = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> handedOut = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                IdBlockAllocator allocator = instances.get(t % 2);
+                int thread = t;
+                handedOut.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        // Single ids, batches within a block, and batches larger than a block
+                        int size = (thread + i) % 4 == 0 ? BLOCK_SIZE + 2 : (thread + i) % 3 + 1;
+                        long first = size == 1 ? allocator.next(IdBlockAllocator.ADDRESSES)
+                                : allocator.allocate(IdBlockAllocator.ADDRESSES, size);
+                        for (long id = first; id < first + size; id++) {
+                            assertThat(ids.add(id)).as("id %d handed out twice", id).isTrue();
+                        }
+                        count += size;
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : handedOut) {
+                total += future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(ids).hasSize(total);
+            // Every id came off id_allocation
+            assertThat(nextId(IdBlockAllocator.ADDRESSES))
+                    .isGreaterThan(ids.stream().mapToLong(Long::longValue).max().orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void requestsOfABlockOrMoreGetARangeOfTheirOwn() {
+        IdBlockAllocator allocator = allocator();
+        IdBlockAllocator other = allocator();
+
+        long first = allocator.next(IdBlockAllocator.CUSTOMERS);
+        long range = allocator.allocate(IdBlockAllocator.CUSTOMERS, BLOCK_SIZE);
+        long otherFirst = other.next(IdBlockAllocator.CUSTOMERS);
+        long large = allocator.allocate(IdBlockAllocator.CUSTOMERS, BLOCK_SIZE * 3);
+
+        // The ranges were reserved past the current block, which keeps handing out its remainder
+        assertThat(range).isGreaterThanOrEqualTo(first + BLOCK_SIZE);
+        assertThat(large).isGreaterThanOrEqualTo(range + BLOCK_SIZE);
+        assertThat(allocator.next(IdBlockAllocator.CUSTOMERS)).isEqualTo(first + 1);
+        List<Long> handedOut = new ArrayList<>(List.of(otherFirst));
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            handedOut.add(first + i);
+            handedOut.add(range + i);
+        }
+        for (int i = 0; i < BLOCK_SIZE * 3; i++) {
+            handedOut.add(large + i);
+        }
+        assertThat(handedOut).doesNotHaveDuplicates();
+        assertThat(nextId(IdBlockAllocator.CUSTOMERS)).isGreaterThanOrEqualTo(large + BLOCK_SIZE * 3);
+    }
+
+    @Test
+    void reservationsStepOverRowsInsertedBehindTheAllocator() {
+        long n = UNIQUE.incrementAndGet();
+        long manual = nextId(IdBlockAllocator.CUSTOMERS) + 50;
+        jdbcTemplate.update("INSERT INTO customers (id, first_name, last_name, phone, email) VALUES (?, 'Manual', " +
+                "'Insert', ?, ?)", manual, String.valueOf(1_950_000_000L + n), "manual" + n + "@example.com");
+
+        IdBlockAllocator allocator = allocator();
+        assertThat(allocator.next(IdBlockAllocator.CUSTOMERS)).isEqualTo(manual + 1);
+        assertThat(allocator.allocate(IdBlockAllocator.CUSTOMERS, BLOCK_SIZE - 1)).isEqualTo(manual + 2);
+        assertThat(nextId(IdBlockAllocator.CUSTOMERS)).isEqualTo(manual + 1 + BLOCK_SIZE);
+    }
+
+    @Test
+    void unknownTablesAreRejected() {
+        assertThatThrownBy(() -> allocator().next("orders"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("orders");
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.metrics;
+
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Fails a test when the work it wraps executes more SQL statements than allowed, e.g.
+// SqlBudget.atMost(2, () -> mockMvc.perform(get("/api/customers?size=50")))
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static <T> T atMost(long statements, ThrowingSupplier<T> work) throws Throwable {
+        T result;
+        long executed;
+        try (SqlStatistics statistics = SqlStatistics.start()) {
+            result = work.get();
+            executed = statistics.statements();
+        }
+        if (executed > statements) {
+            fail("Expected at most " + statements + " SQL statements but " + executed + " were executed");
+        }
+        return result;
+    }
+}
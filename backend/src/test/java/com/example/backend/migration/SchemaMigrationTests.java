@@ -0,0 +1,86 @@
+package com.example.backend.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaMigrationTests {
+
+    private static final Pattern TABLE = Pattern.compile("CREATE TABLE `?(\\w+)`? \\((.*?)\\n\\)", Pattern.DOTALL);
+    // A key or constraint definition, else a column name
+    private static final Pattern DEFINITION = Pattern.compile(
+            "^\\s+(?:((?:(?:PRIMARY |UNIQUE )?KEY|CONSTRAINT) .*?)|`?(\\w+)`? \\w+.*?),?$", Pattern.MULTILINE);
+
+    private static DriverManagerDataSource database(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name +
+                ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    // Column names and key definitions per table, backticks removed
+    private static Map<String, List<String>> tables(String script) {
+        Map<String, List<String>> tables = new LinkedHashMap<>();
+        Matcher table = TABLE.matcher(script);
+        while (table.find()) {
+            List<String> definitions = new ArrayList<>();
+            Matcher definition = DEFINITION.matcher(table.group(2));
+            while (definition.find()) {
+                String text = definition.group(1) != null ? definition.group(1) : definition.group(2);
+                definitions.add(text.replace("`", ""));
+            }
+            tables.put(table.group(1), definitions);
+        }
+        return tables;
+    }
+
+    @Test
+    void baselineMigrationIsTheCreateSchemaScript() throws IOException {
+        String createSchema = Files.readString(Path.of("../db/create_schema.sql"), StandardCharsets.UTF_8);
+        String baseline = new ClassPathResource("db/migration/V1__baseline_schema.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        assertThat(tables(baseline)).isNotEmpty().containsExactlyInAnyOrderEntriesOf(tables(createSchema));
+    }
+
+    @Test
+    void databaseFromTheBaselineScriptMigrates() throws Exception {
+        DriverManagerDataSource dataSource = database("baselined");
+        // A database set up before the migrations: tables from the script, no Flyway history
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V1__baseline_schema.sql"));
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO customers (id, first_name, last_name, phone, email) VALUES " +
+                "(2, 'Leo', 'Messi', '9876543210', 'lm10@example.com'), " +
+                "(7, 'Pedri', 'Potter', '9876543212', 'pedri.potter@example.com')");
+        jdbc.update("INSERT INTO addresses (customer_id, street, street2, city, state, pincode, country, address_hash) " +
+                "VALUES (2, '789 Market St', NULL, 'San Francisco', 'CA', '94103', 'USA', 'legacy-1'), " +
+                "(2, '99 Greeky Row', NULL, 'Barcelona', 'TX', '12345', 'USA', 'legacy-2')");
+
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+        // Address counts are backfilled, so the listings are right before the first reconcile
+        assertThat(jdbc.queryForList("SELECT num_addresses FROM customers ORDER BY id", Integer.class))
+                .containsExactly(2, 0);
+        assertThat(jdbc.queryForObject("SELECT version FROM customers WHERE id = 2", Long.class)).isZero();
+        assertThat(jdbc.queryForList("SELECT version FROM addresses", Long.class)).containsOnly(0L);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.indexes " +
+                "WHERE table_name = 'customers' AND index_name = 'idx_customers_created_at_id'", Integer.class))
+                .isPositive();
+    }
+}
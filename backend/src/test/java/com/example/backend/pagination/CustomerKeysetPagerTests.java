@@ -0,0 +1,125 @@
+package com.example.backend.pagination;
+
+import com.example.backend.dto.CursorPage;
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.example.backend.id.IdBlockAllocator;
+import com.example.backend.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Each test lists only its own customers, inserted directly so createdAt can be NULL and values can repeat
+@SpringBootTest
+class CustomerKeysetPagerTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+    private static final Map<CustomerSortField, String> COLUMNS = Map.of(
+            CustomerSortField.ID, "id",
+            CustomerSortField.FIRST_NAME, "first_name",
+            CustomerSortField.LAST_NAME, "last_name",
+            CustomerSortField.EMAIL, "email",
+            CustomerSortField.PHONE, "phone",
+            CustomerSortField.CREATED_AT, "created_at",
+            CustomerSortField.NUM_ADDRESSES, "num_addresses");
+    private static final LocalDateTime EARLY = LocalDateTime.of(2024, 3, 1, 9, 30);
+    private static final LocalDateTime LATE = LocalDateTime.of(2024, 3, 2, 18, 0);
+
+    @Autowired
+    private CustomerKeysetPager customerKeysetPager;
+
+    @Autowired
+    private IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String lastName;
+    private Specification<Customer> ours;
+
+    @BeforeEach
+    void insertCustomers() {
+        lastName = "Keyset" + UNIQUE.incrementAndGet();
+        ours = (root, query, cb) -> cb.equal(root.get("lastName"), lastName);
+
+        // Ties on every sort but id, email and phone; createdAt NULL, equal, and distinct
+        String[] firstNames = {"Bob", "Ann", "Bob", "Cid", "Ann", "Bob", "Ann", "Cid", "Bob", "Ann", "Dee", "Ann"};
+        LocalDateTime[] createdAt = {null, EARLY, LATE, null, EARLY, EARLY, null, LATE, LATE.plusMinutes(1), null,
+                EARLY.minusDays(1), LATE};
+        int[] numAddresses = {2, 0, 1, 1, 2, 0, 1, 2, 1, 0, 2, 1};
+        long first = idBlockAllocator.allocate(IdBlockAllocator.CUSTOMERS, firstNames.length);
+        long n = UNIQUE.incrementAndGet() * 100;
+        for (int i = 0; i < firstNames.length; i++) {
+            // Emails and phones permuted, so their sorts don't reduce to the id sort
+            jdbcTemplate.update("INSERT INTO customers (id, first_name, last_name, phone, email, created_at, " +
+                            "num_addresses) VALUES (?, ?, ?, ?, ?, ?, ?)", first + i, firstNames[i], lastName,
+                    String.valueOf(4_000_000_000L + n + i * 7 % 12), "keyset" + n + "." + i * 5 % 12 + "@example.com",
+                    createdAt[i] == null ? null : Timestamp.valueOf(createdAt[i]), numAddresses[i]);
+        }
+    }
+
+    // The order a plain ORDER BY gives, the reference the cursor pages have to reproduce
+    private List<Integer> ordered(CustomerSortField field, String direction) {
+        String column = COLUMNS.get(field);
+        String orderBy = field == CustomerSortField.ID ? "id " + direction : column + " " + direction + ", id " + direction;
+        return jdbcTemplate.queryForList("SELECT id FROM customers WHERE last_name = ? ORDER BY " + orderBy,
+                Integer.class, lastName);
+    }
+
+    // Follow the cursors to the end
+    private List<Integer> walk(CustomerSortField field, String direction, int size) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<CustomerDetailsResponse> page = customerKeysetPager.fetch(ours, cursor, size,
+                    field.getProperty(), direction);
+            assertThat(++pages).isLessThanOrEqualTo(20);
+            assertThat(page.getContent()).hasSizeLessThanOrEqualTo(size);
+            page.getContent().forEach(customer -> ids.add(customer.getId()));
+            cursor = page.isHasNext() ? page.getNextCursor() : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    void everySortVisitsEachRowOnceInBothDirections() {
+        for (CustomerSortField field : CustomerSortField.values()) {
+            for (String direction : List.of("asc", "desc")) {
+                List<Integer> expected = ordered(field, direction);
+                assertThat(expected).hasSize(12);
+                for (int size : new int[] {1, 2, 3, 5, 12, 13}) {
+                    assertThat(walk(field, direction, size))
+                            .as("%s %s, pages of %d", field, direction, size)
+                            .doesNotHaveDuplicates()
+                            .containsExactlyElementsOf(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void nullCreatedAtComesFirstAscendingAndLastDescending() {
+        List<Integer> nulls = jdbcTemplate.queryForList("SELECT id FROM customers WHERE last_name = ? " +
+                "AND created_at IS NULL ORDER BY id", Integer.class, lastName);
+        assertThat(nulls).hasSize(4);
+
+        List<Integer> ascending = walk(CustomerSortField.CREATED_AT, "asc", 3);
+        assertThat(ascending.subList(0, 4)).containsExactlyElementsOf(nulls);
+        List<Integer> descending = walk(CustomerSortField.CREATED_AT, "desc", 3);
+        Collections.reverse(nulls);
+        assertThat(descending.subList(8, 12)).containsExactlyElementsOf(nulls);
+    }
+}
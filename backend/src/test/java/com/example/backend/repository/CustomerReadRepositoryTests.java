@@ -0,0 +1,133 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.mapper.AddressMapper;
+import com.example.backend.mapper.CustomerMapper;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.service.AddressService;
+import com.example.backend.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The scalar rows of CustomerReadRepository mapped to responses equal the responses mapped from the entities
+@SpringBootTest
+class CustomerReadRepositoryTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerReadRepository customerReadRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CustomerMapper customerMapper;
+
+    @Autowired
+    private AddressMapper addressMapper;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static Address address(String street2) {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Parity St")
+                .street2(street2)
+                .city("Tarragona")
+                .state("Catalonia")
+                .pincode("43001")
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer(Address... addresses) {
+        long n = UNIQUE.incrementAndGet();
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Parity")
+                .lastName("Customer" + n)
+                .email("parity" + n + "@example.com")
+                .phone(String.valueOf(1_800_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(addresses)))
+                .build());
+    }
+
+    // The entity mapping, in a transaction of its own for the lazy addresses
+    private CustomerResponse fromEntity(Integer id) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Customer customer = customerRepository.findById(id).orElseThrow();
+            CustomerResponse response = customerMapper.toResponse(customer);
+            // The listings' count is the denormalized column, it must agree with the mapped addresses
+            assertThat(customerMapper.toDetailsResponse(customer).getNumAddresses())
+                    .isEqualTo(response.getNumAddresses());
+            return response;
+        });
+    }
+
+    private List<AddressResponse> addressesFromEntities(Integer customerId) {
+        return new TransactionTemplate(transactionManager).execute(status -> addressRepository.findByCustomerId(customerId)
+                .stream().map(addressMapper::toResponse).collect(Collectors.toList()));
+    }
+
+    @Test
+    void customerRowsMapLikeTheEntity() {
+        Customer customer = customer(address(null), address("Floor 2"));
+        Address extra = addressService.createAddress(customer.getId(), address(null));
+        addressService.updateAddress(extra.getId(), address("Door 1"), null);
+        Customer none = customer();
+
+        for (Integer id : List.of(customer.getId(), none.getId())) {
+            CustomerResponse fromRows = customerMapper.toResponse(customerReadRepository.findCustomerRows(id));
+            assertThat(fromRows).usingRecursiveComparison().ignoringCollectionOrder().isEqualTo(fromEntity(id));
+        }
+        CustomerResponse fromRows = customerMapper.toResponse(customerReadRepository.findCustomerRows(customer.getId()));
+        assertThat(fromRows.getNumAddresses()).isEqualTo(3);
+        // Two address changes bumped the customer's version, the update the address's
+        assertThat(fromRows.getVersion()).isEqualTo(2L);
+        assertThat(fromRows.getAddresses()).extracting(AddressResponse::getVersion).containsExactlyInAnyOrder(0L, 0L, 1L);
+        assertThat(customerMapper.toResponse(customerReadRepository.findCustomerRows(-1))).isNull();
+    }
+
+    @Test
+    void addressRowsMapLikeTheEntities() {
+        Customer customer = customer(address(null), address("Floor 2"));
+        addressService.updateAddress(customer.getAddresses().get(0).getId(), address(null), null);
+        List<AddressResponse> fromEntities = addressesFromEntities(customer.getId());
+
+        List<AddressResponse> fromRows = customerReadRepository.findAddressRows(customer.getId()).stream()
+                .map(row -> addressMapper.toResponse(row, 0))
+                .collect(Collectors.toList());
+        assertThat(fromRows).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(fromEntities);
+
+        for (AddressResponse expected : fromEntities) {
+            assertThat(customerReadRepository.findAddressRow(expected.getId())).singleElement()
+                    .satisfies(row -> assertThat(addressMapper.toResponse(row, 0))
+                            .usingRecursiveComparison().isEqualTo(expected));
+        }
+        assertThat(customerReadRepository.findAddressRow(-1)).isEmpty();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.backend.routing;
+
+import com.example.backend.cache.LookupCache;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.mapper.CustomerMapper;
+import com.example.backend.repository.CustomerReadRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Two more in-memory databases stand in for the replicas. Nothing replicates to them: each holds a marker customer
+// the primary doesn't have, so a read's answer tells which database served it, and the tests set their heartbeats.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.cache.enabled=false",
+        "app.datasource.replicas.urls=" + ReadReplicaRoutingTests.REPLICA_1 + "," + ReadReplicaRoutingTests.REPLICA_2,
+        "app.datasource.routing.max-lag=1m",
+        "app.datasource.routing.lag-check-interval=1h"})
+class ReadReplicaRoutingTests {
+
+    static final String REPLICA_1 = "jdbc:h2:mem:replica1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2 = "jdbc:h2:mem:replica2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1";
+
+    private static final String FRONTEND = "http://localhost:5173";
+    private static final int MARKER_ID = 900_000;
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReplicationLagMonitor replicationLagMonitor;
+
+    @Autowired
+    private CustomerReadRepository customerReadRepository;
+
+    @Autowired
+    private CustomerMapper customerMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void createReplicas() {
+        migrate(REPLICA_1, "Replica1");
+        migrate(REPLICA_2, "Replica2");
+    }
+
+    private static void migrate(String url, String marker) {
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+        new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")).update(
+                "INSERT INTO customers (id, first_name, last_name, phone, email) VALUES (?, ?, 'Marker', ?, ?)",
+                MARKER_ID, marker, marker, marker.toLowerCase() + "@example.com");
+    }
+
+    private static void heartbeat(String url, LocalDateTime beat) {
+        new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""))
+                .update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", Timestamp.valueOf(beat));
+    }
+
+    @BeforeEach
+    void bothReplicasCaughtUp() {
+        heartbeat(REPLICA_1, LocalDateTime.now());
+        heartbeat(REPLICA_2, LocalDateTime.now());
+        replicationLagMonitor.check();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String cookie) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Marker first name of the replica that served the read, or the error code when the primary did
+    private String readMarker(String cookie) throws Exception {
+        JsonNode customer = objectMapper.readTree(send("GET", "/api/customers/" + MARKER_ID, null, cookie).body());
+        return "SUCCESS".equals(customer.path("errorCode").asText())
+                ? customer.path("firstName").asText()
+                : customer.path("errorCode").asText();
+    }
+
+    @Test
+    void readsAlternateBetweenReplicas() throws Exception {
+        Set<String> servedBy = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            servedBy.add(readMarker(null));
+        }
+        assertThat(servedBy).containsExactlyInAnyOrder("Replica1", "Replica2");
+    }
+
+    @Test
+    void aClientThatWroteReadsThePrimary() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        HttpResponse<String> created = send("POST", "/api/customers", String.format("{\"firstName\":\"Routed\"," +
+                "\"lastName\":\"Customer\",\"email\":\"routed%d@example.com\",\"phone\":\"%d\",\"addresses\":[{\"street\":" +
+                "\"%d Routed St\",\"city\":\"Girona\",\"state\":\"Catalonia\",\"pincode\":\"17001\",\"country\":\"Spain\"}]}",
+                n, 7_000_000_000L + n, n), null);
+        assertThat(objectMapper.readTree(created.body()).path("errorCode").asText()).isEqualTo("SUCCESS");
+        String cookie = created.headers().firstValue("Set-Cookie").orElseThrow().split(";", 2)[0];
+        assertThat(cookie).startsWith(ReadYourWritesFilter.COOKIE + "=");
+
+        // The new customer is only on the primary, and so is everything this client reads in the window
+        int id = objectMapper.readTree(created.body()).path("id").asInt();
+        assertThat(objectMapper.readTree(send("GET", "/api/customers/" + id, null, cookie).body())
+                .path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(readMarker(cookie)).isEqualTo("CUSTOMER_NOT_FOUND");
+        assertThat(readMarker(null)).startsWith("Replica");
+    }
+
+    // A miss can follow the eviction of a change the replicas haven't applied yet, so it is loaded from the primary
+    @Test
+    void cacheMissesLoadFromThePrimary() {
+        LookupCache cache = new LookupCache(true, Duration.ofMinutes(10), 100, 100);
+        Function<Integer, CustomerResponse> loader = id -> Optional.ofNullable(
+                        customerMapper.toResponse(customerReadRepository.findCustomerRows(id)))
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+
+        assertThat(loader.apply(MARKER_ID).getFirstName()).startsWith("Replica");
+        assertThatThrownBy(() -> cache.customer(MARKER_ID, loader)).hasMessage("Customer not found");
+        // Only the load was pinned
+        assertThat(RoutingContext.isPinnedToPrimary()).isFalse();
+        assertThat(loader.apply(MARKER_ID).getFirstName()).startsWith("Replica");
+    }
+
+    // The frontend's requests: cross-origin, with the cookie sent back only because the CORS responses allow credentials
+    @Test
+    void theFrontendSendsItsCookieBack() throws Exception {
+        HttpResponse<String> preflight = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/customers"))
+                .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                .header("Origin", FRONTEND)
+                .header("Access-Control-Request-Method", "POST")
+                .header("Access-Control-Request-Headers", "content-type")
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(preflight.headers().firstValue("Access-Control-Allow-Origin")).hasValue(FRONTEND);
+        assertThat(preflight.headers().firstValue("Access-Control-Allow-Credentials")).hasValue("true");
+        assertThat(preflight.headers().firstValue("Set-Cookie")).isEmpty();
+
+        long n = UNIQUE.incrementAndGet();
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/customers"))
+                .POST(HttpRequest.BodyPublishers.ofString(String.format("{\"firstName\":\"Frontend\"," +
+                        "\"lastName\":\"Customer\",\"email\":\"frontend%d@example.com\",\"phone\":\"%d\"," +
+                        "\"addresses\":[{\"street\":\"%d Frontend St\",\"city\":\"Girona\",\"state\":\"Catalonia\"," +
+                        "\"pincode\":\"17001\",\"country\":\"Spain\"}]}", n, 7_100_000_000L + n, n)))
+                .header("Content-Type", "application/json")
+                .header("Origin", FRONTEND)
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(created.headers().firstValue("Access-Control-Allow-Credentials")).hasValue("true");
+        String cookie = created.headers().firstValue("Set-Cookie").orElseThrow().split(";", 2)[0];
+
+        HttpResponse<String> read = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/customers/" + MARKER_ID))
+                .header("Origin", FRONTEND)
+                .header("Cookie", cookie)
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(read.headers().firstValue("Access-Control-Allow-Credentials")).hasValue("true");
+        assertThat(objectMapper.readTree(read.body()).path("errorCode").asText()).isEqualTo("CUSTOMER_NOT_FOUND");
+    }
+
+    @Test
+    void laggingReplicasLeaveTheRotation() throws Exception {
+        heartbeat(REPLICA_1, LocalDateTime.now().minusHours(1));
+        replicationLagMonitor.check();
+        for (int i = 0; i < 4; i++) {
+            assertThat(readMarker(null)).isEqualTo("Replica2");
+        }
+
+        heartbeat(REPLICA_2, LocalDateTime.now().minusHours(1));
+        replicationLagMonitor.check();
+        assertThat(readMarker(null)).isEqualTo("CUSTOMER_NOT_FOUND");
+    }
+
+    @Test
+    void leastActivePrefersTheIdleReplica() throws Exception {
+        try (HikariDataSource first = new HikariDataSource(); HikariDataSource second = new HikariDataSource()) {
+            first.setJdbcUrl(REPLICA_1);
+            second.setJdbcUrl(REPLICA_2);
+            first.setUsername("sa");
+            second.setUsername("sa");
+            ReplicaPool.Replica busy = new ReplicaPool.Replica("replica-1", first);
+            ReplicaPool.Replica idle = new ReplicaPool.Replica("replica-2", second);
+            ReplicaPool pool = new ReplicaPool(first, List.of(busy, idle), ReplicaPool.Policy.LEAST_ACTIVE);
+            pool.update(busy, Duration.ZERO, Duration.ofSeconds(1));
+            pool.update(idle, Duration.ZERO, Duration.ofSeconds(1));
+
+            try (Connection held = first.getConnection()) {
+                assertThat(pool.candidates()).containsExactly(idle, busy);
+            }
+            assertThatThrownBy(() -> pool.getConnection("sa", "")).isInstanceOf(SQLFeatureNotSupportedException.class);
+        }
+    }
+}
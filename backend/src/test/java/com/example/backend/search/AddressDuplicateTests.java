@@ -0,0 +1,112 @@
+package com.example.backend.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AddressDuplicateTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AddressDuplicateIndex addressDuplicateIndex;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void waitForIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !addressDuplicateIndex.isAvailable(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(addressDuplicateIndex.isAvailable()).isTrue();
+    }
+
+    private JsonNode call(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static String address(String street) {
+        return String.format("{\"street\":\"%s\",\"city\":\"Tarragona\",\"state\":\"Catalonia\",\"pincode\":\"43001\"," +
+                "\"country\":\"Spain\"}", street);
+    }
+
+    // Two customers with the same address, spelt differently; returns the two address ids
+    private int[] createNearDuplicates(long n) throws Exception {
+        int[] addressIds = new int[2];
+        String[] streets = {n + " Greeky Row", n + " Greeky row fr"};
+        for (int i = 0; i < 2; i++) {
+            JsonNode customer = call("POST", "/api/customers", String.format("{\"firstName\":\"Near\",\"lastName\":\"Duplicate\"," +
+                    "\"email\":\"near%d.%d@example.com\",\"phone\":\"%d\",\"addresses\":[%s]}",
+                    n, i, 6_000_000_000L + 2 * n + i, address(streets[i])));
+            assertThat(customer.path("errorCode").asText()).isEqualTo("SUCCESS");
+            addressIds[i] = customer.path("addresses").get(0).path("id").asInt();
+        }
+        return addressIds;
+    }
+
+    @Test
+    void findsRespelledAddressesButNotOtherStreets() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        int[] addressIds = createNearDuplicates(n);
+
+        JsonNode duplicates = call("GET", "/api/addresses/" + addressIds[0] + "/duplicates", null);
+        assertThat(duplicates.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(duplicates.path("duplicates").get(0).path("addressId").asInt()).isEqualTo(addressIds[1]);
+        assertThat(duplicates.path("duplicates").get(0).path("similarity").asDouble()).isGreaterThanOrEqualTo(0.7);
+
+        // An address that isn't saved yet
+        JsonNode unsaved = call("POST", "/api/addresses/duplicates", address(n + " GREEKY ROW"));
+        List<Integer> found = new ArrayList<>();
+        unsaved.path("duplicates").forEach(duplicate -> found.add(duplicate.path("addressId").asInt()));
+        assertThat(found).contains(addressIds[0], addressIds[1]);
+
+        JsonNode otherStreet = call("POST", "/api/addresses/duplicates", address(n + " Rambla Nova"));
+        found.clear();
+        otherStreet.path("duplicates").forEach(duplicate -> found.add(duplicate.path("addressId").asInt()));
+        assertThat(found).doesNotContain(addressIds[0], addressIds[1]);
+
+        assertThat(call("GET", "/api/addresses/" + addressIds[0] + "/duplicates?minSimilarity=0", null)
+                .path("errorCode").asText()).isEqualTo("INVALID_DUPLICATE_REQUEST");
+    }
+
+    @Test
+    void clustersGroupNearDuplicates() throws Exception {
+        int[] addressIds = createNearDuplicates(UNIQUE.incrementAndGet());
+
+        JsonNode clusters = call("POST", "/api/addresses/duplicates/clusters?minSimilarity=0.7&limit=1000", null);
+        assertThat(clusters.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(clusters.path("addresses").asInt()).isEqualTo(addressDuplicateIndex.size());
+        List<List<Integer>> largest = new ArrayList<>();
+        clusters.path("largest").forEach(cluster -> {
+            List<Integer> ids = new ArrayList<>();
+            cluster.path("addressIds").forEach(id -> ids.add(id.asInt()));
+            largest.add(ids);
+        });
+        assertThat(largest).anySatisfy(cluster -> assertThat(cluster).contains(addressIds[0], addressIds[1]));
+    }
+}
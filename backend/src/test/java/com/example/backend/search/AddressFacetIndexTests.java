@@ -0,0 +1,227 @@
+package com.example.backend.search;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.repository.CustomerSpecifications;
+import com.example.backend.service.AddressService;
+import com.example.backend.service.CustomerService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The bitmap index against the EXISTS queries it stands in for. Criteria are per customer, not per address:
+// one address may match the city and another the state
+@SpringBootTest
+@AutoConfigureMockMvc
+class AddressFacetIndexTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private AddressFacetIndex addressFacetIndex;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void waitForIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !addressFacetIndex.isAvailable(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(addressFacetIndex.isAvailable()).isTrue();
+    }
+
+    private static Address address(String city, String state, String pincode) {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Facet St")
+                .city(city)
+                .state(state)
+                .pincode(pincode)
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer(Address... addresses) {
+        long n = UNIQUE.incrementAndGet();
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Facet")
+                .lastName("Customer")
+                .email("facet" + n + "@example.com")
+                .phone(String.valueOf(9_000_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(addresses)))
+                .build());
+    }
+
+    // Both answers restricted to the given customers, since other tests write rows the events never saw
+    private void assertParity(String city, String state, String pincode, FacetMatch match, Set<Integer> ours,
+                              Set<Integer> expected) {
+        Map<AddressFacet, String> criteria = AddressFacetIndex.criteria(city, state, pincode);
+        Set<Integer> indexed = addressFacetIndex.filter(criteria, match).stream().boxed()
+                .filter(ours::contains).collect(Collectors.toSet());
+        Set<Integer> queried = customerRepository.findAll(CustomerSpecifications.hasAddressFacets(criteria, match))
+                .stream().map(Customer::getId).filter(ours::contains).collect(Collectors.toSet());
+        String description = String.format("city %s, state %s, pincode %s, %s", city, state, pincode, match);
+        assertThat(indexed).as("index, %s", description).isEqualTo(queried);
+        assertThat(queried).as("database, %s", description).isEqualTo(expected);
+    }
+
+    @Test
+    void criteriaMayBeMetByDifferentAddresses() {
+        String tag = "q" + UNIQUE.incrementAndGet();
+        String olot = "Olot" + tag;
+        String vic = "Vic" + tag;
+        String girona = "Girona" + tag;
+        String barcelona = "Barcelona" + tag;
+        // Olot in Girona and Vic in Barcelona, but no single address in Olot, Barcelona
+        Customer split = customer(address(olot, girona, "17800"), address(vic, barcelona, "08500"));
+        Customer single = customer(address(" " + olot.toUpperCase() + " ", barcelona, "17801"));
+        Customer other = customer(address(vic, girona, "08501"));
+        Set<Integer> ours = Set.of(split.getId(), single.getId(), other.getId());
+
+        assertParity(olot, barcelona, null, FacetMatch.EXACT, ours, Set.of(split.getId(), single.getId()));
+        assertParity(olot.toLowerCase(), null, null, FacetMatch.EXACT, ours, Set.of(split.getId(), single.getId()));
+        assertParity(vic, girona, null, FacetMatch.EXACT, ours, Set.of(split.getId(), other.getId()));
+        assertParity(olot, null, "08500", FacetMatch.EXACT, ours, Set.of(split.getId()));
+        assertParity(olot, girona, "08501", FacetMatch.EXACT, ours, Set.of());
+        assertParity(null, null, "178", FacetMatch.PREFIX, ours, Set.of(split.getId(), single.getId()));
+        assertParity("olo", barcelona.substring(0, 5), null, FacetMatch.PREFIX, ours,
+                Set.of(split.getId(), single.getId()));
+        assertParity("lot" + tag, "ona" + tag, null, FacetMatch.CONTAINS, ours, Set.of(split.getId(), single.getId()));
+        assertParity(tag, null, "850", FacetMatch.CONTAINS, ours, Set.of(split.getId(), other.getId()));
+        // No criteria: every customer with an address
+        assertParity(null, null, null, FacetMatch.EXACT, ours, ours);
+    }
+
+    @Test
+    void changesKeepTheIndexInStepWithTheDatabase() {
+        String tag = "r" + UNIQUE.incrementAndGet();
+        String reus = "Reus" + tag;
+        String tarragona = "Tarragona" + tag;
+        String lleida = "Lleida" + tag;
+        Customer twice = customer(address(reus, tarragona, "43201"), address(reus, tarragona, "43202"));
+        Customer moving = customer(address(reus, tarragona, "43203"));
+        Customer leaving = customer(address(reus, tarragona, "43204"));
+        Set<Integer> ours = Set.of(twice.getId(), moving.getId(), leaving.getId());
+        assertParity(reus, tarragona, null, FacetMatch.EXACT, ours, ours);
+
+        // Another address of the customer still has the value
+        addressService.deleteAddress(twice.getAddresses().get(0).getId());
+        assertParity(reus, null, "43201", FacetMatch.EXACT, ours, Set.of());
+        assertParity(reus, tarragona, null, FacetMatch.EXACT, ours, ours);
+
+        Address moved = moving.getAddresses().get(0);
+        addressService.updateAddress(moved.getId(), address(lleida, "Lleida", "25001"), null);
+        assertParity(reus, null, null, FacetMatch.EXACT, ours, Set.of(twice.getId(), leaving.getId()));
+        assertParity(lleida, null, "25001", FacetMatch.EXACT, ours, Set.of(moving.getId()));
+
+        // The delete cascades to the customer's addresses
+        customerService.deleteCustomer(leaving.getId());
+        assertParity(reus, tarragona, null, FacetMatch.EXACT, ours, Set.of(twice.getId()));
+        assertParity(null, null, null, FacetMatch.EXACT, ours, Set.of(twice.getId(), moving.getId()));
+    }
+
+    private static MockHttpServletRequestBuilder advancedSearch(String city, String state, String pincode, String match) {
+        MockHttpServletRequestBuilder request = get("/api/customers/search/advanced")
+                .param("match", match).param("size", "2").param("sortBy", "id");
+        if (city != null) {
+            request.param("city", city);
+        }
+        if (state != null) {
+            request.param("state", state);
+        }
+        if (pincode != null) {
+            request.param("pincode", pincode);
+        }
+        return request;
+    }
+
+    private List<Integer> offsetPages(String city, String state, String pincode, String match) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int page = 0; page < 10; page++) {
+            String response = mockMvc.perform(advancedSearch(city, state, pincode, match).param("page", String.valueOf(page)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            List<Integer> content = JsonPath.read(response, "$.content[*].id");
+            if (content.isEmpty()) {
+                break;
+            }
+            ids.addAll(content);
+        }
+        return ids;
+    }
+
+    private List<Integer> cursorPages(String city, String state, String pincode, String match) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "";
+        for (int page = 0; page < 10 && cursor != null; page++) {
+            String response = mockMvc.perform(advancedSearch(city, state, pincode, match).param("cursor", cursor))
+                    .andExpect(jsonPath("$.errorCode").value("SUCCESS"))
+                    .andReturn().getResponse().getContentAsString();
+            ids.addAll(JsonPath.<List<Integer>>read(response, "$.content[*].id"));
+            cursor = JsonPath.read(response, "$.nextCursor");
+        }
+        return ids;
+    }
+
+    @Test
+    void offsetAndCursorPagesFindTheSameCustomers() throws Exception {
+        String tag = "s" + UNIQUE.incrementAndGet();
+        String olot = "Olot" + tag;
+        String girona = "Girona" + tag;
+        String barcelona = "Barcelona" + tag;
+        // One customer with Olot and the Barcelona state on different addresses, one respelled, and near misses
+        Customer split = customer(address(olot, girona, "17800"), address("Vic" + tag, barcelona, "08500"));
+        Customer single = customer(address(" " + olot.toUpperCase() + " ", barcelona, "17801"));
+        Customer prefixed = customer(address(olot + "a", barcelona, "17802"));
+        Customer elsewhere = customer(address("Vic" + tag, girona, "08501"));
+        Customer partial = customer(address("La" + olot, girona, "17803"));
+
+        assertThat(offsetPages(olot, barcelona, null, "exact"))
+                .isEqualTo(cursorPages(olot, barcelona, null, "exact"))
+                .containsExactly(split.getId(), single.getId());
+        assertThat(offsetPages(olot.toLowerCase(), null, "178", "prefix"))
+                .isEqualTo(cursorPages(olot.toLowerCase(), null, "178", "prefix"))
+                .containsExactly(split.getId(), single.getId(), prefixed.getId());
+        assertThat(offsetPages(olot, girona, null, "contains"))
+                .isEqualTo(cursorPages(olot, girona, null, "contains"))
+                .containsExactly(split.getId(), partial.getId());
+        // Every address of ours is in a state carrying the tag
+        assertThat(offsetPages(null, tag, null, "contains"))
+                .isEqualTo(cursorPages(null, tag, null, "contains"))
+                .containsExactly(split.getId(), single.getId(), prefixed.getId(), elsewhere.getId(), partial.getId());
+
+        mockMvc.perform(advancedSearch(olot, null, null, "bogus"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(advancedSearch(olot, null, null, "bogus").param("cursor", ""))
+                .andExpect(jsonPath("$.errorCode").value("INVALID_FACET_REQUEST"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.backend.search;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.pagination.CustomerSortField;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.service.CustomerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The index against the JPQL query it stands in for, after creates, an update and a delete went through the events
+@SpringBootTest
+class CustomerSearchIndexTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @BeforeEach
+    void waitForIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !customerSearchIndex.isAvailable(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(customerSearchIndex.isAvailable()).isTrue();
+    }
+
+    private Customer create(String firstName, String lastName, String email) {
+        long n = UNIQUE.incrementAndGet();
+        Address address = Address.builder()
+                .street(n + " Search St")
+                .city("Lleida")
+                .state("Catalonia")
+                .pincode("25001")
+                .country("Spain")
+                .build();
+        return customerService.createCustomer(Customer.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .phone(String.valueOf(3_000_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(address)))
+                .build());
+    }
+
+    // Ids both ways, restricted to the given customers since other tests insert rows the events never saw
+    private void assertParity(String query, Set<Integer> ours, Set<Integer> expected) {
+        Set<Integer> indexed = IntStream.of(customerSearchIndex.search(query, CustomerSortField.ID, Sort.Direction.ASC,
+                        Integer.MAX_VALUE).ids())
+                .boxed().filter(ours::contains).collect(Collectors.toSet());
+        Set<Integer> queried = customerRepository.searchCustomers(query, Pageable.unpaged()).stream()
+                .map(Customer::getId).filter(ours::contains).collect(Collectors.toSet());
+        assertThat(indexed).as("index, query '%s'", query).isEqualTo(queried);
+        assertThat(queried).as("database, query '%s'", query).isEqualTo(expected);
+    }
+
+    @Test
+    void indexAnswersLikeTheDatabaseQuery() {
+        long n = UNIQUE.incrementAndGet();
+        String tag = "zx" + n;
+        Customer marisol = create("Marisol", "Quintana" + tag, "marisol." + tag + "@example.com");
+        Customer marisa = create("Marisa", "Quintero" + tag, "mq_" + tag + "@example.org");
+        Customer arco = create("Marc", "Arco" + tag, "arco." + tag + "@example.com");
+
+        marisol.setFirstName("Yolanda");
+        customerService.updateCustomer(marisol, null);
+        customerService.deleteCustomer(marisa.getId());
+
+        Set<Integer> ours = Set.of(marisol.getId(), marisa.getId(), arco.getId());
+        String phone = marisol.getPhone();
+        assertParity("quint", ours, Set.of(marisol.getId()));
+        assertParity("QUINTANA" + tag.toUpperCase(), ours, Set.of(marisol.getId()));
+        assertParity("maris", ours, Set.of(marisol.getId()));
+        assertParity("yolan", ours, Set.of(marisol.getId()));
+        assertParity("mq_", ours, Set.of());
+        assertParity("@example.com", ours, Set.of(marisol.getId(), arco.getId()));
+        assertParity(phone.substring(3), ours, Set.of(marisol.getId()));
+        assertParity("arco" + tag, ours, Set.of(arco.getId()));
+        // Trigrams all in the customer, but split across fields
+        assertParity("marco", ours, Set.of());
+        // Shorter than a trigram
+        assertParity("yo", ours, Set.of(marisol.getId()));
+        assertParity("c", ours, Set.of(marisol.getId(), arco.getId()));
+        assertParity("", ours, Set.of(marisol.getId(), arco.getId()));
+    }
+
+    // The first ids of each order, from the bounded selection, are the head of the fully sorted result
+    @Test
+    void firstIdsFollowTheFullOrder() {
+        long n = UNIQUE.incrementAndGet();
+        String tag = "zy" + n;
+        List<Customer> ours = new ArrayList<>();
+        String[] firstNames = {"bob", "Ann", "Cid", "ann", "Bob", "Dee", "Ann"};
+        for (int i = 0; i < firstNames.length; i++) {
+            ours.add(create(firstNames[i], "L" + (i * 3 % 7) + tag, tag + "." + (i * 5 % 7) + "@example.com"));
+        }
+        Map<CustomerSortField, Function<Customer, String>> keys = Map.of(
+                CustomerSortField.ID, customer -> "",
+                CustomerSortField.FIRST_NAME, customer -> customer.getFirstName().toLowerCase(Locale.ROOT),
+                CustomerSortField.LAST_NAME, customer -> customer.getLastName().toLowerCase(Locale.ROOT),
+                CustomerSortField.EMAIL, Customer::getEmail,
+                CustomerSortField.PHONE, Customer::getPhone);
+
+        for (Map.Entry<CustomerSortField, Function<Customer, String>> key : keys.entrySet()) {
+            Comparator<Customer> ascending = Comparator.comparing(key.getValue()).thenComparing(Customer::getId);
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                List<Integer> expected = ours.stream()
+                        .sorted(direction.isAscending() ? ascending : ascending.reversed())
+                        .map(Customer::getId)
+                        .collect(Collectors.toList());
+                for (int limit : new int[]{0, 1, 3, ours.size(), Integer.MAX_VALUE}) {
+                    CustomerSearchIndex.Ranked ranked = customerSearchIndex.search(tag, key.getKey(), direction, limit);
+                    assertThat(ranked.total()).isEqualTo(ours.size());
+                    assertThat(ranked.ids()).as("%s %s, first %d", key.getKey(), direction, limit)
+                            .containsExactly(expected.stream().limit(limit).mapToInt(Integer::intValue).toArray());
+                }
+            }
+        }
+        int[] ascendingIds = ours.stream().mapToInt(Customer::getId).sorted().toArray();
+        CustomerSearchIndex.Ranked sorted = customerSearchIndex.sort(ascendingIds, CustomerSortField.FIRST_NAME,
+                Sort.Direction.DESC, 2);
+        assertThat(sorted.total()).isEqualTo(ours.size());
+        assertThat(sorted.ids()).hasSize(2);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTests {
+
+    private static String[] document(String... fields) {
+        return fields;
+    }
+
+    @Test
+    void postingListStaysSortedAndDistinct() {
+        IntPostingList list = new IntPostingList();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                list.remove(id);
+                expected.remove(id);
+            } else {
+                list.add(id);
+                expected.add(id);
+            }
+        }
+        assertThat(list.toArray()).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(list.size()).isEqualTo(expected.size());
+
+        // Emptied (and shrunk on the way), it still appends and inserts
+        expected.forEach(list::remove);
+        assertThat(list.isEmpty()).isTrue();
+        list.add(9);
+        list.add(3);
+        list.add(9);
+        list.add(12);
+        assertThat(list.toArray()).containsExactly(3, 9, 12);
+    }
+
+    @Test
+    void retainAllIntersectsWithTheList() {
+        IntPostingList list = new IntPostingList();
+        for (int id = 0; id < 100; id += 3) {
+            list.add(id);
+        }
+        assertThat(list.retainAll(new int[] {0, 1, 2, 3, 50, 51, 99, 150})).containsExactly(0, 3, 51, 99);
+        assertThat(list.retainAll(new int[] {100, 200})).isEmpty();
+        assertThat(list.retainAll(new int[0])).isEmpty();
+        assertThat(new IntPostingList().retainAll(new int[] {1, 2})).isEmpty();
+    }
+
+    @Test
+    void documentsAreFoundByAnySubstringOfAField() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(3, document("ada", "lovelace", "ada@example.com", "5551234"));
+        index.put(1, document("alan", "turing", "alan@example.com", "5559876"));
+        index.put(2, document("grace", "hopper", null, "5554321"));
+        index.put(4, document("marc", "arco", null, null));
+
+        assertThat(index.search("lace")).containsExactly(3);
+        assertThat(index.search("@example.")).containsExactly(1, 3);
+        assertThat(index.search("555")).containsExactly(1, 2, 3);
+        assertThat(index.search("hopper")).containsExactly(2);
+        // Every trigram is in the document, just not in one field
+        assertThat(index.search("marco")).isEmpty();
+        assertThat(index.search("arc")).containsExactly(4);
+        assertThat(index.search("lovelaces")).isEmpty();
+        assertThat(index.search("xyz")).isEmpty();
+    }
+
+    @Test
+    void shortQueriesCheckEveryDocument() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, document("al", "turing", null, null));
+        index.put(2, document("bo", "li", null, null));
+        index.put(3, document("grace", "hopper", null, null));
+
+        assertThat(index.search("al")).containsExactly(1);
+        assertThat(index.search("li")).containsExactly(2);
+        assertThat(index.search("r")).containsExactly(1, 3);
+        assertThat(index.search("")).containsExactly(1, 2, 3);
+        assertThat(index.search("q")).isEmpty();
+    }
+
+    @Test
+    void updatesAndRemovesApplyIncrementally() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, document("marisol", "quintana", null, null));
+        index.put(2, document("marisa", "quintero", null, null));
+        assertThat(index.search("quint")).containsExactly(1, 2);
+        assertThat(index.search("maris")).containsExactly(1, 2);
+
+        // Re-indexing drops the old trigrams
+        index.put(1, document("yolanda", "quintana", null, null));
+        assertThat(index.search("maris")).containsExactly(2);
+        assertThat(index.search("yola")).containsExactly(1);
+        assertThat(index.size()).isEqualTo(2);
+
+        index.remove(2);
+        assertThat(index.search("quint")).containsExactly(1);
+        assertThat(index.search("maris")).isEmpty();
+        assertThat(index.search("ma")).isEmpty();
+        assertThat(index.document(2)).isNull();
+
+        // Removing twice, or an id never indexed, changes nothing
+        index.remove(2);
+        index.remove(42);
+        assertThat(index.size()).isEqualTo(1);
+
+        index.put(2, document("marisa", "quintero", null, null));
+        assertThat(index.search("maris")).containsExactly(2);
+        assertThat(index.search("quint")).containsExactly(1, 2);
+    }
+}
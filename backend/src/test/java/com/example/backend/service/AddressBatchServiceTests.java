@@ -0,0 +1,254 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.AddressBatchAction;
+import com.example.backend.dto.AddressBatchOperation;
+import com.example.backend.dto.AddressBatchResponse;
+import com.example.backend.dto.AddressBatchResult;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.sharding.UniqueKeyRegistry;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniqueKeyTakenException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+class AddressBatchServiceTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+    private static final String DUPLICATE_ADDRESS = UniqueKey.ADDRESS_HASH.getErrorCode();
+
+    @Autowired
+    private AddressBatchService addressBatchService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private UniqueKeyRegistry uniqueKeyRegistry;
+
+    private static Address address() {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Batch St")
+                .city("Girona")
+                .state("Catalonia")
+                .pincode("17001")
+                .country("Spain")
+                .build();
+    }
+
+    // Same fields, new object, as a client would send them
+    private static Address copy(Address address) {
+        return Address.builder()
+                .street(address.getStreet())
+                .street2(address.getStreet2())
+                .city(address.getCity())
+                .state(address.getState())
+                .pincode(address.getPincode())
+                .country(address.getCountry())
+                .build();
+    }
+
+    private Customer customer(Address... addresses) {
+        long n = UNIQUE.incrementAndGet();
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Batch")
+                .lastName("Customer")
+                .email("batch" + n + "@example.com")
+                .phone(String.valueOf(5_000_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(addresses)))
+                .build());
+    }
+
+    private static AddressBatchOperation operation(AddressBatchAction action, Integer addressId, Long expectedVersion,
+                                                   Address address) {
+        AddressBatchOperation operation = new AddressBatchOperation();
+        operation.setAction(action);
+        operation.setAddressId(addressId);
+        operation.setExpectedVersion(expectedVersion);
+        operation.setAddress(address);
+        return operation;
+    }
+
+    private static AddressBatchOperation create(Address address) {
+        return operation(AddressBatchAction.CREATE, null, null, address);
+    }
+
+    private static AddressBatchOperation update(Integer addressId, Long expectedVersion, Address address) {
+        return operation(AddressBatchAction.UPDATE, addressId, expectedVersion, address);
+    }
+
+    private static AddressBatchOperation delete(Integer addressId, Long expectedVersion) {
+        return operation(AddressBatchAction.DELETE, addressId, expectedVersion, null);
+    }
+
+    private List<String> streets(Integer customerId) {
+        return jdbcTemplate.queryForList("SELECT street FROM addresses WHERE customer_id = ? ORDER BY id",
+                String.class, customerId);
+    }
+
+    private int numAddresses(Integer customerId) {
+        return jdbcTemplate.queryForObject("SELECT num_addresses FROM customers WHERE id = ?", Integer.class, customerId);
+    }
+
+    private long version(Integer addressId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM addresses WHERE id = ?", Long.class, addressId);
+    }
+
+    @Test
+    void atomicBatchAppliesNothingWhenAnOperationIsRejected() {
+        Customer customer = customer(address());
+        Address existing = customer.getAddresses().get(0);
+        Address added = address();
+
+        AddressBatchResponse response = addressBatchService.apply(customer.getId(), List.of(create(added),
+                update(existing.getId(), 3L, address()), delete(existing.getId(), 0L)), true);
+
+        assertThat(response.getErrorCode()).isEqualTo("BATCH_REJECTED");
+        assertThat(response.getApplied()).isZero();
+        assertThat(response.getRejected()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus, AddressBatchResult::getErrorCode)
+                .containsExactly(tuple("NOT_APPLIED", null), tuple("REJECTED", "VERSION_CONFLICT"),
+                        tuple("NOT_APPLIED", null));
+        assertThat(streets(customer.getId())).containsExactly(existing.getStreet());
+        assertThat(numAddresses(customer.getId())).isEqualTo(1);
+        assertThat(version(existing.getId())).isZero();
+    }
+
+    @Test
+    void bestEffortBatchAppliesTheValidOperations() {
+        Customer customer = customer(address(), address());
+        Address kept = customer.getAddresses().get(0);
+        Address removed = customer.getAddresses().get(1);
+        Address added = address();
+
+        AddressBatchResponse response = addressBatchService.apply(customer.getId(), List.of(create(added),
+                update(kept.getId(), 3L, address()), delete(removed.getId(), 0L), delete(-1, null)), false);
+
+        assertThat(response.getErrorCode()).isEqualTo("SUCCESS");
+        assertThat(response.getApplied()).isEqualTo(2);
+        assertThat(response.getRejected()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus, AddressBatchResult::getErrorCode)
+                .containsExactly(tuple("CREATED", null), tuple("REJECTED", "VERSION_CONFLICT"),
+                        tuple("DELETED", null), tuple("REJECTED", "ADDRESS_NOT_FOUND"));
+        assertThat(response.getResults().get(0).getAddressId()).isNotNull();
+        assertThat(streets(customer.getId())).containsExactly(kept.getStreet(), added.getStreet());
+        assertThat(numAddresses(customer.getId())).isEqualTo(2);
+        assertThat(version(kept.getId())).isZero();
+    }
+
+    @Test
+    void duplicatesWithinTheBatchAndAgainstOtherCustomersAreRejected() {
+        Address othersAddress = address();
+        customer(othersAddress);
+        Customer customer = customer(address());
+        Address existing = customer.getAddresses().get(0);
+        Address added = address();
+
+        AddressBatchResponse response = addressBatchService.apply(customer.getId(), List.of(
+                create(added),
+                create(copy(added)),
+                create(copy(othersAddress)),
+                update(existing.getId(), 0L, copy(othersAddress)),
+                // Freed earlier in the batch, so it can be taken again
+                delete(existing.getId(), null),
+                create(copy(existing))), false);
+
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus, AddressBatchResult::getErrorCode)
+                .containsExactly(tuple("CREATED", null), tuple("REJECTED", DUPLICATE_ADDRESS),
+                        tuple("REJECTED", DUPLICATE_ADDRESS), tuple("REJECTED", DUPLICATE_ADDRESS),
+                        tuple("DELETED", null), tuple("CREATED", null));
+        assertThat(streets(customer.getId())).containsExactly(added.getStreet(), existing.getStreet());
+        assertThat(numAddresses(customer.getId())).isEqualTo(2);
+
+        // Atomic, one duplicate within the batch keeps the other create out too
+        Address again = address();
+        AddressBatchResponse atomic = addressBatchService.apply(customer.getId(),
+                List.of(create(again), create(copy(again))), true);
+        assertThat(atomic.getErrorCode()).isEqualTo("BATCH_REJECTED");
+        assertThat(atomic.getResults()).extracting(AddressBatchResult::getErrorCode)
+                .containsExactly(null, DUPLICATE_ADDRESS);
+        assertThat(streets(customer.getId())).doesNotContain(again.getStreet());
+    }
+
+    @Test
+    void chainedOperationsOnOneAddressSeeEachOthersVersions() {
+        Customer customer = customer(address(), address());
+        Address chained = customer.getAddresses().get(0);
+        Address removed = customer.getAddresses().get(1);
+        Address first = address();
+        Address second = address();
+
+        AddressBatchResponse response = addressBatchService.apply(customer.getId(), List.of(
+                update(chained.getId(), 0L, first),
+                update(chained.getId(), 1L, second),
+                // Still version 0 in the database, but the batch has moved it on
+                update(chained.getId(), 0L, address()),
+                delete(removed.getId(), 0L)), false);
+
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus, AddressBatchResult::getErrorCode)
+                .containsExactly(tuple("UPDATED", null), tuple("UPDATED", null),
+                        tuple("REJECTED", "VERSION_CONFLICT"), tuple("DELETED", null));
+        assertThat(streets(customer.getId())).containsExactly(second.getStreet());
+        assertThat(version(chained.getId())).isEqualTo(2);
+        assertThat(numAddresses(customer.getId())).isEqualTo(1);
+
+        // Update then delete: the delete is conditional on the version the update produces
+        response = addressBatchService.apply(customer.getId(), List.of(
+                update(chained.getId(), 2L, address()), delete(chained.getId(), 3L)), true);
+
+        assertThat(response.getErrorCode()).isEqualTo("SUCCESS");
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus).containsExactly("UPDATED", "DELETED");
+        assertThat(streets(customer.getId())).isEmpty();
+        assertThat(numAddresses(customer.getId())).isZero();
+    }
+
+    @Test
+    void batchTheDatabaseRefusesIsRetriedOperationByOperation() {
+        Customer customer = customer(address());
+        Address taken = address();
+        Address free = address();
+        // Claimed by a customer on another shard after the batch checked the hashes
+        Address hashed = copy(taken);
+        hashed.computeHash();
+        doThrow(new UniqueKeyTakenException(UniqueKey.ADDRESS_HASH)).when(uniqueKeyRegistry)
+                .claim(eq(UniqueKey.ADDRESS_HASH), eq(hashed.getAddressHash()), anyInt());
+
+        AddressBatchResponse response = addressBatchService.apply(customer.getId(),
+                List.of(create(taken), create(free)), false);
+
+        assertThat(response.getErrorCode()).isEqualTo("SUCCESS");
+        assertThat(response.getApplied()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus, AddressBatchResult::getErrorCode)
+                .containsExactly(tuple("REJECTED", DUPLICATE_ADDRESS), tuple("CREATED", null));
+        assertThat(response.getResults().get(1).getAddressId()).isNotNull();
+        assertThat(streets(customer.getId())).containsExactly(customer.getAddresses().get(0).getStreet(), free.getStreet());
+        assertThat(numAddresses(customer.getId())).isEqualTo(2);
+
+        // Atomic, the same refusal fails the whole batch
+        Address other = address();
+        response = addressBatchService.apply(customer.getId(), List.of(create(copy(taken)), create(other)), true);
+        assertThat(response.getErrorCode()).isEqualTo(DUPLICATE_ADDRESS);
+        assertThat(response.getResults()).extracting(AddressBatchResult::getStatus)
+                .containsExactly("NOT_APPLIED", "NOT_APPLIED");
+        assertThat(streets(customer.getId())).doesNotContain(other.getStreet());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.BulkDeleteResponse;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// customers.num_addresses through the write paths that change a customer's addresses, and the reconciler that
+// repairs it when it drifts (batches are covered by AddressBatchServiceTests, the migration backfill by
+// SchemaMigrationTests)
+@SpringBootTest
+@AutoConfigureMockMvc
+class AddressCountTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private CustomerBulkDeleteService customerBulkDeleteService;
+
+    @Autowired
+    private AddressCountReconciler addressCountReconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static Address address() {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Count St")
+                .city("Lleida")
+                .state("Catalonia")
+                .pincode("25001")
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer(int addresses) {
+        long n = UNIQUE.incrementAndGet();
+        List<Address> list = new ArrayList<>();
+        for (int i = 0; i < addresses; i++) {
+            list.add(address());
+        }
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Count")
+                .lastName("Customer")
+                .email("count" + n + "@example.com")
+                .phone(String.valueOf(1_700_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(list)
+                .build());
+    }
+
+    private int numAddresses(Integer customerId) {
+        return jdbcTemplate.queryForObject("SELECT num_addresses FROM customers WHERE id = ?", Integer.class, customerId);
+    }
+
+    private long version(Integer customerId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM customers WHERE id = ?", Long.class, customerId);
+    }
+
+    @Test
+    void countFollowsAddressCreatesAndDeletes() throws Exception {
+        Customer customer = customer(2);
+        Integer customerId = customer.getId();
+        assertThat(numAddresses(customerId)).isEqualTo(2);
+
+        Address added = addressService.createAddress(customerId, address());
+        assertThat(numAddresses(customerId)).isEqualTo(3);
+        // A rejected create rolls back with its increment
+        Address duplicate = Address.builder().street(added.getStreet()).city("Lleida").state("Catalonia")
+                .pincode("25001").country("Spain").build();
+        assertThatThrownBy(() -> addressService.createAddress(customerId, duplicate)).isInstanceOf(Exception.class);
+        assertThat(numAddresses(customerId)).isEqualTo(3);
+
+        addressService.deleteAddress(added.getId());
+        addressService.deleteAddress(customer.getAddresses().get(0).getId());
+        assertThat(numAddresses(customerId)).isEqualTo(1);
+        // The listings read the column
+        mockMvc.perform(get("/api/customers/{id}", customerId).param("fields", "id,numAddresses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numAddresses").value(1));
+    }
+
+    @Test
+    void bulkDeleteCountsTheCascadedAddressesAndLeavesOthersAlone() {
+        Customer two = customer(2);
+        Customer none = customer(0);
+        Customer kept = customer(3);
+
+        BulkDeleteResponse response = customerBulkDeleteService.deleteByIds(List.of(two.getId(), none.getId()));
+
+        assertThat(response.getDeletedCustomers()).isEqualTo(2);
+        assertThat(response.getDeletedAddresses()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM addresses WHERE customer_id IN (?, ?)",
+                Integer.class, two.getId(), none.getId())).isZero();
+        assertThat(numAddresses(kept.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void reconcilerRepairsDriftedCounts() {
+        Customer drifted = customer(2);
+        Customer missing = customer(1);
+        Customer exact = customer(1);
+        jdbcTemplate.update("UPDATE customers SET num_addresses = 7 WHERE id = ?", drifted.getId());
+        jdbcTemplate.update("UPDATE customers SET num_addresses = 0 WHERE id = ?", missing.getId());
+        long exactVersion = version(exact.getId());
+        long driftedVersion = version(drifted.getId());
+
+        assertThat(addressCountReconciler.reconcile()).isGreaterThanOrEqualTo(2);
+
+        assertThat(numAddresses(drifted.getId())).isEqualTo(2);
+        assertThat(numAddresses(missing.getId())).isEqualTo(1);
+        assertThat(numAddresses(exact.getId())).isEqualTo(1);
+        // Repaired rows are new representations, the others keep their ETag
+        assertThat(version(drifted.getId())).isEqualTo(driftedVersion + 1);
+        assertThat(version(exact.getId())).isEqualTo(exactVersion);
+        assertThat(addressCountReconciler.reconcile()).isZero();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.backend.service;
+
+import com.example.backend.cache.LookupCache;
+import com.example.backend.dto.AddressResponse;
+import com.example.backend.dto.BulkDeleteResponse;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.pagination.CustomerSortField;
+import com.example.backend.search.AddressDuplicateIndex;
+import com.example.backend.search.AddressFacetIndex;
+import com.example.backend.search.CustomerSearchIndex;
+import com.example.backend.search.FacetMatch;
+import com.example.backend.search.MinHashLsh;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniquenessIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The set-based bulk delete loads no entities, so the cache and the in-memory indexes only learn of the deleted
+// customers and their cascaded addresses through the per-customer events; chunks of two make it several transactions
+@SpringBootTest(properties = "app.bulk-delete.chunk-size=2")
+class CustomerBulkDeleteServiceTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerBulkDeleteService customerBulkDeleteService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LookupCache lookupCache;
+
+    @Autowired
+    private CustomerSearchIndex customerSearchIndex;
+
+    @Autowired
+    private AddressFacetIndex addressFacetIndex;
+
+    @Autowired
+    private AddressDuplicateIndex addressDuplicateIndex;
+
+    @Autowired
+    private UniquenessIndex uniquenessIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void waitForIndexes() throws InterruptedException {
+        List<BooleanSupplier> indexes = List.of(customerSearchIndex::isAvailable, addressFacetIndex::isAvailable,
+                addressDuplicateIndex::isAvailable, uniquenessIndex::isAvailable);
+        for (BooleanSupplier available : indexes) {
+            for (int i = 0; i < 200 && !available.getAsBoolean(); i++) {
+                Thread.sleep(50);
+            }
+            assertThat(available.getAsBoolean()).isTrue();
+        }
+    }
+
+    private static Address address(String city) {
+        return Address.builder()
+                .street(UNIQUE.incrementAndGet() + " Purge St")
+                .city(city)
+                .state("Catalonia")
+                .pincode("08500")
+                .country("Spain")
+                .build();
+    }
+
+    private Customer customer(String token, String city, int addresses) {
+        long n = UNIQUE.incrementAndGet();
+        List<Address> list = new ArrayList<>();
+        for (int i = 0; i < addresses; i++) {
+            list.add(address(city));
+        }
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Purge")
+                .lastName(token)
+                .email("purge" + n + "@example.com")
+                .phone(String.valueOf(1_960_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(list)
+                .build());
+    }
+
+    private int[] search(String query) {
+        return customerSearchIndex.search(query, CustomerSortField.ID, Sort.Direction.ASC, Integer.MAX_VALUE).ids();
+    }
+
+    // Cache lookups counting how often they had to load
+    private CustomerResponse cachedCustomer(Integer id) {
+        return lookupCache.customer(id, key -> {
+            loads.incrementAndGet();
+            CustomerResponse response = new CustomerResponse();
+            response.setId(key);
+            return response;
+        });
+    }
+
+    private AddressResponse cachedAddress(Address address, Integer customerId) {
+        return lookupCache.address(address.getId(), key -> {
+            loads.incrementAndGet();
+            AddressResponse response = new AddressResponse();
+            response.setId(key);
+            response.setCustomerId(customerId);
+            return response;
+        });
+    }
+
+    private int loadsFor(Runnable lookups) {
+        int before = loads.get();
+        lookups.run();
+        return loads.get() - before;
+    }
+
+    private static Address copy(Address address) {
+        return Address.builder().street(address.getStreet()).city(address.getCity()).state(address.getState())
+                .pincode(address.getPincode()).country(address.getCountry()).build();
+    }
+
+    @Test
+    void deletedCustomersLeaveTheCacheAndEveryIndex() {
+        long n = UNIQUE.incrementAndGet();
+        String token = "Purgeable" + n;
+        String city = "Purgeville" + n;
+        List<Customer> deleted = List.of(customer(token, city, 2), customer(token, city, 1), customer(token, city, 0));
+        Customer kept = customer(token, city, 2);
+        List<Address> deletedAddresses = new ArrayList<>();
+        deleted.forEach(customer -> deletedAddresses.addAll(customer.getAddresses()));
+
+        Runnable lookups = () -> {
+            for (Customer customer : deleted) {
+                cachedCustomer(customer.getId());
+                customer.getAddresses().forEach(address -> cachedAddress(address, customer.getId()));
+            }
+        };
+        Runnable keptLookups = () -> {
+            cachedCustomer(kept.getId());
+            kept.getAddresses().forEach(address -> cachedAddress(address, kept.getId()));
+        };
+        loadsFor(lookups);
+        loadsFor(keptLookups);
+        assertThat(loadsFor(lookups)).isZero();
+        assertThat(search(token)).hasSize(4);
+        assertThat(addressFacetIndex.filter(AddressFacetIndex.criteria(city, null, null), FacetMatch.EXACT)
+                .getCardinality()).isEqualTo(3);
+
+        List<Integer> ids = new ArrayList<>(deleted.stream().map(Customer::getId).toList());
+        ids.add(-1);
+        BulkDeleteResponse response = customerBulkDeleteService.deleteByIds(ids);
+
+        assertThat(response.getDeletedCustomers()).isEqualTo(3);
+        assertThat(response.getDeletedAddresses()).isEqualTo(3);
+        assertThat(response.getChunks()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM addresses WHERE customer_id IN (?, ?, ?)",
+                Integer.class, deleted.get(0).getId(), deleted.get(1).getId(), deleted.get(2).getId())).isZero();
+
+        // Cache: the deleted customers and their addresses are loaded again, the kept ones are still cached
+        assertThat(loadsFor(lookups)).isEqualTo(deleted.size() + deletedAddresses.size());
+        assertThat(loadsFor(keptLookups)).isZero();
+
+        // Trigram index
+        assertThat(search(token)).containsExactly(kept.getId());
+
+        // Facet index
+        assertThat(addressFacetIndex.filter(AddressFacetIndex.criteria(city, null, null), FacetMatch.EXACT).toArray())
+                .containsExactly(kept.getId());
+
+        // LSH index
+        int[] indexed = addressDuplicateIndex.addressIds();
+        for (Address address : deletedAddresses) {
+            assertThat(addressDuplicateIndex.customerOf(address.getId())).isNull();
+            assertThat(indexed).doesNotContain(address.getId());
+        }
+        assertThat(addressDuplicateIndex.customerOf(kept.getAddresses().get(0).getId())).isEqualTo(kept.getId());
+        assertThat(addressDuplicateIndex.similar(copy(deletedAddresses.get(0)), 0.5, 50))
+                .extracting(MinHashLsh.Match::id)
+                .doesNotContainAnyElementsOf(deletedAddresses.stream().map(Address::getId).toList());
+
+        // Uniqueness index: the deleted values are free, the kept ones still taken
+        Customer reuse = Customer.builder().email(deleted.get(0).getEmail()).phone(deleted.get(0).getPhone())
+                .addresses(List.of(copy(deletedAddresses.get(0)))).build();
+        assertThat(uniquenessIndex.findConflict(reuse)).isNull();
+        assertThat(uniquenessIndex.findConflict(copy(deletedAddresses.get(1)), null)).isNull();
+        assertThat(uniquenessIndex.findConflict(copy(kept.getAddresses().get(0)), null))
+                .isEqualTo(UniqueKey.ADDRESS_HASH);
+        assertThat(uniquenessIndex.findConflict(Customer.builder().email(kept.getEmail()).phone("0").build()))
+                .isEqualTo(UniqueKey.EMAIL);
+
+        // And the database agrees: the same customer and address can be created again
+        Customer recreated = customerService.createCustomer(Customer.builder()
+                .firstName("Purge")
+                .lastName(token)
+                .email(deleted.get(0).getEmail())
+                .phone(deleted.get(0).getPhone())
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(copy(deletedAddresses.get(0)))))
+                .build());
+        assertThat(search(token)).containsExactly(kept.getId(), recreated.getId());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Customers are created on days of 1995 no other test uses, so the bounded exports hold only this test's rows
+@SpringBootTest
+class CustomerExportTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static LocalDateTime day() {
+        return LocalDateTime.of(1995, 1, 1, 0, 0).plusDays(UNIQUE.incrementAndGet() % 300);
+    }
+
+    private Customer customer(LocalDateTime createdAt, int addresses) {
+        long n = UNIQUE.incrementAndGet();
+        List<Address> list = new ArrayList<>();
+        for (int i = 0; i < addresses; i++) {
+            list.add(Address.builder().street(n + " Export St " + i).city("Figueres").state("Catalonia")
+                    .pincode("17600").country("Spain").build());
+        }
+        return customerService.createCustomer(Customer.builder()
+                .firstName("Export")
+                .lastName("Customer" + n)
+                .email("export" + n + "@example.com")
+                .phone(String.valueOf(1_500_000_000L + n))
+                .createdAt(createdAt)
+                .addresses(list)
+                .build());
+    }
+
+    private String export(CustomerExportService.Format format, LocalDateTime from, LocalDateTime to) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        customerExportService.export(output, format, from, to);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    // Customer ids of the NDJSON lines, in order, restricted to the given ones
+    private List<Integer> exportedIds(LocalDateTime from, LocalDateTime to, Set<Integer> ours) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (String line : export(CustomerExportService.Format.NDJSON, from, to).split("\n")) {
+            int id = objectMapper.readTree(line).path("id").asInt();
+            if (ours.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void boundsSelectCustomersByCreatedAt() throws Exception {
+        LocalDateTime day = day();
+        Customer late = customer(day.plusHours(12), 1);
+        Customer first = customer(day, 0);
+        Customer next = customer(day.plusDays(1), 2);
+        Customer undated = customer(day.plusHours(6), 1);
+        jdbcTemplate.update("UPDATE customers SET created_at = NULL WHERE id = ?", undated.getId());
+        Set<Integer> ours = Set.of(late.getId(), first.getId(), next.getId(), undated.getId());
+
+        // From inclusive, to exclusive, in created_at order whatever the ids
+        assertThat(exportedIds(day, day.plusDays(1), ours)).containsExactly(first.getId(), late.getId());
+        assertThat(customerExportService.export(new ByteArrayOutputStream(), CustomerExportService.Format.CSV,
+                day, day.plusDays(1))).isEqualTo(2);
+        assertThat(exportedIds(day.plusHours(12), null, ours)).containsExactly(late.getId(), next.getId());
+        assertThat(exportedIds(null, day.plusHours(12), ours)).containsExactly(first.getId());
+        // A customer without created_at is only in the unbounded export
+        assertThat(exportedIds(null, null, ours)).containsExactlyInAnyOrder(late.getId(), first.getId(), next.getId(),
+                undated.getId());
+    }
+
+    @Test
+    void eachCustomerIsOneObjectOrAdjacentRows() throws Exception {
+        LocalDateTime day = day();
+        Customer two = customer(day.plusHours(1), 2);
+        Customer none = customer(day.plusHours(2), 0);
+        Customer one = customer(day.plusHours(3), 1);
+
+        String[] lines = export(CustomerExportService.Format.NDJSON, day, day.plusDays(1)).split("\n");
+        assertThat(lines).hasSize(3);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.path("id").asInt()).isEqualTo(two.getId());
+        assertThat(first.path("createdAt").asText()).isEqualTo(day.plusHours(1).toString() + ":00");
+        assertThat(first.path("addresses").findValuesAsText("street"))
+                .containsExactlyInAnyOrderElementsOf(streets(two));
+        assertThat(first.path("addresses").get(0).path("street2").isNull()).isTrue();
+        assertThat(objectMapper.readTree(lines[1]).path("addresses").isEmpty()).isTrue();
+        JsonNode last = objectMapper.readTree(lines[2]);
+        assertThat(last.path("id").asInt()).isEqualTo(one.getId());
+        assertThat(last.path("addresses").get(0).path("id").asInt()).isEqualTo(one.getAddresses().get(0).getId());
+        assertThat(last.path("addresses").get(0).path("city").asText()).isEqualTo("Figueres");
+
+        List<List<String>> rows = csvRows(export(CustomerExportService.Format.CSV, day, day.plusDays(1)));
+        assertThat(rows).hasSize(5);
+        assertThat(rows.get(0)).containsExactly("customerId", "firstName", "lastName", "email", "phone", "createdAt",
+                "addressId", "street", "street2", "city", "state", "pincode", "country");
+        assertThat(rows.subList(1, 5).stream().map(row -> Integer.valueOf(row.get(0))))
+                .containsExactly(two.getId(), two.getId(), none.getId(), one.getId());
+        assertThat(rows.subList(1, 3).stream().map(row -> row.get(7)))
+                .containsExactlyInAnyOrderElementsOf(streets(two));
+        // The customer without addresses has empty address cells
+        assertThat(rows.get(3)).containsExactly(String.valueOf(none.getId()), "Export", none.getLastName(),
+                none.getEmail(), none.getPhone(), day.plusHours(2) + ":00", "", "", "", "", "", "", "");
+        assertThat(rows.get(4)).containsExactly(String.valueOf(one.getId()), "Export", one.getLastName(),
+                one.getEmail(), one.getPhone(), day.plusHours(3) + ":00",
+                String.valueOf(one.getAddresses().get(0).getId()), one.getAddresses().get(0).getStreet(), "",
+                "Figueres", "Catalonia", "17600", "Spain");
+    }
+
+    private static List<List<String>> csvRows(String csv) throws Exception {
+        CsvMapper mapper = new CsvMapper();
+        mapper.enable(CsvParser.Feature.WRAP_AS_ARRAY);
+        try (MappingIterator<String[]> rows = mapper.readerFor(String[].class).readValues(csv)) {
+            return rows.readAll().stream().map(Arrays::asList).toList();
+        }
+    }
+
+    private static List<String> streets(Customer customer) {
+        return customer.getAddresses().stream().map(Address::getStreet).toList();
+    }
+}
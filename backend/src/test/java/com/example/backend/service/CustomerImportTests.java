@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.BulkImportResponse;
+import com.example.backend.dto.ImportRecordResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Chunks of two records and commit groups of two chunks, so a few records cross both boundaries
+@SpringBootTest(properties = {"app.import.chunk-size=2", "app.import.commit-interval=2"})
+class CustomerImportTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static String record(long n, String email, String createdAt) {
+        return String.format("{\"firstName\":\"Imported\",\"lastName\":\"Customer\",\"email\":\"%s\",\"phone\":\"%d\"," +
+                "%s\"addresses\":[{\"street\":\"%d Import St\",\"city\":\"Girona\",\"state\":\"Catalonia\"," +
+                "\"pincode\":\"17001\",\"country\":\"Spain\"}]}", email, 8_000_000_000L + n,
+                createdAt == null ? "" : "\"createdAt\":" + createdAt + ",", n);
+    }
+
+    private static String phone(long n) {
+        return String.valueOf(8_000_000_000L + n);
+    }
+
+    private BulkImportResponse importLines(boolean failuresOnly, String... lines) throws Exception {
+        return customerImportService.importCustomers(
+                new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)),
+                CustomerImportService.Format.NDJSON, failuresOnly);
+    }
+
+    @Test
+    void nullCreatedAtDefaultsToNow() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        BulkImportResponse response = importLines(false, record(n, "import" + n + "@example.com", "null"),
+                record(n + 500_000, "import" + (n + 500_000) + "@example.com", null));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(ImportRecordResult::getStatus).containsExactly("CREATED", "CREATED");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE email = ? AND created_at IS NOT NULL",
+                Integer.class, "import" + n + "@example.com")).isEqualTo(1);
+    }
+
+    @Test
+    void failuresOnlyReportsJustTheRejectedRecords() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        String email = "failures" + n + "@example.com";
+        BulkImportResponse response = importLines(true, record(n, email, null), "not json",
+                record(n + 500_000, email, null), record(n + 600_000, "other" + n + "@example.com", null));
+
+        assertThat(response.getTotal()).isEqualTo(4);
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getRejected()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(ImportRecordResult::getRecord, ImportRecordResult::getErrorCode)
+                .containsExactly(tuple(2L, "MALFORMED_RECORD"), tuple(3L, "DUPLICATE_EMAIL"));
+    }
+
+    @Test
+    void emailsAreComparedTrimmedAndIgnoringCase() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        assertThat(importLines(false, record(n, "known" + n + "@example.com", null)).getCreated()).isEqualTo(1);
+
+        BulkImportResponse response = importLines(false,
+                record(n + 100_000, " Mixed" + n + "@Example.com ", null),
+                record(n + 200_000, "mixed" + n + "@example.com", null),
+                record(n + 300_000, "KNOWN" + n + "@EXAMPLE.COM", null));
+
+        assertThat(response.getResults()).extracting(ImportRecordResult::getStatus, ImportRecordResult::getErrorCode)
+                .containsExactly(tuple("CREATED", null), tuple("REJECTED", "DUPLICATE_EMAIL"),
+                        tuple("REJECTED", "DUPLICATE_EMAIL"));
+        // Stored trimmed, in the case it was given
+        assertThat(jdbcTemplate.queryForObject("SELECT email FROM customers WHERE phone = ?", String.class,
+                phone(n + 100_000))).isEqualTo("Mixed" + n + "@Example.com");
+    }
+
+    // Keys of written groups are no longer held in memory, the pre-check finds them in the table
+    @Test
+    void duplicatesOfWrittenGroupsAreStillRejected() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        long[] numbers = new long[8];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = n + (i + 1) * 100_000L;
+        }
+        String first = "groups" + numbers[0] + "@example.com";
+        String rejected = "groups" + numbers[4] + "@example.com";
+
+        BulkImportResponse response = importLines(false,
+                record(numbers[0], first, null),
+                record(numbers[1], "groups" + numbers[1] + "@example.com", null),
+                record(numbers[2], "groups" + numbers[2] + "@example.com", null),
+                record(numbers[3], "groups" + numbers[3] + "@example.com", null),
+                // Next group: the phone of record 1, the address of record 2, the email of record 1
+                record(numbers[4], rejected, null).replace(phone(numbers[4]), phone(numbers[0])),
+                record(numbers[1], "groups" + numbers[5] + "@example.com", null)
+                        .replace(phone(numbers[1]), phone(numbers[5])),
+                record(numbers[6], first, null),
+                // Record 5 was never created, so its email is free
+                record(numbers[7], rejected, null));
+
+        assertThat(response.getResults()).extracting(ImportRecordResult::getStatus, ImportRecordResult::getErrorCode)
+                .containsExactly(tuple("CREATED", null), tuple("CREATED", null), tuple("CREATED", null),
+                        tuple("CREATED", null), tuple("REJECTED", "DUPLICATE_PHONE"),
+                        tuple("REJECTED", "DUPLICATE_ADDRESS"), tuple("REJECTED", "DUPLICATE_EMAIL"),
+                        tuple("CREATED", null));
+        assertThat(jdbcTemplate.queryForObject("SELECT phone FROM customers WHERE email = ?", String.class, rejected))
+                .isEqualTo(phone(numbers[7]));
+    }
+}
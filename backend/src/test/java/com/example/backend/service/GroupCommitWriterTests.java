@@ -0,0 +1,125 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// A long max-wait so concurrent creates land in the same batch
+@SpringBootTest(properties = {"app.group-commit.enabled=true", "app.group-commit.writers=1",
+        "app.group-commit.max-batch-size=20", "app.group-commit.max-wait=300ms"})
+class GroupCommitWriterTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @Autowired
+    private GroupCommitWriter groupCommitWriter;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static Customer customer(String email) {
+        long n = UNIQUE.incrementAndGet();
+        Address address = Address.builder()
+                .street(n + " Group St")
+                .city("Girona")
+                .state("Catalonia")
+                .pincode("17001")
+                .country("Spain")
+                .build();
+        return Customer.builder()
+                .firstName("Group")
+                .lastName("Commit")
+                .email(email != null ? email : "group" + n + "@example.com")
+                .phone(String.valueOf(6_000_000_000L + n))
+                .createdAt(LocalDateTime.now())
+                .addresses(new ArrayList<>(List.of(address)))
+                .build();
+    }
+
+    // Submit every customer from its own thread at once and collect what each caller gets back
+    private List<Future<Customer>> createConcurrently(List<Customer> customers) throws InterruptedException {
+        ExecutorService callers = Executors.newFixedThreadPool(customers.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Customer>> results = new ArrayList<>();
+        for (Customer customer : customers) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return groupCommitWriter.createCustomer(customer);
+            }));
+        }
+        start.countDown();
+        callers.shutdown();
+        assertThat(callers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        return results;
+    }
+
+    @Test
+    void concurrentCreatesShareACommit() throws Exception {
+        double batchesBefore = meterRegistry.summary("app.group-commit.batch.size").count();
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            customers.add(customer(null));
+        }
+
+        for (Future<Customer> result : createConcurrently(customers)) {
+            Customer created = result.get();
+            assertThat(created.getId()).isNotNull();
+            assertThat(created.getAddresses().get(0).getId()).isNotNull();
+            assertThat(customerRepository.findById(created.getId())).isPresent();
+        }
+        assertThat(meterRegistry.summary("app.group-commit.batch.size").count() - batchesBefore).isLessThan(10);
+    }
+
+    @Test
+    void duplicateFailsOnlyItsOwnCreate() throws Exception {
+        String email = "group-duplicate" + UNIQUE.incrementAndGet() + "@example.com";
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            customers.add(customer(i == 2 || i == 4 ? email : null));
+        }
+
+        int created = 0;
+        int duplicates = 0;
+        for (Future<Customer> result : createConcurrently(customers)) {
+            try {
+                assertThat(customerRepository.findById(result.get().getId())).isPresent();
+                created++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(DataIntegrityViolationException.class);
+                duplicates++;
+            }
+        }
+        assertThat(created).isEqualTo(5);
+        assertThat(duplicates).isEqualTo(1);
+        assertThat(customerRepository.findExistingEmails(List.of(email))).containsExactly(email);
+    }
+
+    @Test
+    void missingCustomerFailsLikeADirectWrite() {
+        Address address = customer(null).getAddresses().get(0);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> groupCommitWriter.createAddress(-1, address));
+        assertThat(e.getMessage()).isEqualTo("Customer not found");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.backend.sharding;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.uniqueness.AddressHasher;
+import com.example.backend.uniqueness.UniqueKey;
+import com.example.backend.uniqueness.UniqueKeyTakenException;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Sharding turned on for a database that ran unsharded: its customers are all on shard 0
+class ShardRebalanceTests {
+
+    private static final List<String> SHARDS = List.of(
+            "jdbc:h2:mem:rebalance0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:rebalance1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:rebalance2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1");
+    private static final int CUSTOMERS = 30;
+
+    private static JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource(SHARDS.get(shard), "sa", ""));
+    }
+
+    // Command line arguments, which take precedence over the test application.properties
+    private static ConfigurableApplicationContext start(boolean rebalance) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + SHARDS.get(0),
+                        "--app.sharding.urls=" + SHARDS.get(1) + "," + SHARDS.get(2),
+                        "--app.sharding.rebalance=" + rebalance,
+                        "--app.sharding.rebalance-chunk-size=7",
+                        "--app.sharding.backfill-batch-size=8",
+                        "--app.cache.enabled=false",
+                        "--app.uniqueness.index.enabled=false",
+                        "--app.search.index.enabled=false",
+                        "--app.search.facets.enabled=false",
+                        "--app.duplicates.enabled=false");
+    }
+
+    private static void seedUnshardedDatabase() {
+        Flyway.configure().dataSource(SHARDS.get(0), "sa", "").load().migrate();
+        JdbcTemplate jdbc = shard(0);
+        for (int id = 1; id <= CUSTOMERS; id++) {
+            jdbc.update("INSERT INTO customers (id, first_name, last_name, phone, email, num_addresses) " +
+                    "VALUES (?, 'Unsharded', 'Customer', ?, ?, 1)", id, String.valueOf(7_000_000_000L + id),
+                    "Unsharded" + id + "@example.com");
+            String street = id + " Rebalance St";
+            jdbc.update("INSERT INTO addresses (id, customer_id, street, city, state, pincode, country, address_hash) " +
+                    "VALUES (?, ?, ?, 'Reus', 'Catalonia', '43201', 'Spain', ?)", 1000 + id, id, street,
+                    AddressHasher.hash(street, null, "Reus", "Catalonia", "43201", "Spain"));
+        }
+    }
+
+    @Test
+    void misplacedCustomersAreMovedAndTheirValuesClaimed() {
+        seedUnshardedDatabase();
+
+        assertThatThrownBy(() -> start(false)).hasStackTraceContaining("app.sharding.rebalance=true");
+        assertThat(shard(0).queryForObject("SELECT COUNT(*) FROM customers", Integer.class)).isEqualTo(CUSTOMERS);
+
+        try (ConfigurableApplicationContext context = start(true)) {
+            ShardRouter shardRouter = context.getBean(ShardRouter.class);
+            for (int id = 1; id <= CUSTOMERS; id++) {
+                for (int shard = 0; shard < SHARDS.size(); shard++) {
+                    int expected = shard == shardRouter.shardOf(id) ? 1 : 0;
+                    assertThat(shard(shard).queryForObject("SELECT COUNT(*) FROM customers WHERE id = ?",
+                            Integer.class, id)).isEqualTo(expected);
+                    assertThat(shard(shard).queryForObject("SELECT COUNT(*) FROM addresses WHERE customer_id = ?",
+                            Integer.class, id)).isEqualTo(expected);
+                }
+            }
+
+            // Every value stored before sharding is claimed by its customer
+            JdbcTemplate claims = shard(0);
+            for (UniqueKey key : UniqueKey.values()) {
+                assertThat(claims.queryForObject("SELECT COUNT(*) FROM unique_key_claims WHERE key_name = ?",
+                        Integer.class, key.getConstraintName())).isEqualTo(CUSTOMERS);
+            }
+            assertThat(claims.queryForObject("SELECT owner_id FROM unique_key_claims WHERE key_name = 'email' " +
+                    "AND key_value = 'unsharded7@example.com'", Integer.class)).isEqualTo(7);
+
+            UniqueKeyRegistry registry = context.getBean(UniqueKeyRegistry.class);
+            assertThatThrownBy(() -> registry.claim(UniqueKey.EMAIL, "unsharded7@example.com", 8))
+                    .isInstanceOf(UniqueKeyTakenException.class);
+            assertThatThrownBy(() -> registry.claim(UniqueKey.ADDRESS_HASH,
+                    AddressHasher.hash("7 Rebalance Street", null, "reus", "Catalonia", "43201", "Spain"), 8))
+                    .isInstanceOf(UniqueKeyTakenException.class);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.backend.sharding;
+
+import com.example.backend.controller.CustomerController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Three in-memory databases as shards: spring.datasource is shard 0, the other two come from app.sharding.urls.
+// The in-memory uniqueness index is off so duplicates are caught by the claims, not before the write.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=" + ShardingTests.SHARD_0,
+        "app.sharding.urls=" + ShardingTests.SHARD_1 + "," + ShardingTests.SHARD_2,
+        "app.cache.enabled=false",
+        "app.uniqueness.index.enabled=false",
+        "app.search.index.enabled=false",
+        "app.search.facets.enabled=false"})
+class ShardingTests {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1";
+    private static final List<String> SHARDS = List.of(SHARD_0, SHARD_1, SHARD_2);
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private JsonNode send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static String address(long n) {
+        return String.format("{\"street\":\"%d Shard St\",\"city\":\"Lleida\",\"state\":\"Catalonia\"," +
+                "\"pincode\":\"25001\",\"country\":\"Spain\"}", n);
+    }
+
+    private static String customer(String email, long n, String address) {
+        return String.format("{\"firstName\":\"Sharded\",\"lastName\":\"Customer\",\"email\":\"%s\",\"phone\":\"%d\"," +
+                "\"addresses\":[%s]}", email, 6_000_000_000L + n, address);
+    }
+
+    private JsonNode create() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        JsonNode created = send("POST", "/api/customers", customer("sharded" + n + "@example.com", n, address(n)));
+        assertThat(created.path("errorCode").asText()).isEqualTo("SUCCESS");
+        return created;
+    }
+
+    private static JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource(SHARDS.get(shard), "sa", ""));
+    }
+
+    private static int count(int shard, String sql, Object... args) {
+        return shard(shard).queryForObject(sql, Integer.class, args);
+    }
+
+    // Two new customers placed on different shards
+    private List<JsonNode> onDifferentShards() throws Exception {
+        JsonNode first = create();
+        JsonNode second;
+        do {
+            second = create();
+        } while (shardRouter.shardOf(second.path("id").asInt()) == shardRouter.shardOf(first.path("id").asInt()));
+        return List.of(first, second);
+    }
+
+    @Test
+    void customersAndAddressesLiveOnTheirShard() throws Exception {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 9; i++) {
+            JsonNode created = create();
+            int id = created.path("id").asInt();
+            int home = shardRouter.shardOf(id);
+            used.add(home);
+            for (int shard = 0; shard < SHARDS.size(); shard++) {
+                assertThat(count(shard, "SELECT COUNT(*) FROM customers WHERE id = ?", id)).isEqualTo(shard == home ? 1 : 0);
+                assertThat(count(shard, "SELECT COUNT(*) FROM addresses WHERE customer_id = ?", id))
+                        .isEqualTo(shard == home ? 1 : 0);
+            }
+
+            JsonNode read = send("GET", "/api/customers/" + id, null);
+            assertThat(read.path("email").asText()).isEqualTo(created.path("email").asText());
+            int addressId = read.path("addresses").get(0).path("id").asInt();
+            assertThat(send("GET", "/api/addresses/getAddress/" + addressId, null).path("errorCode").asText())
+                    .isEqualTo("SUCCESS");
+        }
+        assertThat(used).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void listingsMergeEveryShard() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            create();
+        }
+        Set<Integer> all = new HashSet<>();
+        for (int shard = 0; shard < SHARDS.size(); shard++) {
+            all.addAll(shard(shard).queryForList("SELECT id FROM customers", Integer.class));
+        }
+
+        JsonNode page = send("GET", "/api/customers?page=0&size=1000&sortBy=email&sortDir=desc", null);
+        assertThat(page.path("totalElements").asInt()).isEqualTo(all.size());
+        List<String> emails = new ArrayList<>();
+        page.path("content").forEach(customer -> emails.add(customer.path("email").asText()));
+        assertThat(emails).hasSize(all.size()).isSortedAccordingTo(String.CASE_INSENSITIVE_ORDER.reversed());
+
+        // Second offset page continues where the first left off
+        JsonNode second = send("GET", "/api/customers?page=1&size=2&sortBy=email&sortDir=desc", null);
+        assertThat(second.path("content").get(0).path("email").asText()).isEqualTo(emails.get(2));
+
+        List<Integer> visited = new ArrayList<>();
+        String cursor = "";
+        do {
+            JsonNode cursorPage = send("GET", "/api/customers?size=4&sortBy=firstName&cursor="
+                    + URLEncoder.encode(cursor, StandardCharsets.UTF_8), null);
+            cursorPage.path("content").forEach(customer -> visited.add(customer.path("id").asInt()));
+            cursor = cursorPage.path("hasNext").asBoolean() ? cursorPage.path("nextCursor").asText() : null;
+        } while (cursor != null);
+        assertThat(visited).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(all);
+    }
+
+    @Test
+    void uniqueValuesAreCheckedAcrossShards() throws Exception {
+        List<JsonNode> customers = onDifferentShards();
+        JsonNode owner = customers.get(0);
+        JsonNode other = customers.get(1);
+
+        // Same email as a customer on another shard
+        long n = UNIQUE.incrementAndGet();
+        JsonNode duplicateEmail = send("POST", "/api/customers",
+                customer(owner.path("email").asText().toUpperCase(), n, address(n)));
+        assertThat(duplicateEmail.path("errorCode").asText()).isEqualTo("DUPLICATE_EMAIL");
+
+        JsonNode update = send("PUT", "/api/customers", String.format("{\"id\":%d,\"firstName\":\"Sharded\"," +
+                "\"lastName\":\"Customer\",\"email\":\"%s\",\"phone\":\"%s\"}", other.path("id").asInt(),
+                owner.path("email").asText(), other.path("phone").asText()));
+        assertThat(update.path("errorCode").asText()).isEqualTo("DUPLICATE_EMAIL");
+
+        // Same address as one of a customer on another shard
+        JsonNode ownerAddress = owner.path("addresses").get(0);
+        JsonNode duplicateAddress = send("POST", "/api/addresses/" + other.path("id").asInt(),
+                objectMapper.writeValueAsString(ownerAddress));
+        assertThat(duplicateAddress.path("errorCode").asText()).isEqualTo("DUPLICATE_ADDRESS");
+    }
+
+    @Test
+    void deletedCustomersReleaseTheirValues() throws Exception {
+        JsonNode created = create();
+        int id = created.path("id").asInt();
+        String email = created.path("email").asText();
+        assertThat(send("DELETE", "/api/customers/" + id, null).path("errorCode").isNull()).isTrue();
+        assertThat(count(0, "SELECT COUNT(*) FROM unique_key_claims WHERE owner_id = ?", id)).isZero();
+
+        long n = UNIQUE.incrementAndGet();
+        JsonNode again = send("POST", "/api/customers", customer(email, n,
+                address(Long.parseLong(created.path("addresses").get(0).path("street").asText().split(" ")[0]))));
+        assertThat(again.path("errorCode").asText()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void customerRequestsAreBoundUnderAContextPath() throws Exception {
+        int id = create().path("id").asInt();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/customers/" + id);
+        request.setContextPath("/app");
+        request.setServletPath("/api/customers/" + id);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", String.valueOf(id)));
+        HandlerMethod handler = new HandlerMethod(mock(CustomerController.class),
+                CustomerController.class.getMethod("getCustomerById", Integer.class, String.class));
+
+        ShardRoutingInterceptor interceptor = new ShardRoutingInterceptor(shardRouter);
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+        try {
+            assertThat(ShardContext.current()).isEqualTo(shardRouter.shardOf(id));
+        } finally {
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), handler, null);
+        }
+        assertThat(ShardContext.current()).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.backend.uniqueness;
+
+import com.example.backend.uniqueness.AddressCanonicalizer.Field;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AddressHashTests {
+
+    private static byte[] hash(String street, String street2, String city, String state, String pincode,
+                               String country) {
+        return AddressHasher.hash(street, street2, city, state, pincode, country);
+    }
+
+    @Test
+    void spellingsOfTheSameAddressHashAlike() {
+        byte[] hash = hash("12 Main Street", "Apartment 4", "San Francisco", "CA", "94103", "USA");
+        assertThat(hash).hasSize(AddressHasher.HASH_BYTES);
+        assertThat(hash("12  MAIN st.", "apt 4", " san francisco ", "ca", "94 103", "usa")).isEqualTo(hash);
+        // Full-width digits and a no-break space, folded by NFKC
+        assertThat(hash("１２\u00A0Main St", "Apt 4", "San Francisco", "CA", "94103", "USA")).isEqualTo(hash);
+
+        // Fields are kept apart: moving text between street2 and city is a different address
+        assertThat(hash("12 Main Street", "Apartment 4 San", "Francisco", "CA", "94103", "USA")).isNotEqualTo(hash);
+        assertThat(hash("12 Main Street", null, "San Francisco", "CA", "94103", "USA"))
+                .isEqualTo(hash("12 Main Street", "", "San Francisco", "CA", "94103", "USA"));
+    }
+
+    @Test
+    void abbreviationsAreOnlyExpandedOnStreetLines() {
+        assertThat(AddressCanonicalizer.canonicalize("221B Baker St.", Field.STREET_LINE)).isEqualTo("221b baker street");
+        assertThat(AddressCanonicalizer.canonicalize("St. Louis", Field.PLACE)).isEqualTo("st louis");
+        assertThat(AddressCanonicalizer.canonicalize("Straße", Field.PLACE)).isEqualTo("straße");
+        assertThat(AddressCanonicalizer.canonicalize("SW1A 1AA", Field.POSTAL_CODE)).isEqualTo("sw1a1aa");
+    }
+
+    @Test
+    void migrationRehashesRowsAndReportsCollisions() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:rehash;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        Flyway.configure().dataSource(dataSource).target("7").load().migrate();
+
+        // Rows and a claim as written before V8, hashed with the raw-field hex SHA-256
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO customers (id, first_name, last_name, phone, email) VALUES " +
+                "(1, 'Leo', 'Messi', '9876543210', 'lm10@example.com'), " +
+                "(2, 'Pedri', 'Potter', '9876543212', 'pedri@example.com')");
+        jdbc.update("INSERT INTO addresses (id, customer_id, street, street2, city, state, pincode, country, " +
+                "address_hash) VALUES " +
+                "(10, 1, '789 Market St', NULL, 'San Francisco', 'CA', '94103', 'USA', 'legacy-10'), " +
+                "(11, 2, '789 market street', NULL, 'san francisco', 'CA', '94103', 'USA', 'legacy-11'), " +
+                "(12, 2, '99 Greeky Row', 'Apt 2', 'Barcelona', 'TX', '12345', 'USA', 'legacy-12')");
+        jdbc.update("INSERT INTO unique_key_claims (key_name, key_value, owner_id, claimed_at) " +
+                "VALUES ('uk_address_hash', 'legacy-12', 2, CURRENT_TIMESTAMP)");
+        jdbc.update("INSERT INTO unique_key_backfills (key_name, completed_at) VALUES " +
+                "('email', CURRENT_TIMESTAMP), ('uk_address_hash', CURRENT_TIMESTAMP)");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        Map<String, Object> column = jdbc.queryForMap("SELECT data_type, character_maximum_length " +
+                "FROM information_schema.columns WHERE table_name = 'addresses' AND column_name = 'address_hash'");
+        assertThat(column.get("data_type").toString()).isEqualToIgnoringCase("binary");
+        assertThat(((Number) column.get("character_maximum_length")).intValue()).isEqualTo(AddressHasher.HASH_BYTES);
+
+        // The lowest id keeps the canonical hash, the duplicate is recorded and made unique
+        byte[] canonical = AddressHasher.hash("789 Market St", null, "San Francisco", "CA", "94103", "USA");
+        assertThat(jdbc.queryForObject("SELECT address_hash FROM addresses WHERE id = 10", byte[].class))
+                .isEqualTo(canonical);
+        assertThat(jdbc.queryForObject("SELECT address_hash FROM addresses WHERE id = 11", byte[].class))
+                .hasSize(AddressHasher.HASH_BYTES).isNotEqualTo(canonical);
+        assertThat(jdbc.queryForList("SELECT address_id, customer_id, duplicate_of FROM address_hash_collisions"))
+                .containsExactly(Map.of("address_id", 11L, "customer_id", 2, "duplicate_of", 10L));
+
+        // Address claims are left to the backfill of the next sharded start, which reads every shard
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM unique_key_claims", Integer.class)).isZero();
+        assertThat(jdbc.queryForList("SELECT key_name FROM unique_key_backfills", String.class))
+                .containsExactly("email");
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.backend.uniqueness;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+    @Test
+    void addedValuesAreAlwaysFoundAndOthersRarely() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("customer" + i + "@example.com");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("customer" + i + "@example.com")).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain("customer" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        // Configured for 1%, with some slack
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void valueSetKeepsOwnersAcrossRemovesAndRebuilds() {
+        UniqueValueSet<String> set = UniqueValueSet.ofStrings(0);
+        set.put("a@example.com", 1);
+        set.put("b@example.com", 2);
+        assertThat(set.owner("a@example.com")).isEqualTo(1);
+        assertThat(set.owner("c@example.com")).isNull();
+
+        // Only the current owner releases a value: a stale release after it moved leaves it taken
+        set.put("a@example.com", 3);
+        set.remove("a@example.com", 1);
+        assertThat(set.owner("a@example.com")).isEqualTo(3);
+        set.remove("a@example.com", 3);
+        assertThat(set.owner("a@example.com")).isNull();
+
+        // Well past the size the filter was built for, so it is rebuilt several times
+        for (int i = 0; i < 5_000; i++) {
+            set.put("bulk" + i + "@example.com", 100 + i);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(set.owner("bulk" + i + "@example.com")).isEqualTo(100 + i);
+        }
+        assertThat(set.owner("b@example.com")).isEqualTo(2);
+        assertThat(set.size()).isEqualTo(5_001);
+    }
+
+    @Test
+    void hashSetMatchesHashesByContent() {
+        UniqueValueSet<ByteBuffer> set = UniqueValueSet.ofHashes(0);
+        for (int i = 0; i < 5_000; i++) {
+            set.put(AddressHasher.key(AddressHasher.hash(i + " Bloom St", null, "Vic", "Catalonia", "08500", "Spain")), i);
+        }
+        // Fresh arrays of the same hashes, as a request computes them
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(set.owner(AddressHasher.key(AddressHasher.hash(i + " Bloom Street", "", "VIC", "Catalonia",
+                    "08500", "Spain")))).isEqualTo(i);
+        }
+        assertThat(set.owner(AddressHasher.key(AddressHasher.hash("5000 Bloom St", null, "Vic", "Catalonia", "08500",
+                "Spain")))).isNull();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.backend.uniqueness;
+
+import com.example.backend.event.AddressChangedEvent;
+import com.example.backend.event.ChangeType;
+import com.example.backend.event.CustomerChangedEvent;
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+import com.example.backend.repository.AddressRepository;
+import com.example.backend.repository.CustomerRepository;
+import com.example.backend.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UniquenessIndexTests {
+
+    private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UniquenessIndex uniquenessIndex;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void waitForIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !uniquenessIndex.isAvailable(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(uniquenessIndex.isAvailable()).isTrue();
+    }
+
+    private JsonNode call(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static String address(String street) {
+        return String.format("{\"street\":\"%s\",\"city\":\"Tarragona\",\"state\":\"Catalonia\",\"pincode\":\"43001\"," +
+                "\"country\":\"Spain\"}", street);
+    }
+
+    private JsonNode createCustomer(String email, String phone, String... streets) throws Exception {
+        List<String> addresses = new ArrayList<>();
+        for (String street : streets) {
+            addresses.add(address(street));
+        }
+        return call("POST", "/api/customers", String.format("{\"firstName\":\"Unique\",\"lastName\":\"Customer\"," +
+                "\"email\":\"%s\",\"phone\":\"%s\",\"addresses\":[%s]}", email, phone, String.join(",", addresses)));
+    }
+
+    @Test
+    void knownDuplicatesAreRejectedBeforeTheWrite() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        String email = "unique" + n + "@example.com";
+        String phone = String.valueOf(2_000_000_000L + 10 * n);
+        String otherPhone = String.valueOf(2_000_000_000L + 10 * n + 5);
+        JsonNode created = createCustomer(email, phone, n + " Unique St");
+        assertThat(created.path("errorCode").asText()).isEqualTo("SUCCESS");
+        int customerId = created.path("id").asInt();
+        int addressId = created.path("addresses").get(0).path("id").asInt();
+
+        // Email matches whatever the case, like the column's collation
+        assertThat(createCustomer("UNIQUE" + n + "@Example.COM", otherPhone, n + " Other St")
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_EMAIL");
+        assertThat(createCustomer("other" + n + "@example.com", phone, n + " Other St")
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_PHONE");
+        // The same address respelled, and twice in one request
+        assertThat(createCustomer("other" + n + "@example.com", otherPhone, n + " UNIQUE street")
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_ADDRESS");
+        assertThat(createCustomer("other" + n + "@example.com", otherPhone, n + " Twice St", n + " Twice Street")
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_ADDRESS");
+        assertThat(customerRepository.findExistingEmails(List.of("other" + n + "@example.com"))).isEmpty();
+
+        // Updates conflict with other rows only
+        JsonNode other = createCustomer("other" + n + "@example.com", otherPhone, n + " Other St");
+        assertThat(other.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(call("PUT", "/api/addresses/" + addressId, address(n + " Unique Street"))
+                .path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(call("PUT", "/api/addresses/" + addressId, address(n + " Other Street"))
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_ADDRESS");
+        assertThat(call("POST", "/api/addresses/" + customerId, address(n + " other st"))
+                .path("errorCode").asText()).isEqualTo("DUPLICATE_ADDRESS");
+
+        Customer update = Customer.builder().id(customerId).email(email.toUpperCase()).phone(phone).build();
+        assertThat(uniquenessIndex.findConflict(update)).isNull();
+        update.setEmail("OTHER" + n + "@example.com");
+        assertThat(uniquenessIndex.findConflict(update)).isEqualTo(UniqueKey.EMAIL);
+    }
+
+    @Test
+    void eventsDuringTheBuildWinOverStreamedRows() throws Exception {
+        long n = UNIQUE.incrementAndGet();
+        String deletedPhone = String.valueOf(2_000_000_000L + 10 * n);
+        String movedPhone = String.valueOf(2_000_000_000L + 10 * n + 1);
+        JsonNode deleted = createCustomer("deleted" + n + "@example.com", deletedPhone, n + " Deleted St",
+                n + " Deleted Ave");
+        JsonNode moved = createCustomer("moved" + n + "@example.com", movedPhone, n + " Before St");
+        assertThat(deleted.path("errorCode").asText()).isEqualTo("SUCCESS");
+        assertThat(moved.path("errorCode").asText()).isEqualTo("SUCCESS");
+
+        // A second index whose build is held back; the rows stay in the database, as in a stream that started
+        // before the changes below were committed
+        List<Runnable> builds = new ArrayList<>();
+        UniquenessIndex index = new UniquenessIndex(customerRepository, addressRepository, transactionManager,
+                shardRouter, builds::add, true);
+        index.buildOnStartup();
+        assertThat(builds).hasSize(1);
+
+        int deletedId = deleted.path("id").asInt();
+        index.onCustomerChanged(new CustomerChangedEvent(ChangeType.DELETED, deletedId, null));
+        int movedId = moved.path("id").asInt();
+        int movedAddressId = moved.path("addresses").get(0).path("id").asInt();
+        Address after = Address.builder().street(n + " After St").city("Tarragona").state("Catalonia")
+                .pincode("43001").country("Spain").build();
+        after.computeHash();
+        index.onAddressChanged(new AddressChangedEvent(ChangeType.UPDATED, movedAddressId, movedId, after));
+        index.onCustomerChanged(new CustomerChangedEvent(ChangeType.UPDATED, movedId, Customer.builder()
+                .id(movedId).email("renamed" + n + "@example.com").phone(movedPhone).build()));
+
+        builds.get(0).run();
+        assertThat(index.isAvailable()).isTrue();
+
+        // The delete took the customer's address hashes with it
+        assertThat(index.findConflict(Customer.builder().email("deleted" + n + "@example.com")
+                .phone(deletedPhone).addresses(List.of()).build())).isNull();
+        assertThat(index.findConflict(addressOn(n + " Deleted St"), null)).isNull();
+        assertThat(index.findConflict(addressOn(n + " Deleted Ave"), null)).isNull();
+        // The updates replaced the streamed values
+        assertThat(index.findConflict(addressOn(n + " Before St"), null)).isNull();
+        assertThat(index.findConflict(addressOn(n + " After St"), null)).isEqualTo(UniqueKey.ADDRESS_HASH);
+        assertThat(index.findConflict(Customer.builder().email("moved" + n + "@example.com").phone("0")
+                .addresses(List.of()).build())).isNull();
+        assertThat(index.findConflict(Customer.builder().email("RENAMED" + n + "@example.com").phone("0")
+                .addresses(List.of()).build())).isEqualTo(UniqueKey.EMAIL);
+        // Rows no event touched are streamed in
+        assertThat(index.findConflict(Customer.builder().email("x" + n + "@example.com")
+                .phone(movedPhone).addresses(List.of()).build())).isEqualTo(UniqueKey.PHONE);
+    }
+
+    private static Address addressOn(String street) {
+        return Address.builder().street(street).city("Tarragona").state("Catalonia").pincode("43001").country("Spain")
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.benchmarks;
+
+import com.example.backend.model.Address;
+import com.example.backend.uniqueness.AddressHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Address.computeHash throughput, and of the binary hash alone; run with -prof gc (the default of the benchmark profile) for the allocation rate
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressHashBenchmark {
+
+    private static final int POOL_SIZE = 1024;
+
+    private final Address[] addresses = new Address[POOL_SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            addresses[i] = Fixtures.address(i, null);
+        }
+    }
+
+    // Cycle through distinct inputs so canonicalization and digesting see varying lengths
+    @Benchmark
+    public String computeHash() {
+        Address address = addresses[next++ & (POOL_SIZE - 1)];
+        address.computeHash();
+        return address.getAddressHash();
+    }
+
+    // The bytes bound to address_hash, without the hex form the entity keeps
+    @Benchmark
+    public byte[] hashBytes() {
+        Address address = addresses[next++ & (POOL_SIZE - 1)];
+        return AddressHasher.hash(address.getStreet(), address.getStreet2(), address.getCity(), address.getState(),
+                address.getPincode(), address.getCountry());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.benchmarks;
+
+import com.example.backend.uniqueness.UniqueKey;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.exception.spi.ViolatedConstraintNameExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Classifying a unique key violation from a MySQL error: the dialect's constraint name extraction plus
+// UniqueKey lookup used by the controllers, against the former per-call regex over the message as a baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintClassificationBenchmark {
+
+    @Param({"email", "phone", "address_hash", "foreign_key"})
+    private String violation;
+
+    private final ViolatedConstraintNameExtractor extractor = new MySQLDialect().getViolatedConstraintNameExtractor();
+    private SQLIntegrityConstraintViolationException exception;
+
+    @Setup
+    public void setUp() {
+        exception = switch (violation) {
+            case "email" -> new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry 'jane.doe@example.com' for key 'customers.email'", "23000", 1062);
+            case "phone" -> new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '9876543210' for key 'customers.phone'", "23000", 1062);
+            case "address_hash" -> new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '3f0c2a9d8e7b6a5f4e3d2c1b0a9f8e7d6c5b4a3f2e1d0c9b8a7f6e5d4c3b2a1f' " +
+                    "for key 'addresses.uk_address_hash'", "23000", 1062);
+            default -> new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails (`rootlogic-demo`.`addresses`, " +
+                    "CONSTRAINT `fk_customer` FOREIGN KEY (`customer_id`) REFERENCES `customers` (`id`) " +
+                    "ON DELETE CASCADE)", "23000", 1452);
+        };
+    }
+
+    @Benchmark
+    public UniqueKey constraintName() {
+        return UniqueKey.fromConstraintName(extractor.extractConstraintName(exception));
+    }
+
+    // The removed controller helper: compiles the pattern on every call and scans the whole message
+    @Benchmark
+    public String messageRegex() {
+        Pattern pattern = Pattern.compile("(?i)(email|phone|address_hash)");
+        Matcher matcher = pattern.matcher(exception.getMessage());
+        if (matcher.find()) {
+            return matcher.group(1).toLowerCase();
+        }
+        return "unknown";
+    }
+}
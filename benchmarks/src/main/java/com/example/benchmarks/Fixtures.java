@@ -0,0 +1,50 @@
+package com.example.benchmarks;
+
+import com.example.backend.model.Address;
+import com.example.backend.model.Customer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Realistic entities shared by the benchmarks
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Customer customer(int id, int numAddresses) {
+        Customer customer = Customer.builder()
+                .id(id)
+                .firstName("Firstname" + id)
+                .lastName("Lastname" + id)
+                .email("customer" + id + "@example.com")
+                .phone(String.format("%010d", id))
+                .createdAt(LocalDateTime.of(2025, 8, 25, 19, 42).plusMinutes(id))
+                .numAddresses(numAddresses)
+                .version(3L)
+                .build();
+        List<Address> addresses = new ArrayList<>(numAddresses);
+        for (int i = 0; i < numAddresses; i++) {
+            addresses.add(address(id * 100 + i, customer));
+        }
+        customer.setAddresses(addresses);
+        return customer;
+    }
+
+    static Address address(int id, Customer customer) {
+        Address address = Address.builder()
+                .id(id)
+                .street(id + " Rambla de Catalunya")
+                .street2(id % 3 == 0 ? null : "Floor " + (id % 12) + ", Door " + (id % 4))
+                .city("Barcelona")
+                .state("Catalonia")
+                .pincode(String.valueOf(8000 + id % 100))
+                .country("Spain")
+                .customer(customer)
+                .version(1L)
+                .build();
+        address.computeHash();
+        return address;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.benchmarks;
+
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.example.backend.dto.CustomerResponse;
+import com.example.backend.mapper.AddressMapper;
+import com.example.backend.mapper.CustomerMapper;
+import com.example.backend.model.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Entity to DTO mapping of one customer, with and without its addresses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"0", "5", "50"})
+    private int addresses;
+
+    private final CustomerMapper customerMapper = new CustomerMapper(new AddressMapper());
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        customer = Fixtures.customer(42, addresses);
+    }
+
+    @Benchmark
+    public CustomerResponse toResponse() {
+        return customerMapper.toResponse(customer);
+    }
+
+    @Benchmark
+    public CustomerDetailsResponse toDetailsResponse() {
+        return customerMapper.toDetailsResponse(customer);
+    }
+}
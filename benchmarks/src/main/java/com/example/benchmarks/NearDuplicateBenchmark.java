@@ -0,0 +1,156 @@
+package com.example.benchmarks;
+
+import com.example.backend.search.AddressShingles;
+import com.example.backend.search.MinHashLsh;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Near-duplicate lookup of one address: the MinHash / LSH index (20 bands x 5 rows, as configured by default)
+// against a brute-force scan computing the exact Jaccard similarity with every address. Synthetic data, about a
+// fifth of it respelled copies (case, abbreviations, an extra word, swapped letters, a dropped street2).
+// Recall of the index against the brute-force results is printed once per trial, before the measurements: of the
+// bucket candidates, and of the matches whose estimated similarity passes, which misses pairs close to the threshold.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearDuplicateBenchmark {
+
+    private static final double MIN_SIMILARITY = 0.7;
+    private static final int QUERIES = 256;
+
+    private static final String[] STREETS = {"Market Street", "Rambla de Catalunya", "Gran Via", "Main Street",
+            "Diagonal Avenue", "Greeky Row", "Carrer de Balmes", "High Street", "Park Avenue", "MG Road",
+            "Calle de Alcala", "Baker Street", "Sunset Boulevard", "Ocean Drive", "Abbey Road", "Elm Lane"};
+    private static final String[][] CITIES = {{"Barcelona", "Catalonia", "Spain"}, {"Madrid", "Madrid", "Spain"},
+            {"San Francisco", "CA", "USA"}, {"Austin", "TX", "USA"}, {"Pune", "Maharashtra", "India"},
+            {"London", "England", "UK"}};
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private long[][] shingles;
+    private MinHashLsh lsh;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<String[]> addresses = new ArrayList<>(size);
+        while (addresses.size() < size) {
+            String[] address = randomAddress(random);
+            addresses.add(address);
+            if (random.nextInt(5) == 0 && addresses.size() < size) {
+                addresses.add(respelled(address, random));
+            }
+        }
+
+        shingles = new long[size][];
+        lsh = new MinHashLsh(20, 5);
+        for (int id = 0; id < size; id++) {
+            String[] a = addresses.get(id);
+            shingles[id] = AddressShingles.of(a[0], a[1], a[2], a[3], a[4], a[5]);
+            lsh.put(id, lsh.signature(shingles[id]));
+        }
+
+        // Candidates are the ids sharing a bucket; matches the candidates whose estimated similarity passes
+        long expected = 0;
+        long candidatesFound = 0;
+        long found = 0;
+        long returned = 0;
+        for (int query = 0; query < QUERIES; query++) {
+            int id = queryId(query);
+            Set<Integer> exact = new HashSet<>(bruteForce(id));
+            Set<Integer> candidates = new HashSet<>();
+            Set<Integer> matches = new HashSet<>();
+            for (MinHashLsh.Match match : lsh.similarTo(id, 0.0, Integer.MAX_VALUE)) {
+                candidates.add(match.id());
+                if (match.similarity() >= MIN_SIMILARITY) {
+                    matches.add(match.id());
+                }
+            }
+            expected += exact.size();
+            returned += matches.size();
+            candidates.retainAll(exact);
+            candidatesFound += candidates.size();
+            matches.retainAll(exact);
+            found += matches.size();
+        }
+        System.out.printf(Locale.ROOT, "%nsize %d, %d pairs at Jaccard >= %.1f: candidate recall %.3f, " +
+                        "recall %.3f, precision %.3f%n", size, expected, MIN_SIMILARITY, ratio(candidatesFound, expected),
+                ratio(found, expected), ratio(found, returned));
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 1.0 : (double) part / whole;
+    }
+
+    private int queryId(int query) {
+        return (int) ((long) query * size / QUERIES);
+    }
+
+    @Benchmark
+    public List<MinHashLsh.Match> lsh() {
+        return lsh.similarTo(queryId(next++ % QUERIES), MIN_SIMILARITY, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Integer> bruteForce() {
+        return bruteForce(queryId(next++ % QUERIES));
+    }
+
+    private List<Integer> bruteForce(int id) {
+        List<Integer> similar = new ArrayList<>();
+        for (int other = 0; other < shingles.length; other++) {
+            if (other != id && MinHashLsh.jaccard(shingles[id], shingles[other]) >= MIN_SIMILARITY) {
+                similar.add(other);
+            }
+        }
+        return similar;
+    }
+
+    // street, street2, city, state, pincode, country
+    private static String[] randomAddress(SplittableRandom random) {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        return new String[]{
+                (1 + random.nextInt(400)) + " " + STREETS[random.nextInt(STREETS.length)],
+                random.nextBoolean() ? null : "Apt " + (1 + random.nextInt(40)),
+                city[0], city[1], String.valueOf(10000 + random.nextInt(90000)), city[2]};
+    }
+
+    private static String[] respelled(String[] address, SplittableRandom random) {
+        String[] copy = address.clone();
+        String street = copy[0];
+        switch (random.nextInt(5)) {
+            case 0 -> copy[0] = street.toUpperCase(Locale.ROOT);
+            case 1 -> copy[0] = street.replace("Street", "St.").replace("Avenue", "Ave").replace("Road", "Rd");
+            case 2 -> copy[0] = street + " fr";
+            case 3 -> {
+                // Two adjacent letters of the street name swapped
+                int at = street.indexOf(' ') + 2;
+                copy[0] = street.substring(0, at) + street.charAt(at + 1) + street.charAt(at) + street.substring(at + 2);
+            }
+            default -> copy[1] = null;
+        }
+        return copy;
+    }
+}
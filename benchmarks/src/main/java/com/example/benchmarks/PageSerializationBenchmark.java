@@ -0,0 +1,59 @@
+package com.example.benchmarks;
+
+import com.example.backend.dto.CustomerDetailsResponse;
+import com.example.backend.mapper.AddressMapper;
+import com.example.backend.mapper.CustomerMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of a customer listing page, as returned by GET /api/customers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    // Same defaults as the application's ObjectMapper (ISO dates, unknown properties ignored)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Page<CustomerDetailsResponse> page;
+
+    @Setup
+    public void setUp() {
+        CustomerMapper mapper = new CustomerMapper(new AddressMapper());
+        List<CustomerDetailsResponse> content = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            content.add(mapper.toDetailsResponse(Fixtures.customer(i + 1, i % 4)));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, rows, Sort.by("firstName")), 250_000);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -1,3 +1,5 @@
+-- Baseline schema (Flyway version 1). Later changes are migrations in backend/src/main/resources/db/migration,
+-- applied by the backend at startup.
 CREATE DATABASE  IF NOT EXISTS `rootlogic-demo` /*!40100 DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci */ /*!80016 DEFAULT ENCRYPTION='N' */;
 USE `rootlogic-demo`;
 -- MySQL dump 10.13  Distrib 8.0.32, for macos13 (x86_64)
@@ -9,6 +9,8 @@ const apiClient = axios.create({
   headers: {
     'Content-Type': 'application/json',
   },
+  // Send the backend's read-primary-until cookie so reads after a write see that write
+  withCredentials: true,
 });
 
 // Error codes
@@ -0,0 +1,80 @@
+package com.example.loadtest;
+
+import com.example.backend.model.Address;
+import com.example.backend.uniqueness.AddressHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Seeds the embedded database with JDBC batches. Runs as an ApplicationRunner, i.e. before ApplicationReadyEvent,
+// so the in-memory indexes are built from the seeded tables
+class DataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSeeder.class);
+
+    private static final int BATCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int customers;
+    private final int addressesPerCustomer;
+
+    DataSeeder(JdbcTemplate jdbcTemplate,
+               @Value("${loadtest.customers}") int customers,
+               @Value("${loadtest.addresses-per-customer}") int addressesPerCustomer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customers = customers;
+        this.addressesPerCustomer = addressesPerCustomer;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long addresses = 0;
+        for (int customer = 1; customer <= customers; customer++) {
+            int count = SeedData.addressCount(customer, addressesPerCustomer);
+            addresses += count;
+            batch.add(new Object[]{SeedData.firstName(customer), SeedData.lastName(customer), SeedData.phone(customer),
+                    SeedData.email(customer), Timestamp.valueOf(now.minusMinutes(customers - customer)), count});
+            if (batch.size() == BATCH_SIZE || customer == customers) {
+                jdbcTemplate.batchUpdate("INSERT INTO customers (first_name, last_name, phone, email, created_at, " +
+                        "num_addresses) VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        // Fresh identity columns: customer n got id n, which the address rows and the workload rely on
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Integer.class);
+        if (maxId == null || maxId != customers) {
+            throw new IllegalStateException("Expected customer ids 1.." + customers + " in a fresh database");
+        }
+
+        int[] types = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                Types.VARCHAR, Types.BINARY};
+        for (int customer = 1; customer <= customers; customer++) {
+            int count = SeedData.addressCount(customer, addressesPerCustomer);
+            for (int index = 0; index < count; index++) {
+                Address address = SeedData.address(customer, index);
+                batch.add(new Object[]{customer, address.getStreet(), address.getStreet2(), address.getCity(),
+                        address.getState(), address.getPincode(), address.getCountry(),
+                        AddressHasher.toBytes(address.getAddressHash())});
+            }
+            if (batch.size() >= BATCH_SIZE || customer == customers) {
+                jdbcTemplate.batchUpdate("INSERT INTO addresses (customer_id, street, street2, city, state, pincode, " +
+                        "country, address_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch, types);
+                batch.clear();
+            }
+        }
+        log.warn("Seeded {} customers and {} addresses in {} ms", customers, addresses, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-endpoint latency histograms (microseconds, 3 significant digits) and error counts, written as JSON and
+// compared against a previous run
+final class LatencyReport {
+
+    private static final long MAX_LATENCY_MICROS = 120_000_000L;
+
+    private final List<String> endpoints;
+    private final Histogram[] histograms;
+    private final AtomicLongArray errors;
+
+    LatencyReport(List<String> endpoints) {
+        this.endpoints = endpoints;
+        this.histograms = new Histogram[endpoints.size()];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        }
+        this.errors = new AtomicLongArray(endpoints.size());
+    }
+
+    void record(int endpoint, long latencyNanos, boolean failed) {
+        histograms[endpoint].recordValue(Math.min(latencyNanos / 1000, MAX_LATENCY_MICROS));
+        if (failed) {
+            errors.incrementAndGet(endpoint);
+        }
+    }
+
+    ObjectNode toJson(ObjectMapper objectMapper, LoadTestConfig config, double measuredSeconds) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode settings = root.putObject("config");
+        settings.put("customers", config.customers());
+        settings.put("addressesPerCustomer", config.addressesPerCustomer());
+        settings.put("rate", config.rate());
+        settings.put("durationSeconds", config.durationSeconds());
+        settings.putPOJO("mix", config.mix());
+
+        ObjectNode results = root.putObject("endpoints");
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Histogram histogram = histograms[i].copy();
+            total.add(histogram);
+            totalErrors += errors.get(i);
+            summarize(results.putObject(endpoints.get(i)), histogram, errors.get(i), measuredSeconds);
+        }
+        summarize(root.putObject("total"), total, totalErrors, measuredSeconds);
+        return root;
+    }
+
+    private static void summarize(ObjectNode node, Histogram histogram, long errors, double seconds) {
+        long count = histogram.getTotalCount();
+        node.put("count", count);
+        node.put("errors", errors);
+        node.put("errorRate", count == 0 ? 0 : (double) errors / count);
+        node.put("throughput", count / seconds);
+        node.put("p50Ms", millis(histogram, 50));
+        node.put("p95Ms", millis(histogram, 95));
+        node.put("p99Ms", millis(histogram, 99));
+        node.put("p999Ms", millis(histogram, 99.9));
+        node.put("maxMs", histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static void write(ObjectMapper objectMapper, JsonNode report, String path) throws IOException {
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(path), report);
+    }
+
+    // Endpoints whose p99 or error rate got worse than the baseline by more than the threshold
+    static List<String> regressions(JsonNode current, JsonNode baseline, double thresholdPercent) {
+        double factor = 1 + thresholdPercent / 100;
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : current.get("endpoints").properties()) {
+            JsonNode before = baseline.path("endpoints").get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double p99Before = before.get("p99Ms").asDouble();
+            double p99After = after.get("p99Ms").asDouble();
+            // Sub-millisecond differences are timer noise rather than regressions
+            if (p99After > p99Before * factor && p99After - p99Before >= 1.0) {
+                regressions.add(String.format("%s p99 %.2f ms -> %.2f ms", entry.getKey(), p99Before, p99After));
+            }
+            double errorsBefore = before.get("errorRate").asDouble();
+            double errorsAfter = after.get("errorRate").asDouble();
+            if (errorsAfter > errorsBefore * factor && errorsAfter - errorsBefore > 0.001) {
+                regressions.add(String.format("%s error rate %.4f -> %.4f", entry.getKey(), errorsBefore, errorsAfter));
+            }
+        }
+        return regressions;
+    }
+}
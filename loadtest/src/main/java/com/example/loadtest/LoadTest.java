@@ -0,0 +1,138 @@
+package com.example.loadtest;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.search.AddressFacetIndex;
+import com.example.backend.search.CustomerSearchIndex;
+import com.example.backend.uniqueness.UniquenessIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Boots the backend on a random port against a seeded in-memory H2 database (MySQL mode) and drives it with an
+// open-loop request generator. Latency is measured from each request's scheduled send time rather than from the
+// moment it was actually sent, so a slow server can't hide its queueing delay (coordinated omission).
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        ConfigurableApplicationContext context = start(config);
+        int exitCode;
+        try {
+            exitCode = run(context, config);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestConfig config) throws InterruptedException {
+        // Command-line arguments, so they take precedence over the backend's MySQL application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class, DataSeeder.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+                                "DEFAULT_NULL_ORDERING=LOW;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--loadtest.customers=" + config.customers(),
+                        "--loadtest.addresses-per-customer=" + config.addressesPerCustomer());
+
+        // The indexes build asynchronously after startup; measuring before they are ready would test the fallbacks
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(10);
+        while (!context.getBean(CustomerSearchIndex.class).isAvailable()
+                || !context.getBean(AddressFacetIndex.class).isAvailable()
+                || !context.getBean(UniquenessIndex.class).isAvailable()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("In-memory indexes did not become available");
+            }
+            Thread.sleep(200);
+        }
+        return context;
+    }
+
+    private static int run(ConfigurableApplicationContext context, LoadTestConfig config) throws Exception {
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        Long addresses = context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM addresses", Long.class);
+        Workload workload = new Workload(baseUrl, config.customers(), addresses, config.mix());
+        LatencyReport report = new LatencyReport(workload.names());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder().executor(executor).build();
+        ConcurrentLinkedQueue<CompletableFuture<?>> pending = new ConcurrentLinkedQueue<>();
+
+        Random random = new Random(42);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        System.out.printf("Sending %d req/s to %s for %d s warmup + %d s%n", config.rate(), baseUrl,
+                config.warmupSeconds(), config.durationSeconds());
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int endpoint = workload.pick(random);
+            boolean measured = intended >= measureFrom;
+            CompletableFuture<?> future = client.sendAsync(workload.request(endpoint, random), HttpResponse.BodyHandlers.ofString())
+                    .handle((response, failure) -> {
+                        if (measured) {
+                            report.record(endpoint, System.nanoTime() - intended, failure != null || failed(response));
+                        }
+                        return null;
+                    });
+            pending.add(future);
+            pending.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+        executor.shutdownNow();
+
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        JsonNode result = report.toJson(objectMapper, config, config.durationSeconds());
+        LatencyReport.write(objectMapper, result, config.output());
+        JsonNode total = result.get("total");
+        System.out.printf("%d requests, %d errors, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, written to %s%n",
+                total.get("count").asLong(), total.get("errors").asLong(), total.get("p50Ms").asDouble(),
+                total.get("p99Ms").asDouble(), total.get("p999Ms").asDouble(), config.output());
+
+        if (config.baseline() == null) {
+            return 0;
+        }
+        JsonNode baseline = objectMapper.readTree(new File(config.baseline()));
+        List<String> regressions = LatencyReport.regressions(result, baseline, config.thresholdPercent());
+        if (regressions.isEmpty()) {
+            System.out.printf("No regression beyond %.0f%% against %s%n", config.thresholdPercent(), config.baseline());
+            return 0;
+        }
+        System.out.printf("Regressions beyond %.0f%% against %s:%n", config.thresholdPercent(), config.baseline());
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return 1;
+    }
+
+    // The controllers report failures as HTTP 200 with an error code in the body
+    private static boolean failed(HttpResponse<String> response) {
+        return response.statusCode() >= 400 || (response.body().contains("\"errorCode\":\"")
+                && !response.body().contains("\"errorCode\":\"SUCCESS\""));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.loadtest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Load test options, parsed from --name=value arguments
+record LoadTestConfig(
+        // Seeded volume; addresses per customer is the average, customers get 1 .. 2*avg-1 addresses
+        int customers,
+        int addressesPerCustomer,
+        // Open-loop arrival rate in requests per second, independent of response times
+        int rate,
+        int warmupSeconds,
+        int durationSeconds,
+        // Endpoint name to relative weight
+        Map<String, Integer> mix,
+        String output,
+        // Previous result to compare against, and the allowed p99 / error rate regression in percent
+        String baseline,
+        double thresholdPercent) {
+
+    static final String DEFAULT_MIX = "getCustomer=25,listCustomers=15,searchCustomers=15,advancedSearch=10," +
+            "getAddresses=15,getAddress=10,updateCustomer=6,createAddress=4";
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                Integer.parseInt(options.getOrDefault("customers", "100000")),
+                Integer.parseInt(options.getOrDefault("addresses-per-customer", "3")),
+                Integer.parseInt(options.getOrDefault("rate", "500")),
+                Integer.parseInt(options.getOrDefault("warmup", "15")),
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                options.getOrDefault("output", "loadtest-result.json"),
+                options.get("baseline"),
+                Double.parseDouble(options.getOrDefault("threshold", "10")));
+        if (config.customers() < 1 || config.addressesPerCustomer() < 1 || config.rate() < 1) {
+            throw new IllegalArgumentException("customers, addresses-per-customer and rate must be positive");
+        }
+        return config;
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return mix;
+    }
+}
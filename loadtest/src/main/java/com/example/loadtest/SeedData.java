@@ -0,0 +1,59 @@
+package com.example.loadtest;
+
+import com.example.backend.model.Address;
+
+import java.util.Locale;
+
+// Deterministic synthetic customers and addresses, so the workload can rebuild any seeded row from its id
+final class SeedData {
+
+    static final String[] FIRST_NAMES = {"Leo", "Pedri", "Robert", "Aitana", "Alexia", "Gavi", "Lamine", "Frenkie",
+            "Marc", "Jules", "Ronald", "Patri", "Claudia", "Mapi", "Irene", "Salma", "Ferran", "Dani", "Inigo", "Raphinha"};
+    static final String[] LAST_NAMES = {"Messi", "Gonzalez", "Lewandowski", "Bonmati", "Putellas", "Paez", "Yamal",
+            "Jong", "Andre", "Kounde", "Araujo", "Guijarro", "Pina", "Leon", "Paredes", "Paralluelo", "Torres", "Olmo",
+            "Martinez", "Belloli"};
+    static final String[][] CITIES = {{"Barcelona", "Catalonia"}, {"Madrid", "Madrid"}, {"Valencia", "Valencia"},
+            {"Seville", "Andalusia"}, {"Bilbao", "Basque Country"}, {"San Francisco", "CA"}, {"Austin", "TX"},
+            {"Nagpur", "Maharashtra"}, {"Pune", "Maharashtra"}, {"Bengaluru", "Karnataka"}, {"Richmond", "VA"},
+            {"Porto", "Porto"}, {"Lyon", "Auvergne-Rhone-Alpes"}, {"Milan", "Lombardy"}, {"Munich", "Bavaria"}};
+    static final String[] STREETS = {"Market St", "Rambla de Catalunya", "Gran Via", "Main St", "Diagonal",
+            "Greeky Row", "Carrer de Balmes", "High St", "Park Ave", "MG Road"};
+
+    private SeedData() {
+    }
+
+    static String firstName(int customer) {
+        return FIRST_NAMES[customer % FIRST_NAMES.length];
+    }
+
+    static String lastName(int customer) {
+        return LAST_NAMES[(customer / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+
+    static String email(int customer) {
+        return (firstName(customer) + "." + lastName(customer) + "." + customer + "@example.com").toLowerCase(Locale.ROOT);
+    }
+
+    static String phone(int customer) {
+        return String.valueOf(6_000_000_000L + customer);
+    }
+
+    // Customers get 1 .. 2*avg-1 addresses, avg on average
+    static int addressCount(int customer, int averagePerCustomer) {
+        return 1 + customer % (2 * averagePerCustomer - 1);
+    }
+
+    static Address address(int customer, int index) {
+        String[] city = CITIES[(customer + index) % CITIES.length];
+        Address address = Address.builder()
+                .street((index + 1) + " " + STREETS[(customer * 7 + index) % STREETS.length] + " " + customer)
+                .street2(index % 3 == 0 ? null : "Apt " + (customer % 90 + index))
+                .city(city[0])
+                .state(city[1])
+                .pincode(String.valueOf(10000 + (customer * 31 + index) % 90000))
+                .country(customer % 4 == 0 ? "USA" : "Spain")
+                .build();
+        address.computeHash();
+        return address;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Weighted mix of requests against the real CustomerController and AddressController endpoints.
+// Requests only reference seeded rows, rebuilt from their ids through SeedData.
+final class Workload {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String[] SORT_FIELDS = {"firstName", "lastName", "email", "id"};
+
+    private final String baseUrl;
+    private final int customers;
+    private final long addresses;
+    private final AtomicLong createdAddresses = new AtomicLong();
+
+    private final Map<String, Function<Random, HttpRequest>> endpoints = new LinkedHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final int[] cumulativeWeights;
+
+    Workload(String baseUrl, int customers, long addresses, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.customers = customers;
+        this.addresses = addresses;
+
+        endpoints.put("getCustomer", random -> get("/api/customers/" + customer(random)));
+        endpoints.put("listCustomers", random -> get("/api/customers?page=" + random.nextInt(100) + "&size=10&sortBy="
+                + SORT_FIELDS[random.nextInt(SORT_FIELDS.length)] + "&sortDir=" + (random.nextBoolean() ? "asc" : "desc")));
+        endpoints.put("searchCustomers", random -> get("/api/customers/search?size=10&query="
+                + encode(searchTerm(random))));
+        endpoints.put("advancedSearch", random -> get("/api/customers/search/advanced?size=10&city="
+                + encode(SeedData.CITIES[random.nextInt(SeedData.CITIES.length)][0])));
+        endpoints.put("getAddresses", random -> get("/api/addresses/" + customer(random)));
+        endpoints.put("getAddress", random -> get("/api/addresses/getAddress/" + (1 + (long) (random.nextDouble() * addresses))));
+        endpoints.put("updateCustomer", random -> {
+            int customer = customer(random);
+            String body = String.format("{\"id\":%d,\"firstName\":\"%s\",\"lastName\":\"%s\",\"email\":\"%s\",\"phone\":\"%s\"}",
+                    customer, SeedData.FIRST_NAMES[random.nextInt(SeedData.FIRST_NAMES.length)],
+                    SeedData.lastName(customer), SeedData.email(customer), SeedData.phone(customer));
+            return json("/api/customers").PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+        });
+        endpoints.put("createAddress", random -> {
+            // Unique street per request so the address hash never collides
+            String body = String.format("{\"street\":\"%d Load Test Ave\",\"city\":\"Girona\",\"state\":\"Catalonia\"," +
+                    "\"pincode\":\"17001\",\"country\":\"Spain\"}", createdAddresses.incrementAndGet());
+            return json("/api/addresses/" + customer(random)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        });
+
+        cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            if (!endpoints.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown endpoint in mix: " + entry.getKey() + ", known: " + endpoints.keySet());
+            }
+            total += entry.getValue();
+            cumulativeWeights[names.size()] = total;
+            names.add(entry.getKey());
+        }
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    // Index into names() of the next endpoint, drawn by weight
+    int pick(Random random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    HttpRequest request(int endpoint, Random random) {
+        return endpoints.get(names.get(endpoint)).apply(random);
+    }
+
+    private int customer(Random random) {
+        return 1 + random.nextInt(customers);
+    }
+
+    // Name prefixes, email fragments or phone digits, like the CRM search box
+    private String searchTerm(Random random) {
+        int customer = customer(random);
+        return switch (random.nextInt(3)) {
+            case 0 -> {
+                String name = SeedData.firstName(customer);
+                yield name.substring(0, Math.min(name.length(), 3 + random.nextInt(2)));
+            }
+            case 1 -> SeedData.email(customer).substring(0, SeedData.email(customer).indexOf('@'));
+            default -> SeedData.phone(customer).substring(4);
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private HttpRequest.Builder json(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT)
+                .header("Content-Type", "application/json");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}